@@ -0,0 +1,284 @@
+package BookDirectory;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Фильтр Блума - вероятностное множество строк-ключей (isbn книг, пары isbn + id иллюстрации).
+ * Ответ "ключа нет" точный, ответ "ключ, возможно, есть" ошибочен с вероятностью не больше заданной
+ * (если в фильтр добавлено не больше expectedInsertions ключей). Удалять ключи из фильтра нельзя:
+ * удалённые ключи дают лишние ответы "возможно, есть", поэтому после большого числа удалений фильтр строится заново.
+ * Биты хранятся в массиве long[], номера битов ключа вычисляются двойным хешированием (два независимых хеша строки).
+ * @author dyakonov
+ * @see BookDirectory.Model#isBookInCatalog(String)
+ */
+public final class BloomFilter {
+
+    /**
+     * Признак и версия формата файла фильтра.
+     */
+    private static final int FILE_MAGIC = 0x424C4F4D;
+    private static final int FILE_VERSION = 1;
+
+    /**
+     * Биты фильтра.
+     */
+    private final long[] bits;
+
+    /**
+     * Количество битов и количество хеш-функций.
+     */
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * Расчётное количество ключей и заданная вероятность ложного срабатывания.
+     */
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+
+    /**
+     * Счётчики: добавленные и удалённые (из каталога) ключи.
+     */
+    private long insertions = 0;
+    private long deletions = 0;
+
+    /**
+     * Статистика запросов: проверки, ответы "возможно, есть", подтверждённые ложные срабатывания.
+     */
+    private long queries = 0;
+    private long positives = 0;
+    private long falsePositives = 0;
+
+    /**
+     * Конструктор - пустой фильтр, рассчитанный на expectedInsertions ключей.
+     * Размер: m = -n * ln(p) / ln(2)^2 битов, k = m / n * ln(2) хеш-функций.
+     * @param expectedInsertions long - расчётное количество ключей.
+     * @param falsePositiveRate double - допустимая вероятность ложного срабатывания (от 0 до 1).
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate){
+        this.expectedInsertions = Math.max(1, expectedInsertions);
+        this.falsePositiveRate = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+        long m = (long) Math.ceil(-this.expectedInsertions * Math.log(this.falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = Math.max(64, (m + 63) / 64 * 64);
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / this.expectedInsertions * Math.log(2)));
+        this.bits = new long[(int) (bitCount / 64)];
+    }
+
+    /**
+     * Конструктор для чтения фильтра из файла.
+     */
+    private BloomFilter(long[] bits, int hashCount, long expectedInsertions, double falsePositiveRate){
+        this.bits = bits;
+        this.bitCount = (long) bits.length * 64;
+        this.hashCount = hashCount;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     * Метод для добавления ключа в фильтр.
+     * Ключ, все биты которого уже установлены (повторное добавление), не увеличивает количество ключей.
+     * @param key String - ключ.
+     */
+    public synchronized void add(String key){
+        long hash1 = hash1(key);
+        long hash2 = hash2(key);
+        boolean added = false;
+        for(int i = 0; i < hashCount; i++){
+            long bit = index(hash1, hash2, i);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if((bits[word] & mask) == 0){
+                bits[word] |= mask;
+                added = true;
+            }
+        }
+        if(added){insertions++;}
+    }
+
+    /**
+     * Метод для проверки ключа.
+     * @param key String - ключ.
+     * @return Boolean: false - ключа точно нет; true - ключ, возможно, есть (нужна проверка в б.д.).
+     */
+    public synchronized boolean mightContain(String key){
+        queries++;
+        long hash1 = hash1(key);
+        long hash2 = hash2(key);
+        for(int i = 0; i < hashCount; i++){
+            long bit = index(hash1, hash2, i);
+            if((bits[(int) (bit >>> 6)] & (1L << bit)) == 0){
+                return false;
+            }
+        }
+        positives++;
+        return true;
+    }
+
+    /**
+     * Метод для учёта удалённого из каталога ключа (сам ключ остаётся в фильтре).
+     */
+    public synchronized void recordDeletion(){
+        deletions++;
+    }
+
+    /**
+     * Метод для учёта ложного срабатывания (фильтр ответил "возможно, есть", а в б.д. ключа нет).
+     */
+    public synchronized void recordFalsePositive(){
+        falsePositives++;
+    }
+
+    /**
+     * Метод для сброса статистики запросов (например, перед импортом каталога).
+     */
+    public synchronized void resetStatistics(){
+        queries = 0;
+        positives = 0;
+        falsePositives = 0;
+    }
+
+    /**
+     * Метод для проверки, нужно ли построить фильтр заново: ключей больше расчётного количества
+     * или удалённых ключей больше четверти добавленных (вероятность ложного срабатывания выросла).
+     * @return Boolean: true, если фильтр нужно построить заново.
+     */
+    public synchronized boolean isStale(){
+        return insertions > expectedInsertions || deletions * 4 > insertions;
+    }
+
+    /**
+     * Метод для расчёта текущей вероятности ложного срабатывания: (1 - e^(-k*n/m))^k.
+     * @return double - вероятность (от 0 до 1).
+     */
+    public synchronized double getExpectedFalsePositiveRate(){
+        return Math.pow(1 - Math.exp(-hashCount * (double) insertions / bitCount), hashCount);
+    }
+
+    /**
+     * "Геттер" для получения заданной вероятности ложного срабатывания.
+     * @return double
+     */
+    public double getFalsePositiveRate(){
+        return falsePositiveRate;
+    }
+
+    /**
+     * "Геттер" для получения количества проверок.
+     * @return long
+     */
+    public synchronized long getQueryCount(){
+        return queries;
+    }
+
+    /**
+     * "Геттер" для получения количества ответов "возможно, есть".
+     * @return long
+     */
+    public synchronized long getPositiveCount(){
+        return positives;
+    }
+
+    /**
+     * "Геттер" для получения количества подтверждённых ложных срабатываний.
+     * @return long
+     */
+    public synchronized long getFalsePositiveCount(){
+        return falsePositives;
+    }
+
+    /**
+     * "Геттер" для получения количества добавленных ключей.
+     * @return long
+     */
+    public synchronized long getInsertionCount(){
+        return insertions;
+    }
+
+    /**
+     * "Геттер" для получения размера фильтра в битах.
+     * @return long
+     */
+    public long getBitCount(){
+        return bitCount;
+    }
+
+    /**
+     * Метод для записи фильтра в поток.
+     * @param out DataOutputStream - поток записи.
+     * @throws IOException Ошибки ввода-вывода.
+     */
+    public synchronized void writeTo(DataOutputStream out) throws IOException{
+        out.writeInt(FILE_MAGIC);
+        out.writeInt(FILE_VERSION);
+        out.writeInt(hashCount);
+        out.writeLong(expectedInsertions);
+        out.writeDouble(falsePositiveRate);
+        out.writeLong(insertions);
+        out.writeLong(deletions);
+        out.writeInt(bits.length);
+        for(long word : bits){
+            out.writeLong(word);
+        }
+    }
+
+    /**
+     * Метод для чтения фильтра из потока.
+     * @param in DataInputStream - поток чтения.
+     * @return BloomFilter - прочитанный фильтр.
+     * @throws IOException Ошибки ввода-вывода или неверный формат файла.
+     */
+    public static BloomFilter readFrom(DataInputStream in) throws IOException{
+        if(in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION){
+            throw new IOException("Unsupported format of the bloom filter file");
+        }
+        int hashCount = in.readInt();
+        long expectedInsertions = in.readLong();
+        double falsePositiveRate = in.readDouble();
+        long insertions = in.readLong();
+        long deletions = in.readLong();
+        long[] bits = new long[in.readInt()];
+        for(int i = 0; i < bits.length; i++){
+            bits[i] = in.readLong();
+        }
+        BloomFilter filter = new BloomFilter(bits, hashCount, expectedInsertions, falsePositiveRate);
+        filter.insertions = insertions;
+        filter.deletions = deletions;
+        return filter;
+    }
+
+    /**
+     * Служебный метод - номер i-го бита ключа (двойное хеширование: h1 + i * h2).
+     */
+    private long index(long hash1, long hash2, int i){
+        long combined = hash1 + i * hash2;
+        return (combined & Long.MAX_VALUE) % bitCount;
+    }
+
+    /**
+     * Служебный метод - первый хеш строки (String.hashCode с перемешиванием битов, финализатор MurmurHash3).
+     */
+    private static long hash1(String key){
+        long h = key.hashCode();
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Служебный метод - второй хеш строки (FNV-1a по символам), всегда нечётный.
+     */
+    private static long hash2(String key){
+        long h = 0xcbf29ce484222325L;
+        for(int i = 0; i < key.length(); i++){
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h | 1;
+    }
+}
@@ -1,6 +1,7 @@
 package BookDirectory;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 
 interface CatalogItem{
     String getIsbn();
@@ -74,6 +75,21 @@ public class Book implements CatalogItem {
         this.illustrations.add(new Illustration(id, name, author));
     }
 
+    /**
+     * Метод для удаления иллюстрации из коллекции illustrations книги.
+     * @param id Id удаляемой иллюстрации
+     * @return true, если иллюстрация была у книги и удалена, иначе - false
+     */
+    public boolean removeIllustration(String id){
+        for(Iterator<Illustration> iterator = illustrations.iterator(); iterator.hasNext();){
+            if(iterator.next().getId().equals(id)){
+                iterator.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Метод для получения иллюстраций книги
      * @return коллекцию иллюстраций книги
@@ -0,0 +1,241 @@
+package BookDirectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Экспорт списка книг (пункт 5-5): каждая книга списка - в свой файл "export_isbn.txt" (как в пункте 5-1).
+ * Книги выбираются из б.д. пачками по DerbyDBManager.IN_LIST_SIZE isbn - одним запросом по индексу первичного ключа
+ * на пачку (а не запросом на каждую книгу); файлы записываются параллельно пулом потоков записи.
+ * Очередь пула ограничена: если потоки записи не успевают, выборка ждёт (книга записывается в потоке выборки),
+ * поэтому в памяти одновременно не больше нескольких пачек книг.
+ * @author dyakonov
+ * @see BookDirectory.DerbyDBManager#selectBooksByIsbnsQuery(java.util.List)
+ */
+public final class BookBatchExporter {
+
+    /**
+     * "Логгер" класса.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Model.class.getName());
+
+    /**
+     * Папка выгрузки и количество потоков записи.
+     */
+    private final String directory;
+    private final int threads;
+
+    /**
+     * Isbn из списка, которых нет в каталоге (в порядке списка).
+     */
+    private final ArrayList<String> missing = new ArrayList<String>();
+
+    /**
+     * Итоги: запрошенные isbn (без повторов), записанные файлы, ошибки записи, байты, время экспорта (в нс).
+     */
+    private int requested = 0;
+    private final AtomicInteger written = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong bytes = new AtomicLong();
+    private long elapsedNanos = 0;
+
+    /**
+     * Конструктор.
+     * @param directory String - папка выгрузки (обычно export).
+     * @param threads int - количество потоков записи файлов.
+     */
+    public BookBatchExporter(String directory, int threads){
+        this.directory = directory;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Метод для чтения списка isbn: значения разделяются пробелами, переводами строк, запятыми или точками с запятой.
+     * @param reader Reader - поток чтения списка (закрывается после чтения).
+     * @return List<String> - isbn по порядку (с повторами, если они есть в списке).
+     * @throws IOException Ошибки ввода-вывода.
+     */
+    public static List<String> readIsbns(Reader reader) throws IOException{
+        ArrayList<String> isbns = new ArrayList<String>();
+        StringBuilder token = new StringBuilder();
+        try {
+            int c;
+            while((c = reader.read()) != -1){
+                if(c == '\uFEFF'){continue;}
+                if(Character.isWhitespace(c) || c == ',' || c == ';'){
+                    if(token.length() > 0){
+                        isbns.add(token.toString());
+                        token.setLength(0);
+                    }
+                }
+                else {token.append((char) c);}
+            }
+        }
+        finally {reader.close();}
+        if(token.length() > 0){isbns.add(token.toString());}
+        return isbns;
+    }
+
+    /**
+     * Метод для экспорта книг списка. Повторы isbn в списке отбрасываются.
+     * @param isbns Collection<String> - isbn книг.
+     * @throws Exception Ошибки SQL (ошибки записи отдельных файлов только считаются - см. getFailedCount()).
+     */
+    public void run(Collection<String> isbns) throws Exception{
+        long startTime = System.nanoTime();
+        LinkedHashSet<String> unique = new LinkedHashSet<String>(isbns);
+        requested = unique.size();
+        File folder = new File(directory);
+        if(!folder.isDirectory() && !folder.mkdirs()){throw new IOException("The directory is not created: " + folder.getAbsolutePath());}
+        ThreadPoolExecutor writers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(DerbyDBManager.IN_LIST_SIZE * 2), threadFactory(), new ThreadPoolExecutor.CallerRunsPolicy());
+        DerbyDBManager db = new DerbyDBManager();
+        try {
+            ArrayList<String> chunk = new ArrayList<String>(DerbyDBManager.IN_LIST_SIZE);
+            HashSet<String> found = new HashSet<String>();
+            for(String isbn : unique){
+                chunk.add(isbn);
+                if(chunk.size() == DerbyDBManager.IN_LIST_SIZE){
+                    exportChunk(db, chunk, found, writers);
+                    chunk.clear();
+                }
+            }
+            if(!chunk.isEmpty()){exportChunk(db, chunk, found, writers);}
+            for(String isbn : unique){
+                if(!found.contains(isbn)){missing.add(isbn);}
+            }
+        }
+        finally {
+            db.close();
+            writers.shutdown();
+            while(!writers.awaitTermination(1, TimeUnit.SECONDS)){
+                if(LOGGER.isLoggable(Level.FINE)){
+                    LOGGER.fine("Waiting for the book export files in progress");}
+            }
+        }
+        elapsedNanos = System.nanoTime() - startTime;
+        if(LOGGER.isLoggable(Level.INFO)){
+            LOGGER.log(Level.INFO, "Book list export is finished (in ms, requested, written, missing, failed, bytes): ",
+                    elapsedNanos / 1000000 + ", " + requested + ", " + written.get() + ", " + missing.size() + ", " + failed.get() + ", " + bytes.get());}
+    }
+
+    /**
+     * "Геттер" для получения количества isbn в списке (без повторов).
+     * @return int
+     */
+    public int getRequestedCount(){
+        return requested;
+    }
+
+    /**
+     * "Геттер" для получения количества записанных файлов.
+     * @return int
+     */
+    public int getWrittenCount(){
+        return written.get();
+    }
+
+    /**
+     * "Геттер" для получения количества файлов, которые не удалось записать.
+     * @return int
+     */
+    public int getFailedCount(){
+        return failed.get();
+    }
+
+    /**
+     * "Геттер" для получения isbn из списка, которых нет в каталоге.
+     * @return List<String>
+     */
+    public List<String> getMissing(){
+        return missing;
+    }
+
+    /**
+     * "Геттер" для получения размера всех записанных файлов в байтах.
+     * @return long
+     */
+    public long getByteCount(){
+        return bytes.get();
+    }
+
+    /**
+     * "Геттер" для получения времени экспорта.
+     * @return long - время в нс.
+     */
+    public long getElapsedNanos(){
+        return elapsedNanos;
+    }
+
+    /**
+     * Служебный метод - выборка пачки книг одним запросом и передача книг потокам записи.
+     * @param db DerbyDBManager - менеджер б.д.
+     * @param chunk List<String> - isbn пачки (не больше IN_LIST_SIZE).
+     * @param found Collection<String> - найденные isbn (дополняется).
+     * @param writers ThreadPoolExecutor - пул потоков записи.
+     * @throws Exception Ошибки SQL
+     */
+    private void exportChunk(DerbyDBManager db, List<String> chunk, Collection<String> found, ThreadPoolExecutor writers) throws Exception{
+        CatalogHydrator hydrator = new CatalogHydrator(db.selectBooksByIsbnsQuery(chunk));
+        Book book;
+        while((book = hydrator.nextBook()) != null){
+            found.add(book.getIsbn());
+            final Book target = book;
+            writers.execute(new Runnable() {
+                public void run(){
+                    writeBook(target);
+                }
+            });
+        }
+    }
+
+    /**
+     * Служебный метод - запись книги в файл "export_isbn.txt".
+     * @param book Book - книга с иллюстрациями.
+     */
+    private void writeBook(Book book){
+        String fileName = Model.getInstance().exportFileName("export_" + book.getIsbn() + ".txt");
+        try {
+            CatalogExportWriter writer = new CatalogExportWriter(FileInOut.getInstance().openFileOutputStream(fileName, directory));
+            try {
+                writer.writeBook(book);
+            }
+            finally {writer.close();}
+            written.incrementAndGet();
+            bytes.addAndGet(writer.getByteCount());
+        }
+        catch (IOException e){
+            failed.incrementAndGet();
+            LOGGER.log(Level.SEVERE, "IOException: " + e.toString() + "", fileName);
+        }
+    }
+
+    /**
+     * Служебный метод - фабрика фоновых потоков записи.
+     * @return ThreadFactory
+     */
+    private static ThreadFactory threadFactory(){
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadFactory() {
+            public Thread newThread(Runnable runnable){
+                Thread thread = new Thread(runnable, "export-book-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+}
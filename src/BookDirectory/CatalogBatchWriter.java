@@ -0,0 +1,273 @@
+package BookDirectory;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Класс для пакетной записи книг и иллюстраций в б.д. (используется при импорте каталога).
+ * Записи накапливаются в пакетах (addBatch) и фиксируются одной транзакцией каждые importBatchSize записей.
+ * Если пакет не удалось записать (например, дубль isbn) - транзакция пакета откатывается и его записи
+ * повторяются по одной, так что ошибочные записи отбрасываются, а остальные импортируются.
+ * Ключи записанных книг и иллюстраций добавляются в фильтр Блума каталога (Model.addCatalogKey).
+ * После работы writer нужно закрыть методом close() - он записывает остаток и возвращает соединение в пул.
+ * @author dyakonov
+ * @see BookDirectory.DerbyDBManager
+ */
+public final class CatalogBatchWriter {
+
+    /**
+     * "Логгер" класса.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Model.class.getName());
+
+    /**
+     * SQLState derby: нарушение уникальности ключа и нарушение внешнего ключа.
+     */
+    private static final String SQL_STATE_DUPLICATE = "23505";
+    private static final String SQL_STATE_NO_PARENT = "23503";
+
+    /**
+     * Менеджер б.д., соединение которого используется для записи.
+     */
+    private final DerbyDBManager db;
+    private final Connection con;
+
+    /**
+     * Подготовленные запросы добавления книги и иллюстрации.
+     */
+    private final PreparedStatement insertBook;
+    private final PreparedStatement insertIllustration;
+
+    /**
+     * Количество записей в одном пакете.
+     */
+    private final int batchSize;
+
+    /**
+     * Записи текущего (ещё не зафиксированного) пакета - для повтора по одной при ошибке.
+     */
+    private final ArrayList<String[]> pendingBooks = new ArrayList<String[]>();
+    private final ArrayList<String[]> pendingIllustrations = new ArrayList<String[]>();
+
+    /**
+     * Счётчики: записанные книги и иллюстрации, отброшенные записи, зафиксированные пакеты.
+     */
+    private long booksWritten = 0;
+    private long illustrationsWritten = 0;
+    private long failures = 0;
+    private long batches = 0;
+
+    /**
+     * Конструктор - получает соединение из пула и открывает транзакцию.
+     * @param batchSize int - количество записей в одном пакете (транзакции).
+     * @throws SQLException Ошибки SQL или нет свободного соединения в пуле.
+     */
+    public CatalogBatchWriter(int batchSize) throws SQLException{
+        this.batchSize = Math.max(1, batchSize);
+        db = new DerbyDBManager();
+        try {
+            con = db.getConnection();
+            con.setAutoCommit(false);
+            insertBook = db.prepare(DerbyDBManager.SQL_INSERT_BOOK);
+            insertIllustration = db.prepare(DerbyDBManager.SQL_INSERT_ILLUSTRATION);
+        }
+        catch (SQLException e){
+            db.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Метод для добавления книги в текущий пакет.
+     * @param isbn String - Isbn книги
+     * @param title String - Название книги
+     * @param author String - Автор Книги
+     * @throws SQLException Ошибки SQL (кроме нарушений ключей - такие записи отбрасываются).
+     */
+    public void addBook(String isbn, String title, String author) throws SQLException{
+        bind(insertBook, isbn, title, author);
+        insertBook.addBatch();
+        pendingBooks.add(new String[]{isbn, title, author});
+        flushIfFull();
+    }
+
+    /**
+     * Метод для добавления иллюстрации в текущий пакет.
+     * Книга иллюстрации должна быть в каталоге или в этом же импорте (книги пакета записываются раньше иллюстраций).
+     * @param isbn String - Isbn книги
+     * @param imageId String - Id иллюстрации
+     * @param name String - Название иллюстрации
+     * @param author String - Автор иллюстрации
+     * @throws SQLException Ошибки SQL (кроме нарушений ключей - такие записи отбрасываются).
+     */
+    public void addIllustration(String isbn, String imageId, String name, String author) throws SQLException{
+        bind(insertIllustration, isbn, imageId, name, author);
+        insertIllustration.addBatch();
+        pendingIllustrations.add(new String[]{isbn, imageId, name, author});
+        flushIfFull();
+    }
+
+    /**
+     * Метод для записи и фиксации текущего пакета.
+     * @throws SQLException Ошибки SQL
+     */
+    public void flush() throws SQLException{
+        if(pendingBooks.isEmpty() && pendingIllustrations.isEmpty()){return;}
+        long startTime = System.currentTimeMillis();
+        try {
+            insertBook.executeBatch();
+            insertIllustration.executeBatch();
+            con.commit();
+            booksWritten += pendingBooks.size();
+            illustrationsWritten += pendingIllustrations.size();
+            for(String[] book : pendingBooks){
+                Model.getInstance().addCatalogKey(book[0], null);
+            }
+            for(String[] illustration : pendingIllustrations){
+                Model.getInstance().addCatalogKey(illustration[0], illustration[1]);
+            }
+        }
+        catch (BatchUpdateException e){
+            con.rollback();
+            insertBook.clearBatch();
+            insertIllustration.clearBatch();
+            if(LOGGER.isLoggable(Level.WARNING)){
+                LOGGER.log(Level.WARNING, "Batch failed, the records are repeated one by one: ", e.toString());}
+            replay();
+        }
+        batches++;
+        pendingBooks.clear();
+        pendingIllustrations.clear();
+        if(LOGGER.isLoggable(Level.FINE)){
+            LOGGER.log(Level.FINE, "Batch " + batches + " is committed (in ms): ", System.currentTimeMillis() - startTime);}
+    }
+
+    /**
+     * Метод для записи остатка и возврата соединения в пул.
+     * @throws SQLException Ошибки SQL
+     */
+    public void close() throws SQLException{
+        try {
+            flush();
+        }
+        finally {
+            db.close();
+        }
+        if(LOGGER.isLoggable(Level.INFO)){
+            LOGGER.log(Level.INFO, "Batch import (books, illustrations, failures, batches): ",
+                    booksWritten + ", " + illustrationsWritten + ", " + failures + ", " + batches);}
+    }
+
+    /**
+     * "Геттер" для получения количества записанных книг.
+     * @return long
+     */
+    public long getBooksWritten(){
+        return booksWritten;
+    }
+
+    /**
+     * "Геттер" для получения количества записанных иллюстраций.
+     * @return long
+     */
+    public long getIllustrationsWritten(){
+        return illustrationsWritten;
+    }
+
+    /**
+     * "Геттер" для получения количества записей текущего (ещё не зафиксированного) пакета.
+     * @return int
+     */
+    public int getPendingCount(){
+        return pendingBooks.size() + pendingIllustrations.size();
+    }
+
+    /**
+     * "Геттер" для получения количества отброшенных записей (дубли, иллюстрации без книги).
+     * @return long
+     */
+    public long getFailures(){
+        return failures;
+    }
+
+    /**
+     * Служебный метод - записывает пакет, если он заполнен.
+     * @throws SQLException Ошибки SQL
+     */
+    private void flushIfFull() throws SQLException{
+        if(pendingBooks.size() + pendingIllustrations.size() >= batchSize){
+            flush();
+        }
+    }
+
+    /**
+     * Служебный метод - повторяет записи неудачного пакета по одной и фиксирует успешные.
+     * Ошибка отдельного запроса в derby откатывает только этот запрос, а не всю транзакцию.
+     * @throws SQLException Ошибки SQL (кроме нарушений ключей).
+     */
+    private void replay() throws SQLException{
+        for(String[] book : pendingBooks){
+            bind(insertBook, book);
+            if(executeRow(insertBook)){
+                booksWritten++;
+                Model.getInstance().addCatalogKey(book[0], null);
+            }
+            else {
+                View.getInstance().printErrorText(15);
+                System.out.println(book[0]);
+                if(LOGGER.isLoggable(Level.WARNING)){
+                    LOGGER.log(Level.WARNING, "Found the book already exists in the directory: ", book[0]);}
+            }
+        }
+        for(String[] illustration : pendingIllustrations){
+            bind(insertIllustration, illustration);
+            if(executeRow(insertIllustration)){
+                illustrationsWritten++;
+                Model.getInstance().addCatalogKey(illustration[0], illustration[1]);
+            }
+            else {
+                System.out.println("Ошибка! Не получилось добавить в каталог иллюстрацию с id=" + illustration[1] + " к книге с ISBN=" + illustration[0]);
+                if(LOGGER.isLoggable(Level.WARNING)){
+                    LOGGER.log(Level.WARNING, "illustration found (with ID= " + illustration[1] + ") is a duplicate or there is no book with isbn: ", illustration[0]);}
+            }
+        }
+        con.commit();
+    }
+
+    /**
+     * Служебный метод - выполняет один запрос добавления.
+     * @param stmt PreparedStatement - запрос с установленными параметрами.
+     * @return Boolean: true - запись добавлена; false - нарушение ключа (дубль или нет книги).
+     * @throws SQLException Остальные ошибки SQL
+     */
+    private boolean executeRow(PreparedStatement stmt) throws SQLException{
+        try {
+            stmt.executeUpdate();
+            return true;
+        }
+        catch (SQLException e){
+            if(SQL_STATE_DUPLICATE.equals(e.getSQLState()) || SQL_STATE_NO_PARENT.equals(e.getSQLState())){
+                failures++;
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Служебный метод для установки параметров запроса.
+     * @param stmt PreparedStatement - запрос.
+     * @param values String... - значения параметров (по порядку).
+     * @throws SQLException Ошибки SQL
+     */
+    private static void bind(PreparedStatement stmt, String... values) throws SQLException{
+        for(int i = 0; i < values.length; i++){
+            stmt.setString(i + 1, values[i]);
+        }
+    }
+}
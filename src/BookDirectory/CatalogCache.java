@@ -0,0 +1,161 @@
+package BookDirectory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Кэш книг каталога (с иллюстрациями) по isbn - для поиска книги за O(1) без запроса к б.д.
+ * Размер кэша ограничен (catalogCacheSize): при переполнении вытесняется книга, к которой дольше всего
+ * не обращались (LRU). Кэш "сквозной" (write-through): Модель сначала изменяет б.д., затем - кэш.
+ * Методы синхронизированы, т.к. LinkedHashMap в режиме access-order изменяется и при чтении.
+ * @author dyakonov
+ * @see BookDirectory.Model#getBookByISbn(String)
+ */
+public final class CatalogCache {
+
+    /**
+     * "Логгер" класса.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Model.class.getName());
+
+    /**
+     * Книги по isbn в порядке доступа (первая - самая давняя).
+     */
+    private final LinkedHashMap<String, Book> books;
+
+    /**
+     * Максимальное количество книг в кэше.
+     */
+    private final int capacity;
+
+    /**
+     * Метрики кэша: попадания, промахи, вытеснения.
+     */
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * Конструктор.
+     * @param capacity int - максимальное количество книг в кэше.
+     */
+    public CatalogCache(int capacity){
+        this.capacity = Math.max(1, capacity);
+        this.books = new LinkedHashMap<String, Book>(16, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Book> eldest){
+                if(size() > CatalogCache.this.capacity){
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Метод для получения книги из кэша.
+     * @param isbn String - isbn книги.
+     * @return Book - книга или null, если книги нет в кэше (промах).
+     */
+    public synchronized Book get(String isbn){
+        Book book = books.get(isbn);
+        if(book != null){
+            hits++;
+        }
+        else {
+            misses++;
+        }
+        return book;
+    }
+
+    /**
+     * Метод для добавления (замены) книги в кэше.
+     * @param book Book - книга со всеми иллюстрациями.
+     */
+    public synchronized void put(Book book){
+        books.put(book.getIsbn(), book);
+    }
+
+    /**
+     * Метод для удаления книги из кэша (книга удалена из каталога или её данные устарели).
+     * @param isbn String - isbn книги.
+     */
+    public synchronized void remove(String isbn){
+        books.remove(isbn);
+    }
+
+    /**
+     * Метод для добавления иллюстрации к книге в кэше (если книга есть в кэше).
+     * @param isbn String - isbn книги.
+     * @param imageId String - id иллюстрации.
+     * @param name String - название иллюстрации.
+     * @param author String - автор иллюстрации.
+     */
+    public synchronized void addIllustration(String isbn, String imageId, String name, String author){
+        Book book = books.get(isbn);
+        if(book != null){
+            book.addIllustration(imageId, name, author);
+        }
+    }
+
+    /**
+     * Метод для удаления иллюстрации с указанным id у всех книг в кэше.
+     * @param imageId String - id иллюстрации.
+     */
+    public synchronized void removeIllustration(String imageId){
+        for(Book book : books.values()){
+            book.removeIllustration(imageId);
+        }
+    }
+
+    /**
+     * Метод для очистки кэша (например, после импорта каталога в обход Модели).
+     */
+    public synchronized void clear(){
+        books.clear();
+    }
+
+    /**
+     * "Геттер" для получения количества книг в кэше.
+     * @return int
+     */
+    public synchronized int size(){
+        return books.size();
+    }
+
+    /**
+     * "Геттер" для получения количества попаданий.
+     * @return long
+     */
+    public synchronized long getHitCount(){
+        return hits;
+    }
+
+    /**
+     * "Геттер" для получения количества промахов.
+     * @return long
+     */
+    public synchronized long getMissCount(){
+        return misses;
+    }
+
+    /**
+     * "Геттер" для получения количества вытесненных книг.
+     * @return long
+     */
+    public synchronized long getEvictionCount(){
+        return evictions;
+    }
+
+    /**
+     * Метод для записи метрик кэша в лог.
+     */
+    public synchronized void logMetrics(){
+        if(LOGGER.isLoggable(Level.INFO)){
+            LOGGER.log(Level.INFO, "Catalog cache (capacity, size, hits, misses, evictions): ",
+                    capacity + ", " + books.size() + ", " + hits + ", " + misses + ", " + evictions);}
+    }
+}
@@ -0,0 +1,140 @@
+package BookDirectory;
+
+import java.io.Closeable;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Курсор каталога - потоковый обход книг без загрузки всего каталога в память.
+ * Книги (со всеми иллюстрациями) собираются по одной из выборки TYPE_FORWARD_ONLY, поэтому в памяти
+ * одновременно находится только текущая книга. Пока курсор открыт, он держит соединение из пула:
+ * после обхода курсор нужно закрыть методом close() (при полном обходе он закрывается сам).
+ * Пример: for(Book book : Model.getInstance().streamBooks()){...}
+ * @author dyakonov
+ * @see BookDirectory.Model#streamBooks()
+ * @see BookDirectory.CatalogHydrator
+ */
+public final class CatalogCursor implements Iterator<Book>, Iterable<Book>, Closeable {
+
+    /**
+     * "Логгер" класса.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Model.class.getName());
+
+    /**
+     * Менеджер б.д., соединение которого занято курсором (null - курсор закрыт или пуст).
+     */
+    private DerbyDBManager db;
+
+    /**
+     * Сборщик книг из выборки.
+     */
+    private CatalogHydrator hydrator;
+
+    /**
+     * Следующая книга (уже прочитанная из выборки, но ещё не выданная).
+     */
+    private Book next;
+
+    /**
+     * Количество выданных книг и время открытия курсора - для лога.
+     */
+    private long count = 0;
+    private final long startTime = System.currentTimeMillis();
+
+    /**
+     * Конструктор - открывает выборку каталога.
+     * @throws SQLException Ошибки SQL или нет свободного соединения в пуле.
+     */
+    CatalogCursor() throws SQLException{
+        db = new DerbyDBManager();
+        try {
+            hydrator = new CatalogHydrator(db.selectCatalogQuery());
+        }
+        catch (SQLException e){
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Конструктор пустого курсора (используется, если выборку открыть не удалось).
+     * @param empty boolean - не используется, отличает конструктор от основного.
+     */
+    private CatalogCursor(boolean empty){}
+
+    /**
+     * Метод для получения пустого курсора.
+     * @return CatalogCursor - курсор без книг.
+     */
+    static CatalogCursor empty(){
+        return new CatalogCursor(true);
+    }
+
+    /**
+     * Метод для проверки наличия следующей книги.
+     * Ошибка SQL при чтении выводится пользователю и завершает обход.
+     * @return Boolean: true, если в каталоге есть следующая книга, иначе - false (курсор закрывается).
+     */
+    public boolean hasNext(){
+        if(next == null && hydrator != null){
+            try {
+                next = hydrator.nextBook();
+            }
+            catch (SQLException e){
+                View.getInstance().printErrorText(2);
+                LOGGER.log(Level.SEVERE, "SQLException: " + e.toString() + "");
+                next = null;
+            }
+            if(next == null){
+                close();
+            }
+        }
+        return next != null;
+    }
+
+    /**
+     * Метод для получения следующей книги.
+     * @return Book - следующая книга каталога (по возрастанию isbn).
+     */
+    public Book next(){
+        if(!hasNext()){
+            throw new NoSuchElementException();
+        }
+        Book book = next;
+        next = null;
+        count++;
+        return book;
+    }
+
+    /**
+     * Удаление через курсор не поддерживается (используйте Model.deleteBook(String)).
+     */
+    public void remove(){
+        throw new UnsupportedOperationException("remove");
+    }
+
+    /**
+     * Курсор одноразовый: возвращает сам себя для использования в цикле for-each.
+     * @return Iterator<Book>
+     */
+    public Iterator<Book> iterator(){
+        return this;
+    }
+
+    /**
+     * Метод для закрытия курсора: закрывает выборку и возвращает соединение в пул.
+     * Повторный вызов ничего не делает.
+     */
+    public void close(){
+        if(db == null){return;}
+        db.close();
+        db = null;
+        hydrator = null;
+        if(LOGGER.isLoggable(Level.INFO)){
+            LOGGER.log(Level.INFO, "Time spent on the streaming the catalog (in ms, books): ", (System.currentTimeMillis() - startTime) + ", " + count);}
+    }
+}
@@ -0,0 +1,206 @@
+package BookDirectory;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Экспорт изменений каталога с прошлой выгрузки (пункт 5-4).
+ * Любая запись в таблицы books и illustrations (добавление, изменение, удаление - из меню, импорта, пакетной записи)
+ * попадает в журнал изменений change_log: его ведут триггеры б.д. (см. SchemaMigrator, версия 4), номера изменений растут.
+ * Номер последнего изменения, вошедшего в выгрузку, хранится как отметка экспорта (таблица export_watermark) -
+ * её ставит эта выгрузка и выгрузки всего каталога (пункты 5-2 и 5-3).
+ * В файл изменений (формат файла импорта) записываются только книги, изменённые после отметки: книга целиком,
+ * со всеми её текущими иллюстрациями (изменение иллюстрации - тоже изменение книги), а удалённые книги - записью [Удалено].
+ * Файл изменений применяется к другому каталогу пунктом 6-6 (CatalogDeltaImporter).
+ * @author dyakonov
+ * @see BookDirectory.CatalogDeltaImporter
+ */
+public final class CatalogDeltaExporter {
+
+    /**
+     * "Логгер" класса.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Model.class.getName());
+
+    /**
+     * Имя отметки экспорта.
+     */
+    public static final String WATERMARK = "catalog";
+
+    /**
+     * Папка выгрузки.
+     */
+    private final String directory;
+
+    /**
+     * Диапазон изменений выгрузки: (fromSeq, toSeq].
+     */
+    private long fromSeq = 0;
+    private long toSeq = 0;
+
+    /**
+     * Итоги: книги, иллюстрации, удаления, байты, время экспорта (в нс).
+     */
+    private long books = 0;
+    private long illustrations = 0;
+    private long deletions = 0;
+    private long bytes = 0;
+    private long elapsedNanos = 0;
+    private double bytesPerSecond = 0;
+    private double recordsPerSecond = 0;
+
+    /**
+     * Конструктор.
+     * @param directory String - папка выгрузки (обычно export).
+     */
+    public CatalogDeltaExporter(String directory){
+        this.directory = directory;
+    }
+
+    /**
+     * Метод для экспорта изменений: выборка изменённых и удалённых книг, запись файла, перенос отметки экспорта.
+     * Отметка переносится только после успешной записи файла.
+     * @return String - имя файла изменений или null, если изменений с прошлой выгрузки нет.
+     * @throws Exception Ошибки SQL или ввода-вывода.
+     */
+    public String run() throws Exception{
+        DerbyDBManager db = new DerbyDBManager();
+        try {
+            fromSeq = db.selectWatermark(WATERMARK);
+            toSeq = db.selectLastChange();
+            if(toSeq <= fromSeq){
+                if(LOGGER.isLoggable(Level.INFO)){
+                    LOGGER.log(Level.INFO, "No changes of the catalog since the last export: ", fromSeq);}
+                return null;
+            }
+            String fileName = Model.getInstance().exportFileName("catalog_delta_" + (fromSeq + 1) + "-" + toSeq + ".txt");
+            CatalogExportWriter writer = new CatalogExportWriter(FileInOut.getInstance().openFileOutputStream(fileName, directory));
+            try {
+                CatalogHydrator hydrator = new CatalogHydrator(db.selectChangedCatalogQuery(fromSeq, toSeq));
+                Book book;
+                while((book = hydrator.nextBook()) != null){
+                    writer.writeBook(book);
+                }
+                ResultSet deleted = db.selectDeletedIsbnsQuery(fromSeq, toSeq);
+                while(deleted.next()){
+                    writer.writeDeletion(deleted.getString(1));
+                }
+            }
+            finally {writer.close();}
+            db.saveWatermark(WATERMARK, toSeq);
+            books = writer.getBookCount();
+            illustrations = writer.getIllustrationCount();
+            deletions = writer.getDeletionCount();
+            bytes = writer.getByteCount();
+            elapsedNanos = writer.getElapsedNanos();
+            bytesPerSecond = writer.getBytesPerSecond();
+            recordsPerSecond = writer.getRecordsPerSecond();
+            if(LOGGER.isLoggable(Level.INFO)){
+                LOGGER.log(Level.INFO, "Catalog changes are exported (changes, books, illustrations, deletions): ",
+                        (fromSeq + 1) + "-" + toSeq + ", " + books + ", " + illustrations + ", " + deletions);}
+            return fileName;
+        }
+        finally {db.close();}
+    }
+
+    /**
+     * Метод для получения номера последнего изменения каталога - вызывается перед выгрузкой всего каталога.
+     * @return long - номер последнего изменения.
+     * @throws SQLException Ошибки SQL
+     */
+    public static long lastChange() throws SQLException{
+        DerbyDBManager db = new DerbyDBManager();
+        try {
+            return db.selectLastChange();
+        }
+        finally {db.close();}
+    }
+
+    /**
+     * Метод для переноса отметки экспорта после выгрузки всего каталога: следующий экспорт изменений
+     * будет содержать только изменения после неё.
+     * @param seq long - номер последнего изменения на начало выгрузки (см. lastChange()).
+     * @throws SQLException Ошибки SQL
+     */
+    public static void markExported(long seq) throws SQLException{
+        DerbyDBManager db = new DerbyDBManager();
+        try {
+            db.saveWatermark(WATERMARK, seq);
+        }
+        finally {db.close();}
+    }
+
+    /**
+     * "Геттер" для получения номера первого изменения выгрузки.
+     * @return long
+     */
+    public long getFromSeq(){
+        return fromSeq + 1;
+    }
+
+    /**
+     * "Геттер" для получения номера последнего изменения выгрузки.
+     * @return long
+     */
+    public long getToSeq(){
+        return toSeq;
+    }
+
+    /**
+     * "Геттер" для получения количества записанных (изменённых) книг.
+     * @return long
+     */
+    public long getBookCount(){
+        return books;
+    }
+
+    /**
+     * "Геттер" для получения количества записанных иллюстраций.
+     * @return long
+     */
+    public long getIllustrationCount(){
+        return illustrations;
+    }
+
+    /**
+     * "Геттер" для получения количества записанных удалений книг.
+     * @return long
+     */
+    public long getDeletionCount(){
+        return deletions;
+    }
+
+    /**
+     * "Геттер" для получения размера файла изменений в байтах.
+     * @return long
+     */
+    public long getByteCount(){
+        return bytes;
+    }
+
+    /**
+     * "Геттер" для получения времени записи файла.
+     * @return long - время в нс.
+     */
+    public long getElapsedNanos(){
+        return elapsedNanos;
+    }
+
+    /**
+     * "Геттер" для получения скорости записи в байтах в секунду.
+     * @return double
+     */
+    public double getBytesPerSecond(){
+        return bytesPerSecond;
+    }
+
+    /**
+     * "Геттер" для получения скорости записи в записях в секунду.
+     * @return double
+     */
+    public double getRecordsPerSecond(){
+        return recordsPerSecond;
+    }
+}
@@ -0,0 +1,198 @@
+package BookDirectory;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Применение файла изменений каталога (пункт 6-6), записанного экспортом изменений (CatalogDeltaExporter).
+ * Запись [Книга] - текущее состояние книги: книга добавляется или её название и автор обновляются, а иллюстрации книги
+ * заменяются следующими за ней записями [Иллюстрация] с тем же isbn. Иллюстрация другой книги добавляется (или заменяется)
+ * отдельно - если книги нет в каталоге, запись отбрасывается. Запись [Удалено] удаляет книгу вместе с иллюстрациями.
+ * Поэтому один и тот же файл изменений можно применить повторно - результат не изменится.
+ * Записи проверяются теми же правилами, что при импорте (ImportValidator); изменения фиксируются пакетами по importBatchSize записей.
+ * @author dyakonov
+ * @see BookDirectory.CatalogDeltaExporter
+ */
+public final class CatalogDeltaImporter {
+
+    /**
+     * "Логгер" класса.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Model.class.getName());
+
+    /**
+     * Код SQLState - нет книги для иллюстрации (нарушение внешнего ключа).
+     */
+    private static final String SQL_STATE_NO_PARENT = "23503";
+
+    /**
+     * Источник записей файла изменений и размер пакета (транзакции).
+     */
+    private final ImportRecordSource source;
+    private final int batchSize;
+
+    /**
+     * Итоги: добавленные и обновлённые книги, записанные иллюстрации, удалённые книги, отброшенные записи.
+     */
+    private long addedBooks = 0;
+    private long updatedBooks = 0;
+    private long illustrations = 0;
+    private long deletedBooks = 0;
+    private long rejected = 0;
+
+    /**
+     * Конструктор.
+     * @param source ImportRecordSource - записи файла изменений (разборщик с включёнными записями удаления).
+     * @param batchSize int - количество записей в одной транзакции.
+     * @see BookDirectory.ImportParser#setDeletions(boolean)
+     */
+    public CatalogDeltaImporter(ImportRecordSource source, int batchSize){
+        this.source = source;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Метод для применения файла изменений.
+     * @throws SQLException Ошибки SQL (незафиксированный пакет откатывается).
+     * @throws IOException Ошибки чтения файла.
+     */
+    public void run() throws SQLException, IOException{
+        long startTime = System.currentTimeMillis();
+        ImportValidator validator = new ImportValidator();
+        DerbyDBManager db = new DerbyDBManager();
+        try {
+            Connection con = db.getConnection();
+            con.setAutoCommit(false);
+            String currentIsbn = null;
+            int pending = 0;
+            ImportRecord record;
+            while((record = source.next()) != null){
+                if(!record.isDeletion()){
+                    int rule = validator.validate(record);
+                    if(rule != ImportValidator.RULE_OK){
+                        ImportValidator.printRule(rule);
+                        View.getInstance().printImportRecordLine(record.getLine());
+                        rejected++;
+                        continue;
+                    }
+                }
+                if(record.isBook()){
+                    applyBook(db, record);
+                    currentIsbn = record.getIsbn();
+                }
+                else if(record.isDeletion()){
+                    if(execute(db.prepare(DerbyDBManager.SQL_DELETE_BOOK, record.getIsbn()))){deletedBooks++;}
+                    currentIsbn = null;
+                }
+                else {applyIllustration(db, record, record.getIsbn().equals(currentIsbn));}
+                if(++pending >= batchSize){
+                    con.commit();
+                    pending = 0;
+                }
+            }
+            con.commit();
+        }
+        finally {db.close();}
+        if(LOGGER.isLoggable(Level.INFO)){
+            LOGGER.log(Level.INFO, "Catalog changes are applied (in ms, added, updated, illustrations, deleted, rejected): ",
+                    (System.currentTimeMillis() - startTime) + ", " + addedBooks + ", " + updatedBooks + ", " + illustrations + ", "
+                            + deletedBooks + ", " + rejected);}
+    }
+
+    /**
+     * "Геттер" для получения количества добавленных книг.
+     * @return long
+     */
+    public long getAddedCount(){
+        return addedBooks;
+    }
+
+    /**
+     * "Геттер" для получения количества обновлённых книг.
+     * @return long
+     */
+    public long getUpdatedCount(){
+        return updatedBooks;
+    }
+
+    /**
+     * "Геттер" для получения количества записанных иллюстраций.
+     * @return long
+     */
+    public long getIllustrationCount(){
+        return illustrations;
+    }
+
+    /**
+     * "Геттер" для получения количества удалённых книг.
+     * @return long
+     */
+    public long getDeletedCount(){
+        return deletedBooks;
+    }
+
+    /**
+     * "Геттер" для получения количества отброшенных записей (ошибки значений, иллюстрации без книги).
+     * @return long
+     */
+    public long getRejectedCount(){
+        return rejected;
+    }
+
+    /**
+     * Служебный метод - книга добавляется или обновляется, её иллюстрации удаляются (их заменят следующие записи).
+     * @param db DerbyDBManager - менеджер б.д. (транзакция открыта).
+     * @param record ImportRecord - запись книги.
+     * @throws SQLException Ошибки SQL
+     */
+    private void applyBook(DerbyDBManager db, ImportRecord record) throws SQLException{
+        if(execute(db.prepare(DerbyDBManager.SQL_UPDATE_BOOK, record.getName(), record.getAuthor(), record.getIsbn()))){
+            execute(db.prepare(DerbyDBManager.SQL_DELETE_BOOK_ILLUSTRATIONS, record.getIsbn()));
+            updatedBooks++;
+        }
+        else {
+            execute(db.prepare(DerbyDBManager.SQL_INSERT_BOOK, record.getIsbn(), record.getName(), record.getAuthor()));
+            Model.getInstance().addCatalogKey(record.getIsbn(), null);
+            addedBooks++;
+        }
+    }
+
+    /**
+     * Служебный метод - иллюстрация добавляется к книге (иллюстрация другой книги сначала удаляется, если она есть).
+     * @param db DerbyDBManager - менеджер б.д. (транзакция открыта).
+     * @param record ImportRecord - запись иллюстрации.
+     * @param ofCurrentBook Boolean: true - иллюстрация книги из предыдущей записи (её иллюстрации уже удалены).
+     * @throws SQLException Ошибки SQL (кроме иллюстрации без книги - такая запись отбрасывается).
+     */
+    private void applyIllustration(DerbyDBManager db, ImportRecord record, boolean ofCurrentBook) throws SQLException{
+        if(!ofCurrentBook){
+            execute(db.prepare(DerbyDBManager.SQL_DELETE_BOOK_ILLUSTRATION, record.getIsbn(), record.getImageId()));
+        }
+        try {
+            execute(db.prepare(DerbyDBManager.SQL_INSERT_ILLUSTRATION, record.getIsbn(), record.getImageId(),
+                    record.getName(), record.getAuthor()));
+            Model.getInstance().addCatalogKey(record.getIsbn(), record.getImageId());
+            illustrations++;
+        }
+        catch (SQLException e){
+            if(!SQL_STATE_NO_PARENT.equals(e.getSQLState())){throw e;}
+            /** derby откатывает только этот запрос - остальные изменения пакета сохраняются **/
+            View.getInstance().printDeltaIllustrationRejected(record.getImageId(), record.getIsbn(), record.getLine());
+            rejected++;
+        }
+    }
+
+    /**
+     * Служебный метод - выполняет подготовленный запрос изменения.
+     * @param stmt PreparedStatement - запрос с установленными параметрами.
+     * @return Boolean: true, если изменена хотя бы одна строка.
+     * @throws SQLException Ошибки SQL
+     */
+    private static boolean execute(PreparedStatement stmt) throws SQLException{
+        return stmt.executeUpdate() > 0;
+    }
+}
@@ -0,0 +1,217 @@
+package BookDirectory;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Потоковая запись экспорта каталога в формате файла импорта ([Книга] / [Иллюстрация], см. import/README.txt).
+ * Книги записываются по одной прямо в буферизованный поток UTF-8 - текст экспорта целиком (и даже текст одной книги)
+ * в памяти не собирается, поэтому расход памяти не зависит от размера каталога.
+ * Считаются записанные книги, иллюстрации и байты - по ним рассчитывается скорость экспорта (байт/с и записей/с).
+ * После работы writer нужно закрыть методом close() - он записывает остаток буфера и закрывает поток.
+ * @author dyakonov
+ * @see BookDirectory.Model#writeCatalogExport(String)
+ */
+public final class CatalogExportWriter implements Closeable {
+
+    /**
+     * "Логгер" класса.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Model.class.getName());
+
+    /**
+     * Размер буфера записи (в символах).
+     */
+    private static final int BUFFER_SIZE = 65536;
+
+    /**
+     * Разделитель строк.
+     */
+    private static final String NR = System.getProperty("line.separator");
+
+    /**
+     * Счётчик байтов и буферизованный поток записи (UTF-8).
+     */
+    private final CountingOutputStream counter;
+    private final Writer out;
+
+    /**
+     * Счётчики: книги, иллюстрации, удаления.
+     */
+    private long books = 0;
+    private long illustrations = 0;
+    private long deletions = 0;
+
+    /**
+     * Начало записи и время записи (в нс).
+     */
+    private final long startTime = System.nanoTime();
+    private long elapsedNanos = 0;
+
+    /**
+     * Конструктор.
+     * @param out OutputStream - поток записи файла экспорта (закрывается методом close()).
+     */
+    public CatalogExportWriter(OutputStream out){
+        this.counter = new CountingOutputStream(out);
+        this.out = new BufferedWriter(new OutputStreamWriter(counter, Charset.forName("UTF-8")), BUFFER_SIZE);
+    }
+
+    /**
+     * Метод для записи книги и её иллюстраций.
+     * @param book Book - книга.
+     * @throws IOException Ошибки ввода-вывода.
+     */
+    public void writeBook(Book book) throws IOException{
+        writeLine(ImportParser.TAG_BOOK);
+        writeLine(book.getIsbn());
+        writeLine(book.getName());
+        writeLine(book.getAuthor());
+        out.write(NR);
+        books++;
+        for(Book.Illustration illustration : book.getIllustrations()){
+            writeLine(ImportParser.TAG_ILLUSTRATION);
+            writeLine(illustration.getId());
+            writeLine(illustration.getIsbn());
+            writeLine(illustration.getName());
+            writeLine(illustration.getAuthor());
+            out.write(NR);
+            illustrations++;
+        }
+    }
+
+    /**
+     * Метод для записи удаления книги (файл изменений каталога).
+     * @param isbn String - Isbn удалённой книги.
+     * @throws IOException Ошибки ввода-вывода.
+     */
+    public void writeDeletion(String isbn) throws IOException{
+        writeLine(ImportParser.TAG_DELETION);
+        writeLine(isbn);
+        out.write(NR);
+        deletions++;
+    }
+
+    /**
+     * Метод для завершения записи: остаток буфера записывается, поток закрывается.
+     * @throws IOException Ошибки ввода-вывода.
+     */
+    public void close() throws IOException{
+        try {
+            out.close();
+        }
+        finally {
+            elapsedNanos = System.nanoTime() - startTime;
+        }
+        if(LOGGER.isLoggable(Level.INFO)){
+            LOGGER.log(Level.INFO, "Catalog export is written (in ms, books, illustrations, bytes): ",
+                    elapsedNanos / 1000000 + ", " + books + ", " + illustrations + ", " + counter.count);}
+    }
+
+    /**
+     * "Геттер" для получения количества записанных книг.
+     * @return long
+     */
+    public long getBookCount(){
+        return books;
+    }
+
+    /**
+     * "Геттер" для получения количества записанных иллюстраций.
+     * @return long
+     */
+    public long getIllustrationCount(){
+        return illustrations;
+    }
+
+    /**
+     * "Геттер" для получения количества записанных удалений книг.
+     * @return long
+     */
+    public long getDeletionCount(){
+        return deletions;
+    }
+
+    /**
+     * "Геттер" для получения количества записанных байтов (без остатка в буфере - точное значение после close()).
+     * @return long
+     */
+    public long getByteCount(){
+        return counter.count;
+    }
+
+    /**
+     * "Геттер" для получения времени записи (от создания writer до close()).
+     * @return long - время в нс.
+     */
+    public long getElapsedNanos(){
+        return elapsedNanos > 0 ? elapsedNanos : System.nanoTime() - startTime;
+    }
+
+    /**
+     * "Геттер" для получения скорости записи в байтах в секунду.
+     * @return double
+     */
+    public double getBytesPerSecond(){
+        return perSecond(getByteCount());
+    }
+
+    /**
+     * "Геттер" для получения скорости записи в записях (книги и иллюстрации) в секунду.
+     * @return double
+     */
+    public double getRecordsPerSecond(){
+        return perSecond(books + illustrations);
+    }
+
+    /**
+     * Служебный метод - значение в секунду времени записи.
+     * @param value long - значение.
+     * @return double
+     */
+    private double perSecond(long value){
+        double seconds = getElapsedNanos() / 1e9;
+        return seconds > 0 ? value / seconds : 0;
+    }
+
+    /**
+     * Служебный метод - записывает строку и перевод строки.
+     * @param text String - строка.
+     * @throws IOException Ошибки ввода-вывода.
+     */
+    private void writeLine(String text) throws IOException{
+        out.write(text);
+        out.write(NR);
+    }
+
+    /**
+     * Поток, считающий записанные байты.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count = 0;
+
+        private CountingOutputStream(OutputStream out){
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException{
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException{
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package BookDirectory;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedList;
+
+/**
+ * Класс для сборки ("гидратации") объектов Book из результата одного упорядоченного запроса.
+ * Ожидает строки LEFT JOIN книг и иллюстраций, упорядоченные по isbn книги:
+ * [1] - isbn, [2] - название книги, [3] - автор книги, [4] - id иллюстрации, [5] - название иллюстрации, [6] - автор иллюстрации.
+ * Строки одной книги идут подряд, поэтому каталог собирается за один проход без повторных запросов к б.д.
+ * @author dyakonov
+ * @see BookDirectory.DerbyDBManager#selectCatalogQuery()
+ */
+public final class CatalogHydrator {
+
+    /**
+     * Результат выборки, из которого собираются книги.
+     */
+    private final ResultSet rows;
+
+    /**
+     * Флаг - курсор стоит на строке, которая ещё не была обработана (первая строка следующей книги).
+     */
+    private boolean pending = false;
+
+    /**
+     * Флаг - строки в выборке закончились.
+     */
+    private boolean exhausted = false;
+
+    /**
+     * Конструктор.
+     * @param rows ResultSet - упорядоченная по isbn выборка книг и иллюстраций.
+     */
+    public CatalogHydrator(ResultSet rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * Метод для получения следующей книги (со всеми её иллюстрациями) из выборки.
+     * @return Book - следующая книга или null, если книги в выборке закончились.
+     * @throws SQLException Ошибки SQL
+     */
+    public Book nextBook() throws SQLException {
+        if (exhausted) {
+            return null;
+        }
+        if (!pending && !rows.next()) {
+            exhausted = true;
+            return null;
+        }
+        String isbn = rows.getString(1);
+        Book book = Book.getBook(isbn, rows.getString(2), rows.getString(3));
+        addIllustration(book);
+        pending = false;
+        while (rows.next()) {
+            if (!isbn.equals(rows.getString(1))) {
+                pending = true;
+                return book;
+            }
+            addIllustration(book);
+        }
+        exhausted = true;
+        return book;
+    }
+
+    /**
+     * Метод для сборки всех книг выборки в коллекцию.
+     * @param rows ResultSet - упорядоченная по isbn выборка книг и иллюстраций.
+     * @return LinkedList<Book> - коллекция объектов Book (книга).
+     * @throws SQLException Ошибки SQL
+     */
+    public static LinkedList<Book> hydrate(ResultSet rows) throws SQLException {
+        LinkedList<Book> books = new LinkedList<Book>();
+        CatalogHydrator hydrator = new CatalogHydrator(rows);
+        Book book;
+        while ((book = hydrator.nextBook()) != null) {
+            books.add(book);
+        }
+        return books;
+    }
+
+    /**
+     * Служебный метод - добавляет к книге иллюстрацию из текущей строки (если она есть, LEFT JOIN может вернуть null).
+     * @param book Book - книга, к которой относится строка.
+     * @throws SQLException Ошибки SQL
+     */
+    private void addIllustration(Book book) throws SQLException {
+        String imageId = rows.getString(4);
+        if (imageId != null) {
+            book.addIllustration(imageId, rows.getString(5), rows.getString(6));
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package BookDirectory;
+
+import java.io.File;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Экспорт каталога по частям в нескольких потоках.
+ * Каталог делится на части по диапазонам isbn примерно поровну книг: границы берутся из одного прохода по индексу isbn.
+ * Каждая часть выбирается из б.д. своим запросом (со своим соединением пула) и записывается своим потоком
+ * в файл "имя.part-NNN.txt" (CatalogExportWriter, формат файла импорта); одновременно считается CRC32 файла.
+ * После записи всех частей в ту же папку записывается манифест (ShardManifest) - части можно импортировать
+ * по отдельности (пункт 6-2, папка наблюдения) или все вместе, параллельно, по манифесту (пункт 6-5).
+ * Иллюстрации книги всегда попадают в часть своей книги, поэтому части не зависят друг от друга.
+ * Как и выгрузка всего каталога одним файлом, переносит отметку экспорта изменений (CatalogDeltaExporter).
+ * @author dyakonov
+ * @see BookDirectory.ShardManifest
+ * @see BookDirectory.CatalogShardImporter
+ */
+public final class CatalogShardExporter {
+
+    /**
+     * "Логгер" класса.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Model.class.getName());
+
+    /**
+     * Папка и имя выгрузки, количество частей и потоков записи.
+     */
+    private final String directory;
+    private final String name;
+    private final int shards;
+    private final int threads;
+
+    /**
+     * Итоги: книги, иллюстрации, байты, время экспорта (в нс).
+     */
+    private long books = 0;
+    private long illustrations = 0;
+    private long bytes = 0;
+    private long elapsedNanos = 0;
+
+    /**
+     * Конструктор.
+     * @param directory String - папка выгрузки (обычно export).
+     * @param name String - имя выгрузки (начало имён файлов частей и манифеста).
+     * @param shards int - количество частей.
+     * @param threads int - количество потоков записи (каждый занимает соединение пула).
+     */
+    public CatalogShardExporter(String directory, String name, int shards, int threads){
+        this.directory = directory;
+        this.name = name;
+        this.shards = Math.max(1, shards);
+        this.threads = Math.max(1, Math.min(this.shards, threads));
+    }
+
+    /**
+     * Метод для экспорта: расчёт границ частей, параллельная запись частей, запись манифеста.
+     * @return ShardManifest - манифест выгрузки.
+     * @throws Exception Ошибки SQL или ввода-вывода (первая ошибка части).
+     */
+    public ShardManifest run() throws Exception{
+        long startTime = System.nanoTime();
+        long lastChange = CatalogDeltaExporter.lastChange();
+        ArrayList<String> bounds = boundaries();
+        final AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable runnable){
+                Thread thread = new Thread(runnable, "export-shard-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        ArrayList<Future<ShardManifest.Shard>> futures = new ArrayList<Future<ShardManifest.Shard>>();
+        ShardManifest manifest = new ShardManifest(name);
+        try {
+            for(int i = 0; i < bounds.size(); i++){
+                final String fileName = String.format("%s.part-%03d.txt", name, i + 1);
+                final String from = bounds.get(i);
+                final String to = i + 1 < bounds.size() ? bounds.get(i + 1) : null;
+                futures.add(executor.submit(new Callable<ShardManifest.Shard>() {
+                    public ShardManifest.Shard call() throws Exception{
+                        return writeShard(fileName, from, to);
+                    }
+                }));
+            }
+            for(Future<ShardManifest.Shard> future : futures){
+                ShardManifest.Shard shard = future.get();
+                manifest.add(shard);
+                books += shard.getBooks();
+                illustrations += shard.getIllustrations();
+                bytes += shard.getBytes();
+            }
+        }
+        catch (ExecutionException e){
+            Throwable cause = e.getCause();
+            if(cause instanceof Exception){throw (Exception) cause;}
+            throw e;
+        }
+        finally {executor.shutdownNow();}
+        manifest.save(new File(directory));
+        CatalogDeltaExporter.markExported(lastChange);
+        elapsedNanos = System.nanoTime() - startTime;
+        if(LOGGER.isLoggable(Level.INFO)){
+            LOGGER.log(Level.INFO, "Sharded catalog export is written (in ms, shards, books, illustrations, bytes): ",
+                    elapsedNanos / 1000000 + ", " + bounds.size() + ", " + books + ", " + illustrations + ", " + bytes);}
+        return manifest;
+    }
+
+    /**
+     * "Геттер" для получения количества записанных книг.
+     * @return long
+     */
+    public long getBookCount(){
+        return books;
+    }
+
+    /**
+     * "Геттер" для получения количества записанных иллюстраций.
+     * @return long
+     */
+    public long getIllustrationCount(){
+        return illustrations;
+    }
+
+    /**
+     * "Геттер" для получения размера всех частей в байтах.
+     * @return long
+     */
+    public long getByteCount(){
+        return bytes;
+    }
+
+    /**
+     * "Геттер" для получения времени экспорта.
+     * @return long - время в нс.
+     */
+    public long getElapsedNanos(){
+        return elapsedNanos;
+    }
+
+    /**
+     * "Геттер" для получения скорости экспорта в байтах в секунду.
+     * @return double
+     */
+    public double getBytesPerSecond(){
+        return elapsedNanos > 0 ? bytes / (elapsedNanos / 1e9) : 0;
+    }
+
+    /**
+     * "Геттер" для получения скорости экспорта в записях (книги и иллюстрации) в секунду.
+     * @return double
+     */
+    public double getRecordsPerSecond(){
+        return elapsedNanos > 0 ? (books + illustrations) / (elapsedNanos / 1e9) : 0;
+    }
+
+    /**
+     * Служебный метод - границы частей: isbn первой книги каждой части (первая часть - с начала каталога).
+     * Частей не больше, чем книг.
+     * @return ArrayList<String> - начала диапазонов частей по возрастанию.
+     * @throws SQLException Ошибки SQL
+     */
+    private ArrayList<String> boundaries() throws SQLException{
+        ArrayList<String> bounds = new ArrayList<String>();
+        bounds.add("");
+        DerbyDBManager db = new DerbyDBManager();
+        try {
+            int count = db.countBooks();
+            long step = Math.max(1, (count + shards - 1) / shards);
+            ResultSet isbns = db.selectIsbnsQuery();
+            long index = 0;
+            while(isbns.next()){
+                if(index > 0 && index % step == 0){bounds.add(isbns.getString(1));}
+                index++;
+            }
+        }
+        finally {db.close();}
+        return bounds;
+    }
+
+    /**
+     * Служебный метод - запись одной части: выборка диапазона, запись с подсчётом CRC32.
+     * @param fileName String - имя файла части.
+     * @param from String - isbn начала диапазона (включительно).
+     * @param to String - isbn конца диапазона (не включительно); null - до конца каталога.
+     * @return ShardManifest.Shard - описание записанной части.
+     * @throws Exception Ошибки SQL или ввода-вывода.
+     */
+    private ShardManifest.Shard writeShard(String fileName, String from, String to) throws Exception{
+        CheckedOutputStream checked = new CheckedOutputStream(FileInOut.getInstance().openFileOutputStream(fileName, directory), new CRC32());
+        CatalogExportWriter writer = new CatalogExportWriter(checked);
+        DerbyDBManager db = null;
+        try {
+            db = new DerbyDBManager();
+            CatalogHydrator hydrator = new CatalogHydrator(db.selectCatalogRangeQuery(from, to));
+            Book book;
+            while((book = hydrator.nextBook()) != null){
+                writer.writeBook(book);
+            }
+        }
+        finally {
+            try {
+                writer.close();
+            }
+            finally {if(db != null){db.close();}}
+        }
+        if(LOGGER.isLoggable(Level.FINE)){
+            LOGGER.log(Level.FINE, "Shard of the catalog export is written (file, books, bytes, in ms): ",
+                    fileName + ", " + writer.getBookCount() + ", " + writer.getByteCount() + ", " + writer.getElapsedNanos() / 1000000);}
+        return new ShardManifest.Shard(fileName, from, to, writer.getBookCount(), writer.getIllustrationCount(),
+                writer.getByteCount(), checked.getChecksum().getValue());
+    }
+}
@@ -0,0 +1,174 @@
+package BookDirectory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Импорт каталога по частям по манифесту (пункт 6-5) - части импортируются параллельно.
+ * Сначала все части проверяются по манифесту (размер, CRC32): если хотя бы одна повреждена, ничего не импортируется.
+ * Затем каждая часть импортируется своим конвейером (ImportPipeline - те же проверки значений и дублей, что в пункте 6-2).
+ * Части не пересекаются по isbn, а иллюстрации лежат в части своей книги, поэтому конвейеры не зависят друг от друга,
+ * а индекс сверки иллюстраций каждого конвейера содержит только книги диапазона своей части (а не весь каталог).
+ * Отброшенные записи части пишутся в её отчёт (имя файла части + ".report" в папке частей).
+ * Каждый конвейер держит соединение пула, поэтому потоков не больше (размер пула - 1).
+ * @author dyakonov
+ * @see BookDirectory.ShardManifest
+ * @see BookDirectory.CatalogShardExporter
+ */
+public final class CatalogShardImporter {
+
+    /**
+     * "Логгер" класса.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Model.class.getName());
+
+    /**
+     * Манифест, папка частей и количество потоков.
+     */
+    private final ShardManifest manifest;
+    private final File directory;
+    private final int threads;
+
+    /**
+     * Итоги: книги, иллюстрации, отброшенные записи, время импорта (в нс).
+     */
+    private long books = 0;
+    private long illustrations = 0;
+    private long dropped = 0;
+    private long elapsedNanos = 0;
+
+    /**
+     * Конструктор.
+     * @param manifest ShardManifest - манифест выгрузки.
+     * @param directory File - папка частей.
+     * @param threads int - количество одновременно импортируемых частей.
+     */
+    public CatalogShardImporter(ShardManifest manifest, File directory, int threads){
+        this.manifest = manifest;
+        this.directory = directory;
+        this.threads = Math.max(1, Math.min(manifest.getShards().size(), threads));
+    }
+
+    /**
+     * Метод для импорта: проверка всех частей, затем параллельный импорт.
+     * @throws Exception Часть повреждена (IOException) или первая ошибка импорта части.
+     */
+    public void run() throws Exception{
+        long startTime = System.nanoTime();
+        for(ShardManifest.Shard shard : manifest.getShards()){
+            ShardManifest.verify(directory, shard);
+        }
+        final AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable runnable){
+                Thread thread = new Thread(runnable, "import-shard-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            ArrayList<Future<long[]>> futures = new ArrayList<Future<long[]>>();
+            for(final ShardManifest.Shard shard : manifest.getShards()){
+                futures.add(executor.submit(new Callable<long[]>() {
+                    public long[] call() throws Exception{
+                        return importShard(shard);
+                    }
+                }));
+            }
+            for(int i = 0; i < futures.size(); i++){
+                long[] result = futures.get(i).get();
+                books += result[0];
+                illustrations += result[1];
+                dropped += result[2];
+                View.getInstance().printShardResult(manifest.getShards().get(i).getFileName(), result[0], result[1], result[2]);
+            }
+        }
+        catch (ExecutionException e){
+            Throwable cause = e.getCause();
+            if(cause instanceof Exception){throw (Exception) cause;}
+            throw e;
+        }
+        finally {executor.shutdownNow();}
+        elapsedNanos = System.nanoTime() - startTime;
+        if(LOGGER.isLoggable(Level.INFO)){
+            LOGGER.log(Level.INFO, "Sharded catalog import is finished (in ms, shards, books, illustrations, dropped): ",
+                    elapsedNanos / 1000000 + ", " + manifest.getShards().size() + ", " + books + ", " + illustrations + ", " + dropped);}
+    }
+
+    /**
+     * "Геттер" для получения количества добавленных книг.
+     * @return long
+     */
+    public long getBookCount(){
+        return books;
+    }
+
+    /**
+     * "Геттер" для получения количества добавленных иллюстраций.
+     * @return long
+     */
+    public long getIllustrationCount(){
+        return illustrations;
+    }
+
+    /**
+     * "Геттер" для получения количества отброшенных записей.
+     * @return long
+     */
+    public long getDroppedCount(){
+        return dropped;
+    }
+
+    /**
+     * "Геттер" для получения времени импорта.
+     * @return long - время в нс.
+     */
+    public long getElapsedNanos(){
+        return elapsedNanos;
+    }
+
+    /**
+     * Служебный метод - импорт одной части своим конвейером (с отчётом об отброшенных записях).
+     * @param shard ShardManifest.Shard - часть.
+     * @return long[] - добавленные книги, иллюстрации, отброшенные записи.
+     * @throws Exception Ошибки SQL или ввода-вывода.
+     */
+    private long[] importShard(ShardManifest.Shard shard) throws Exception{
+        ImportRecordSource source = new ImportParser(new InputStreamReader(new FileInputStream(new File(directory, shard.getFileName())), "UTF-8"));
+        Writer report = null;
+        try {
+            report = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(directory, shard.getFileName() + ".report")), "UTF-8"));
+            CatalogBatchWriter writer = new CatalogBatchWriter(Model.getInstance().getImportBatchSize());
+            ImportPipeline pipeline = new ImportPipeline(source, writer, 1, Model.getInstance().getImportQueueCapacity());
+            pipeline.setReport(report);
+            pipeline.setIsbnRange(shard.getFromIsbn(), shard.getToIsbn());
+            try {
+                pipeline.run();
+            }
+            finally {writer.close();}
+            return new long[]{writer.getBooksWritten(), writer.getIllustrationsWritten(),
+                    writer.getFailures() + pipeline.getRejectedCount() + pipeline.getDuplicateCount() + pipeline.getOrphanCount()};
+        }
+        finally {
+            try {
+                source.close();
+            }
+            finally {if(report != null){report.close();}}
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package BookDirectory;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Enumeration;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Потоковое сжатие файлов импорта и экспорта: ".gz" (gzip) и ".zip" (архив с одним файлом).
+ * Данные сжимаются и распаковываются "на лету", при записи и чтении - распакованный файл на диск не записывается.
+ * Потоки считают байты до и после сжатия; при закрытии в лог записываются степень сжатия и скорость.
+ * Тип сжатия определяется по расширению имени файла (см. FileInOut).
+ * @author dyakonov
+ * @see BookDirectory.FileInOut
+ */
+public final class CompressedStreams {
+
+    /**
+     * "Логгер" класса.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Model.class.getName());
+
+    /**
+     * Расширения сжатых файлов.
+     */
+    public static final String GZIP_EXTENSION = ".gz";
+    public static final String ZIP_EXTENSION = ".zip";
+
+    /**
+     * Размер буфера сжатия (в байтах).
+     */
+    private static final int BUFFER_SIZE = 65536;
+
+    /**
+     * Конструктор с закрытым доступом (private) - класс содержит только статические методы.
+     */
+    private CompressedStreams(){
+    }
+
+    /**
+     * Метод для проверки, сжат ли файл (по расширению имени).
+     * @param fileName String - имя файла.
+     * @return Boolean: true - ".gz" или ".zip", иначе - false.
+     */
+    public static boolean isCompressed(String fileName){
+        String name = fileName.toLowerCase();
+        return name.endsWith(GZIP_EXTENSION) || name.endsWith(ZIP_EXTENSION);
+    }
+
+    /**
+     * Метод для получения имени сжатого файла по имени текстового файла.
+     * @param fileName String - имя текстового файла (например, catalog_export.txt).
+     * @param compression String - сжатие: "gzip" (catalog_export.txt.gz), "zip" (catalog_export.zip), иначе - без сжатия.
+     * @return String - имя файла для записи.
+     */
+    public static String compressedName(String fileName, String compression){
+        if("gzip".equalsIgnoreCase(compression)){return fileName + GZIP_EXTENSION;}
+        if("zip".equalsIgnoreCase(compression)){return fileName.replaceAll("(?i)\\.txt$", "") + ZIP_EXTENSION;}
+        return fileName;
+    }
+
+    /**
+     * Метод для сжатия потока записи по расширению имени файла.
+     * В архив zip записывается один файл - с именем архива и расширением .txt.
+     * @param out OutputStream - поток записи файла на диск (закрывается вместе с возвращённым потоком).
+     * @param fileName String - имя файла (".gz" или ".zip").
+     * @param level int - степень сжатия: от 0 (без сжатия) до 9 (наибольшее), -1 - по умолчанию.
+     * @return OutputStream - поток записи несжатых данных.
+     * @throws IOException Ошибки ввода-вывода.
+     */
+    public static OutputStream compress(OutputStream out, String fileName, final int level) throws IOException{
+        CountingOutputStream file = new CountingOutputStream(out, null, null);
+        OutputStream deflater;
+        if(fileName.toLowerCase().endsWith(ZIP_EXTENSION)){
+            ZipOutputStream zip = new ZipOutputStream(file);
+            zip.setLevel(level);
+            zip.putNextEntry(new ZipEntry(new File(fileName).getName().replaceAll("(?i)\\.zip$", "") + ".txt"));
+            deflater = zip;
+        }
+        else {
+            deflater = new GZIPOutputStream(file, BUFFER_SIZE) {
+                {def.setLevel(level);}
+            };
+        }
+        return new CountingOutputStream(deflater, file, fileName);
+    }
+
+    /**
+     * Метод для распаковки потока чтения по расширению имени файла (из архива zip читается первый файл).
+     * @param in InputStream - поток чтения файла с диска (закрывается вместе с возвращённым потоком).
+     * @param fileName String - имя файла (".gz" или ".zip").
+     * @return InputStream - поток чтения распакованных данных.
+     * @throws IOException Ошибки ввода-вывода или формата сжатого файла.
+     */
+    public static InputStream decompress(InputStream in, String fileName) throws IOException{
+        CountingInputStream file = new CountingInputStream(in, null, null);
+        InputStream inflater;
+        if(fileName.toLowerCase().endsWith(ZIP_EXTENSION)){
+            ZipInputStream zip = new ZipInputStream(file);
+            if(zip.getNextEntry() == null){
+                zip.close();
+                throw new IOException("The zip file is empty: " + fileName);
+            }
+            inflater = zip;
+        }
+        else {inflater = new GZIPInputStream(file, BUFFER_SIZE);}
+        return new CountingInputStream(inflater, file, fileName);
+    }
+
+    /**
+     * Метод для получения размера распакованных данных файла (для расчёта доли прочитанного файла).
+     * У gzip размер хранится в конце файла (по модулю 4 Гб), у zip - в оглавлении архива; несжатый файл - его длина.
+     * @param file File - файл.
+     * @return long - размер распакованных данных в байтах (длина файла, если размер не удалось прочитать).
+     */
+    public static long uncompressedSize(File file){
+        String name = file.getName().toLowerCase();
+        try {
+            if(name.endsWith(GZIP_EXTENSION) && file.length() >= 4){
+                RandomAccessFile raf = new RandomAccessFile(file, "r");
+                try {
+                    raf.seek(file.length() - 4);
+                    byte[] size = new byte[4];
+                    raf.readFully(size);
+                    return (size[0] & 0xFFL) | (size[1] & 0xFFL) << 8 | (size[2] & 0xFFL) << 16 | (size[3] & 0xFFL) << 24;
+                }
+                finally {raf.close();}
+            }
+            if(name.endsWith(ZIP_EXTENSION)){
+                ZipFile zip = new ZipFile(file);
+                try {
+                    Enumeration<? extends ZipEntry> entries = zip.entries();
+                    if(entries.hasMoreElements()){
+                        long size = entries.nextElement().getSize();
+                        if(size >= 0){return size;}
+                    }
+                }
+                finally {zip.close();}
+            }
+        }
+        catch (IOException e){
+            if(LOGGER.isLoggable(Level.WARNING)){
+                LOGGER.log(Level.WARNING, "Uncompressed size is not read: " + e.toString() + "", file.getName());}
+        }
+        return file.length();
+    }
+
+    /**
+     * Служебный метод - запись в лог степени сжатия и скорости.
+     * @param action String - "written" или "read".
+     * @param fileName String - имя файла.
+     * @param bytes long - байты несжатых данных.
+     * @param compressed long - байты сжатых данных.
+     * @param nanos long - время работы потока (в нс).
+     */
+    private static void logRatio(String action, String fileName, long bytes, long compressed, long nanos){
+        if(LOGGER.isLoggable(Level.INFO)){
+            double seconds = nanos / 1e9;
+            LOGGER.log(Level.INFO, "Compressed file is " + action + " (file, bytes, compressed bytes, ratio, in ms, bytes/s): ",
+                    fileName + ", " + bytes + ", " + compressed + ", " + String.format("%.3f", bytes > 0 ? (double) compressed / bytes : 0)
+                            + ", " + nanos / 1000000 + ", " + String.format("%.0f", seconds > 0 ? bytes / seconds : 0));}
+    }
+
+    /**
+     * Поток записи, считающий байты; поток несжатых данных при закрытии пишет в лог степень сжатия.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private final CountingOutputStream file;
+        private final String fileName;
+        private final long startTime = System.nanoTime();
+        private long count = 0;
+
+        private CountingOutputStream(OutputStream out, CountingOutputStream file, String fileName){
+            super(out);
+            this.file = file;
+            this.fileName = fileName;
+        }
+
+        @Override
+        public void write(int b) throws IOException{
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException{
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException{
+            super.close();
+            if(file != null){logRatio("written", fileName, count, file.count, System.nanoTime() - startTime);}
+        }
+    }
+
+    /**
+     * Поток чтения, считающий байты; поток распакованных данных при закрытии пишет в лог степень сжатия.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private final CountingInputStream file;
+        private final String fileName;
+        private final long startTime = System.nanoTime();
+        private long count = 0;
+
+        private CountingInputStream(InputStream in, CountingInputStream file, String fileName){
+            super(in);
+            this.file = file;
+            this.fileName = fileName;
+        }
+
+        @Override
+        public int read() throws IOException{
+            int b = in.read();
+            if(b >= 0){count++;}
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException{
+            int read = in.read(b, off, len);
+            if(read > 0){count += read;}
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException{
+            long skipped = in.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported(){
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException{
+            super.close();
+            if(file != null){logRatio("read", fileName, count, file.count, System.nanoTime() - startTime);}
+        }
+    }
+}
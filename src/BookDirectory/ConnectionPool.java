@@ -0,0 +1,272 @@
+package BookDirectory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Пул соединений с б.д. derby.
+ * Соединения создаются по мере необходимости (не больше dbPoolSize) и после использования возвращаются в пул.
+ * Для каждого соединения пул хранит кэш подготовленных (скомпилированных) запросов PreparedStatement.
+ * Паттерн Singleton.
+ * @author dyakonov
+ * @see BookDirectory.DerbyDBManager
+ */
+public final class ConnectionPool {
+
+    /**
+     * Статическая переменная класса для хранения единственного экземпляра класса
+     */
+    private static ConnectionPool instance;
+
+    /**
+     * "Логгер" класса.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Model.class.getName());
+
+    /**
+     * Свободные соединения.
+     */
+    private final ConcurrentLinkedQueue<Connection> idle = new ConcurrentLinkedQueue<Connection>();
+
+    /**
+     * Кэш подготовленных запросов: для каждого соединения - запросы по тексту SQL.
+     * Соединение в каждый момент времени используется одним потоком, поэтому внутренний HashMap не синхронизируется.
+     */
+    private final ConcurrentHashMap<Connection, HashMap<String, PreparedStatement>> statementCache =
+            new ConcurrentHashMap<Connection, HashMap<String, PreparedStatement>>();
+
+    /**
+     * Разрешения на получение соединения (по одному на каждое соединение пула).
+     */
+    private final Semaphore permits;
+
+    /**
+     * Размер пула и максимальное время ожидания свободного соединения (в мс).
+     */
+    private final int size;
+    private final long timeout;
+
+    /**
+     * Метрики пула: выданные соединения, количество выдач, суммарное и максимальное время ожидания (в мс).
+     */
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong waitTime = new AtomicLong();
+    private final AtomicLong maxWaitTime = new AtomicLong();
+
+    /**
+     * Метрики кэша подготовленных запросов: попадания и промахи (компиляции запроса).
+     */
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+
+    /**
+     * Конструктор класса с закрытым доступом (private).
+     * @param size int - размер пула.
+     * @param timeout long - максимальное время ожидания свободного соединения (в мс).
+     */
+    private ConnectionPool(int size, long timeout){
+        this.size = size;
+        this.timeout = timeout;
+        this.permits = new Semaphore(size, true);
+    }
+
+    /**
+     * "Геттер" для получения экземляра класса.
+     * Размер пула и время ожидания берутся из файла настроек (dbPoolSize, dbPoolTimeout).
+     * @return Единственный экземпляр класса ConnectionPool.
+     */
+    public static synchronized ConnectionPool getInstance(){
+        if(instance == null){
+            instance = new ConnectionPool(Model.getInstance().getDbPoolSize(), Model.getInstance().getDbPoolTimeout());
+        }
+        return instance;
+    }
+
+    /**
+     * Метод для получения соединения из пула.
+     * Если свободных соединений нет - ждёт не дольше dbPoolTimeout мс.
+     * @return Connection - соединение с б.д. (в режиме autocommit).
+     * @throws SQLException Ошибки SQL или истекло время ожидания свободного соединения.
+     */
+    public Connection borrow() throws SQLException{
+        long startTime = System.currentTimeMillis();
+        try {
+            if(!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)){
+                LOGGER.log(Level.SEVERE, "Connection pool timeout, active connections: ", active.get());
+                throw new SQLTransientConnectionException("Connection pool timeout (" + timeout + " ms)");
+            }
+        }
+        catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection");
+        }
+        long waited = System.currentTimeMillis() - startTime;
+        waitTime.addAndGet(waited);
+        long max;
+        while(waited > (max = maxWaitTime.get()) && !maxWaitTime.compareAndSet(max, waited)){}
+        borrowCount.incrementAndGet();
+        try {
+            Connection con = idle.poll();
+            if(con != null && con.isClosed()){
+                statementCache.remove(con);
+                con = null;
+            }
+            if(con == null){
+                con = DerbyDBManager.openConnection();
+                if(LOGGER.isLoggable(Level.FINE)){
+                    LOGGER.log(Level.FINE, "New connection in pool, connections in use: ", active.get() + 1);}
+            }
+            active.incrementAndGet();
+            return con;
+        }
+        catch (SQLException e){
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Метод для получения подготовленного запроса из кэша соединения.
+     * Если запрос с таким текстом ещё не компилировался на этом соединении - подготавливает и кэширует его.
+     * Запросы из кэша нельзя закрывать - они живут, пока живёт соединение.
+     * @param con Connection - соединение, полученное методом borrow().
+     * @param sql String - текст запроса с параметрами (?).
+     * @return PreparedStatement - подготовленный запрос (параметры нужно установить заново).
+     * @throws SQLException Ошибки SQL
+     */
+    public PreparedStatement prepareStatement(Connection con, String sql) throws SQLException{
+        HashMap<String, PreparedStatement> cache = statementCache.get(con);
+        if(cache == null){
+            cache = new HashMap<String, PreparedStatement>();
+            statementCache.put(con, cache);
+        }
+        PreparedStatement stmt = cache.get(sql);
+        if(stmt == null || stmt.isClosed()){
+            stmt = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            cache.put(sql, stmt);
+            statementMisses.incrementAndGet();
+        }
+        else {
+            statementHits.incrementAndGet();
+        }
+        return stmt;
+    }
+
+    /**
+     * Метод для возврата соединения в пул.
+     * Незавершённая транзакция откатывается, соединение переводится в режим autocommit.
+     * @param con Connection - соединение, полученное методом borrow().
+     */
+    public void release(Connection con){
+        if(con == null){return;}
+        try {
+            if(!con.isClosed()){
+                if(!con.getAutoCommit()){
+                    con.rollback();
+                    con.setAutoCommit(true);
+                }
+                idle.offer(con);
+            }
+        }
+        catch (SQLException e){
+            LOGGER.log(Level.WARNING, "Broken connection is removed from pool: " + e.toString() + "");
+            statementCache.remove(con);
+            closeQuietly(con);
+        }
+        finally {
+            active.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    /**
+     * Метод для закрытия всех свободных соединений и остановки б.д. derby.
+     * Вызывается при завершении работы приложения.
+     */
+    public void shutdown(){
+        logMetrics();
+        Connection con;
+        while((con = idle.poll()) != null){
+            statementCache.remove(con);
+            closeQuietly(con);
+        }
+        DerbyDBManager.shutdown();
+    }
+
+    /**
+     * Метод для записи метрик пула в лог.
+     */
+    public void logMetrics(){
+        if(LOGGER.isLoggable(Level.INFO)){
+            LOGGER.log(Level.INFO, "Connection pool (size, active, idle, borrows, wait ms, max wait ms): ",
+                    size + ", " + getActiveCount() + ", " + getIdleCount() + ", " + getBorrowCount() + ", " + getWaitTime() + ", " + getMaxWaitTime());
+            LOGGER.log(Level.INFO, "Prepared statement cache (hits, misses): ", statementHits.get() + ", " + statementMisses.get());
+        }
+    }
+
+    /**
+     * "Геттер" для получения количества выданных (используемых) соединений.
+     * @return int
+     */
+    public int getActiveCount(){
+        return active.get();
+    }
+
+    /**
+     * "Геттер" для получения количества свободных соединений в пуле.
+     * @return int
+     */
+    public int getIdleCount(){
+        return idle.size();
+    }
+
+    /**
+     * "Геттер" для получения количества выдач соединений.
+     * @return long
+     */
+    public long getBorrowCount(){
+        return borrowCount.get();
+    }
+
+    /**
+     * "Геттер" для получения суммарного времени ожидания соединений (в мс).
+     * @return long
+     */
+    public long getWaitTime(){
+        return waitTime.get();
+    }
+
+    /**
+     * "Геттер" для получения максимального времени ожидания соединения (в мс).
+     * @return long
+     */
+    public long getMaxWaitTime(){
+        return maxWaitTime.get();
+    }
+
+    /**
+     * Служебный метод для закрытия соединения без выброса исключений.
+     * @param con Connection
+     */
+    private static void closeQuietly(Connection con){
+        try {
+            con.close();
+        }
+        catch (SQLException e){
+            LOGGER.log(Level.WARNING, "SQLException on close: " + e.toString() + "");
+        }
+    }
+}
@@ -1,5 +1,11 @@
 package BookDirectory;
 
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -52,7 +58,7 @@ public final class Controller
                 String inputMenu = Model.getInstance().keyboardInput();
                 if (inputMenu.isEmpty()) exitProgram = true;
                 else{
-                    if(checkMenuItem('1', '6', inputMenu)){
+                    if(checkMenuItem('1', '7', inputMenu)){
                         Integer choice = Integer.parseInt(inputMenu);
                         View.getInstance().printMenu(choice);
                         menuDraw(choice);
@@ -72,7 +78,7 @@ public final class Controller
     }
 
     /**
-     * Метод для вывода пунктов меню, запросов к пользователю и вызова соответствующих методов действий (от 1 до 6).
+     * Метод для вывода пунктов меню, запросов к пользователю и вызова соответствующих методов действий (от 1 до 7).
      * @param choice Integer - выбор пункта главного меню.
      */
     public void menuDraw(Integer choice){
@@ -83,8 +89,7 @@ public final class Controller
             while (!returnMainMenu){
                 switch (choice){
                     case 1:{
-                        firstMenuEngine();
-                        returnMainMenu = backToMainMenu();
+                        returnMainMenu = firstMenuEngine();
                         break;
                     }
                     case 2:{
@@ -109,6 +114,10 @@ public final class Controller
                         returnMainMenu = sixthMenuEngine();
                         break;
                     }
+                    case 7:{
+                        returnMainMenu = seventhMenuEngine();
+                        break;
+                    }
                 }
             }
         }
@@ -124,18 +133,70 @@ public final class Controller
 
     /**
      * Метод первого пункта главного меню - вывод списка книг в каталоге.
-     * Проверяет наличие книг в каталоге и выводит их список при помощи метода getBooks() Модели.
-     * @see Model#getBooks()
+     * Проверяет наличие книг в каталоге и выводит их постранично (по catalogPageSize книг).
+     * Навигация: 1 - следующая страница; 2 - предыдущая страница; 3 - переход к isbn; Enter - назад в главное меню.
+     * Каждая страница запрашивается у Модели по isbn первой или последней показанной книги.
+     * @see Model#getBooksPageAfter(String, int)
+     * @see Model#getBooksPageBefore(String, int)
+     * @see Model#getBooksPageFrom(String, int)
+     * @return Boolean - флаг возврата в главное меню. Если true - возвращаемся в главное меню.
      */
-    private void firstMenuEngine(){
+    private boolean firstMenuEngine(){
         if(LOGGER.isLoggable(Level.FINE)){
             LOGGER.fine("Menu select: list of books(1)");}
-        if (Model.getInstance().checkAvailabilityBooks()){
-            for(Book book : Model.getInstance().getBooks()){
-                System.out.println(book);
+        if (!Model.getInstance().checkAvailabilityBooks()){
+            return backToMainMenu();
+        }
+        int pageSize = Model.getInstance().getCatalogPageSize();
+        ArrayList<Book> page = Model.getInstance().getBooksPageAfter("", pageSize);
+        printBooksPage(page);
+        boolean exit = false;
+        while (!exit){
+            View.getInstance().printSubMenuText(7);
+            View.getInstance().printMessage(15);
+            String input = Model.getInstance().keyboardInput();
+            String firstIsbn = page.isEmpty() ? "" : page.get(0).getIsbn();
+            String lastIsbn = page.isEmpty() ? "" : page.get(page.size() - 1).getIsbn();
+            ArrayList<Book> newPage = null;
+            if(input.isEmpty()){
+                exit = true;
             }
-            if(LOGGER.isLoggable(Level.FINE)){
-                LOGGER.fine("The end of the list of books in the catalog");}
+            else if(input.equals("1")){
+                newPage = Model.getInstance().getBooksPageAfter(lastIsbn, pageSize);
+                if(newPage.isEmpty()){View.getInstance().printMessage(16);}
+            }
+            else if(input.equals("2")){
+                newPage = Model.getInstance().getBooksPageBefore(firstIsbn, pageSize);
+                if(newPage.isEmpty()){View.getInstance().printMessage(17);}
+            }
+            else if(input.equals("3")){
+                View.getInstance().printSubMenuText(1);
+                newPage = Model.getInstance().getBooksPageFrom(Model.getInstance().keyboardInput(), pageSize);
+                if(newPage.isEmpty()){View.getInstance().printMessage(16);}
+            }
+            else{
+                View.getInstance().printErrorText(10);
+            }
+            if(newPage != null && !newPage.isEmpty()){
+                page = newPage;
+                printBooksPage(page);
+            }
+        }
+        if(LOGGER.isLoggable(Level.FINE)){
+            LOGGER.fine("The end of the list of books in the catalog");}
+        return true;
+    }
+
+    /**
+     * Служебный метод для вывода страницы списка книг.
+     * @param page ArrayList<Book> - книги страницы.
+     */
+    private void printBooksPage(ArrayList<Book> page){
+        for(Book book : page){
+            System.out.println(book);
+        }
+        if(!page.isEmpty()){
+            View.getInstance().printPageInfo(page.get(0).getIsbn(), page.get(page.size() - 1).getIsbn());
         }
     }
 
@@ -174,6 +235,7 @@ public final class Controller
         else{
             View.getInstance().printErrorText(5);
             System.out.println("(" + isbn + ").");
+            suggestIsbns(isbn);
             if(LOGGER.isLoggable(Level.FINE)){
                 LOGGER.fine("Book for removal was not found in the catalog");}
         }
@@ -189,14 +251,13 @@ public final class Controller
      *
      * При удалении иллюстрации: а)проверяет введённый id иллюстрации на допустимое значение; б) вызывает метод deleteIllustrationById() Модели.
      *
-     * При поиске книг по иллюстрации: а)проверяет введённый id иллюстрации на допустимое значение; б)получает список книг в каталоге и у каждой книги иющет иллюстрацию с таким id.
+     * При поиске книг по иллюстрации: а)проверяет введённый id иллюстрации на допустимое значение; б)получает книги с этой иллюстрацией из индекса иллюстраций Модели.
      * @see Model#checkAvailabilityBooks()
      * @see BookDirectory.Model#getBookByISbn(String)
      * @see Book#getIllustrations()
      * @see BookDirectory.Model#addIllustration(String, String, String, String)
      * @see BookDirectory.Model#deleteIllustrationById(String)
-     * @see Model#getBooks()
-     * @see BookDirectory.Book.Illustration#getId()
+     * @see BookDirectory.Model#getBooksByIllustration(String)
      * @return Boolean - флаг возврата в главное меню. Если true - возвращаемся в главное меню.
      */
     private boolean fourthMenuEngine(){
@@ -228,6 +289,7 @@ public final class Controller
                         else{
                             View.getInstance().printErrorText(5);
                             System.out.println("(" + isbn + ").");
+                            suggestIsbns(isbn);
                         }
                     }
                     if (!(isbns.isEmpty())){
@@ -278,21 +340,13 @@ public final class Controller
                 LOGGER.fine("Menu select: Search Books by illustration(4-3)");}
             View.getInstance().printSubMenuText(5);
             String imageId = Model.getInstance().keyboardInput();
-            boolean successSearchId = false;
             if(imageId.length() < Model.getInstance().getIllustrationIdSize()){
                 try{
-                    for(Book book : Model.getInstance().getBooks()){
-                        ArrayList<Book.Illustration> illustrations = book.getIllustrations();
-                        if(illustrations.size() > 0){
-                            for(Book.Illustration illustration : illustrations){
-                                if(illustration.getId().equals(imageId)){
-                                    System.out.println(book);
-                                    successSearchId = true;
-                                }
-                            }
-                        }
+                    ArrayList<Book> books = Model.getInstance().getBooksByIllustration(imageId);
+                    for(Book book : books){
+                        System.out.println(book);
                     }
-                    if(!successSearchId){View.getInstance().printErrorText(9);}
+                    if(books.isEmpty()){View.getInstance().printErrorText(9);}
                 }
                 catch (Exception e){
                     View.getInstance().printErrorText(0);
@@ -319,6 +373,8 @@ public final class Controller
                 }
                 else{
                     View.getInstance().printErrorText(5);
+                    System.out.println();
+                    suggestIsbns(isbn);
                     if(LOGGER.isLoggable(Level.FINE)){
                         LOGGER.log(Level.FINE, "The book with this isbn is not found in the catalog: ", isbn);}
                 }
@@ -334,21 +390,25 @@ public final class Controller
     }
 
     /**
-     * Метод пятого пункта главного меню - экспорт книги и каталога.
+     * Метод пятого пункта главного меню - экспорт книги и каталога (одним файлом или по частям), экспорт изменений каталога,
+     * экспорт списка книг.
      * При экспорте книги проверяет существование книги с введённым isbn в каталоге.
      * При экспорте книги или каталога целиком создаёт новый текстовый файл в директории "export" программы.
      * @see Model#getIllustrationIdSize()
      * @see Model#keyboardInput()
-     * @see Model#getBooks()
+     * @see BookDirectory.Model#getBookByISbn(String)
      * @see BookDirectory.Model#writeBookExport(Book)
      * @see BookDirectory.Model#writeCatalogExport(String)
+     * @see BookDirectory.CatalogShardExporter
+     * @see BookDirectory.CatalogDeltaExporter
+     * @see BookDirectory.BookBatchExporter
      * @return Boolean - флаг возврата в главное меню. Если true - возвращаемся в главное меню.
      */
     private boolean fifthMenuEngine(){
         if(LOGGER.isLoggable(Level.FINE)){
             LOGGER.fine("Menu select: Export(5)");}
         boolean returnMainMenu;
-        Integer selectSub = checkSubMenu(2, 5);
+        Integer selectSub = checkSubMenu(5, 5);
         if(selectSub == 0){
             returnMainMenu = true;
         }
@@ -358,16 +418,17 @@ public final class Controller
             View.getInstance().printSubMenuText(1);
             String isbn = Model.getInstance().keyboardInput();
             if(isbn.length() <= Model.getInstance().getBookIsbnSize() && !(isbn.isEmpty())){
-                boolean searchSuccess = false;
-                for(Book book : Model.getInstance().getBooks()){
-                    if(book.getIsbn().equals(isbn)){
-                        if(Model.getInstance().writeBookExport(book)){
-                            View.getInstance().printMessage(7);
-                            searchSuccess = true;
-                        }
+                Book book = Model.getInstance().getBookByISbn(isbn);
+                if(book != null){
+                    if(Model.getInstance().writeBookExport(book)){
+                        View.getInstance().printMessage(7);
                     }
                 }
-                if(!searchSuccess){View.getInstance().printErrorText(5);}
+                else{
+                    View.getInstance().printErrorText(5);
+                    System.out.println();
+                    suggestIsbns(isbn);
+                }
             }
             else View.getInstance().printMessage(8);
             returnMainMenu = backToMainMenu();
@@ -380,227 +441,318 @@ public final class Controller
             }
             returnMainMenu = backToMainMenu();
         }
+        else if(selectSub == 3){
+            if(LOGGER.isLoggable(Level.FINE)){
+                LOGGER.fine("Menu select: Sharded export of catalog(5-3)");}
+            /** экспорт каталога по частям: каждая часть пишется своим потоком, затем манифест с контрольными суммами **/
+            if (Model.getInstance().checkAvailabilityBooks()){
+                CatalogShardExporter exporter = new CatalogShardExporter("export", "catalog_export",
+                        Model.getInstance().getExportShards(), Model.getInstance().getParallelDbThreads());
+                try {
+                    ShardManifest manifest = exporter.run();
+                    View.getInstance().printShardExport(manifest.getShards().size(), manifest.getName(), manifest.getName() + ShardManifest.EXTENSION);
+                    View.getInstance().printExportStatistics(exporter.getBookCount(), exporter.getIllustrationCount(), exporter.getByteCount(),
+                            exporter.getElapsedNanos(), exporter.getBytesPerSecond(), exporter.getRecordsPerSecond());
+                }
+                catch (Exception e){
+                    View.getInstance().printErrorText(22);
+                    LOGGER.log(Level.SEVERE, "Sharded export of the catalog failed: " + e.toString() + "");
+                }
+            }
+            returnMainMenu = backToMainMenu();
+        }
+        else if(selectSub == 4){
+            if(LOGGER.isLoggable(Level.FINE)){
+                LOGGER.fine("Menu select: Export of catalog changes(5-4)");}
+            /** экспорт изменений: книги, изменённые или удалённые после отметки прошлой выгрузки (по журналу изменений) **/
+            CatalogDeltaExporter exporter = new CatalogDeltaExporter("export");
+            try {
+                String fileName = exporter.run();
+                if(fileName == null){View.getInstance().printMessage(18);}
+                else {
+                    View.getInstance().printDeltaExport(exporter.getFromSeq(), exporter.getToSeq(), fileName,
+                            exporter.getBookCount(), exporter.getDeletionCount());
+                    View.getInstance().printExportStatistics(exporter.getBookCount(), exporter.getIllustrationCount(), exporter.getByteCount(),
+                            exporter.getElapsedNanos(), exporter.getBytesPerSecond(), exporter.getRecordsPerSecond());
+                }
+            }
+            catch (Exception e){
+                View.getInstance().printErrorText(22);
+                LOGGER.log(Level.SEVERE, "Export of the catalog changes failed: " + e.toString() + "");
+            }
+            returnMainMenu = backToMainMenu();
+        }
+        else if(selectSub == 5){
+            if(LOGGER.isLoggable(Level.FINE)){
+                LOGGER.fine("Menu select: Export of book list(5-5)");}
+            /** список isbn - с клавиатуры или из файла в папке import; книги выбираются пачками, файлы пишутся параллельно **/
+            View.getInstance().printSubMenuText(11);
+            String input = Model.getInstance().keyboardInput().trim();
+            try {
+                Reader list = input.toLowerCase().endsWith(".txt") || CompressedStreams.isCompressed(input)
+                        ? FileInOut.getInstance().openFileReader(input, "import")
+                        : new StringReader(input);
+                List<String> isbns = BookBatchExporter.readIsbns(list);
+                if(isbns.isEmpty()){View.getInstance().printMessage(8);}
+                else {
+                    BookBatchExporter exporter = new BookBatchExporter("export", Model.getInstance().getExportWriterThreads());
+                    exporter.run(isbns);
+                    View.getInstance().printBatchExport(exporter.getRequestedCount(), exporter.getWrittenCount(), exporter.getByteCount(),
+                            exporter.getElapsedNanos(), exporter.getFailedCount(), exporter.getMissing());
+                }
+            }
+            catch (FileNotFoundException e){
+                View.getInstance().printErrorText(14);
+                if(LOGGER.isLoggable(Level.WARNING)){
+                    LOGGER.log(Level.WARNING, "The file for read is not found!", input);}
+            }
+            catch (Exception e){
+                View.getInstance().printErrorText(22);
+                LOGGER.log(Level.SEVERE, "Export of the book list failed: " + e.toString() + "");
+            }
+            returnMainMenu = backToMainMenu();
+        }
         else{returnMainMenu = backToMainMenu();}
         return returnMainMenu;
     }
 
     /**
-     * Метод шестого пункта главного меню - импорта отдельной книги или каталога.
+     * Метод шестого пункта главного меню - импорта отдельной книги или каталога, проверки файла импорта без записи в каталог,
+     * наблюдения за папкой импорта, импорта каталога по частям (по манифесту), применения файла изменений каталога.
      * При импорте проверяет: существование файла импорта; форматирование файла импорта;
      * при обнаружении книг или иллюстраций - наличие дублей в каталоге и соответствие их параметров допустимым значениям.
+     * Файл импорта читается один раз потоковым разборщиком (ImportParser), в сообщениях об ошибках указывается строка записи.
+     * @see BookDirectory.ImportParser
      * @return Boolean - флаг возврата в главное меню. Если true - возвращаемся в главное меню.
      */
     private boolean sixthMenuEngine(){
         if(LOGGER.isLoggable(Level.FINE)){
             LOGGER.fine("Menu select: Import(6)");}
         boolean returnMainMenu;
-        Integer selectSub = checkSubMenu(2, 6);
+        Integer selectSub = checkSubMenu(6, 6);
         if(selectSub == 0){
             returnMainMenu = true;
         }
         else if(selectSub == 1){
             if(LOGGER.isLoggable(Level.FINE)){
                 LOGGER.fine("Menu select: Import book(6-1)");}
-            View.getInstance().printSubMenuText(6);
-            String fileText = FileInOut.getInstance().readFile(Model.getInstance().keyboardInput() + ".txt", "import");
-            int textSize = fileText.length();
-            try {
-                if(LOGGER.isLoggable(Level.INFO)){
-                    LOGGER.info("Search for book in the import file");}
-                fileText = fileText.replace("\n\r", "\n");
-                if (fileText.length() > 0) { //проверка, что файл существует
-                    /** поиск книги и попытка добавить её в каталог **/
-                    String[] bookValues = findValuesBook(fileText);
-                    if(bookValues[0] != null){
-                        if(Model.getInstance().getBookByISbn(bookValues[0]) == null){
-                            if(checkBookValues(bookValues[0], bookValues[1], bookValues[2])){
-                                if(checkIsbnForbidden(bookValues[0])){
-                                    Model.getInstance().addBook(bookValues[0], bookValues[1], bookValues[2]);
-                                }
-                            }
-                        }
-                        else{
-                            View.getInstance().printErrorText(15);
-                            System.out.println(bookValues[0]);
-                            if(LOGGER.isLoggable(Level.WARNING)){
-                                LOGGER.log(Level.WARNING, "Found the book already exists in the directory: ", bookValues[0]);}
-                        }
-                    }
-                    else{View.getInstance().printErrorText(16);}
-                    /** Поиск всех иллюстраций в файле импорта и попытка добавить их в каталог **/
-                    View.getInstance().printMessage(13);
-                    if(LOGGER.isLoggable(Level.INFO)){
-                        LOGGER.info("Search for illustrations in the import file");}
-                    String[] testValues = findValuesIllustration(fileText);
-                    /**проверка, что в тексте присутствует тег [Иллюстрация]**/
-                    if(testValues[4] != null){
-                        int offset = 0;
-                        while (offset < textSize-2){
-                            String buffer = fileText.substring(offset, textSize);
-                            String[] illustrationValues = findValuesIllustration(buffer);
-                            /** проверка дальнейшей целесообразности просмотра текста **/
-                            if(illustrationValues[4] == null){break;}
-                            Book book = Model.getInstance().getBookByISbn(illustrationValues[1]);
-                            /** проверка, что книга с таким isbn присутствует в каталоге **/
-                            if(book != null){
-                                if(book.getIllustrations().size() > 0){
-                                    boolean illustrationDuplicate = false;
-                                    for(Book.Illustration illustration : book.getIllustrations()){
-                                        if(illustration.getId().equals(illustrationValues[0])){
-                                            System.out.println("Ошибка! В каталоге у книги с Isbn=" + illustrationValues[1] + " уже есть иллюстрация с Id=" + illustrationValues[0]);
-                                            if(LOGGER.isLoggable(Level.WARNING)){
-                                                LOGGER.log(Level.WARNING, "illustration found (with id= "+illustrationValues[0]+") already exists in the catalog and added to the book with isbn: ", illustrationValues[1]);}
-                                            illustrationDuplicate = true;
-                                            break;
-                                        }
-                                    }
-                                    if(!illustrationDuplicate){
-                                        if(checkIllustrationValues(illustrationValues[0], illustrationValues[2], illustrationValues[3])){
-                                            Model.getInstance().addIllustration(illustrationValues[1], illustrationValues[0], illustrationValues[2], illustrationValues[3]);
-                                        }
-                                    }
-                                }
-                                else {
-                                    if(checkIllustrationValues(illustrationValues[0], illustrationValues[2], illustrationValues[3])){
-                                        Model.getInstance().addIllustration(illustrationValues[1], illustrationValues[0], illustrationValues[2], illustrationValues[3]);
+            File file = selectImportFile();
+            if(file != null){
+                try {
+                    ImportRecordSource source = new ImportParser(FileInOut.getInstance().openFileReader(file.getName(), "import"));
+                    try {
+                        if(LOGGER.isLoggable(Level.INFO)){
+                            LOGGER.info("Search for book and illustrations in the import file");}
+                        /** первая книга файла добавляется в каталог, иллюстрации - все: иллюстрации до первой книги
+                         * откладываются, пока она не добавлена (книга может стоять в файле ниже своих иллюстраций) **/
+                        boolean bookFound = false;
+                        boolean illustrationsFound = false;
+                        ArrayList<ImportRecord> waiting = new ArrayList<ImportRecord>();
+                        ImportRecord record;
+                        while((record = source.next()) != null){
+                            if(record.isBook()){
+                                if(!bookFound){
+                                    bookFound = true;
+                                    importBook(record);
+                                    for(ImportRecord illustration : waiting){
+                                        importIllustration(illustration);
                                     }
+                                    waiting.clear();
                                 }
                             }
                             else {
-                                System.out.println("Ошибка! Не получилось добавить в каталог иллюстрацию с id=" + illustrationValues[0]+"\nВ каталоге отсутствует книга с ISBN=" + illustrationValues[1]+"\n");
-                                if(LOGGER.isLoggable(Level.WARNING)){
-                                    LOGGER.log(Level.WARNING, "illustration found (with ID= "+illustrationValues[0]+") can not be added to the catalog, there is no book with isbn: ", illustrationValues[1]);}
+                                if(!illustrationsFound){
+                                    illustrationsFound = true;
+                                    View.getInstance().printMessage(13);
+                                }
+                                if(bookFound){importIllustration(record);}
+                                else {waiting.add(record);}
+                            }
+                        }
+                        if(!bookFound){
+                            View.getInstance().printErrorText(16);
+                            for(ImportRecord illustration : waiting){
+                                importIllustration(illustration);
                             }
-                            offset += Integer.parseInt(illustrationValues[4]);
                         }
                     }
+                    finally {source.close();}
+                }
+                catch (Exception e){
+                    View.getInstance().printErrorText(17);
+                    LOGGER.log(Level.SEVERE, "Application or format of file error: " + e.toString() + "");
                 }
             }
-            catch (Exception e){View.getInstance().printErrorText(17);}
             returnMainMenu = backToMainMenu();
         }
         else if(selectSub == 2){
             if(LOGGER.isLoggable(Level.FINE)){
                 LOGGER.fine("Menu select: Import catalog(6-1)");}
-            /** импорт каталога из файла **/
-            View.getInstance().printSubMenuText(6);
-            String fileText = FileInOut.getInstance().readFile(Model.getInstance().keyboardInput() + ".txt", "import");
-            int textSize = fileText.length();
-            try {
-                fileText = fileText.replace("\n\r", "\n");
-                if (fileText.length() > 0) {
-                    /** поиск книг и попытка добавить их в каталог **/
+            /** импорт каталога из файла - конвейер: разбор, проверка (несколько потоков), поиск дублей, пакетная запись **/
+            BloomFilter bloomFilter = Model.getInstance().getBloomFilter();
+            if(bloomFilter != null){bloomFilter.resetStatistics();}
+            File file = selectImportFile();
+            if(file != null){
+                /** если импорт этого файла был прерван - его можно продолжить с контрольной точки **/
+                ImportCheckpoint checkpoint = ImportCheckpoint.load(file);
+                if(checkpoint.isResumable()){
+                    View.getInstance().printImportResume(checkpoint.getRecords(), checkpoint.getLine());
+                    if(!"1".equals(Model.getInstance().keyboardInput())){checkpoint.reset();}
+                }
+                try {
+                    long startTime = System.currentTimeMillis();
+                    ImportRecordSource source = MappedImportReader.open(file, checkpoint.getOffset(), checkpoint.getLine(),
+                            Model.getInstance().getImportChunkSize(), Model.getInstance().getImportParserThreads());
+                    CatalogBatchWriter writer;
+                    ImportPipeline pipeline;
                     try {
-                        if(LOGGER.isLoggable(Level.INFO)){
-                            LOGGER.info("Search for books in the import file");}
-                        if (findValuesBook(fileText)[3] != null) {//проверка, что в тексте присутствует тег [Книга]
-                            long startTime = System.currentTimeMillis();
-                            int offset = 0;
-                            Set<Book> bookImportHashSet = new LinkedHashSet<Book>();
-                            while (offset < textSize - 2) {
-                                String buffer = fileText.substring(offset, textSize);
-                                String[] bookValues = findValuesBook(buffer);
-                                if (bookValues[3] == null) {
-                                    break;
-                                }
-                                if(checkBookValues(bookValues[0], bookValues[1], bookValues[2])){
-                                    if(checkIsbnForbidden(bookValues[0])){
-                                        bookImportHashSet.add(Book.getBook(bookValues[0], bookValues[1], bookValues[2]));
-                                    }
-                                }
-                                offset += Integer.parseInt(bookValues[3]);
-                            }
-                            if(LOGGER.isLoggable(Level.FINE)){
-                                LOGGER.log(Level.FINE, "Number of books found in the import file: ", bookImportHashSet.size());
-                            }
-                            Set<String> isbnsInCatalog = new HashSet<String>();
-                            for(Book book : Model.getInstance().getBooks()){
-                                isbnsInCatalog.add(book.getIsbn());
-                            }
-                            for(Book book : bookImportHashSet){
-                                if(!isbnsInCatalog.contains(book.getIsbn())){
-                                    Model.getInstance().addBook(book.getIsbn(), book.getName(), book.getAuthor());
-                                }
-                                else{
-                                    View.getInstance().printErrorText(15);
-                                    System.out.println(book.getIsbn());
-                                    if(LOGGER.isLoggable(Level.WARNING)){
-                                        LOGGER.log(Level.WARNING, "Found the book already exists in the directory: ", book.getIsbn());}
-                                }
-                            }
-                            long stopTime = System.currentTimeMillis();
-                            long elapsedTime = stopTime - startTime;
-                            if(LOGGER.isLoggable(Level.FINE)){LOGGER.log(Level.FINE, "The time spent on the import of all books (in ms):", elapsedTime);}
+                        writer = new CatalogBatchWriter(Model.getInstance().getImportBatchSize());
+                        pipeline = new ImportPipeline(source, writer,
+                                Model.getInstance().getImportValidatorThreads(), Model.getInstance().getImportQueueCapacity());
+                        pipeline.setCheckpoint(checkpoint);
+                        try {
+                            pipeline.run();
                         }
-                        else {View.getInstance().printErrorText(17);}
+                        finally {writer.close();}
                     }
-                    catch (Exception e){
-                        View.getInstance().printErrorText(0);
-                        LOGGER.log(Level.SEVERE, "Application error: " + e.toString() + "");
+                    finally {source.close();}
+                    /** импорт завершён - продолжать нечего **/
+                    checkpoint.delete();
+                    if(pipeline.getCount(ImportPipeline.Stage.PARSE) == 0 && checkpoint.getOffset() == 0){View.getInstance().printErrorText(17);}
+                    View.getInstance().printImportResult(writer.getBooksWritten(), writer.getIllustrationsWritten(),
+                            writer.getFailures() + pipeline.getRejectedCount() + pipeline.getDuplicateCount() + pipeline.getOrphanCount());
+                    for(ImportPipeline.Stage stage : ImportPipeline.Stage.values()){
+                        View.getInstance().printImportStage(stage.ordinal(), pipeline.getCount(stage), pipeline.getBusyNanos(stage));
                     }
-
-                    /** Поиск всех иллюстраций в файле импорта и попытка добавить их в каталог **/
-                    View.getInstance().printMessage(13);
-                    if(LOGGER.isLoggable(Level.INFO)){
-                        LOGGER.info("Search for illustrations in the import file");}
-                    /** проверка, что в тексте присутствует тег [Иллюстрация] **/
-                    if(findValuesIllustration(fileText)[4] != null){
-                        int offset = 0;
-                        Set<String[]> illustrationSet = new LinkedHashSet<String[]>();
-                        while (offset < textSize-2){
-                            String buffer = fileText.substring(offset, textSize);
-                            String[] illustrationValues = findValuesIllustration(buffer);
-                            /** проверка дальнейшей целесообразности просмотра текста **/
-                            if(illustrationValues[4] == null){break;}
-                            if(checkIllustrationValues(illustrationValues[0], illustrationValues[2], illustrationValues[3])){
-                                illustrationSet.add(illustrationValues);
-                            }
-                            offset += Integer.parseInt(illustrationValues[4]);
-                        }
-                        Set<String[]> isbnsAndIds = new HashSet<String[]>();
-                        for(Book book : Model.getInstance().getBooks()){
-                            String[] isbn_andId = new String[2];
-                            if(book.getIllustrations().size() > 0){
-                                for(Book.Illustration illustration : book.getIllustrations()){
-                                    isbn_andId[0] = illustration.getIsbn();
-                                    isbn_andId[1] = illustration.getId();
-                                    isbnsAndIds.add(isbn_andId);
-                                }
-                            }
-                            else {
-                                isbn_andId[0] = book.getIsbn();
-                                isbnsAndIds.add(isbn_andId);
-                            }
-                        }
-                        for(String[] illustrationValues : illustrationSet){
-                            boolean isbnFound = false;
-                            for(String[] isbnAndId : isbnsAndIds){
-                                if(isbnAndId[0].equals(illustrationValues[1])){ //проверили, что книга с таким isbn есть в каталоге
-                                    isbnFound = true;
-                                    if(!isbnAndId[1].equals(illustrationValues[0])){ //проверка, что у книги нет иллюстрации с таким id
-                                        Model.getInstance().addIllustration(illustrationValues[1], illustrationValues[0], illustrationValues[2], illustrationValues[3]);
-                                    }
-                                    else {
-                                        System.out.println("Ошибка! В каталоге у книги с Isbn=" + illustrationValues[1] + " уже есть иллюстрация с Id=" + illustrationValues[0]);
-                                        if(LOGGER.isLoggable(Level.WARNING)){
-                                            LOGGER.log(Level.WARNING, "illustration found (with id= "+illustrationValues[0]+") already exists in the catalog and added to the book with isbn: ", illustrationValues[1]);
-                                        }
-                                    }
-                                }
-                            }
-                            if(!isbnFound){
-                                System.out.println("Ошибка! Не получилось добавить в каталог иллюстрацию с id=" + illustrationValues[0]+"\nВ каталоге отсутствует книга с ISBN=" + illustrationValues[1]+"\n");
-                                if(LOGGER.isLoggable(Level.WARNING)){
-                                    LOGGER.log(Level.WARNING, "illustration found (with ID= "+illustrationValues[0]+") can not be added to the catalog, there is no book with isbn: ", illustrationValues[1]);
-                                }
-                            }
-                        }
+                    if(LOGGER.isLoggable(Level.FINE)){
+                        LOGGER.log(Level.FINE, "The time spent on the import of the catalog (in ms, records): ",
+                                (System.currentTimeMillis() - startTime) + ", " + pipeline.getCount(ImportPipeline.Stage.PARSE));}
+                }
+                catch (Exception e){
+                    View.getInstance().printErrorText(17);
+                    LOGGER.log(Level.SEVERE, "Application or format of file error: " + e.toString() + "");
+                }
+                finally {
+                    Model.getInstance().refreshCatalogIndexes();
+                    if(bloomFilter != null){
+                        View.getInstance().printBloomFilterReport(bloomFilter.getQueryCount(), bloomFilter.getPositiveCount(),
+                                bloomFilter.getFalsePositiveCount(), bloomFilter.getFalsePositiveRate(), bloomFilter.getExpectedFalsePositiveRate());
+                    }
+                }
+            }
+            returnMainMenu = backToMainMenu();
+        }
+        else if(selectSub == 3){
+            if(LOGGER.isLoggable(Level.FINE)){
+                LOGGER.fine("Menu select: Dry run of import(6-3)");}
+            /** проверка файла импорта без записи в каталог - результат в отчёте в папке export **/
+            File file = selectImportFile();
+            if(file != null){
+                try {
+                    ImportRecordSource source = MappedImportReader.open(file, 0, 0,
+                            Model.getInstance().getImportChunkSize(), Model.getInstance().getImportParserThreads());
+                    ImportDryRun dryRun = new ImportDryRun(source);
+                    try {
+                        dryRun.run();
                     }
+                    finally {source.close();}
+                    String reportName = file.getName().replaceAll("(\\.txt(\\.gz)?|\\.zip)$", "") + ".dryrun.txt";
+                    Writer out = FileInOut.getInstance().openFileWriter(reportName, "export");
+                    try {
+                        dryRun.writeReport(out, file.getName());
+                    }
+                    finally {out.close();}
+                    View.getInstance().printDryRunResult(dryRun.getRecordCount(), dryRun.getNewBookCount(), dryRun.getNewIllustrationCount(),
+                            dryRun.getDuplicateCount(), dryRun.getInvalidCount(), dryRun.getOrphanCount(), new File("export", reportName).getAbsolutePath());
+                    if(dryRun.getRecordCount() == 0){View.getInstance().printErrorText(17);}
+                }
+                catch (Exception e){
+                    View.getInstance().printErrorText(17);
+                    LOGGER.log(Level.SEVERE, "Application or format of file error: " + e.toString() + "");
+                }
+            }
+            returnMainMenu = backToMainMenu();
+        }
+        else if(selectSub == 4){
+            if(LOGGER.isLoggable(Level.FINE)){
+                LOGGER.fine("Menu select: Watch import directory(6-4)");}
+            /** наблюдение за папкой import - новые файлы импортируются в фоне, пока пользователь не нажмёт Enter **/
+            File directory = new File("import");
+            ImportWatcher watcher = new ImportWatcher(directory, Model.getInstance().getImportWatchThreads(),
+                    Model.getInstance().getImportWatchInterval());
+            try {
+                watcher.start();
+                View.getInstance().printWatchStart(directory.getAbsolutePath(), watcher.getThreads(),
+                        ImportWatcher.DONE_DIR, ImportWatcher.FAILED_DIR);
+                Model.getInstance().keyboardInput();
+                watcher.stop();
+                View.getInstance().printWatchResult(watcher.getDoneCount(), watcher.getFailedCount());
+            }
+            catch (Exception e){
+                View.getInstance().printErrorText(17);
+                LOGGER.log(Level.SEVERE, "Watching of the import directory failed: " + e.toString() + "");
+            }
+            finally {
+                if(watcher.getDoneCount() > 0){Model.getInstance().refreshCatalogIndexes();}
+            }
+            returnMainMenu = backToMainMenu();
+        }
+        else if(selectSub == 5){
+            if(LOGGER.isLoggable(Level.FINE)){
+                LOGGER.fine("Menu select: Sharded import of catalog(6-5)");}
+            /** импорт выгрузки по частям: части проверяются по манифесту (размер, CRC32) и импортируются параллельно **/
+            View.getInstance().printSubMenuText(10);
+            String fileName = Model.getInstance().keyboardInput() + ShardManifest.EXTENSION;
+            try {
+                File manifestFile = FileInOut.getInstance().findFile(fileName, "import");
+                CatalogShardImporter importer = new CatalogShardImporter(ShardManifest.load(manifestFile),
+                        manifestFile.getParentFile(), Model.getInstance().getParallelDbThreads());
+                try {
+                    importer.run();
                 }
+                finally {Model.getInstance().refreshCatalogIndexes();}
+                View.getInstance().printImportResult(importer.getBookCount(), importer.getIllustrationCount(), importer.getDroppedCount());
+            }
+            catch (FileNotFoundException e){
+                View.getInstance().printErrorText(14);
+                if(LOGGER.isLoggable(Level.WARNING)){
+                    LOGGER.log(Level.WARNING, "The file for read is not found!", fileName);}
+            }
+            catch (IOException e){
+                View.getInstance().printErrorText(24);
+                LOGGER.log(Level.SEVERE, "Sharded import of the catalog failed: " + e.toString() + "");
             }
             catch (Exception e){
                 View.getInstance().printErrorText(17);
-                LOGGER.log(Level.SEVERE, "Application or format of file error: " + e.toString() + "");
+                LOGGER.log(Level.SEVERE, "Sharded import of the catalog failed: " + e.toString() + "");
+            }
+            returnMainMenu = backToMainMenu();
+        }
+        else if(selectSub == 6){
+            if(LOGGER.isLoggable(Level.FINE)){
+                LOGGER.fine("Menu select: Apply catalog changes(6-6)");}
+            /** файл изменений (пункт 5-4): книги добавляются или обновляются, удалённые книги удаляются **/
+            File file = selectImportFile();
+            if(file != null){
+                try {
+                    ImportParser parser = new ImportParser(FileInOut.getInstance().openFileReader(file.getName(), "import"));
+                    parser.setDeletions(true);
+                    CatalogDeltaImporter importer = new CatalogDeltaImporter(parser, Model.getInstance().getImportBatchSize());
+                    try {
+                        importer.run();
+                    }
+                    finally {
+                        parser.close();
+                        Model.getInstance().refreshCatalogIndexes();
+                    }
+                    if(parser.getRecordCount() == 0){View.getInstance().printErrorText(17);}
+                    View.getInstance().printDeltaImportResult(importer.getAddedCount(), importer.getUpdatedCount(), importer.getDeletedCount(),
+                            importer.getIllustrationCount(), importer.getRejectedCount());
+                }
+                catch (Exception e){
+                    View.getInstance().printErrorText(17);
+                    LOGGER.log(Level.SEVERE, "Catalog changes are not applied: " + e.toString() + "");
+                }
             }
             returnMainMenu = backToMainMenu();
         }
@@ -608,6 +760,134 @@ public final class Controller
         return returnMainMenu;
     }
 
+    /**
+     * Метод седьмого пункта главного меню - поиск.
+     * Подпункты: 1 - Поиск книг по словам в названии, авторе и названиях иллюстраций (по полнотекстовому индексу Модели);
+     * 2 - Поиск isbn по началу (по дереву isbn Модели).
+     * Выводит не больше catalogPageSize книг (isbn), самые релевантные - первыми.
+     * @see BookDirectory.Model#searchBooks(String, int)
+     * @see BookDirectory.Model#getIsbnsByPrefix(String, int)
+     * @return Boolean - флаг возврата в главное меню. Если true - возвращаемся в главное меню.
+     */
+    private boolean seventhMenuEngine(){
+        if(LOGGER.isLoggable(Level.FINE)){
+            LOGGER.fine("Menu select: Search(7)");}
+        boolean returnMainMenu;
+        Integer selectSub = checkSubMenu(2, 7);
+        if(selectSub == 0){
+            returnMainMenu = true;
+        }
+        else if(selectSub == 2){
+            if(LOGGER.isLoggable(Level.FINE)){
+                LOGGER.fine("Menu select: Search isbn by prefix(7-2)");}
+            View.getInstance().printSubMenuText(9);
+            String prefix = Model.getInstance().keyboardInput();
+            ArrayList<String> isbns = Model.getInstance().getIsbnsByPrefix(prefix, Model.getInstance().getCatalogPageSize());
+            for(String isbn : isbns){
+                System.out.println(isbn);
+            }
+            View.getInstance().printSearchResult(isbns.size());
+            returnMainMenu = backToMainMenu();
+        }
+        else {
+            if(LOGGER.isLoggable(Level.FINE)){
+                LOGGER.fine("Menu select: Search books by words(7-1)");}
+            View.getInstance().printSubMenuText(8);
+            String query = Model.getInstance().keyboardInput();
+            ArrayList<Book> books = Model.getInstance().searchBooks(query, Model.getInstance().getCatalogPageSize());
+            for(Book book : books){
+                System.out.println(book);
+            }
+            View.getInstance().printSearchResult(books.size());
+            returnMainMenu = backToMainMenu();
+        }
+        return returnMainMenu;
+    }
+
+    /**
+     * Служебный метод для выбора файла импорта (имя файла вводит пользователь).
+     * Если файла "имя.txt" нет, ищется сжатый файл "имя.txt.gz" или "имя.zip".
+     * @return File - файл импорта или null, если файл не найден.
+     */
+    private File selectImportFile(){
+        View.getInstance().printSubMenuText(6);
+        String name = Model.getInstance().keyboardInput();
+        String fileName = name + ".txt";
+        for(String candidate : new String[]{fileName, fileName + CompressedStreams.GZIP_EXTENSION, name + CompressedStreams.ZIP_EXTENSION}){
+            if(new File("import", candidate).isFile()){
+                fileName = candidate;
+                break;
+            }
+        }
+        try {
+            return FileInOut.getInstance().findFile(fileName, "import");
+        }
+        catch (FileNotFoundException e){
+            View.getInstance().printErrorText(14);
+            if(LOGGER.isLoggable(Level.WARNING)){
+                LOGGER.log(Level.WARNING, "The file for read is not found!", fileName);}
+        }
+        return null;
+    }
+
+    /**
+     * Служебный метод для импорта одной книги (пункт 6-1): проверка дубля и значений, добавление в каталог.
+     * @param record ImportRecord - запись книги.
+     */
+    private void importBook(ImportRecord record){
+        if(Model.getInstance().getBookByISbn(record.getIsbn()) == null){
+            if(checkBookValues(record.getIsbn(), record.getName(), record.getAuthor()) && checkIsbnForbidden(record.getIsbn())){
+                Model.getInstance().addBook(record.getIsbn(), record.getName(), record.getAuthor());
+            }
+            else {View.getInstance().printImportRecordLine(record.getLine());}
+        }
+        else {
+            View.getInstance().printErrorText(15);
+            System.out.println(record.getIsbn());
+            View.getInstance().printImportRecordLine(record.getLine());
+            if(LOGGER.isLoggable(Level.WARNING)){
+                LOGGER.log(Level.WARNING, "Found the book already exists in the directory: ", record.getIsbn());}
+        }
+    }
+
+    /**
+     * Служебный метод для импорта одной иллюстрации (пункт 6-1): проверка книги, дубля и значений, добавление в каталог.
+     * @param record ImportRecord - запись иллюстрации.
+     */
+    private void importIllustration(ImportRecord record){
+        Book book = Model.getInstance().getBookByISbn(record.getIsbn());
+        /** проверка, что книга с таким isbn присутствует в каталоге **/
+        if(book == null){
+            System.out.println("Ошибка! Не получилось добавить в каталог иллюстрацию с id=" + record.getImageId() + "\nВ каталоге отсутствует книга с ISBN=" + record.getIsbn());
+            View.getInstance().printImportRecordLine(record.getLine());
+            if(LOGGER.isLoggable(Level.WARNING)){
+                LOGGER.log(Level.WARNING, "illustration found (with ID= " + record.getImageId() + ") can not be added to the catalog, there is no book with isbn: ", record.getIsbn());}
+            return;
+        }
+        for(Book.Illustration illustration : book.getIllustrations()){
+            if(illustration.getId().equals(record.getImageId())){
+                System.out.println("Ошибка! В каталоге у книги с Isbn=" + record.getIsbn() + " уже есть иллюстрация с Id=" + record.getImageId());
+                View.getInstance().printImportRecordLine(record.getLine());
+                if(LOGGER.isLoggable(Level.WARNING)){
+                    LOGGER.log(Level.WARNING, "illustration found (with id= " + record.getImageId() + ") already exists in the catalog and added to the book with isbn: ", record.getIsbn());}
+                return;
+            }
+        }
+        if(checkIllustrationValues(record.getImageId(), record.getName(), record.getAuthor())){
+            Model.getInstance().addIllustration(record.getIsbn(), record.getImageId(), record.getName(), record.getAuthor());
+        }
+        else {View.getInstance().printImportRecordLine(record.getLine());}
+    }
+
+    /**
+     * Служебный метод для вывода подсказок, если книги с введённым isbn нет в каталоге.
+     * @param isbn String - введённый isbn.
+     * @see BookDirectory.Model#suggestIsbns(String, int)
+     */
+    private void suggestIsbns(String isbn){
+        View.getInstance().printIsbnSuggestions(Model.getInstance().suggestIsbns(isbn, 5));
+    }
+
     /**
      * Служебный метод для возврата в главное меню программы.
      * @return Boolean
@@ -741,59 +1021,4 @@ public final class Controller
             LOGGER.log(Level.FINE, "The result of check menu selection is: ", right);}
         return right;
     }
-
-    /**
-     * Служебный метод для поиска атрибутов книги в тексте файла импорта.
-     * @param fileText String - текст для поиска.
-     * @return String[4], где [0] - isbn книги, [1] - название книги, [2] - автор книги, [3] - позиция, на котором поиск остановился.
-     */
-    private String[] findValuesBook(String fileText){
-        String[] values = new String[4];
-        if (fileText.contains("[Книга]")) { //проверка на наличие тега
-            int beginStr = fileText.indexOf("[Книга]"); //символ начала тега книга
-            int endStr = fileText.indexOf('\n', beginStr); //номер символа - конец тега книга
-            values[0] = fileText.substring(endStr + 1, fileText.indexOf('\n', endStr + 1)).trim();
-            beginStr = fileText.indexOf('\n', endStr + 1) + 1; // номер символа - начало названия книги
-            endStr = fileText.indexOf('\n', beginStr); // номер символа - конец названия книги
-            values[1] = fileText.substring(beginStr, endStr).trim();
-            beginStr = endStr + 1; // номер символа - начало автора книги
-            endStr = fileText.indexOf('\n', beginStr); // номер символа - конец автора книги
-            values[2] = fileText.substring(beginStr, endStr).trim();
-            values[3] = String.valueOf(endStr);
-        }
-        else{
-            if(LOGGER.isLoggable(Level.WARNING)){
-                LOGGER.warning("Tag [Book] is not found text file ");}
-        }
-        return values;
-    }
-
-    /**
-     * Служебный метод для поиска атрибутов иллюстрации в тексте файла импорта.
-     * @param fileText String - текст для поиска.
-     * @return String[5], где [0] - id иллюстрации, [1] - isbn книги, [2] - название илюстрации, [3] - автор иллюстрации, [4] - позиция, на котором поиск остановился.
-     */
-    private String[] findValuesIllustration(String fileText){
-        String[] values = new String[5];
-        if (fileText.contains("[Иллюстрация]")) { //проверка на наличие тега
-            int beginStr = fileText.indexOf("[Иллюстрация]"); //символ начала тега книга
-            int endStr = fileText.indexOf('\n', beginStr); //номер символа - конец тега книга
-            values[0] = fileText.substring(endStr + 1, fileText.indexOf('\n', endStr + 1)).trim();
-            beginStr = fileText.indexOf('\n', endStr + 1) + 1; // номер символа - начало названия книги
-            endStr = fileText.indexOf('\n', beginStr); // номер символа - конец названия книги
-            values[1] = fileText.substring(beginStr, endStr).trim();
-            beginStr = endStr + 1; // номер символа - начало автора книги
-            endStr = fileText.indexOf('\n', beginStr); // номер символа - конец автора книги
-            values[2] = fileText.substring(beginStr, endStr).trim();
-            beginStr = endStr + 1;
-            endStr = fileText.indexOf('\n', beginStr);
-            values[3] = fileText.substring(beginStr, endStr).trim();
-            values[4] = String.valueOf(endStr);
-        }
-        else{
-            if(LOGGER.isLoggable(Level.WARNING)){
-                LOGGER.warning("Tag [Illustration] is not found text file ");}
-        }
-        return values;
-    }
-}
\ No newline at end of file
+}
@@ -2,6 +2,9 @@ package BookDirectory;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -15,7 +18,6 @@ public class DerbyDBManager{
     /**
      * Параметры б.д.: драйвер, расположение, название, размеры полей таблиц.
      */
-    private static Connection con = null ;
     private static final String DRIVER = Model.getInstance().getDRIVER();
     private static final String URL = Model.getInstance().getURL();
     private static String dbName = Model.getInstance().getDB_NAME();
@@ -31,48 +33,141 @@ public class DerbyDBManager{
      */
     private static final Logger LOGGER = Logger.getLogger(Model.class.getName());
 
+    /**
+     * Запрос для выборки всего каталога (книги и их иллюстрации) одним проходом.
+     * Строки упорядочены по isbn, чтобы иллюстрации одной книги шли подряд.
+     */
+    private static final String SQL_SELECT_CATALOG = "SELECT b.isbn, b.title, b.author, i.imageId, i.name, i.author " +
+            "FROM books b LEFT OUTER JOIN illustrations i ON b.isbn = i.isbn ORDER BY b.isbn";
+
+    /**
+     * Запросы с параметрами (выполняются через PreparedStatement из кэша соединения).
+     */
+    private static final String SQL_SELECT_BOOK = "SELECT b.isbn, b.title, b.author, i.imageId, i.name, i.author " +
+            "FROM books b LEFT OUTER JOIN illustrations i ON b.isbn = i.isbn WHERE b.isbn = ?";
+    private static final String SQL_SELECT_CATALOG_RANGE = "SELECT b.isbn, b.title, b.author, i.imageId, i.name, i.author " +
+            "FROM books b LEFT OUTER JOIN illustrations i ON b.isbn = i.isbn WHERE b.isbn >= ? AND b.isbn < ? ORDER BY b.isbn";
+    private static final String SQL_SELECT_CATALOG_FROM = "SELECT b.isbn, b.title, b.author, i.imageId, i.name, i.author " +
+            "FROM books b LEFT OUTER JOIN illustrations i ON b.isbn = i.isbn WHERE b.isbn >= ? ORDER BY b.isbn";
+    private static final String SQL_SELECT_BOOKS_AFTER = "SELECT isbn, title, author FROM books WHERE isbn > ? ORDER BY isbn";
+    private static final String SQL_SELECT_BOOKS_FROM = "SELECT isbn, title, author FROM books WHERE isbn >= ? ORDER BY isbn";
+    private static final String SQL_SELECT_BOOKS_BEFORE = "SELECT isbn, title, author FROM books WHERE isbn < ? ORDER BY isbn DESC";
+    private static final String SQL_SELECT_ILLUSTRATIONS_BETWEEN = "SELECT isbn, imageId, name, author FROM illustrations " +
+            "WHERE isbn >= ? AND isbn <= ?";
+    private static final String SQL_SELECT_ILLUSTRATION_INDEX = "SELECT imageId, isbn FROM illustrations";
+    private static final String SQL_SELECT_ILLUSTRATION_KEYS = "SELECT b.isbn, i.imageId FROM books b LEFT JOIN illustrations i ON b.isbn = i.isbn";
+    private static final String SQL_SELECT_ILLUSTRATION_KEYS_RANGE = SQL_SELECT_ILLUSTRATION_KEYS + " WHERE b.isbn >= ? AND b.isbn < ?";
+    private static final String SQL_SELECT_ILLUSTRATION_KEYS_FROM = SQL_SELECT_ILLUSTRATION_KEYS + " WHERE b.isbn >= ?";
+    private static final String SQL_SELECT_BOOK_ILLUSTRATION_KEYS = SQL_SELECT_ILLUSTRATION_KEYS + " WHERE b.isbn = ?";
+    private static final String SQL_SELECT_ISBNS_BY_ILLUSTRATION = "SELECT isbn FROM illustrations WHERE imageId = ? ORDER BY isbn";
+    private static final String SQL_SELECT_ISBNS = "SELECT isbn FROM books ORDER BY isbn";
+    private static final String SQL_COUNT_BOOKS = "SELECT COUNT(*) FROM books";
+    private static final String SQL_COUNT_ILLUSTRATIONS = "SELECT COUNT(*) FROM illustrations";
+    private static final String SQL_SELECT_BOOK_EXISTS = "SELECT 1 FROM books WHERE isbn = ?";
+    private static final String SQL_SELECT_ILLUSTRATION_EXISTS = "SELECT 1 FROM illustrations WHERE isbn = ? AND imageId = ?";
+    private static final String SQL_SELECT_ANY_BOOK = "SELECT isbn FROM books FETCH FIRST 1 ROWS ONLY";
+    private static final String SQL_SELECT_ILLUSTRATIONS = "SELECT imageId, name, author FROM illustrations WHERE isbn = ?";
+    private static final String SQL_SELECT_BOOKS_BY_ISBNS = "SELECT b.isbn, b.title, b.author, i.imageId, i.name, i.author " +
+            "FROM books b LEFT OUTER JOIN illustrations i ON b.isbn = i.isbn WHERE b.isbn IN (%s) ORDER BY b.isbn";
+    private static final String SQL_SELECT_LAST_CHANGE = "SELECT MAX(seq) FROM change_log";
+    private static final String SQL_SELECT_CHANGED_CATALOG = "SELECT b.isbn, b.title, b.author, i.imageId, i.name, i.author " +
+            "FROM books b LEFT OUTER JOIN illustrations i ON b.isbn = i.isbn " +
+            "WHERE b.isbn IN (SELECT c.isbn FROM change_log c WHERE c.seq > ? AND c.seq <= ?) ORDER BY b.isbn";
+    private static final String SQL_SELECT_DELETED_ISBNS = "SELECT DISTINCT c.isbn FROM change_log c " +
+            "WHERE c.seq > ? AND c.seq <= ? AND c.entity = 'B' AND c.op = 'D' " +
+            "AND NOT EXISTS (SELECT 1 FROM books b WHERE b.isbn = c.isbn) ORDER BY c.isbn";
+    private static final String SQL_SELECT_CHANGES_AFTER = "SELECT seq, entity, op, isbn, imageId FROM change_log WHERE seq > ? ORDER BY seq";
+    private static final String SQL_SELECT_WATERMARK = "SELECT seq FROM export_watermark WHERE name = ?";
+    private static final String SQL_UPDATE_WATERMARK = "UPDATE export_watermark SET seq = ?, exported = CURRENT_TIMESTAMP WHERE name = ?";
+    private static final String SQL_INSERT_WATERMARK = "INSERT INTO export_watermark (name, seq, exported) VALUES (?, ?, CURRENT_TIMESTAMP)";
+    static final String SQL_UPDATE_BOOK = "UPDATE books SET title = ?, author = ? WHERE isbn = ?";
+    static final String SQL_INSERT_BOOK = "INSERT INTO books (isbn, title, author) VALUES (?, ?, ?)";
+    static final String SQL_INSERT_ILLUSTRATION = "INSERT INTO illustrations (isbn, imageId, name, author) VALUES (?, ?, ?, ?)";
+    static final String SQL_DELETE_BOOK = "DELETE FROM books WHERE isbn = ?";
+    static final String SQL_DELETE_BOOK_ILLUSTRATIONS = "DELETE FROM illustrations WHERE isbn = ?";
+    static final String SQL_DELETE_BOOK_ILLUSTRATION = "DELETE FROM illustrations WHERE isbn = ? AND imageId = ?";
+    private static final String SQL_DELETE_ILLUSTRATION = "DELETE FROM illustrations WHERE imageId = ?";
+
+    /**
+     * Количество параметров списка IN в выборке книг по списку isbn. Короткий список дополняется повтором последнего isbn,
+     * поэтому текст запроса всегда один и тот же - он подготавливается один раз и берётся из кэша соединения.
+     */
+    public static final int IN_LIST_SIZE = 100;
+    private static final String SQL_SELECT_BOOKS_BY_ISBNS_PADDED = String.format(SQL_SELECT_BOOKS_BY_ISBNS, inList(IN_LIST_SIZE));
 
+    /**
+     * Флаг - драйвер загружен, б.д. и таблицы созданы (выполняется один раз при запуске).
+     */
+    private static volatile boolean bootstrapped = false;
+
+    /**
+     * Соединение, полученное из пула на время работы менеджера.
+     */
+    private final Connection con;
+
+    /**
+     * Открытые менеджером запросы (закрываются вместе с менеджером).
+     */
+    private final ArrayList<Statement> statements = new ArrayList<Statement>();
+
+    /**
+     * Открытые результаты выборок подготовленных запросов (сами запросы остаются в кэше соединения).
+     */
+    private final ArrayList<ResultSet> results = new ArrayList<ResultSet>();
 
     /**
      * Конструктор - менеджер для работы с б.д. derby.
-     * Если бд не существует - создаёт новую б.д. и таблицы в ней.
-     */
-    public DerbyDBManager(){
-            if(!dbExists())
-            {
-                String sqlCreateTableBook = "CREATE TABLE books(isbn VARCHAR("+ BOOK_ISBN_SIZE +") UNIQUE, title VARCHAR("+ BOOK_TITLE_SIZE +"), author VARCHAR("+ BOOK_AUTHOR_SIZE +"))";
-                String sqlCreateTableIllustration = "CREATE TABLE illustrations(isbn VARCHAR("+ BOOK_ISBN_SIZE +"), imageId VARCHAR("+ ILLUSTRATION_ID_SIZE +"),  name VARCHAR("+ ILLUSTRATION_NAME_SIZE +"), author VARCHAR("+ ILLUSTRATION_AUTHOR_SIZE +") )";
-                try
-                {
-                    Class.forName(DRIVER) ;
-                    con = DriverManager.getConnection(URL + dbName + ";create=true");
-                    executeUpdate(sqlCreateTableBook);
-                    executeUpdate(sqlCreateTableIllustration);
-                    View.getInstance().printMessage(11);
-                }
-                catch (ClassNotFoundException e)
-                {
-                    View.getInstance().printErrorText(0);
-                    LOGGER.log(Level.SEVERE, "ClassNotFoundException: " + e.toString() + "");
-                }
-                catch (SQLException e)
-                {
-                    View.getInstance().printErrorText(2);
-                    LOGGER.log(Level.SEVERE, "SQLException: " + e.toString() + "", sqlCreateTableBook);
-                }
+     * Получает соединение из пула; после работы менеджер нужно закрыть методом close().
+     * @throws SQLException Ошибки SQL или нет свободного соединения в пуле.
+     * @see BookDirectory.ConnectionPool
+     */
+    public DerbyDBManager() throws SQLException{
+        bootstrap();
+        con = ConnectionPool.getInstance().borrow();
+    }
+
+    /**
+     * Метод для начальной инициализации б.д. - выполняется один раз при запуске приложения.
+     * Загружает драйвер JDBC; если бд не существует - создаёт новую б.д.;
+     * обновляет схему б.д. до последней версии (см. SchemaMigrator).
+     * @see BookDirectory.SchemaMigrator
+     */
+    public static synchronized void bootstrap(){
+        if(bootstrapped){return;}
+        try
+        {
+            Class.forName(DRIVER);
+            boolean exists = dbExists();
+            Connection con = DriverManager.getConnection(URL + dbName + (exists ? "" : ";create=true"));
+            try {
+                new SchemaMigrator(con, BOOK_ISBN_SIZE, BOOK_TITLE_SIZE, BOOK_AUTHOR_SIZE,
+                        ILLUSTRATION_ID_SIZE, ILLUSTRATION_NAME_SIZE, ILLUSTRATION_AUTHOR_SIZE).migrate();
             }
+            finally {con.close();}
+            if(!exists){View.getInstance().printMessage(11);}
+            bootstrapped = true;
+        }
+        catch (ClassNotFoundException e)
+        {
+            View.getInstance().printErrorText(0);
+            LOGGER.log(Level.SEVERE, "ClassNotFoundException: " + e.toString() + "");
+        }
+        catch (SQLException e)
+        {
+            View.getInstance().printErrorText(2);
+            LOGGER.log(Level.SEVERE, "SQLException: " + e.toString() + "");
+        }
     }
 
     /**
      * Служебный метод для проверки существования бд.
      * @return Boolean: true если б.д. существует, иначе - false;
      */
-    private Boolean dbExists(){
+    private static Boolean dbExists(){
         Boolean exists = false;
         try
         {
-            Class.forName(DRIVER);
-            con = DriverManager.getConnection(URL + dbName);
+            DriverManager.getConnection(URL + dbName).close();
             exists = true ;
         }
         catch(Exception e)
@@ -85,6 +180,76 @@ public class DerbyDBManager{
         return(exists);
     }
 
+    /**
+     * Метод для открытия нового соединения с б.д. (используется пулом соединений).
+     * @return Connection - новое соединение.
+     * @throws SQLException Ошибки SQL
+     */
+    static Connection openConnection() throws SQLException{
+        return DriverManager.getConnection(URL + dbName);
+    }
+
+    /**
+     * Метод для остановки б.д. derby (при завершении работы приложения).
+     */
+    static void shutdown(){
+        try {
+            DriverManager.getConnection(URL + ";shutdown=true");
+        }
+        catch (SQLException e){
+            /** derby всегда сообщает об остановке исключением (XJ015) **/
+            if(LOGGER.isLoggable(Level.FINE)){
+                LOGGER.log(Level.FINE, "Derby shutdown: ", e.getSQLState());}
+        }
+    }
+
+    /**
+     * Служебный метод - список параметров для IN.
+     * @param size int - количество параметров.
+     * @return String - "?, ?, ..., ?".
+     */
+    private static String inList(int size){
+        StringBuilder list = new StringBuilder();
+        for(int i = 0; i < size; i++){
+            list.append(i == 0 ? "?" : ", ?");
+        }
+        return list.toString();
+    }
+
+    /**
+     * Метод для закрытия менеджера: закрывает открытые запросы и возвращает соединение в пул.
+     */
+    public void close(){
+        for(ResultSet result : results){
+            try {
+                result.close();
+            }
+            catch (SQLException e){
+                LOGGER.log(Level.WARNING, "SQLException on close: " + e.toString() + "");
+            }
+        }
+        results.clear();
+        for(Statement stmt : statements){
+            try {
+                stmt.close();
+            }
+            catch (SQLException e){
+                LOGGER.log(Level.WARNING, "SQLException on close: " + e.toString() + "");
+            }
+        }
+        statements.clear();
+        ConnectionPool.getInstance().release(con);
+    }
+
+    /**
+     * "Геттер" для получения соединения менеджера (для управления транзакцией, например в CatalogBatchWriter).
+     * Соединение нельзя закрывать - оно возвращается в пул методом close().
+     * @return Connection
+     */
+    Connection getConnection(){
+        return con;
+    }
+
     /**
      * Запрос на обновление базы данных  (INSERT, UPDATE, CREATE TABLE и т.д.)
      * @param sql SQL запрос
@@ -106,69 +271,483 @@ public class DerbyDBManager{
      */
     public ResultSet executeQuery(String sql) throws SQLException{
             Statement stmt = con.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statements.add(stmt);
             return stmt.executeQuery(sql);
     }
 
     /**
-     * Метод для удаления объекта "Книга" из б.д.
-     * @param isbn String - Isbn книги для удаления.
+     * Служебный метод для получения подготовленного запроса из кэша соединения и установки его параметров.
+     * @param sql String - SQL запрос с параметрами (?).
+     * @param params String... - значения параметров (по порядку).
+     * @return PreparedStatement - запрос, готовый к выполнению.
      * @throws SQLException Ошибки SQL
+     * @see BookDirectory.ConnectionPool#prepareStatement(java.sql.Connection, String)
      */
-    public void deleteQuery(String isbn) throws SQLException{
-        Statement sta = con.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
-        ResultSet result = sta.executeQuery("SELECT * FROM books");
-        if (result.getConcurrency() == ResultSet.CONCUR_READ_ONLY){
-            View.getInstance().printErrorText(19);
-            LOGGER.severe("The table book is blocked!");
-        }
-        else {
-            while (result.next()){
-                String isbnDB = result.getString(1);
-                if (isbnDB.equals(isbn)){
-                    result.deleteRow();
-                    if(LOGGER.isLoggable(Level.FINE)){
-                        LOGGER.log(Level.FINE, "The book was deleted from database!", isbn);}
-                     break;
-                }
-            }
+    PreparedStatement prepare(String sql, String... params) throws SQLException{
+        PreparedStatement stmt = ConnectionPool.getInstance().prepareStatement(con, sql);
+        for(int i = 0; i < params.length; i++){
+            stmt.setString(i + 1, params[i]);
+        }
+        return stmt;
+    }
+
+    /**
+     * Запрос с параметрами на обновление базы данных (INSERT, UPDATE, DELETE).
+     * @param sql SQL запрос с параметрами (?).
+     * @param params String... - значения параметров (по порядку).
+     * @return int - количество изменённых строк.
+     * @throws SQLException Ошибки SQL
+     */
+    public int executePreparedUpdate(String sql, String... params) throws SQLException{
+        int count = prepare(sql, params).executeUpdate();
+        if(LOGGER.isLoggable(Level.FINE)){
+            LOGGER.log(Level.FINE, "The count of executeUpdate is: ", count);}
+        return count;
+    }
+
+    /**
+     * Метод для выборки данных из б.д. запросом с параметрами.
+     * @param sql SQL запрос с параметрами (?).
+     * @param params String... - значения параметров (по порядку).
+     * @return ResultSet - Результат выборки (закрывается вместе с менеджером).
+     * @throws SQLException - Ошибки SQL
+     */
+    public ResultSet executePreparedQuery(String sql, String... params) throws SQLException{
+        ResultSet result = prepare(sql, params).executeQuery();
+        results.add(result);
+        return result;
+    }
+
+    /**
+     * Метод для добавления книги в б.д.
+     * @param isbn String - Isbn книги.
+     * @param title String - Название книги.
+     * @param author String - Автор книги.
+     * @throws SQLException Ошибки SQL (SQLIntegrityConstraintViolationException - книга с таким isbn уже есть).
+     */
+    public void insertBook(String isbn, String title, String author) throws SQLException{
+        executePreparedUpdate(SQL_INSERT_BOOK, isbn, title, author);
+    }
+
+    /**
+     * Метод для добавления иллюстрации книги в б.д.
+     * @param isbn String - Isbn книги.
+     * @param imageId String - Id иллюстрации.
+     * @param name String - Название иллюстрации.
+     * @param author String - Автор иллюстрации.
+     * @throws SQLException Ошибки SQL
+     */
+    public void insertIllustration(String isbn, String imageId, String name, String author) throws SQLException{
+        executePreparedUpdate(SQL_INSERT_ILLUSTRATION, isbn, imageId, name, author);
+    }
+
+    /**
+     * Метод для выборки всего каталога: книги и их иллюстрации (LEFT JOIN), упорядоченные по isbn.
+     * @return ResultSet - Результат выборки (см. CatalogHydrator).
+     * @throws SQLException - Ошибки SQL
+     * @see BookDirectory.CatalogHydrator
+     */
+    public ResultSet selectCatalogQuery() throws SQLException{
+        return executePreparedQuery(SQL_SELECT_CATALOG);
+    }
+
+    /**
+     * Метод для выборки одной книги и её иллюстраций по isbn (в формате CatalogHydrator).
+     * @param isbn String - Isbn книги.
+     * @return ResultSet - Результат выборки (пустой, если книги нет в каталоге).
+     * @throws SQLException - Ошибки SQL
+     * @see BookDirectory.CatalogHydrator
+     */
+    public ResultSet selectBookQuery(String isbn) throws SQLException{
+        return executePreparedQuery(SQL_SELECT_BOOK, isbn);
+    }
+
+    /**
+     * Метод для постраничной выборки книг (без иллюстраций) по ключу - isbn последней показанной книги (keyset).
+     * Строки пропускаются по индексу первичного ключа, а не по смещению (OFFSET), поэтому любая страница
+     * читает из б.д. не больше size строк.
+     * @param isbn String - isbn последней книги предыдущей страницы (сама книга в страницу не входит).
+     * @param size int - размер страницы (максимальное количество строк выборки).
+     * @return ResultSet - Результат выборки: [1] - isbn, [2] - название, [3] - автор.
+     * @throws SQLException - Ошибки SQL
+     */
+    public ResultSet selectBooksAfterQuery(String isbn, int size) throws SQLException{
+        return selectPage(SQL_SELECT_BOOKS_AFTER, isbn, size);
+    }
+
+    /**
+     * Метод для выборки страницы книг с isbn не меньше заданного (переход к isbn), по возрастанию isbn.
+     * @param isbn String - isbn, с которого начинается страница.
+     * @param size int - размер страницы.
+     * @return ResultSet - Результат выборки (см. selectBooksAfterQuery).
+     * @throws SQLException - Ошибки SQL
+     */
+    public ResultSet selectBooksFromQuery(String isbn, int size) throws SQLException{
+        return selectPage(SQL_SELECT_BOOKS_FROM, isbn, size);
+    }
+
+    /**
+     * Метод для выборки страницы книг перед заданным isbn (предыдущая страница), по убыванию isbn.
+     * @param isbn String - isbn первой книги текущей страницы.
+     * @param size int - размер страницы.
+     * @return ResultSet - Результат выборки (см. selectBooksAfterQuery).
+     * @throws SQLException - Ошибки SQL
+     */
+    public ResultSet selectBooksBeforeQuery(String isbn, int size) throws SQLException{
+        return selectPage(SQL_SELECT_BOOKS_BEFORE, isbn, size);
+    }
+
+    /**
+     * Метод для выборки иллюстраций книг страницы - всех книг с isbn от первого до последнего isbn страницы.
+     * @param firstIsbn String - isbn первой книги страницы.
+     * @param lastIsbn String - isbn последней книги страницы.
+     * @return ResultSet - Результат выборки: [1] - isbn, [2] - id, [3] - название, [4] - автор иллюстрации.
+     * @throws SQLException - Ошибки SQL
+     */
+    public ResultSet selectIllustrationsBetweenQuery(String firstIsbn, String lastIsbn) throws SQLException{
+        return executePreparedQuery(SQL_SELECT_ILLUSTRATIONS_BETWEEN, firstIsbn, lastIsbn);
+    }
+
+    /**
+     * Служебный метод для выборки страницы: ограничивает количество строк подготовленного запроса.
+     * @param sql String - запрос страницы.
+     * @param isbn String - ключ страницы.
+     * @param size int - размер страницы.
+     * @return ResultSet - Результат выборки.
+     * @throws SQLException - Ошибки SQL
+     */
+    private ResultSet selectPage(String sql, String isbn, int size) throws SQLException{
+        PreparedStatement stmt = prepare(sql, isbn);
+        stmt.setMaxRows(size);
+        ResultSet result = stmt.executeQuery();
+        results.add(result);
+        return result;
+    }
+
+    /**
+     * Метод для выборки части каталога (книги с isbn в диапазоне и их иллюстрации) - для экспорта по частям.
+     * @param fromIsbn String - isbn начала диапазона (включительно).
+     * @param toIsbn String - isbn конца диапазона (не включительно); null - до конца каталога.
+     * @return ResultSet - Результат выборки (колонки как у выборки всего каталога), по возрастанию isbn.
+     * @throws SQLException - Ошибки SQL
+     * @see BookDirectory.CatalogShardExporter
+     */
+    public ResultSet selectCatalogRangeQuery(String fromIsbn, String toIsbn) throws SQLException{
+        if(toIsbn == null){return executePreparedQuery(SQL_SELECT_CATALOG_FROM, fromIsbn);}
+        return executePreparedQuery(SQL_SELECT_CATALOG_RANGE, fromIsbn, toIsbn);
+    }
+
+    /**
+     * Метод для выборки книг (и их иллюстраций) по списку isbn одним запросом (по индексу первичного ключа).
+     * @param isbns List<String> - isbn книг (от 1 до IN_LIST_SIZE).
+     * @return ResultSet - Результат выборки (колонки как у выборки всего каталога), по возрастанию isbn; isbn, которых нет в каталоге, пропускаются.
+     * @throws SQLException - Ошибки SQL
+     * @see BookDirectory.BookBatchExporter
+     */
+    public ResultSet selectBooksByIsbnsQuery(List<String> isbns) throws SQLException{
+        if(isbns.isEmpty() || isbns.size() > IN_LIST_SIZE){
+            throw new IllegalArgumentException("Wrong size of the isbn list: " + isbns.size());
+        }
+        String[] params = new String[IN_LIST_SIZE];
+        for(int i = 0; i < IN_LIST_SIZE; i++){
+            params[i] = isbns.get(Math.min(i, isbns.size() - 1));
+        }
+        return executePreparedQuery(SQL_SELECT_BOOKS_BY_ISBNS_PADDED, params);
+    }
+
+    /**
+     * Метод для получения номера последнего изменения каталога в журнале изменений.
+     * @return long - номер последнего изменения (0, если журнал пуст).
+     * @throws SQLException - Ошибки SQL
+     * @see BookDirectory.CatalogDeltaExporter
+     */
+    public long selectLastChange() throws SQLException{
+        ResultSet result = executePreparedQuery(SQL_SELECT_LAST_CHANGE);
+        return result.next() ? result.getLong(1) : 0;
+    }
+
+    /**
+     * Метод для выборки книг (и всех их иллюстраций), изменённых в диапазоне номеров журнала изменений.
+     * Изменение иллюстрации тоже считается изменением её книги; удалённых книг в выборке нет.
+     * @param fromSeq long - номер изменения, после которого начинается диапазон (не включительно).
+     * @param toSeq long - номер последнего изменения диапазона (включительно).
+     * @return ResultSet - Результат выборки (колонки как у выборки всего каталога), по возрастанию isbn.
+     * @throws SQLException - Ошибки SQL
+     */
+    public ResultSet selectChangedCatalogQuery(long fromSeq, long toSeq) throws SQLException{
+        return executePreparedQuery(SQL_SELECT_CHANGED_CATALOG, String.valueOf(fromSeq), String.valueOf(toSeq));
+    }
+
+    /**
+     * Метод для выборки isbn книг, удалённых в диапазоне номеров журнала изменений (и не добавленных снова).
+     * @param fromSeq long - номер изменения, после которого начинается диапазон (не включительно).
+     * @param toSeq long - номер последнего изменения диапазона (включительно).
+     * @return ResultSet - Результат выборки: [1] - isbn удалённой книги по возрастанию.
+     * @throws SQLException - Ошибки SQL
+     */
+    public ResultSet selectDeletedIsbnsQuery(long fromSeq, long toSeq) throws SQLException{
+        return executePreparedQuery(SQL_SELECT_DELETED_ISBNS, String.valueOf(fromSeq), String.valueOf(toSeq));
+    }
+
+    /**
+     * Метод для выборки записей журнала изменений после указанного номера (для обновления фильтра Блума ключей каталога).
+     * @param fromSeq long - номер изменения, после которого начинается выборка (не включительно).
+     * @return ResultSet - Результат выборки: [1] - номер, [2] - 'B' (книга) или 'I' (иллюстрация),
+     * [3] - 'U' (запись) или 'D' (удаление), [4] - isbn, [5] - id иллюстрации; по возрастанию номера.
+     * @throws SQLException - Ошибки SQL
+     */
+    public ResultSet selectChangesQuery(long fromSeq) throws SQLException{
+        return executePreparedQuery(SQL_SELECT_CHANGES_AFTER, String.valueOf(fromSeq));
+    }
+
+    /**
+     * Метод для получения отметки экспорта - номера последнего изменения, вошедшего в выгрузку.
+     * @param name String - имя отметки.
+     * @return long - номер изменения (0, если выгрузок ещё не было).
+     * @throws SQLException - Ошибки SQL
+     */
+    public long selectWatermark(String name) throws SQLException{
+        ResultSet result = executePreparedQuery(SQL_SELECT_WATERMARK, name);
+        return result.next() ? result.getLong(1) : 0;
+    }
+
+    /**
+     * Метод для сохранения отметки экспорта.
+     * @param name String - имя отметки.
+     * @param seq long - номер последнего изменения, вошедшего в выгрузку.
+     * @throws SQLException - Ошибки SQL
+     */
+    public void saveWatermark(String name, long seq) throws SQLException{
+        if(executePreparedUpdate(SQL_UPDATE_WATERMARK, String.valueOf(seq), name) == 0){
+            executePreparedUpdate(SQL_INSERT_WATERMARK, name, String.valueOf(seq));
         }
-        result.close();
-        sta.close();
-        con.close();
     }
 
     /**
-     * Метод для удаления иллюстрации из б.д.
+     * Метод для выборки всех пар (id иллюстрации, isbn книги) - для загрузки индекса иллюстраций.
+     * @return ResultSet - Результат выборки: [1] - id иллюстрации, [2] - isbn книги.
+     * @throws SQLException - Ошибки SQL
+     * @see BookDirectory.IllustrationIndex
+     */
+    public ResultSet selectIllustrationIndexQuery() throws SQLException{
+        return executePreparedQuery(SQL_SELECT_ILLUSTRATION_INDEX);
+    }
+
+    /**
+     * Метод для выборки isbn всех книг и id их иллюстраций одним запросом (книга без иллюстраций - одна строка с null).
+     * @return ResultSet - Результат выборки: [1] - isbn книги, [2] - id иллюстрации или null.
+     * @throws SQLException - Ошибки SQL
+     * @see BookDirectory.IllustrationReconciler
+     */
+    public ResultSet selectIllustrationKeysQuery() throws SQLException{
+        return executePreparedQuery(SQL_SELECT_ILLUSTRATION_KEYS);
+    }
+
+    /**
+     * Метод для выборки пар (isbn книги, id иллюстрации) книг из диапазона isbn - для сверки иллюстраций части каталога.
+     * @param fromIsbn String - isbn начала диапазона (включительно).
+     * @param toIsbn String - isbn конца диапазона (не включительно); null - до конца каталога.
+     * @return ResultSet - Результат выборки: [1] - isbn книги, [2] - id иллюстрации (null, если у книги нет иллюстраций).
+     * @throws SQLException - Ошибки SQL
+     * @see BookDirectory.IllustrationReconciler
+     */
+    public ResultSet selectIllustrationKeysQuery(String fromIsbn, String toIsbn) throws SQLException{
+        if(toIsbn == null){return executePreparedQuery(SQL_SELECT_ILLUSTRATION_KEYS_FROM, fromIsbn);}
+        return executePreparedQuery(SQL_SELECT_ILLUSTRATION_KEYS_RANGE, fromIsbn, toIsbn);
+    }
+
+    /**
+     * Метод для выборки пар (isbn книги, id иллюстрации) одной книги.
+     * @param isbn String - Isbn книги.
+     * @return ResultSet - Результат выборки: [1] - isbn книги, [2] - id иллюстрации (null, если у книги нет иллюстраций).
+     * @throws SQLException - Ошибки SQL
+     * @see BookDirectory.IllustrationReconciler
+     */
+    public ResultSet selectBookIllustrationKeysQuery(String isbn) throws SQLException{
+        return executePreparedQuery(SQL_SELECT_BOOK_ILLUSTRATION_KEYS, isbn);
+    }
+
+    /**
+     * Метод для выборки isbn книг, в которых используется иллюстрация (по индексу idx_illustrations_imageId).
+     * @param imageId String - Id иллюстрации.
+     * @return ResultSet - Результат выборки: [1] - isbn книги.
+     * @throws SQLException - Ошибки SQL
+     */
+    public ResultSet selectIsbnsByIllustrationQuery(String imageId) throws SQLException{
+        return executePreparedQuery(SQL_SELECT_ISBNS_BY_ILLUSTRATION, imageId);
+    }
+
+    /**
+     * Метод для выборки isbn всех книг (по индексу первичного ключа, без чтения строк таблицы).
+     * @return ResultSet - Результат выборки: [1] - isbn книги по возрастанию.
+     * @throws SQLException - Ошибки SQL
+     * @see BookDirectory.IsbnTrie
+     */
+    public ResultSet selectIsbnsQuery() throws SQLException{
+        return executePreparedQuery(SQL_SELECT_ISBNS);
+    }
+
+    /**
+     * Метод для подсчёта книг в б.д.
+     * @return int - количество книг.
+     * @throws SQLException - Ошибки SQL
+     */
+    public int countBooks() throws SQLException{
+        ResultSet result = executePreparedQuery(SQL_COUNT_BOOKS);
+        return result.next() ? result.getInt(1) : 0;
+    }
+
+    /**
+     * Метод для подсчёта иллюстраций в б.д.
+     * @return int - количество иллюстраций (пар книга - иллюстрация).
+     * @throws SQLException - Ошибки SQL
+     */
+    public int countIllustrations() throws SQLException{
+        ResultSet result = executePreparedQuery(SQL_COUNT_ILLUSTRATIONS);
+        return result.next() ? result.getInt(1) : 0;
+    }
+
+    /**
+     * Метод для проверки, есть ли в б.д. книга с указанным isbn (по первичному ключу).
+     * @param isbn String - Isbn книги.
+     * @return Boolean: true, если книга есть, иначе - false.
+     * @throws SQLException - Ошибки SQL
+     */
+    public boolean bookExists(String isbn) throws SQLException{
+        return executePreparedQuery(SQL_SELECT_BOOK_EXISTS, isbn).next();
+    }
+
+    /**
+     * Метод для проверки, есть ли у книги иллюстрация с указанным id (по первичному ключу).
+     * @param isbn String - Isbn книги.
+     * @param imageId String - Id иллюстрации.
+     * @return Boolean: true, если иллюстрация есть, иначе - false.
+     * @throws SQLException - Ошибки SQL
+     */
+    public boolean illustrationExists(String isbn, String imageId) throws SQLException{
+        return executePreparedQuery(SQL_SELECT_ILLUSTRATION_EXISTS, isbn, imageId).next();
+    }
+
+    /**
+     * Метод для проверки, есть ли в б.д. хотя бы одна книга (читается не больше одной строки).
+     * @return Boolean: true, если книги есть, иначе - false.
+     * @throws SQLException - Ошибки SQL
+     */
+    public boolean hasBooks() throws SQLException{
+        return executePreparedQuery(SQL_SELECT_ANY_BOOK).next();
+    }
+
+    /**
+     * Метод для удаления объекта "Книга" (и всех её иллюстраций) из б.д. по ключу.
+     * @param isbn String - Isbn книги для удаления.
+     * @return int - количество удалённых книг (0 или 1).
+     * @throws SQLException Ошибки SQL
+     * @see #deleteBooks(java.util.Collection)
+     */
+    public int deleteQuery(String isbn) throws SQLException{
+        int count = deleteBooks(Collections.singletonList(isbn))[0];
+        if(LOGGER.isLoggable(Level.FINE)){
+            LOGGER.log(Level.FINE, "The book was deleted from database!", isbn);}
+        return count;
+    }
+
+    /**
+     * Метод для удаления иллюстрации из б.д. по индексу imageId.
      * Примечание: иллюстрация будет удалена из всех книг, где она используется.
      * @param id String - Id иллюстрации для удаления
+     * @return int - количество удалённых записей (по одной на каждую книгу с этой иллюстрацией).
      * @throws SQLException - Ошибки SQL
      */
-    public void deleteIllustration(String id) throws SQLException{
-        Boolean success = false;
-        Statement sta = con.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
-        ResultSet result = sta.executeQuery("SELECT * FROM illustrations");
-        if (result.getConcurrency() == ResultSet.CONCUR_READ_ONLY){
-            View.getInstance().printErrorText(19);
-            LOGGER.severe("The table illustrations is blocked!");
-        }
-        else {
-            while (result.next()){
-                String idDB = result.getString(2);
-                if (idDB.equals(id)){
-                    result.deleteRow();
-                    success = true;
-                    if(LOGGER.isLoggable(Level.FINE)){
-                        LOGGER.log(Level.FINE, "The illustration was deleted from database!", id);}
-                }
+    public int deleteIllustration(String id) throws SQLException{
+        int count = deleteIllustrations(Collections.singletonList(id));
+        if(count > 0){
+            View.getInstance().printMessage(12);
+            if(LOGGER.isLoggable(Level.FINE)){
+                LOGGER.log(Level.FINE, "The illustration was deleted from database!", id);}
+        }
+        else {View.getInstance().printErrorText(9);}
+        return count;
+    }
+
+    /**
+     * Метод для удаления нескольких книг (и их иллюстраций) одной транзакцией.
+     * Запросы DELETE ... WHERE isbn = ? отправляются пакетом (по первичному ключу и индексу).
+     * Если удаление не удалось - транзакция откатывается целиком.
+     * @param isbns Collection<String> - isbn книг для удаления.
+     * @return int[2]: [0] - количество удалённых книг, [1] - количество удалённых иллюстраций.
+     * @throws SQLException Ошибки SQL
+     */
+    public int[] deleteBooks(Collection<String> isbns) throws SQLException{
+        int[] counts = new int[2];
+        if(isbns.isEmpty()){return counts;}
+        boolean autoCommit = con.getAutoCommit();
+        con.setAutoCommit(false);
+        try {
+            PreparedStatement deleteIllustrations = prepare(SQL_DELETE_BOOK_ILLUSTRATIONS);
+            PreparedStatement deleteBooks = prepare(SQL_DELETE_BOOK);
+            for(String isbn : isbns){
+                deleteIllustrations.setString(1, isbn);
+                deleteIllustrations.addBatch();
+                deleteBooks.setString(1, isbn);
+                deleteBooks.addBatch();
             }
-            if(success){
-                View.getInstance().printMessage(12);
+            counts[1] = sum(deleteIllustrations.executeBatch());
+            counts[0] = sum(deleteBooks.executeBatch());
+            con.commit();
+        }
+        catch (SQLException e){
+            con.rollback();
+            throw e;
+        }
+        finally {
+            con.setAutoCommit(autoCommit);
+        }
+        if(LOGGER.isLoggable(Level.FINE)){
+            LOGGER.log(Level.FINE, "Deleted from database (books, illustrations): ", counts[0] + ", " + counts[1]);}
+        return counts;
+    }
+
+    /**
+     * Метод для удаления нескольких иллюстраций (из всех книг) одной транзакцией.
+     * @param ids Collection<String> - id иллюстраций для удаления.
+     * @return int - количество удалённых записей.
+     * @throws SQLException Ошибки SQL
+     */
+    public int deleteIllustrations(Collection<String> ids) throws SQLException{
+        int count = 0;
+        if(ids.isEmpty()){return count;}
+        boolean autoCommit = con.getAutoCommit();
+        con.setAutoCommit(false);
+        try {
+            PreparedStatement stmt = prepare(SQL_DELETE_ILLUSTRATION);
+            for(String id : ids){
+                stmt.setString(1, id);
+                stmt.addBatch();
             }
-            else {View.getInstance().printErrorText(9);}
+            count = sum(stmt.executeBatch());
+            con.commit();
+        }
+        catch (SQLException e){
+            con.rollback();
+            throw e;
+        }
+        finally {
+            con.setAutoCommit(autoCommit);
+        }
+        return count;
+    }
+
+    /**
+     * Служебный метод для подсчёта строк, изменённых пакетом запросов.
+     * @param counts int[] - результат executeBatch().
+     * @return int - сумма изменённых строк.
+     */
+    private static int sum(int[] counts){
+        int sum = 0;
+        for(int count : counts){
+            if(count > 0){sum += count;}
         }
-        result.close();
-        sta.close();
-        con.close();
+        return sum;
     }
 
     /**
@@ -180,27 +759,15 @@ public class DerbyDBManager{
      */
     public ArrayList<String[]> searchIllustrationsQuery(String isbn) throws SQLException{
         ArrayList<String[]> arrayList = new ArrayList<String[]>();
-        Statement sta = con.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
-        ResultSet resultIsbn = sta.executeQuery("SELECT * FROM illustrations");
-        if (resultIsbn.getConcurrency() == ResultSet.CONCUR_READ_ONLY){
-            View.getInstance().printErrorText(19);
-            LOGGER.severe("The table illustrations is blocked!");
-        }
-        else {
-            while (resultIsbn.next()){
-                String isbnDB = resultIsbn.getString(1);
-                if (isbnDB.equals(isbn)){
-                    String[] row = new String[3];
-                    for(int i = 2; i <= 4; i++){
-                        row[i-2] = resultIsbn.getString(i);
-                    }
-                    arrayList.add(row);
-                }
+        ResultSet resultIsbn = executePreparedQuery(SQL_SELECT_ILLUSTRATIONS, isbn);
+        while (resultIsbn.next()){
+            String[] row = new String[3];
+            for(int i = 1; i <= 3; i++){
+                row[i-1] = resultIsbn.getString(i);
             }
+            arrayList.add(row);
         }
         resultIsbn.close();
-        sta.close();
-        con.close();
         return arrayList;
     }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import java.util.logging.Logger;
 
 /**
  * Класс используется для работы с файлами (чтение, запись).
+ * Файлы ".gz" и ".zip" сжимаются при записи и распаковываются при чтении "на лету" (см. CompressedStreams).
  * Паттерн Singleton.
  * @author dyakonov
  */
@@ -42,6 +43,11 @@ public final class FileInOut {
      */
     private final char SEPARATOR = File.separatorChar;
 
+    /**
+     * Размер буфера потоков сжатых файлов (в байтах).
+     */
+    private final int BUFFER_SIZE = 65536;
+
     /**
      * Метод для записи информации в файл.
      * @param fileName String - Имя файла для записи.
@@ -83,6 +89,113 @@ public final class FileInOut {
         return successWrite;
     }
 
+    /**
+     * Метод для открытия файла на запись по частям (для больших файлов, например экспорта каталога).
+     * Если папки нет - она создаётся; существующий файл перезаписывается.
+     * @param fileName String - Имя файла для записи.
+     * @param directory String - Имя папки (обычно это export) для записи.
+     * @return Writer - буферизованный поток записи в кодировке UTF-8 (его нужно закрыть после записи).
+     * @throws IOException Ошибки ввода-вывода.
+     */
+    public Writer openFileWriter(String fileName, String directory) throws IOException{
+        return new BufferedWriter(new OutputStreamWriter(openFileOutputStream(fileName, directory), "UTF-8"));
+    }
+
+    /**
+     * Метод для открытия файла на запись байтов (например, для потоковой записи экспорта каталога).
+     * Если папки нет - она создаётся; существующий файл перезаписывается.
+     * Файл ".gz" или ".zip" сжимается при записи со степенью сжатия из настроек (compressionLevel).
+     * @param fileName String - Имя файла для записи.
+     * @param directory String - Имя папки (обычно это export) для записи.
+     * @return OutputStream - поток записи без буфера (его нужно закрыть после записи).
+     * @throws IOException Ошибки ввода-вывода.
+     * @see BookDirectory.CompressedStreams#compress(java.io.OutputStream, String, int)
+     */
+    public OutputStream openFileOutputStream(String fileName, String directory) throws IOException{
+        File folder = new File(directory);
+        if(!folder.exists()){createNewDir(directory);}
+        File file = new File(directory + SEPARATOR + fileName);
+        if(LOGGER.isLoggable(Level.FINE)){
+            LOGGER.log(Level.FINE, "Open the file for write: ", file.getAbsoluteFile());}
+        OutputStream out = new FileOutputStream(file.getAbsoluteFile());
+        if(!CompressedStreams.isCompressed(fileName)){return out;}
+        try {
+            return CompressedStreams.compress(new BufferedOutputStream(out, BUFFER_SIZE), fileName, Model.getInstance().getCompressionLevel());
+        }
+        catch (IOException e){
+            out.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Метод для открытия файла на чтение по частям (для больших файлов, например импорта каталога).
+     * Файл ".gz" или ".zip" распаковывается при чтении.
+     * @param fileName String - Имя файла для чтения.
+     * @param directory String - Имя директории, где располагается файл.
+     * @return Reader - поток чтения в кодировке UTF-8 (его нужно закрыть после чтения).
+     * @throws FileNotFoundException Файл не найден.
+     * @throws IOException Ошибки ввода-вывода.
+     */
+    public Reader openFileReader(String fileName, String directory) throws IOException{
+        File folder = new File(directory);
+        if(!folder.exists()){createNewDir(directory);}
+        File file = exists(directory + SEPARATOR + fileName);
+        if(LOGGER.isLoggable(Level.FINE)){
+            LOGGER.log(Level.FINE, "Open the file for read: ", file.getAbsoluteFile());}
+        return new InputStreamReader(openFileInputStream(file.getAbsoluteFile(), 0), "UTF-8");
+    }
+
+    /**
+     * Метод для открытия файла импорта на чтение байтов с указанного смещения (продолжение импорта с контрольной точки).
+     * Сжатый файл (".gz", ".zip") распаковывается при чтении, смещение считается в распакованных данных
+     * (данные до смещения распаковываются и пропускаются); в несжатом файле чтение сразу начинается со смещения.
+     * @param file File - файл.
+     * @param offset long - смещение в байтах (0 - с начала файла).
+     * @return InputStream - поток чтения без буфера (его нужно закрыть после чтения).
+     * @throws IOException Ошибки ввода-вывода (EOFException - данные файла короче смещения).
+     */
+    public InputStream openFileInputStream(File file, long offset) throws IOException{
+        FileInputStream in = new FileInputStream(file);
+        try {
+            if(!CompressedStreams.isCompressed(file.getName())){
+                in.getChannel().position(offset);
+                return in;
+            }
+            InputStream data = CompressedStreams.decompress(new BufferedInputStream(in, BUFFER_SIZE), file.getName());
+            try {
+                long skipped = 0;
+                while(skipped < offset){
+                    long step = data.skip(offset - skipped);
+                    if(step <= 0){throw new EOFException("The data of the file " + file.getName() + " is shorter than the offset " + offset);}
+                    skipped += step;
+                }
+            }
+            catch (IOException e){
+                data.close();
+                throw e;
+            }
+            return data;
+        }
+        catch (IOException e){
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Метод для поиска файла (например, для чтения по частям, отображёнными в память).
+     * @param fileName String - Имя файла.
+     * @param directory String - Имя директории, где располагается файл.
+     * @return File - найденный файл.
+     * @throws FileNotFoundException Файл не найден.
+     */
+    public File findFile(String fileName, String directory) throws FileNotFoundException{
+        File folder = new File(directory);
+        if(!folder.exists()){createNewDir(directory);}
+        return exists(directory + SEPARATOR + fileName).getAbsoluteFile();
+    }
+
     /**
      * Служебный метод для создания новой директории (папки).
      * @param directoryName String - имя папки, которую нужно создать.
@@ -0,0 +1,206 @@
+package BookDirectory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Полнотекстовый индекс каталога: слово -> книги, в названии, авторе или названиях иллюстраций которых оно встречается.
+ * Текст разбивается на слова (буквы и цифры), слова приводятся к нижнему регистру по правилам русского языка, "ё" заменяется на "е".
+ * У каждого вхождения есть вес: название книги - 3, автор - 2, название иллюстрации - 1. Вес книги в результате поиска -
+ * сумма весов найденных слов, книги упорядочены по убыванию веса (при равном весе - по isbn).
+ * Слова запроса ищутся как начала слов индекса ("толст" найдёт "Толстой"), книга должна содержать все слова запроса.
+ * Индекс строится из б.д. при запуске и обновляется Моделью при каждом добавлении и удалении.
+ * @author dyakonov
+ * @see BookDirectory.Model#searchBooks(String)
+ */
+public final class FullTextIndex {
+
+    /**
+     * "Логгер" класса.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Model.class.getName());
+
+    /**
+     * Веса вхождений слова.
+     */
+    public static final int WEIGHT_TITLE = 3;
+    public static final int WEIGHT_AUTHOR = 2;
+    public static final int WEIGHT_ILLUSTRATION = 1;
+
+    /**
+     * Правила приведения к нижнему регистру (кириллица).
+     */
+    private static final Locale LOCALE = new Locale("ru", "RU");
+
+    /**
+     * Инвертированный индекс: слово -> (isbn книги -> вес слова в книге). Слова упорядочены для поиска по началу слова.
+     */
+    private final TreeMap<String, HashMap<String, Integer>> postings = new TreeMap<String, HashMap<String, Integer>>();
+
+    /**
+     * Прямой индекс: isbn книги -> слова книги (для удаления и переиндексации книги).
+     */
+    private final HashMap<String, HashMap<String, Integer>> terms = new HashMap<String, HashMap<String, Integer>>();
+
+    /**
+     * Метод для добавления (переиндексации) книги со всеми её иллюстрациями.
+     * @param book Book - книга.
+     */
+    public synchronized void indexBook(Book book){
+        removeBook(book.getIsbn());
+        HashMap<String, Integer> bookTerms = new HashMap<String, Integer>();
+        addTerms(bookTerms, book.getName(), WEIGHT_TITLE);
+        addTerms(bookTerms, book.getAuthor(), WEIGHT_AUTHOR);
+        for(Book.Illustration illustration : book.getIllustrations()){
+            addTerms(bookTerms, illustration.getName(), WEIGHT_ILLUSTRATION);
+        }
+        if(bookTerms.isEmpty()){return;}
+        terms.put(book.getIsbn(), bookTerms);
+        for(Map.Entry<String, Integer> term : bookTerms.entrySet()){
+            HashMap<String, Integer> books = postings.get(term.getKey());
+            if(books == null){
+                books = new HashMap<String, Integer>();
+                postings.put(term.getKey(), books);
+            }
+            books.put(book.getIsbn(), term.getValue());
+        }
+    }
+
+    /**
+     * Метод для удаления книги из индекса.
+     * @param isbn String - isbn книги.
+     */
+    public synchronized void removeBook(String isbn){
+        HashMap<String, Integer> bookTerms = terms.remove(isbn);
+        if(bookTerms == null){return;}
+        for(String term : bookTerms.keySet()){
+            HashMap<String, Integer> books = postings.get(term);
+            if(books != null){
+                books.remove(isbn);
+                if(books.isEmpty()){postings.remove(term);}
+            }
+        }
+    }
+
+    /**
+     * Метод для очистки индекса (перед построением заново).
+     */
+    public synchronized void clear(){
+        postings.clear();
+        terms.clear();
+    }
+
+    /**
+     * Метод для поиска книг по словам.
+     * @param query String - слова запроса (через пробел или знаки препинания).
+     * @param limit int - максимальное количество книг в результате.
+     * @return ArrayList<String> - isbn найденных книг по убыванию веса.
+     */
+    public synchronized ArrayList<String> search(String query, int limit){
+        long startTime = System.nanoTime();
+        HashMap<String, Integer> scores = null;
+        for(String word : tokenize(query)){
+            HashMap<String, Integer> wordScores = new HashMap<String, Integer>();
+            SortedMap<String, HashMap<String, Integer>> matches = postings.subMap(word, word + Character.MAX_VALUE);
+            for(HashMap<String, Integer> books : matches.values()){
+                for(Map.Entry<String, Integer> book : books.entrySet()){
+                    Integer score = wordScores.get(book.getKey());
+                    wordScores.put(book.getKey(), score == null ? book.getValue() : Math.max(score, book.getValue()));
+                }
+            }
+            if(scores == null){
+                scores = wordScores;
+            }
+            else {
+                HashMap<String, Integer> both = new HashMap<String, Integer>();
+                for(Map.Entry<String, Integer> book : wordScores.entrySet()){
+                    Integer score = scores.get(book.getKey());
+                    if(score != null){
+                        both.put(book.getKey(), score + book.getValue());
+                    }
+                }
+                scores = both;
+            }
+            if(scores.isEmpty()){break;}
+        }
+        ArrayList<String> result = new ArrayList<String>();
+        if(scores != null){
+            final HashMap<String, Integer> ranks = scores;
+            result.addAll(ranks.keySet());
+            Collections.sort(result, new Comparator<String>() {
+                public int compare(String isbn1, String isbn2){
+                    int byScore = ranks.get(isbn2).compareTo(ranks.get(isbn1));
+                    return byScore != 0 ? byScore : isbn1.compareTo(isbn2);
+                }
+            });
+            if(result.size() > limit){
+                result = new ArrayList<String>(result.subList(0, limit));
+            }
+        }
+        if(LOGGER.isLoggable(Level.FINE)){
+            LOGGER.log(Level.FINE, "Time spent on the full-text search (in mcs, books): ", (System.nanoTime() - startTime) / 1000 + ", " + result.size());}
+        return result;
+    }
+
+    /**
+     * "Геттер" для получения количества слов в индексе.
+     * @return int
+     */
+    public synchronized int getTermCount(){
+        return postings.size();
+    }
+
+    /**
+     * "Геттер" для получения количества книг в индексе.
+     * @return int
+     */
+    public synchronized int getBookCount(){
+        return terms.size();
+    }
+
+    /**
+     * Метод для разбиения текста на слова: буквы и цифры, нижний регистр, "ё" -> "е".
+     * @param text String - текст.
+     * @return ArrayList<String> - слова текста (пустая коллекция для null).
+     */
+    public static ArrayList<String> tokenize(String text){
+        ArrayList<String> words = new ArrayList<String>();
+        if(text == null){return words;}
+        String folded = text.toLowerCase(LOCALE).replace('ё', 'е');
+        int start = -1;
+        for(int i = 0; i <= folded.length(); i++){
+            boolean letter = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if(letter && start < 0){
+                start = i;
+            }
+            else if(!letter && start >= 0){
+                words.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Служебный метод - добавляет слова текста к словам книги (у слова остаётся наибольший вес).
+     * @param bookTerms HashMap<String, Integer> - слова книги и их веса.
+     * @param text String - текст (название, автор).
+     * @param weight int - вес вхождения.
+     */
+    private static void addTerms(HashMap<String, Integer> bookTerms, String text, int weight){
+        for(String word : tokenize(text)){
+            Integer current = bookTerms.get(word);
+            if(current == null || current < weight){
+                bookTerms.put(word, weight);
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package BookDirectory;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Обратный (инвертированный) индекс иллюстраций: id иллюстрации -> isbn книг, в которых она используется.
+ * Копия индекса б.д. idx_illustrations_imageId в памяти - поиск книг по иллюстрации выполняется без запроса к б.д.
+ * Индекс загружается один раз при запуске и поддерживается Моделью при добавлении и удалении иллюстраций и книг.
+ * Для удаления книги хранится и прямое отображение isbn -> id иллюстраций.
+ * @author dyakonov
+ * @see BookDirectory.Model#getBooksByIllustration(String)
+ */
+public final class IllustrationIndex {
+
+    /**
+     * "Логгер" класса.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Model.class.getName());
+
+    /**
+     * Isbn книг по id иллюстрации (isbn упорядочены).
+     */
+    private final HashMap<String, SortedSet<String>> isbnsById = new HashMap<String, SortedSet<String>>();
+
+    /**
+     * Id иллюстраций по isbn книги.
+     */
+    private final HashMap<String, Set<String>> idsByIsbn = new HashMap<String, Set<String>>();
+
+    /**
+     * Флаг - индекс загружен из б.д.
+     */
+    private boolean loaded = false;
+
+    /**
+     * Метод для (пере)загрузки индекса из выборки.
+     * @param rows ResultSet - выборка пар [1] - id иллюстрации, [2] - isbn книги.
+     * @throws SQLException Ошибки SQL
+     */
+    public synchronized void load(ResultSet rows) throws SQLException{
+        long startTime = System.currentTimeMillis();
+        isbnsById.clear();
+        idsByIsbn.clear();
+        int count = 0;
+        while(rows.next()){
+            add(rows.getString(1), rows.getString(2));
+            count++;
+        }
+        loaded = true;
+        if(LOGGER.isLoggable(Level.INFO)){
+            LOGGER.log(Level.INFO, "Illustration index is loaded (in ms, illustrations, ids): ",
+                    (System.currentTimeMillis() - startTime) + ", " + count + ", " + isbnsById.size());}
+    }
+
+    /**
+     * "Геттер" для проверки, загружен ли индекс.
+     * @return Boolean: true, если индекс загружен, иначе - false (нужно искать в б.д.).
+     */
+    public synchronized boolean isLoaded(){
+        return loaded;
+    }
+
+    /**
+     * Метод для получения isbn книг, в которых используется иллюстрация.
+     * @param imageId String - id иллюстрации.
+     * @return Set<String> - isbn книг по возрастанию (пустое множество, если иллюстрации нет в каталоге).
+     */
+    public synchronized Set<String> getIsbns(String imageId){
+        SortedSet<String> isbns = isbnsById.get(imageId);
+        if(isbns == null){
+            return Collections.emptySet();
+        }
+        return new TreeSet<String>(isbns);
+    }
+
+    /**
+     * Метод для добавления иллюстрации книги в индекс.
+     * @param imageId String - id иллюстрации.
+     * @param isbn String - isbn книги.
+     */
+    public synchronized void add(String imageId, String isbn){
+        SortedSet<String> isbns = isbnsById.get(imageId);
+        if(isbns == null){
+            isbns = new TreeSet<String>();
+            isbnsById.put(imageId, isbns);
+        }
+        isbns.add(isbn);
+        Set<String> ids = idsByIsbn.get(isbn);
+        if(ids == null){
+            ids = new TreeSet<String>();
+            idsByIsbn.put(isbn, ids);
+        }
+        ids.add(imageId);
+    }
+
+    /**
+     * Метод для удаления иллюстрации (у всех книг) из индекса.
+     * @param imageId String - id иллюстрации.
+     */
+    public synchronized void removeIllustration(String imageId){
+        SortedSet<String> isbns = isbnsById.remove(imageId);
+        if(isbns == null){return;}
+        for(String isbn : isbns){
+            Set<String> ids = idsByIsbn.get(isbn);
+            if(ids != null){
+                ids.remove(imageId);
+                if(ids.isEmpty()){idsByIsbn.remove(isbn);}
+            }
+        }
+    }
+
+    /**
+     * Метод для удаления всех иллюстраций книги из индекса (книга удалена из каталога).
+     * @param isbn String - isbn книги.
+     */
+    public synchronized void removeBook(String isbn){
+        Set<String> ids = idsByIsbn.remove(isbn);
+        if(ids == null){return;}
+        for(String imageId : ids){
+            SortedSet<String> isbns = isbnsById.get(imageId);
+            if(isbns != null){
+                isbns.remove(isbn);
+                if(isbns.isEmpty()){isbnsById.remove(imageId);}
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package BookDirectory;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Сверка импортируемых иллюстраций с каталогом (при импорте каталога).
+ * Индекс isbn книги -> множество id её иллюстраций строится одним проходом по б.д. (books LEFT JOIN illustrations),
+ * после чего каждая иллюстрация файла классифицируется за O(1): новая, дубль (у книги уже есть иллюстрация с таким id)
+ * или без книги (книги с таким isbn нет ни в каталоге, ни среди импортированных книг).
+ * Книги, принятые к импорту, и новые иллюстрации добавляются в индекс - дубли внутри файла тоже находятся.
+ * У книги без иллюстраций множество не создаётся (null) - так индекс большого каталога занимает меньше памяти.
+ * Для части каталога (импорт по частям) индекс можно ограничить диапазоном isbn части - тогда в памяти только книги части;
+ * книга вне диапазона загружается из б.д. отдельным запросом при первой её иллюстрации.
+ * @author dyakonov
+ * @see BookDirectory.ImportPipeline
+ */
+public final class IllustrationReconciler {
+
+    /**
+     * "Логгер" класса.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Model.class.getName());
+
+    /**
+     * Результат сверки иллюстрации.
+     */
+    public enum Result {NEW, DUPLICATE, ORPHAN}
+
+    /**
+     * Индекс: isbn книги -> id её иллюстраций (null - у книги нет иллюстраций).
+     */
+    private final HashMap<String, HashSet<String>> index = new HashMap<String, HashSet<String>>();
+
+    /**
+     * Количество иллюстраций в индексе.
+     */
+    private long illustrationCount = 0;
+
+    /**
+     * Флаг загрузки индекса из б.д.
+     */
+    private boolean loaded = false;
+
+    /**
+     * Диапазон isbn индекса [fromIsbn, toIsbn): null - весь каталог (toIsbn = null - до конца каталога).
+     */
+    private String fromIsbn = null;
+    private String toIsbn = null;
+
+    /**
+     * Метод для ограничения индекса диапазоном isbn (до загрузки).
+     * @param fromIsbn String - isbn начала диапазона (включительно).
+     * @param toIsbn String - isbn конца диапазона (не включительно); null - до конца каталога.
+     */
+    public void setRange(String fromIsbn, String toIsbn){
+        this.fromIsbn = fromIsbn;
+        this.toIsbn = toIsbn;
+    }
+
+    /**
+     * Метод для загрузки индекса из б.д. одним запросом (весь каталог или диапазон isbn).
+     * Книги и иллюстрации, уже добавленные в индекс, сохраняются.
+     * @throws SQLException Ошибки SQL
+     */
+    public void load() throws SQLException{
+        long startTime = System.currentTimeMillis();
+        DerbyDBManager db = new DerbyDBManager();
+        try {
+            addKeys(fromIsbn == null ? db.selectIllustrationKeysQuery() : db.selectIllustrationKeysQuery(fromIsbn, toIsbn));
+        }
+        finally {db.close();}
+        loaded = true;
+        if(LOGGER.isLoggable(Level.INFO)){
+            LOGGER.log(Level.INFO, "Illustration reconciliation index is loaded (in ms, books, illustrations): ",
+                    (System.currentTimeMillis() - startTime) + ", " + index.size() + ", " + illustrationCount);}
+    }
+
+    /**
+     * Метод для проверки, загружена ли книга: книги из диапазона индекса загружены вместе с ним,
+     * книга вне диапазона - если она уже добавлена в индекс.
+     * Незагруженную книгу нужно загрузить методом loadBook() перед сверкой её иллюстраций.
+     * @param isbn String - Isbn книги.
+     * @return Boolean: true, если для сверки иллюстраций книги не нужен запрос к б.д.
+     */
+    public boolean covers(String isbn){
+        if(fromIsbn == null || index.containsKey(isbn)){return true;}
+        return isbn.compareTo(fromIsbn) >= 0 && (toIsbn == null || isbn.compareTo(toIsbn) < 0);
+    }
+
+    /**
+     * Метод для загрузки в индекс одной книги вне диапазона (со всеми её иллюстрациями).
+     * @param isbn String - Isbn книги.
+     * @throws SQLException Ошибки SQL
+     */
+    public void loadBook(String isbn) throws SQLException{
+        DerbyDBManager db = new DerbyDBManager();
+        try {
+            addKeys(db.selectBookIllustrationKeysQuery(isbn));
+        }
+        finally {db.close();}
+    }
+
+    /**
+     * Метод для добавления книги в индекс (книга каталога или принятая к импорту).
+     * @param isbn String - Isbn книги.
+     */
+    public void addBook(String isbn){
+        if(!index.containsKey(isbn)){
+            index.put(isbn, null);
+        }
+    }
+
+    /**
+     * Метод для добавления иллюстрации в индекс (вместе с книгой, если её ещё нет).
+     * @param isbn String - Isbn книги.
+     * @param imageId String - Id иллюстрации.
+     * @return Boolean: true, если иллюстрации у книги ещё не было.
+     */
+    public boolean addIllustration(String isbn, String imageId){
+        HashSet<String> ids = index.get(isbn);
+        if(ids == null){
+            ids = new HashSet<String>(4);
+            index.put(isbn, ids);
+        }
+        if(!ids.add(imageId)){return false;}
+        illustrationCount++;
+        return true;
+    }
+
+    /**
+     * Метод для сверки иллюстрации с индексом. Новая иллюстрация добавляется в индекс.
+     * @param isbn String - Isbn книги иллюстрации.
+     * @param imageId String - Id иллюстрации.
+     * @return Result - NEW, DUPLICATE или ORPHAN.
+     */
+    public Result reconcile(String isbn, String imageId){
+        if(!index.containsKey(isbn)){return Result.ORPHAN;}
+        return addIllustration(isbn, imageId) ? Result.NEW : Result.DUPLICATE;
+    }
+
+    /**
+     * Служебный метод - добавляет в индекс выборку пар (isbn книги, id иллюстрации или null).
+     * @param keys ResultSet - выборка.
+     * @throws SQLException Ошибки SQL
+     */
+    private void addKeys(ResultSet keys) throws SQLException{
+        while(keys.next()){
+            String imageId = keys.getString(2);
+            if(imageId == null){addBook(keys.getString(1));}
+            else {addIllustration(keys.getString(1), imageId);}
+        }
+    }
+
+    /**
+     * "Геттер" для проверки, загружен ли индекс из б.д.
+     * @return Boolean
+     */
+    public boolean isLoaded(){
+        return loaded;
+    }
+
+    /**
+     * "Геттер" для получения количества книг в индексе.
+     * @return int
+     */
+    public int getBookCount(){
+        return index.size();
+    }
+
+    /**
+     * "Геттер" для получения количества иллюстраций в индексе.
+     * @return long
+     */
+    public long getIllustrationCount(){
+        return illustrationCount;
+    }
+}
@@ -0,0 +1,210 @@
+package BookDirectory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Контрольная точка импорта каталога - место в файле импорта, до которого записи уже зафиксированы в б.д.
+ * Сохраняется после каждого зафиксированного пакета в файл рядом с файлом импорта (имя файла + ".checkpoint"):
+ * смещение в байтах и номер строки после последней зафиксированной записи, количество записанных записей,
+ * размер и время изменения файла импорта (если файл изменился - контрольная точка не используется).
+ * Если импорт прерван (ошибка б.д., закрытие приложения), следующий импорт того же файла можно продолжить с контрольной точки.
+ * После успешного импорта контрольная точка удаляется.
+ * @author dyakonov
+ * @see BookDirectory.ImportPipeline
+ */
+public final class ImportCheckpoint {
+
+    /**
+     * "Логгер" класса.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Model.class.getName());
+
+    /**
+     * Расширение файла контрольной точки.
+     */
+    private static final String EXTENSION = ".checkpoint";
+
+    /**
+     * Файл импорта, файл контрольной точки, размер и время изменения файла импорта.
+     */
+    private final File importFile;
+    private final File file;
+    private final long fileSize;
+    private final long lastModified;
+
+    /**
+     * Размер данных файла импорта (для сжатого файла - после распаковки): смещения записей считаются по этим данным.
+     */
+    private final long dataSize;
+
+    /**
+     * Место продолжения: смещение в байтах, количество строк до него, количество записанных записей.
+     */
+    private long offset = 0;
+    private int line = 0;
+    private long records = 0;
+
+    /**
+     * Конструктор - контрольная точка в начале файла импорта.
+     * @param importFile File - файл импорта.
+     */
+    private ImportCheckpoint(File importFile){
+        this.importFile = importFile;
+        this.file = new File(importFile.getPath() + EXTENSION);
+        this.fileSize = importFile.length();
+        this.lastModified = importFile.lastModified();
+        this.dataSize = CompressedStreams.isCompressed(importFile.getName()) ? CompressedStreams.uncompressedSize(importFile) : fileSize;
+    }
+
+    /**
+     * Метод для загрузки контрольной точки файла импорта.
+     * @param importFile File - файл импорта.
+     * @return ImportCheckpoint - сохранённая контрольная точка или точка в начале файла
+     * (если её нет, она не читается или файл импорта изменился).
+     */
+    public static ImportCheckpoint load(File importFile){
+        ImportCheckpoint checkpoint = new ImportCheckpoint(importFile);
+        if(!checkpoint.file.exists()){return checkpoint;}
+        Properties properties = new Properties();
+        try {
+            InputStream in = new FileInputStream(checkpoint.file);
+            try {
+                properties.load(in);
+            }
+            finally {in.close();}
+            if(Long.parseLong(properties.getProperty("fileSize")) == checkpoint.fileSize &&
+                    Long.parseLong(properties.getProperty("lastModified")) == checkpoint.lastModified){
+                checkpoint.offset = Long.parseLong(properties.getProperty("offset"));
+                checkpoint.line = Integer.parseInt(properties.getProperty("line"));
+                checkpoint.records = Long.parseLong(properties.getProperty("records"));
+            }
+            else if(LOGGER.isLoggable(Level.WARNING)){
+                LOGGER.log(Level.WARNING, "The import file is changed, the checkpoint is ignored: ", checkpoint.file);}
+        }
+        catch (Exception e){
+            LOGGER.log(Level.WARNING, "The checkpoint file is not read: " + e.toString() + "", checkpoint.file);
+            checkpoint.offset = 0;
+            checkpoint.line = 0;
+            checkpoint.records = 0;
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Метод для сохранения контрольной точки после зафиксированного пакета.
+     * Файл записывается во временный и переименовывается - прерванная запись не портит прошлую точку.
+     * @param offset long - смещение в байтах после последней зафиксированной записи.
+     * @param line int - номер строки, которой заканчивается последняя зафиксированная запись.
+     * @param records long - количество записей, записанных с начала файла.
+     */
+    public synchronized void save(long offset, int line, long records){
+        this.offset = offset;
+        this.line = line;
+        this.records = records;
+        Properties properties = new Properties();
+        properties.setProperty("file", importFile.getAbsolutePath());
+        properties.setProperty("fileSize", String.valueOf(fileSize));
+        properties.setProperty("lastModified", String.valueOf(lastModified));
+        properties.setProperty("offset", String.valueOf(offset));
+        properties.setProperty("line", String.valueOf(line));
+        properties.setProperty("records", String.valueOf(records));
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            OutputStream out = new FileOutputStream(temp);
+            try {
+                properties.store(out, "Book Directory import checkpoint");
+            }
+            finally {out.close();}
+            if(file.exists() && !file.delete() || !temp.renameTo(file)){
+                throw new IOException("The checkpoint file is not renamed");
+            }
+        }
+        catch (IOException e){
+            LOGGER.log(Level.WARNING, "The checkpoint file is not written: " + e.toString() + "", file);
+        }
+        if(LOGGER.isLoggable(Level.FINE)){
+            LOGGER.log(Level.FINE, "Import checkpoint (offset, line, records): ", offset + ", " + line + ", " + records);}
+    }
+
+    /**
+     * Метод для сброса контрольной точки (импорт начинается с начала файла).
+     */
+    public synchronized void reset(){
+        offset = 0;
+        line = 0;
+        records = 0;
+        delete();
+    }
+
+    /**
+     * Метод для удаления файла контрольной точки (импорт завершён).
+     */
+    public synchronized void delete(){
+        if(file.exists() && !file.delete() && LOGGER.isLoggable(Level.WARNING)){
+            LOGGER.log(Level.WARNING, "The checkpoint file is not deleted: ", file);}
+    }
+
+    /**
+     * "Геттер" для проверки, что импорт можно продолжить с середины файла.
+     * @return Boolean: true, если контрольная точка не в начале файла.
+     */
+    public synchronized boolean isResumable(){
+        return offset > 0;
+    }
+
+    /**
+     * "Геттер" для получения файла импорта.
+     * @return File
+     */
+    public File getImportFile(){
+        return importFile;
+    }
+
+    /**
+     * "Геттер" для получения размера файла импорта.
+     * @return long
+     */
+    public long getFileSize(){
+        return fileSize;
+    }
+
+    /**
+     * "Геттер" для получения размера данных файла импорта (сжатый файл - после распаковки, для расчёта хода импорта).
+     * @return long
+     */
+    public long getDataSize(){
+        return dataSize;
+    }
+
+    /**
+     * "Геттер" для получения смещения в байтах, с которого продолжается импорт.
+     * @return long
+     */
+    public synchronized long getOffset(){
+        return offset;
+    }
+
+    /**
+     * "Геттер" для получения количества строк файла до места продолжения.
+     * @return int
+     */
+    public synchronized int getLine(){
+        return line;
+    }
+
+    /**
+     * "Геттер" для получения количества записей, записанных до контрольной точки.
+     * @return long
+     */
+    public synchronized long getRecords(){
+        return records;
+    }
+}
@@ -0,0 +1,308 @@
+package BookDirectory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Проверка файла импорта без записи в каталог (пункт 6-3).
+ * Файл читается тем же потоковым разборщиком, что и при импорте, записи проверяются теми же правилами (ImportValidator)
+ * и классифицируются так же, как при импорте (ImportPipeline): книга сверяется с каталогом (фильтр Блума, б.д.)
+ * и с книгами файла, иллюстрация - с индексом книг и иллюстраций каталога (IllustrationReconciler), в который
+ * добавляются книги файла. Иллюстрация, книги которой ещё нет, откладывается до конца файла - как и при импорте.
+ * Поэтому отчёт совпадает с тем, что сделает импорт (пункт 6-2).
+ * Результат - счётчики и отчёт: сколько книг и иллюстраций будет добавлено, сколько дублей в каталоге и в самом файле,
+ * сколько ошибок значений по каждому правилу, сколько иллюстраций без книги; для ошибок в отчёт выводятся номера первых строк.
+ * @author dyakonov
+ * @see BookDirectory.ImportParser
+ * @see BookDirectory.ImportValidator
+ * @see BookDirectory.IllustrationReconciler
+ */
+public final class ImportDryRun {
+
+    /**
+     * "Логгер" класса.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Model.class.getName());
+
+    /**
+     * Количество номеров строк в отчёте для каждого вида ошибок.
+     */
+    private static final int EXAMPLE_LINES = 10;
+
+    /**
+     * Источник записей и проверка значений.
+     */
+    private final ImportRecordSource source;
+    private final ImportValidator validator = new ImportValidator();
+
+    /**
+     * Ключи файла: isbn книг и пары isbn + id новых иллюстраций (чтобы отличить дубль в файле от дубля в каталоге).
+     */
+    private final HashSet<String> fileBooks = new HashSet<String>();
+    private final HashSet<String> fileIllustrations = new HashSet<String>();
+
+    /**
+     * Индекс книг и иллюстраций каталога (загружается при первой иллюстрации файла).
+     */
+    private final IllustrationReconciler reconciler = new IllustrationReconciler();
+
+    /**
+     * Иллюстрации, книги которых не нашлось до них (сверяются ещё раз в конце файла), и признак конца файла.
+     */
+    private final ArrayList<ImportRecord> deferred = new ArrayList<ImportRecord>();
+    private boolean fileRead = false;
+
+    /**
+     * Счётчики записей: всего, книги, иллюстрации, строки файла.
+     */
+    private long records = 0;
+    private long books = 0;
+    private long illustrations = 0;
+    private int lines = 0;
+
+    /**
+     * Счётчики результата: новые книги и иллюстрации, дубли в каталоге, дубли в файле (книги, иллюстрации), иллюстрации без книги.
+     */
+    private long newBooks = 0;
+    private long newIllustrations = 0;
+    private final long[] catalogDuplicates = new long[2];
+    private final long[] fileDuplicates = new long[2];
+    private long orphans = 0;
+
+    /**
+     * Ошибки значений по правилам и номера первых строк.
+     */
+    private final long[] ruleCounts = new long[ImportValidator.RULE_COUNT];
+    private final ArrayList<ArrayList<Integer>> ruleLines = new ArrayList<ArrayList<Integer>>();
+    private final ArrayList<Integer> duplicateLines = new ArrayList<Integer>();
+    private final ArrayList<Integer> orphanLines = new ArrayList<Integer>();
+
+    /**
+     * Время проверки (в нс).
+     */
+    private long elapsedNanos = 0;
+
+    /**
+     * Конструктор.
+     * @param source ImportRecordSource - источник записей файла импорта.
+     */
+    public ImportDryRun(ImportRecordSource source){
+        this.source = source;
+        for(int i = 0; i < ImportValidator.RULE_COUNT; i++){
+            ruleLines.add(new ArrayList<Integer>());
+        }
+    }
+
+    /**
+     * Метод для проверки всех записей источника.
+     * @throws IOException Ошибки чтения файла.
+     * @throws SQLException Ошибки SQL
+     */
+    public void run() throws IOException, SQLException{
+        long startTime = System.nanoTime();
+        ImportRecord record;
+        while((record = source.next()) != null){
+            records++;
+            lines = record.getEndLine();
+            if(record.isBook()){
+                books++;
+                checkBook(record);
+            }
+            else {
+                illustrations++;
+                checkIllustration(record);
+            }
+        }
+        fileRead = true;
+        for(ImportRecord illustration : deferred){
+            checkIllustration(illustration);
+        }
+        deferred.clear();
+        elapsedNanos = System.nanoTime() - startTime;
+        if(LOGGER.isLoggable(Level.INFO)){
+            LOGGER.log(Level.INFO, "Dry run of the import file (in ms, records, new books, new illustrations, invalid, orphans): ",
+                    elapsedNanos / 1000000 + ", " + records + ", " + newBooks + ", " + newIllustrations + ", " + getInvalidCount() + ", " + orphans);}
+    }
+
+    /**
+     * Метод для записи отчёта проверки.
+     * @param out Writer - поток записи отчёта.
+     * @param fileName String - имя проверенного файла.
+     * @throws IOException Ошибки ввода-вывода.
+     */
+    public void writeReport(Writer out, String fileName) throws IOException{
+        String newLine = System.getProperty("line.separator");
+        out.write("Проверка файла импорта " + fileName + " (без записи в каталог)" + newLine);
+        out.write("Дата проверки: " + new SimpleDateFormat("dd.MM.yyyy HH:mm:ss").format(new Date()) + newLine + newLine);
+        out.write("Записей: " + records + " (книг " + books + ", иллюстраций " + illustrations + "), строк: " + lines + newLine);
+        out.write("Будет добавлено: книг " + newBooks + ", иллюстраций " + newIllustrations + newLine);
+        out.write("Дубли в каталоге: книг " + catalogDuplicates[0] + ", иллюстраций " + catalogDuplicates[1] + newLine);
+        out.write("Дубли в файле: книг " + fileDuplicates[0] + ", иллюстраций " + fileDuplicates[1] + newLine);
+        out.write("Дубли, строки: " + lineList(duplicateLines, getDuplicateCount()) + newLine);
+        out.write("Иллюстрации без книги: " + orphans + ", строки: " + lineList(orphanLines, orphans) + newLine);
+        out.write("Ошибки значений: " + getInvalidCount() + newLine);
+        for(int rule = 1; rule < ImportValidator.RULE_COUNT; rule++){
+            if(ruleCounts[rule] > 0){
+                out.write("  " + ImportValidator.getRuleName(rule) + ": " + ruleCounts[rule] + ", строки: " + lineList(ruleLines.get(rule), ruleCounts[rule]) + newLine);
+            }
+        }
+        double seconds = elapsedNanos / 1e9;
+        out.write(newLine + String.format("Время проверки: %d мс (%.0f записей/с)", elapsedNanos / 1000000, seconds > 0 ? records / seconds : 0) + newLine);
+    }
+
+    /**
+     * "Геттер" для получения количества записей файла.
+     * @return long
+     */
+    public long getRecordCount(){
+        return records;
+    }
+
+    /**
+     * "Геттер" для получения количества книг, которые будут добавлены.
+     * @return long
+     */
+    public long getNewBookCount(){
+        return newBooks;
+    }
+
+    /**
+     * "Геттер" для получения количества иллюстраций, которые будут добавлены.
+     * @return long
+     */
+    public long getNewIllustrationCount(){
+        return newIllustrations;
+    }
+
+    /**
+     * "Геттер" для получения количества дублей (в каталоге и в файле).
+     * @return long
+     */
+    public long getDuplicateCount(){
+        return catalogDuplicates[0] + catalogDuplicates[1] + fileDuplicates[0] + fileDuplicates[1];
+    }
+
+    /**
+     * "Геттер" для получения количества записей с ошибками значений.
+     * @return long
+     */
+    public long getInvalidCount(){
+        long count = 0;
+        for(long ruleCount : ruleCounts){
+            count += ruleCount;
+        }
+        return count;
+    }
+
+    /**
+     * "Геттер" для получения количества иллюстраций без книги.
+     * @return long
+     */
+    public long getOrphanCount(){
+        return orphans;
+    }
+
+    /**
+     * Служебный метод - проверка книги: значения, дубль в каталоге, дубль в файле.
+     * @param record ImportRecord - запись книги.
+     * @throws SQLException Ошибки SQL
+     */
+    private void checkBook(ImportRecord record) throws SQLException{
+        if(!checkValues(record)){return;}
+        String isbn = record.getIsbn();
+        if(fileBooks.contains(isbn)){
+            fileDuplicates[0]++;
+            addLine(duplicateLines, record);
+        }
+        else if(Model.getInstance().isBookInCatalog(isbn)){
+            catalogDuplicates[0]++;
+            addLine(duplicateLines, record);
+        }
+        else {
+            newBooks++;
+            fileBooks.add(isbn);
+            reconciler.addBook(isbn);
+        }
+    }
+
+    /**
+     * Служебный метод - проверка иллюстрации: значения, книга (в файле или в каталоге), дубль в каталоге, дубль в файле.
+     * Иллюстрация без книги до конца файла откладывается (значения у отложенной иллюстрации уже проверены).
+     * @param record ImportRecord - запись иллюстрации.
+     * @throws SQLException Ошибки SQL
+     */
+    private void checkIllustration(ImportRecord record) throws SQLException{
+        if(!fileRead && !checkValues(record)){return;}
+        if(!reconciler.isLoaded()){reconciler.load();}
+        String key = record.getIsbn() + '\0' + record.getImageId();
+        switch (reconciler.reconcile(record.getIsbn(), record.getImageId())){
+            case ORPHAN: {
+                if(!fileRead){
+                    deferred.add(record);
+                    break;
+                }
+                orphans++;
+                addLine(orphanLines, record);
+                break;
+            }
+            case DUPLICATE: {
+                if(fileIllustrations.contains(key)){fileDuplicates[1]++;}
+                else {catalogDuplicates[1]++;}
+                addLine(duplicateLines, record);
+                break;
+            }
+            default: {
+                newIllustrations++;
+                fileIllustrations.add(key);
+            }
+        }
+    }
+
+    /**
+     * Служебный метод - проверка значений записи и учёт нарушенного правила.
+     * @param record ImportRecord - запись.
+     * @return Boolean: true, если значения записи допустимы.
+     */
+    private boolean checkValues(ImportRecord record){
+        int rule = validator.validate(record);
+        if(rule == ImportValidator.RULE_OK){return true;}
+        ruleCounts[rule]++;
+        addLine(ruleLines.get(rule), record);
+        return false;
+    }
+
+    /**
+     * Служебный метод - запоминает номер строки записи (не больше EXAMPLE_LINES номеров).
+     * @param lineNumbers ArrayList<Integer> - номера строк.
+     * @param record ImportRecord - запись.
+     */
+    private static void addLine(ArrayList<Integer> lineNumbers, ImportRecord record){
+        if(lineNumbers.size() < EXAMPLE_LINES){
+            lineNumbers.add(record.getLine());
+        }
+    }
+
+    /**
+     * Служебный метод - номера строк через запятую ("-", если их нет; "...", если показаны не все).
+     * @param lineNumbers ArrayList<Integer> - номера строк.
+     * @param total long - количество ошибок этого вида.
+     * @return String
+     */
+    private static String lineList(ArrayList<Integer> lineNumbers, long total){
+        if(lineNumbers.isEmpty()){return "-";}
+        StringBuilder sb = new StringBuilder();
+        for(Integer line : lineNumbers){
+            if(sb.length() > 0){sb.append(", ");}
+            sb.append(line);
+        }
+        if(total > lineNumbers.size()){sb.append(", ...");}
+        return sb.toString();
+    }
+}
@@ -0,0 +1,281 @@
+package BookDirectory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Потоковый разборщик файла импорта (формат [Книга] / [Иллюстрация], см. import/README.txt).
+ * Файл читается один раз, по строкам, через собственный буфер символов: в памяти находится только
+ * текущая строка, поэтому расход памяти не зависит от размера файла.
+ * Строки разделяются "\n", "\r\n" или "\r"; метка порядка байтов (BOM) в начале файла пропускается.
+ * Разборщик считает номера строк и смещения в байтах (UTF-8) - они сохраняются в каждой записи.
+ * Смещения считаются по декодированным символам, поэтому после символа замены U+FFFD (так декодируются ошибочные
+ * байты, длина которых неизвестна) смещения записей - -1: по таким записям контрольная точка не сохраняется.
+ * Записи удаления ([Удалено] и isbn книги) разбираются только в файлах изменений каталога (setDeletions(true)),
+ * в обычном файле импорта такие строки пропускаются.
+ * Поля записи - строки, следующие за строкой тега (без пробелов по краям). Если файл закончился
+ * посреди записи, недостающие поля пустые - такая запись не пройдёт проверку значений.
+ * @author dyakonov
+ * @see BookDirectory.ImportRecord
+ */
+public final class ImportParser implements ImportRecordSource {
+
+    /**
+     * "Логгер" класса.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Model.class.getName());
+
+    /**
+     * Теги записей.
+     */
+    public static final String TAG_BOOK = "[Книга]";
+    public static final String TAG_ILLUSTRATION = "[Иллюстрация]";
+    public static final String TAG_DELETION = "[Удалено]";
+
+    /**
+     * Метка порядка байтов.
+     */
+    private static final char BOM = '\uFEFF';
+
+    /**
+     * Символ замены ошибочных байтов при декодировании.
+     */
+    private static final char REPLACEMENT = '\uFFFD';
+
+    /**
+     * Поток чтения (символы в кодировке UTF-8).
+     */
+    private final Reader reader;
+
+    /**
+     * Буфер символов: прочитанные символы, позиция чтения и количество символов в буфере.
+     */
+    private final char[] buffer = new char[8192];
+    private int position = 0;
+    private int limit = 0;
+
+    /**
+     * Текущая строка (переиспользуется).
+     */
+    private final StringBuilder line = new StringBuilder();
+
+    /**
+     * Номер последней прочитанной строки и смещение в байтах после неё.
+     */
+    private int lineNumber = 0;
+    private long byteOffset = 0;
+
+    /**
+     * Флаг - смещения точные (символов замены ещё не было).
+     */
+    private boolean exactOffsets = true;
+
+    /**
+     * Количество выданных записей.
+     */
+    private long recordCount = 0;
+
+    /**
+     * Флаги: конец потока, начало потока (проверка BOM).
+     */
+    private boolean eof = false;
+    private boolean start = true;
+
+    /**
+     * Флаг - разбирать записи удаления (файл изменений каталога).
+     */
+    private boolean deletions = false;
+
+    /**
+     * Конструктор - разбор с начала потока.
+     * @param reader Reader - поток чтения файла импорта (UTF-8).
+     */
+    public ImportParser(Reader reader){
+        this(reader, 0, 0);
+    }
+
+    /**
+     * Конструктор - разбор с середины файла (поток уже установлен на начало строки).
+     * @param reader Reader - поток чтения файла импорта (UTF-8).
+     * @param byteOffset long - смещение начала потока в файле в байтах.
+     * @param lineNumber int - количество строк файла до начала потока.
+     */
+    public ImportParser(Reader reader, long byteOffset, int lineNumber){
+        this.reader = reader;
+        this.byteOffset = byteOffset;
+        this.lineNumber = lineNumber;
+        this.start = byteOffset == 0;
+    }
+
+    /**
+     * Метод для включения разбора записей удаления [Удалено] (файл изменений каталога).
+     * @param deletions Boolean: true - записи удаления выдаются, false - пропускаются (по умолчанию).
+     */
+    public void setDeletions(boolean deletions){
+        this.deletions = deletions;
+    }
+
+    /**
+     * Метод для получения следующей записи файла.
+     * Строки до тега (пустые, комментарии) пропускаются.
+     * @return ImportRecord - следующая запись или null, если записей больше нет.
+     * @throws IOException Ошибки ввода-вывода.
+     */
+    public ImportRecord next() throws IOException{
+        while(true){
+            long offset = byteOffset;
+            String text = readLine();
+            if(text == null){return null;}
+            int tagLine = lineNumber;
+            if(text.contains(TAG_BOOK)){
+                String isbn = readField();
+                String title = readField();
+                String author = readField();
+                recordCount++;
+                return ImportRecord.book(isbn, title, author, tagLine, lineNumber, offset(offset), offset(byteOffset));
+            }
+            if(text.contains(TAG_ILLUSTRATION)){
+                String imageId = readField();
+                String isbn = readField();
+                String name = readField();
+                String author = readField();
+                recordCount++;
+                return ImportRecord.illustration(imageId, isbn, name, author, tagLine, lineNumber, offset(offset), offset(byteOffset));
+            }
+            if(deletions && text.contains(TAG_DELETION)){
+                String isbn = readField();
+                recordCount++;
+                return ImportRecord.deletion(isbn, tagLine, lineNumber, offset(offset), offset(byteOffset));
+            }
+        }
+    }
+
+    /**
+     * Метод для закрытия потока чтения.
+     * @throws IOException Ошибки ввода-вывода.
+     */
+    public void close() throws IOException{
+        reader.close();
+        if(LOGGER.isLoggable(Level.FINE)){
+            LOGGER.log(Level.FINE, "Import file is parsed (records, lines, bytes): ", recordCount + ", " + lineNumber + ", " + byteOffset);}
+    }
+
+    /**
+     * "Геттер" для получения номера последней прочитанной строки.
+     * @return int
+     */
+    public int getLineNumber(){
+        return lineNumber;
+    }
+
+    /**
+     * "Геттер" для получения смещения в байтах после последней прочитанной строки.
+     * @return long
+     */
+    public long getByteOffset(){
+        return byteOffset;
+    }
+
+    /**
+     * "Геттер" для получения количества выданных записей.
+     * @return long
+     */
+    public long getRecordCount(){
+        return recordCount;
+    }
+
+    /**
+     * Служебный метод - читает поле записи (следующую строку без пробелов по краям).
+     * @return String - значение поля (пустая строка, если файл закончился).
+     * @throws IOException Ошибки ввода-вывода.
+     */
+    private String readField() throws IOException{
+        String text = readLine();
+        if(text == null){
+            if(LOGGER.isLoggable(Level.WARNING)){
+                LOGGER.log(Level.WARNING, "Unexpected end of the import file, the record is incomplete at line: ", lineNumber);}
+            return "";
+        }
+        return text.trim();
+    }
+
+    /**
+     * Служебный метод - читает строку и считает её длину в байтах UTF-8.
+     * @return String - строка без перевода строки или null, если поток закончился.
+     * @throws IOException Ошибки ввода-вывода.
+     */
+    private String readLine() throws IOException{
+        if(eof){return null;}
+        line.setLength(0);
+        while(true){
+            if(position == limit && !fill()){
+                eof = true;
+                if(line.length() == 0){return null;}
+                break;
+            }
+            char c = buffer[position++];
+            if(start){
+                start = false;
+                if(c == BOM){
+                    byteOffset += 3;
+                    continue;
+                }
+            }
+            if(c == REPLACEMENT && exactOffsets){
+                exactOffsets = false;
+                if(LOGGER.isLoggable(Level.WARNING)){
+                    LOGGER.log(Level.WARNING, "Malformed UTF-8 in the import file, byte offsets are unknown from line: ", lineNumber + 1);}
+            }
+            byteOffset += utf8Length(c);
+            if(c == '\n'){break;}
+            if(c == '\r'){
+                if(position == limit){fill();}
+                if(position < limit && buffer[position] == '\n'){
+                    position++;
+                    byteOffset++;
+                }
+                break;
+            }
+            line.append(c);
+        }
+        lineNumber++;
+        return line.toString();
+    }
+
+    /**
+     * Служебный метод - заполняет буфер символов из потока.
+     * @return Boolean: true, если в буфере есть символы, false - поток закончился.
+     * @throws IOException Ошибки ввода-вывода.
+     */
+    private boolean fill() throws IOException{
+        int read = reader.read(buffer, 0, buffer.length);
+        while(read == 0){
+            read = reader.read(buffer, 0, buffer.length);
+        }
+        position = 0;
+        limit = Math.max(0, read);
+        return read > 0;
+    }
+
+    /**
+     * Служебный метод - смещение для записи: -1, если после символа замены смещения неточные.
+     * @param offset long - посчитанное смещение в байтах.
+     * @return long
+     */
+    private long offset(long offset){
+        return exactOffsets ? offset : -1;
+    }
+
+    /**
+     * Служебный метод - длина символа в байтах UTF-8 (суррогатная пара - 4 байта, по 2 на каждую половину).
+     * @param c char - символ.
+     * @return int - количество байтов.
+     */
+    private static int utf8Length(char c){
+        if(c < 0x80){return 1;}
+        if(c < 0x800 || Character.isHighSurrogate(c) || Character.isLowSurrogate(c)){return 2;}
+        return 3;
+    }
+}
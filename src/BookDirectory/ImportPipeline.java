@@ -0,0 +1,547 @@
+package BookDirectory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Конвейер импорта каталога: разбор -> проверка -> поиск дублей -> запись в б.д.
+ * Этапы работают в отдельных потоках и связаны ограниченными очередями (ArrayBlockingQueue): если следующий этап
+ * не успевает, предыдущий ждёт на очереди, поэтому в памяти не больше importQueueCapacity записей на каждую очередь.
+ * Разбор файла - один поток, проверка значений - importValidatorThreads потоков, поиск дублей и запись - по одному потоку.
+ * Проверки выполняются в произвольном порядке, поэтому перед поиском дублей записи восстанавливают порядок файла
+ * (буфер по номеру записи) - иллюстрация обрабатывается после своей книги, сообщения выводятся по порядку.
+ * Книги, переданные на запись, но ещё не зафиксированные, поиск дублей помнит сам - в б.д. их ещё нет.
+ * Иллюстрации сверяются с индексом книг и иллюстраций каталога (IllustrationReconciler), который загружается
+ * одним запросом при первой иллюстрации файла (при импорте части каталога - только диапазон isbn части).
+ * Иллюстрация, книги которой ещё нет ни в каталоге, ни выше в файле, откладывается и сверяется ещё раз после разбора
+ * всего файла - книга может стоять в файле после своей иллюстрации. Перед записью отложенных иллюстраций пакет книг
+ * фиксируется, а контрольная точка после первой отложенной иллюстрации больше не сохраняется (файл без ошибки
+ * импортируется до конца и точка удаляется; при продолжении с точки отложенные иллюстрации разбираются снова).
+ * По каждому этапу считаются количество записей и время работы (без ожидания на очередях).
+ * Пока конвейер работает, раз в секунду выводится ход импорта: доля файла, скорость, оставшееся время, ошибки.
+ * Если задана контрольная точка, она сохраняется после каждого зафиксированного пакета (см. ImportCheckpoint),
+ * кроме пакетов, смещение конца которых неизвестно (ошибочные байты UTF-8) - тогда остаётся предыдущая точка.
+ * Если задан отчёт (импорт из папки наблюдения), отброшенные записи пишутся в отчёт, а не на экран, ход импорта не выводится.
+ * @author dyakonov
+ * @see BookDirectory.ImportParser
+ * @see BookDirectory.ImportValidator
+ * @see BookDirectory.CatalogBatchWriter
+ * @see BookDirectory.ImportCheckpoint
+ * @see BookDirectory.IllustrationReconciler
+ */
+public final class ImportPipeline {
+
+    /**
+     * "Логгер" класса.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Model.class.getName());
+
+    /**
+     * Этапы конвейера.
+     */
+    public enum Stage {PARSE, VALIDATE, DEDUPLICATE, WRITE}
+
+    /**
+     * Признак конца очереди.
+     */
+    private static final Item END = new Item(-1, null);
+
+    /**
+     * Источник записей, проверка значений и пакетная запись в б.д.
+     */
+    private final ImportRecordSource source;
+    private final ImportValidator validator = new ImportValidator();
+    private final CatalogBatchWriter writer;
+
+    /**
+     * Сверка иллюстраций с каталогом (использует только поток поиска дублей).
+     */
+    private final IllustrationReconciler reconciler = new IllustrationReconciler();
+
+    /**
+     * Количество потоков проверки.
+     */
+    private final int validatorThreads;
+
+    /**
+     * Очереди между этапами: разобранные, проверенные, принятые к записи записи.
+     */
+    private final BlockingQueue<Item> parsed;
+    private final BlockingQueue<Item> validated;
+    private final BlockingQueue<Item> accepted;
+
+    /**
+     * Счётчики по этапам: обработанные записи и время работы (в нс).
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(Stage.values().length);
+    private final AtomicLongArray busyNanos = new AtomicLongArray(Stage.values().length);
+
+    /**
+     * Отброшенные записи: не прошли проверку значений; дубли (в каталоге или в файле); иллюстрации без книги.
+     */
+    private volatile long rejected = 0;
+    private volatile long duplicates = 0;
+    private volatile long orphans = 0;
+
+    /**
+     * Номер последней записи, зафиксированной в б.д. (обновляет поток записи, читает поток поиска дублей).
+     */
+    private volatile long committedSeq = -1;
+
+    /**
+     * Иллюстрации, отложенные до конца разбора (использует только поток поиска дублей),
+     * и номер первой из них (после неё контрольная точка не сохраняется).
+     */
+    private final ArrayList<Item> deferred = new ArrayList<Item>();
+    private volatile long firstDeferredSeq = Long.MAX_VALUE;
+
+    /**
+     * Контрольная точка импорта (null - не сохраняется).
+     */
+    private ImportCheckpoint checkpoint;
+    private long checkpointRecords = 0;
+
+    /**
+     * Отчёт об отброшенных записях (null - сообщения выводятся на экран).
+     */
+    private Writer report;
+
+    /**
+     * Смещение в байтах после последней разобранной записи (для вывода хода импорта).
+     */
+    private volatile long parsedOffset = 0;
+
+    /**
+     * Первая ошибка этапа (после неё конвейер останавливается).
+     */
+    private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+    /**
+     * Потоки этапов и общее время работы конвейера (в нс).
+     */
+    private ExecutorService executor;
+    private long elapsedNanos = 0;
+
+    /**
+     * Конструктор.
+     * @param source ImportRecordSource - источник записей (разборщик файла импорта).
+     * @param writer CatalogBatchWriter - пакетная запись в б.д. (закрывает вызывающий код).
+     * @param validatorThreads int - количество потоков проверки.
+     * @param queueCapacity int - размер каждой очереди между этапами.
+     */
+    public ImportPipeline(ImportRecordSource source, CatalogBatchWriter writer, int validatorThreads, int queueCapacity){
+        this.source = source;
+        this.writer = writer;
+        this.validatorThreads = Math.max(1, validatorThreads);
+        int capacity = Math.max(1, queueCapacity);
+        parsed = new ArrayBlockingQueue<Item>(capacity);
+        validated = new ArrayBlockingQueue<Item>(capacity);
+        accepted = new ArrayBlockingQueue<Item>(capacity);
+    }
+
+    /**
+     * Метод для установки контрольной точки: она сохраняется после каждого зафиксированного пакета,
+     * а размер файла импорта используется для расчёта хода импорта.
+     * @param checkpoint ImportCheckpoint - контрольная точка (место, с которого начинается импорт).
+     */
+    public void setCheckpoint(ImportCheckpoint checkpoint){
+        this.checkpoint = checkpoint;
+        this.checkpointRecords = checkpoint.getRecords();
+        this.parsedOffset = checkpoint.getOffset();
+    }
+
+    /**
+     * Метод для ограничения индекса сверки иллюстраций диапазоном isbn (импорт части каталога):
+     * в памяти только книги части, а не всего каталога.
+     * @param fromIsbn String - isbn начала диапазона (включительно).
+     * @param toIsbn String - isbn конца диапазона (не включительно); null - до конца каталога.
+     * @see BookDirectory.IllustrationReconciler#setRange(String, String)
+     */
+    public void setIsbnRange(String fromIsbn, String toIsbn){
+        reconciler.setRange(fromIsbn, toIsbn);
+    }
+
+    /**
+     * Метод для установки отчёта: сообщения об отброшенных записях пишутся в него (по строке на запись), а не на экран.
+     * @param report Writer - поток записи отчёта (закрывает вызывающий код).
+     */
+    public void setReport(Writer report){
+        this.report = report;
+    }
+
+    /**
+     * Метод для запуска конвейера. Возвращает управление, когда все записи источника обработаны.
+     * Незаписанный остаток пакета фиксирует вызывающий код (CatalogBatchWriter.close()).
+     * @throws Exception Первая ошибка этапа (ввод-вывод, SQL); остальные этапы при этом останавливаются.
+     */
+    public void run() throws Exception{
+        long startTime = System.nanoTime();
+        final AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(validatorThreads + 3, new ThreadFactory() {
+            public Thread newThread(Runnable runnable){
+                Thread thread = new Thread(runnable, "import-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.execute(new Worker() {
+            void work() throws Exception{parse();}
+        });
+        for(int i = 0; i < validatorThreads; i++){
+            executor.execute(new Worker() {
+                void work() throws Exception{validate();}
+            });
+        }
+        executor.execute(new Worker() {
+            void work() throws Exception{deduplicate();}
+        });
+        executor.execute(new Worker() {
+            void work() throws Exception{write();}
+        });
+        executor.shutdown();
+        long startOffset = parsedOffset;
+        while(!executor.awaitTermination(1, TimeUnit.SECONDS)){
+            if(report == null){printProgress(startTime, startOffset);}
+        }
+        elapsedNanos = System.nanoTime() - startTime;
+        if(LOGGER.isLoggable(Level.INFO)){
+            LOGGER.log(Level.INFO, "Import pipeline is finished (in ms, records, rejected, duplicates, orphans): ",
+                    elapsedNanos / 1000000 + ", " + counts.get(Stage.PARSE.ordinal()) + ", " + rejected + ", " + duplicates + ", " + orphans);}
+        Throwable error = failure.get();
+        if(error instanceof Exception){throw (Exception) error;}
+        if(error instanceof Error){throw (Error) error;}
+    }
+
+    /**
+     * Служебный метод - выводит ход импорта: доля файла, записанные записи, скорость, оставшееся время, ошибки.
+     * Оставшееся время рассчитывается по доле файла, разобранной с начала этого запуска.
+     * @param startTime long - начало работы конвейера (System.nanoTime()).
+     * @param startOffset long - смещение, с которого начат импорт (в байтах).
+     */
+    private void printProgress(long startTime, long startOffset){
+        long written = counts.get(Stage.WRITE.ordinal());
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        long fileSize = checkpoint != null ? checkpoint.getDataSize() : 0;
+        long done = parsedOffset - startOffset;
+        double percent = fileSize > 0 ? Math.min(100, parsedOffset * 100.0 / fileSize) : 0;
+        long eta = done > 0 && fileSize > parsedOffset ? (long) (seconds * (fileSize - parsedOffset) / done) : -1;
+        View.getInstance().printImportProgress(percent, written, written / seconds, eta, rejected + duplicates + orphans);
+        if(LOGGER.isLoggable(Level.FINE)){
+            LOGGER.log(Level.FINE, "Import pipeline (parsed, validated, deduplicated, written): ", counts.toString());}
+    }
+
+    /**
+     * "Геттер" для получения количества записей, обработанных этапом.
+     * @param stage Stage - этап.
+     * @return long
+     */
+    public long getCount(Stage stage){
+        return counts.get(stage.ordinal());
+    }
+
+    /**
+     * "Геттер" для получения времени работы этапа (сумма по потокам этапа, без ожидания на очередях).
+     * @param stage Stage - этап.
+     * @return long - время в нс.
+     */
+    public long getBusyNanos(Stage stage){
+        return busyNanos.get(stage.ordinal());
+    }
+
+    /**
+     * "Геттер" для получения общего времени работы конвейера.
+     * @return long - время в нс.
+     */
+    public long getElapsedNanos(){
+        return elapsedNanos;
+    }
+
+    /**
+     * "Геттер" для получения количества записей, не прошедших проверку значений.
+     * @return long
+     */
+    public long getRejectedCount(){
+        return rejected;
+    }
+
+    /**
+     * "Геттер" для получения количества дублей (книга или иллюстрация уже в каталоге или раньше в файле).
+     * @return long
+     */
+    public long getDuplicateCount(){
+        return duplicates;
+    }
+
+    /**
+     * "Геттер" для получения количества иллюстраций, книги которых нет в каталоге.
+     * @return long
+     */
+    public long getOrphanCount(){
+        return orphans;
+    }
+
+    /**
+     * Этап разбора: записи источника по порядку, с номером записи.
+     * При ошибке признак конца не передаётся - остальные этапы останавливает Worker.
+     * @throws Exception Ошибки ввода-вывода, прерывание.
+     */
+    private void parse() throws Exception{
+        long seq = 0;
+        while(true){
+            long startTime = System.nanoTime();
+            ImportRecord record = source.next();
+            if(record == null){break;}
+            busy(Stage.PARSE, startTime);
+            if(record.getEndOffset() >= 0){parsedOffset = record.getEndOffset();}
+            parsed.put(new Item(seq++, record));
+        }
+        for(int i = 0; i < validatorThreads; i++){
+            parsed.put(END);
+        }
+    }
+
+    /**
+     * Этап проверки значений (несколько потоков): код нарушенного правила сохраняется в записи.
+     * @throws InterruptedException Конвейер остановлен.
+     */
+    private void validate() throws InterruptedException{
+        while(true){
+            Item item = parsed.take();
+            if(item == END){
+                validated.put(END);
+                return;
+            }
+            long startTime = System.nanoTime();
+            item.rule = validator.validate(item.record);
+            busy(Stage.VALIDATE, startTime);
+            validated.put(item);
+        }
+    }
+
+    /**
+     * Этап поиска дублей (один поток): восстанавливает порядок файла, выводит сообщения об ошибках,
+     * проверяет книги и иллюстрации по каталогу (фильтр Блума, б.д.) и по ещё не зафиксированным записям импорта.
+     * Отложенные иллюстрации сверяются ещё раз после конца разбора, когда известны все книги файла.
+     * @throws Exception Ошибки SQL, прерывание.
+     */
+    private void deduplicate() throws Exception{
+        HashMap<Long, Item> reorder = new HashMap<Long, Item>();
+        ArrayDeque<Item> pending = new ArrayDeque<Item>();
+        HashSet<String> pendingKeys = new HashSet<String>();
+        long next = 0;
+        int ends = 0;
+        while(ends < validatorThreads){
+            Item item = validated.take();
+            if(item == END){
+                ends++;
+                continue;
+            }
+            reorder.put(item.seq, item);
+            while((item = reorder.remove(next)) != null){
+                next++;
+                long startTime = System.nanoTime();
+                //книги, зафиксированные потоком записи, уже видны в б.д.
+                while(!pending.isEmpty() && pending.peek().seq <= committedSeq){
+                    pendingKeys.remove(pending.poll().record.getIsbn());
+                }
+                boolean write = check(item, pendingKeys);
+                if(write && item.record.isBook()){
+                    pending.add(item);
+                    pendingKeys.add(item.record.getIsbn());
+                    reconciler.addBook(item.record.getIsbn());
+                }
+                busy(Stage.DEDUPLICATE, startTime);
+                if(write){accepted.put(item);}
+            }
+        }
+        for(Item item : deferred){
+            long startTime = System.nanoTime();
+            boolean write = check(item, pendingKeys);
+            busyNanos.addAndGet(Stage.DEDUPLICATE.ordinal(), System.nanoTime() - startTime);
+            if(write){accepted.put(item);}
+        }
+        if(!deferred.isEmpty() && LOGGER.isLoggable(Level.INFO)){
+            LOGGER.log(Level.INFO, "Illustrations deferred until the end of the file: ", deferred.size());}
+        deferred.clear();
+        accepted.put(END);
+    }
+
+    /**
+     * Служебный метод - проверяет запись и выводит сообщение, если она отброшена.
+     * @param item Item - запись.
+     * @param pendingKeys HashSet<String> - isbn книг, переданных на запись, но ещё не зафиксированных.
+     * @return Boolean: true - запись нужно записать в б.д.
+     * @throws SQLException Ошибки SQL
+     * @throws IOException Ошибки записи отчёта.
+     */
+    private boolean check(Item item, HashSet<String> pendingKeys) throws SQLException, IOException{
+        ImportRecord record = item.record;
+        if(item.rule != ImportValidator.RULE_OK){
+            if(report != null){report(record, ImportValidator.getRuleName(item.rule));}
+            else {
+                ImportValidator.printRule(item.rule);
+                View.getInstance().printImportRecordLine(record.getLine());
+            }
+            rejected++;
+            return false;
+        }
+        if(record.isBook()){
+            if(pendingKeys.contains(record.getIsbn()) || Model.getInstance().isBookInCatalog(record.getIsbn())){
+                if(report != null){report(record, "книга уже есть в каталоге, ISBN: " + record.getIsbn());}
+                else {
+                    View.getInstance().printErrorText(15);
+                    System.out.println(record.getIsbn());
+                    View.getInstance().printImportRecordLine(record.getLine());
+                }
+                if(LOGGER.isLoggable(Level.WARNING)){
+                    LOGGER.log(Level.WARNING, "Found the book already exists in the directory: ", record.getIsbn());}
+                duplicates++;
+                return false;
+            }
+            return true;
+        }
+        //проверка, что книга с таким isbn есть в каталоге и что у книги нет иллюстрации с таким id
+        if(!reconciler.isLoaded()){reconciler.load();}
+        if(!reconciler.covers(record.getIsbn())){reconciler.loadBook(record.getIsbn());}
+        IllustrationReconciler.Result result = reconciler.reconcile(record.getIsbn(), record.getImageId());
+        if(result == IllustrationReconciler.Result.ORPHAN && !item.deferred){
+            //книга может быть ниже в файле - иллюстрация сверяется ещё раз после разбора всего файла
+            if(deferred.isEmpty()){firstDeferredSeq = item.seq;}
+            item.deferred = true;
+            deferred.add(item);
+            return false;
+        }
+        if(result == IllustrationReconciler.Result.ORPHAN){
+            if(report != null){report(record, "иллюстрация с id=" + record.getImageId() + ": в каталоге нет книги с ISBN=" + record.getIsbn());}
+            else {
+                System.out.println("Ошибка! Не получилось добавить в каталог иллюстрацию с id=" + record.getImageId() + "\nВ каталоге отсутствует книга с ISBN=" + record.getIsbn());
+                View.getInstance().printImportRecordLine(record.getLine());
+            }
+            if(LOGGER.isLoggable(Level.WARNING)){
+                LOGGER.log(Level.WARNING, "illustration found (with ID= " + record.getImageId() + ") can not be added to the catalog, there is no book with isbn: ", record.getIsbn());}
+            orphans++;
+            return false;
+        }
+        if(result == IllustrationReconciler.Result.DUPLICATE){
+            if(report != null){report(record, "у книги с ISBN=" + record.getIsbn() + " уже есть иллюстрация с id=" + record.getImageId());}
+            else {
+                System.out.println("Ошибка! В каталоге у книги с Isbn=" + record.getIsbn() + " уже есть иллюстрация с Id=" + record.getImageId());
+                View.getInstance().printImportRecordLine(record.getLine());
+            }
+            if(LOGGER.isLoggable(Level.WARNING)){
+                LOGGER.log(Level.WARNING, "illustration found (with id= " + record.getImageId() + ") already exists in the catalog and added to the book with isbn: ", record.getIsbn());}
+            duplicates++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Служебный метод - пишет в отчёт строку об отброшенной записи.
+     * @param record ImportRecord - запись.
+     * @param reason String - причина.
+     * @throws IOException Ошибки записи отчёта.
+     */
+    private void report(ImportRecord record, String reason) throws IOException{
+        report.write("Строка " + record.getLine() + ": " + reason + System.getProperty("line.separator"));
+    }
+
+    /**
+     * Этап записи (один поток): записи добавляются в пакеты CatalogBatchWriter.
+     * После фиксации пакета номер последней записи передаётся этапу поиска дублей, а место в файле - в контрольную точку
+     * (если до этой записи нет отложенных иллюстраций). Перед первой отложенной иллюстрацией пакет книг фиксируется.
+     * @throws Exception Ошибки SQL, прерывание.
+     */
+    private void write() throws Exception{
+        boolean booksFlushed = false;
+        while(true){
+            Item item = accepted.take();
+            if(item == END){return;}
+            long startTime = System.nanoTime();
+            if(item.deferred && !booksFlushed){
+                writer.flush();
+                booksFlushed = true;
+            }
+            ImportRecord record = item.record;
+            if(record.isBook()){
+                writer.addBook(record.getIsbn(), record.getName(), record.getAuthor());
+            }
+            else {
+                writer.addIllustration(record.getIsbn(), record.getImageId(), record.getName(), record.getAuthor());
+            }
+            if(writer.getPendingCount() == 0 && !item.deferred){
+                committedSeq = item.seq;
+                if(checkpoint != null && record.getEndOffset() >= 0 && item.seq < firstDeferredSeq){
+                    checkpoint.save(record.getEndOffset(), record.getEndLine(),
+                            checkpointRecords + writer.getBooksWritten() + writer.getIllustrationsWritten());
+                }
+            }
+            busy(Stage.WRITE, startTime);
+        }
+    }
+
+    /**
+     * Служебный метод - учитывает обработанную этапом запись и время работы.
+     * @param stage Stage - этап.
+     * @param startTime long - начало работы (System.nanoTime()).
+     */
+    private void busy(Stage stage, long startTime){
+        busyNanos.addAndGet(stage.ordinal(), System.nanoTime() - startTime);
+        counts.incrementAndGet(stage.ordinal());
+    }
+
+    /**
+     * Запись в очереди конвейера: номер записи в файле, запись, код нарушенного правила, признак отложенной иллюстрации.
+     */
+    private static final class Item {
+        private final long seq;
+        private final ImportRecord record;
+        private int rule = ImportValidator.RULE_OK;
+        private boolean deferred = false;
+
+        private Item(long seq, ImportRecord record){
+            this.seq = seq;
+            this.record = record;
+        }
+    }
+
+    /**
+     * Поток этапа: при ошибке запоминает её и останавливает остальные этапы.
+     */
+    private abstract class Worker implements Runnable {
+
+        abstract void work() throws Exception;
+
+        public void run(){
+            try {
+                work();
+            }
+            catch (InterruptedException e){
+                if(LOGGER.isLoggable(Level.FINE)){
+                    LOGGER.log(Level.FINE, "Import pipeline stage is stopped: ", Thread.currentThread().getName());}
+            }
+            catch (Throwable e){
+                if(failure.compareAndSet(null, e)){
+                    LOGGER.log(Level.SEVERE, "Import pipeline stage failed: " + e.toString() + "");
+                    executor.shutdownNow();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package BookDirectory;
+
+/**
+ * Запись файла импорта - книга (тег [Книга]), иллюстрация (тег [Иллюстрация]) или удаление книги
+ * (тег [Удалено], только в файлах изменений каталога - см. CatalogDeltaExporter).
+ * Кроме значений полей хранит положение записи в файле: номер строки тега (для сообщений об ошибках)
+ * и смещения в байтах (UTF-8) начала и конца записи (для продолжения импорта с места остановки).
+ * @author dyakonov
+ * @see BookDirectory.ImportParser
+ */
+public final class ImportRecord {
+
+    /**
+     * Тип записи.
+     */
+    public enum Type {BOOK, ILLUSTRATION, DELETION}
+
+    private final Type type;
+
+    /**
+     * Значения полей записи: книга - isbn, название, автор; иллюстрация - id, isbn книги, название, автор;
+     * удаление - isbn удалённой книги.
+     */
+    private final String[] values;
+
+    /**
+     * Номер строки тега записи (с 1) и номер последней строки записи.
+     */
+    private final int line;
+    private final int endLine;
+
+    /**
+     * Смещения в байтах: начало строки тега и конец последней строки записи (включая перевод строки).
+     * -1 - смещение неизвестно (в файле перед записью были ошибочные байты UTF-8).
+     */
+    private final long offset;
+    private final long endOffset;
+
+    /**
+     * Конструктор с закрытым доступом (private).
+     * Для создания записи используются методы book(), illustration() и deletion().
+     */
+    private ImportRecord(Type type, String[] values, int line, int endLine, long offset, long endOffset){
+        this.type = type;
+        this.values = values;
+        this.line = line;
+        this.endLine = endLine;
+        this.offset = offset;
+        this.endOffset = endOffset;
+    }
+
+    /**
+     * Метод для создания записи книги.
+     * @param isbn String - Isbn книги
+     * @param title String - Название книги
+     * @param author String - Автор книги
+     * @param line int - номер строки тега.
+     * @param endLine int - номер последней строки записи.
+     * @param offset long - смещение начала записи в байтах.
+     * @param endOffset long - смещение конца записи в байтах.
+     * @return ImportRecord - запись книги.
+     */
+    public static ImportRecord book(String isbn, String title, String author, int line, int endLine, long offset, long endOffset){
+        return new ImportRecord(Type.BOOK, new String[]{isbn, title, author}, line, endLine, offset, endOffset);
+    }
+
+    /**
+     * Метод для создания записи иллюстрации.
+     * @param imageId String - Id иллюстрации
+     * @param isbn String - Isbn книги
+     * @param name String - Название иллюстрации
+     * @param author String - Автор иллюстрации
+     * @param line int - номер строки тега.
+     * @param endLine int - номер последней строки записи.
+     * @param offset long - смещение начала записи в байтах.
+     * @param endOffset long - смещение конца записи в байтах.
+     * @return ImportRecord - запись иллюстрации.
+     */
+    public static ImportRecord illustration(String imageId, String isbn, String name, String author, int line, int endLine, long offset, long endOffset){
+        return new ImportRecord(Type.ILLUSTRATION, new String[]{imageId, isbn, name, author}, line, endLine, offset, endOffset);
+    }
+
+    /**
+     * Метод для создания записи удаления книги (вместе с её иллюстрациями).
+     * @param isbn String - Isbn удалённой книги
+     * @param line int - номер строки тега.
+     * @param endLine int - номер последней строки записи.
+     * @param offset long - смещение начала записи в байтах.
+     * @param endOffset long - смещение конца записи в байтах.
+     * @return ImportRecord - запись удаления.
+     */
+    public static ImportRecord deletion(String isbn, int line, int endLine, long offset, long endOffset){
+        return new ImportRecord(Type.DELETION, new String[]{isbn}, line, endLine, offset, endOffset);
+    }
+
+    /**
+     * "Геттер" для получения типа записи.
+     * @return Type
+     */
+    public Type getType(){
+        return type;
+    }
+
+    /**
+     * "Геттер" для проверки, что запись - книга.
+     * @return Boolean: true - книга, false - иллюстрация или удаление.
+     */
+    public boolean isBook(){
+        return type == Type.BOOK;
+    }
+
+    /**
+     * "Геттер" для проверки, что запись - удаление книги.
+     * @return Boolean: true - удаление, false - книга или иллюстрация.
+     */
+    public boolean isDeletion(){
+        return type == Type.DELETION;
+    }
+
+    /**
+     * "Геттер" для получения isbn книги (у иллюстрации - isbn книги, к которой она относится).
+     * @return String
+     */
+    public String getIsbn(){
+        return type == Type.ILLUSTRATION ? values[1] : values[0];
+    }
+
+    /**
+     * "Геттер" для получения id иллюстрации.
+     * @return String - id иллюстрации (null у книги и удаления).
+     */
+    public String getImageId(){
+        return type == Type.ILLUSTRATION ? values[0] : null;
+    }
+
+    /**
+     * "Геттер" для получения названия книги или иллюстрации.
+     * @return String - название (null у удаления).
+     */
+    public String getName(){
+        return type == Type.DELETION ? null : values[isBook() ? 1 : 2];
+    }
+
+    /**
+     * "Геттер" для получения автора книги или иллюстрации.
+     * @return String - автор (null у удаления).
+     */
+    public String getAuthor(){
+        return type == Type.DELETION ? null : values[isBook() ? 2 : 3];
+    }
+
+    /**
+     * "Геттер" для получения номера строки тега записи.
+     * @return int
+     */
+    public int getLine(){
+        return line;
+    }
+
+    /**
+     * "Геттер" для получения номера последней строки записи.
+     * @return int
+     */
+    public int getEndLine(){
+        return endLine;
+    }
+
+    /**
+     * "Геттер" для получения смещения начала записи в байтах.
+     * @return long
+     */
+    public long getOffset(){
+        return offset;
+    }
+
+    /**
+     * "Геттер" для получения смещения конца записи в байтах.
+     * @return long
+     */
+    public long getEndOffset(){
+        return endOffset;
+    }
+
+    /**
+     * Метод для получения копии записи с номером строки, сдвинутым на количество строк (разбор файла по частям).
+     * @param lines int - количество строк файла до части, в которой найдена запись.
+     * @return ImportRecord - запись с номером строки от начала файла.
+     */
+    ImportRecord withLineOffset(int lines){
+        return new ImportRecord(type, values, line + lines, endLine + lines, offset, endOffset);
+    }
+
+    @Override
+    public String toString(){
+        String text;
+        switch (type){
+            case BOOK: {text = "[Книга] " + getIsbn();break;}
+            case ILLUSTRATION: {text = "[Иллюстрация] " + getImageId() + " -> " + getIsbn();break;}
+            default: {text = "[Удалено] " + getIsbn();}
+        }
+        return text + " (строка " + line + ")";
+    }
+}
@@ -0,0 +1,20 @@
+package BookDirectory;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Источник записей импорта - выдаёт записи файла импорта по одной, в порядке следования в файле.
+ * После работы источник нужно закрыть методом close().
+ * @author dyakonov
+ * @see BookDirectory.ImportParser
+ */
+public interface ImportRecordSource extends Closeable {
+
+    /**
+     * Метод для получения следующей записи.
+     * @return ImportRecord - следующая запись или null, если записей больше нет.
+     * @throws IOException Ошибки ввода-вывода.
+     */
+    ImportRecord next() throws IOException;
+}
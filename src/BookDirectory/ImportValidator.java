@@ -0,0 +1,106 @@
+package BookDirectory;
+
+/**
+ * Проверка значений записей файла импорта (длина полей, запрещённые символы isbn).
+ * Правила те же, что у Controller.checkBookValues, checkIllustrationValues и checkIsbnForbidden, но проверка
+ * ничего не выводит, а возвращает код нарушенного правила - поэтому её можно выполнять в нескольких потоках,
+ * а сообщения выводить потом, в порядке записей файла.
+ * Максимальные длины полей берутся из настроек Модели при создании объекта.
+ * @author dyakonov
+ * @see BookDirectory.ImportPipeline
+ */
+public final class ImportValidator {
+
+    /**
+     * Коды правил: 0 - запись прошла проверку.
+     */
+    public static final int RULE_OK = 0;
+    public static final int RULE_ISBN_SIZE = 1;
+    public static final int RULE_ISBN_FORBIDDEN = 2;
+    public static final int RULE_TITLE_SIZE = 3;
+    public static final int RULE_AUTHOR_SIZE = 4;
+    public static final int RULE_IMAGE_ID_SIZE = 5;
+
+    /**
+     * Количество кодов правил (для счётчиков по правилам).
+     */
+    public static final int RULE_COUNT = 6;
+
+    /**
+     * Описания правил (для отчёта проверки файла импорта).
+     */
+    private static final String[] RULE_NAMES = {"нет ошибок", "isbn пустой или слишком длинный", "isbn содержит запрещённые символы",
+            "название слишком длинное", "автор слишком длинный", "id иллюстрации пустой или слишком длинный"};
+
+    /**
+     * Символы, запрещённые в isbn (isbn используется в имени файла при экспорте).
+     */
+    private static final String FORBIDDEN = "/:*|<>\"'\\";
+
+    /**
+     * Максимальные длины полей.
+     */
+    private final int isbnSize;
+    private final int titleSize;
+    private final int authorSize;
+    private final int imageIdSize;
+    private final int nameSize;
+    private final int illustrationAuthorSize;
+
+    /**
+     * Конструктор - максимальные длины полей из настроек Модели.
+     */
+    public ImportValidator(){
+        Model model = Model.getInstance();
+        isbnSize = model.getBookIsbnSize();
+        titleSize = model.getBookTitleSize();
+        authorSize = model.getBookAuthorSize();
+        imageIdSize = model.getIllustrationIdSize();
+        nameSize = model.getIllustrationNameSize();
+        illustrationAuthorSize = model.getIllustrationAuthorSize();
+    }
+
+    /**
+     * Метод для проверки записи.
+     * @param record ImportRecord - запись файла импорта.
+     * @return int - код первого нарушенного правила или RULE_OK.
+     */
+    public int validate(ImportRecord record){
+        if(record.isBook()){
+            if(record.getIsbn().isEmpty() || record.getIsbn().length() > isbnSize){return RULE_ISBN_SIZE;}
+            if(record.getName().length() > titleSize){return RULE_TITLE_SIZE;}
+            if(record.getAuthor().length() > authorSize){return RULE_AUTHOR_SIZE;}
+            for(int i = 0; i < record.getIsbn().length(); i++){
+                if(FORBIDDEN.indexOf(record.getIsbn().charAt(i)) >= 0){return RULE_ISBN_FORBIDDEN;}
+            }
+            return RULE_OK;
+        }
+        if(record.getImageId().isEmpty() || record.getImageId().length() > imageIdSize){return RULE_IMAGE_ID_SIZE;}
+        if(record.getName().length() > nameSize){return RULE_TITLE_SIZE;}
+        if(record.getAuthor().length() > illustrationAuthorSize){return RULE_AUTHOR_SIZE;}
+        return RULE_OK;
+    }
+
+    /**
+     * Метод для получения описания правила.
+     * @param rule int - код правила.
+     * @return String - описание правила.
+     */
+    public static String getRuleName(int rule){
+        return RULE_NAMES[rule];
+    }
+
+    /**
+     * Метод для вывода сообщения о нарушенном правиле (те же сообщения, что при проверке в Контроллере).
+     * @param rule int - код правила.
+     */
+    public static void printRule(int rule){
+        switch (rule){
+            case RULE_ISBN_SIZE: {View.getInstance().printMessage(8);break;}
+            case RULE_ISBN_FORBIDDEN: {View.getInstance().printErrorText(13);break;}
+            case RULE_TITLE_SIZE: {View.getInstance().printErrorText(11);break;}
+            case RULE_AUTHOR_SIZE: {View.getInstance().printErrorText(12);break;}
+            case RULE_IMAGE_ID_SIZE: {View.getInstance().printErrorText(8);break;}
+        }
+    }
+}
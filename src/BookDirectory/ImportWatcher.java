@@ -0,0 +1,306 @@
+package BookDirectory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Наблюдение за папкой импорта (пункт 6-4): новые файлы .txt (и сжатые .txt.gz, .zip) импортируются в каталог автоматически.
+ * Папка проверяется раз в importWatchInterval секунд; файл берётся в работу, когда его размер и время изменения
+ * не изменились с прошлой проверки (файл дописан). Одновременно импортируется не больше importWatchThreads файлов,
+ * но и не больше (размер пула - 1): конвейер каждого файла держит соединение пула, как и при импорте по частям.
+ * Каждый файл импортируется тем же конвейером, что и пункт 6-2 (те же проверки значений и дублей), с контрольной точкой.
+ * После импорта файл переносится в папку done (или failed - если импорт прерван ошибкой или в файле нет записей),
+ * рядом с ним записывается отчёт (имя файла + ".report"): отброшенные записи с номерами строк и итоги.
+ * Контрольная точка файла с ошибкой остаётся в папке наблюдения: если вернуть файл в папку, импорт продолжится с неё.
+ * Файлы читаются одним потоком (без отображения в память), чтобы их можно было сразу перенести.
+ * Дубли между файлами, импортируемыми одновременно, отбрасывает б.д. (уникальность isbn) при записи пакета.
+ * @author dyakonov
+ * @see BookDirectory.ImportPipeline
+ */
+public final class ImportWatcher {
+
+    /**
+     * "Логгер" класса.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Model.class.getName());
+
+    /**
+     * Папки импортированных и ошибочных файлов (внутри папки наблюдения), расширение отчёта.
+     */
+    public static final String DONE_DIR = "done";
+    public static final String FAILED_DIR = "failed";
+    private static final String REPORT_EXTENSION = ".report";
+
+    /**
+     * Папка наблюдения, папки импортированных и ошибочных файлов.
+     */
+    private final File directory;
+    private final File doneDir;
+    private final File failedDir;
+
+    /**
+     * Количество одновременно импортируемых файлов и интервал проверки папки (в секундах).
+     */
+    private final int threads;
+    private final int interval;
+
+    /**
+     * Поток проверки папки и потоки импорта файлов.
+     */
+    private ScheduledExecutorService poller;
+    private ExecutorService workers;
+
+    /**
+     * Размер и время изменения файлов на прошлой проверке (использует только поток проверки).
+     */
+    private final HashMap<String, long[]> lastSeen = new HashMap<String, long[]>();
+
+    /**
+     * Файлы, взятые в работу (и файлы, которые не удалось перенести - они не импортируются повторно).
+     */
+    private final Set<String> taken = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Счётчики: импортированные файлы, файлы с ошибкой.
+     */
+    private final AtomicInteger doneCount = new AtomicInteger();
+    private final AtomicInteger failedCount = new AtomicInteger();
+
+    /**
+     * Конструктор.
+     * @param directory File - папка наблюдения.
+     * @param threads int - количество одновременно импортируемых файлов (не больше Model.getParallelDbThreads()).
+     * @param interval int - интервал проверки папки (в секундах).
+     */
+    public ImportWatcher(File directory, int threads, int interval){
+        this.directory = directory;
+        this.doneDir = new File(directory, DONE_DIR);
+        this.failedDir = new File(directory, FAILED_DIR);
+        this.threads = Math.max(1, Math.min(threads, Model.getInstance().getParallelDbThreads()));
+        this.interval = Math.max(1, interval);
+    }
+
+    /**
+     * Метод для запуска наблюдения (в фоновых потоках).
+     * @throws IOException Папки не удалось создать.
+     */
+    public void start() throws IOException{
+        for(File dir : new File[]{directory, doneDir, failedDir}){
+            if(!dir.isDirectory() && !dir.mkdirs()){
+                throw new IOException("The directory is not created: " + dir.getAbsolutePath());
+            }
+        }
+        workers = Executors.newFixedThreadPool(threads, threadFactory("import-watch-"));
+        poller = Executors.newSingleThreadScheduledExecutor(threadFactory("import-watcher"));
+        poller.scheduleWithFixedDelay(new Runnable() {
+            public void run(){
+                try {
+                    poll();
+                }
+                catch (RuntimeException e){
+                    LOGGER.log(Level.SEVERE, "Watched import directory is not checked: " + e.toString() + "");
+                }
+            }
+        }, 0, interval, TimeUnit.SECONDS);
+        if(LOGGER.isLoggable(Level.INFO)){
+            LOGGER.log(Level.INFO, "Watching of the import directory is started (directory, threads, interval in s): ",
+                    directory.getAbsolutePath() + ", " + threads + ", " + interval);}
+    }
+
+    /**
+     * Метод для остановки наблюдения: новые файлы больше не берутся, импорт начатых файлов завершается.
+     * @throws InterruptedException Ожидание прервано.
+     */
+    public void stop() throws InterruptedException{
+        poller.shutdown();
+        poller.awaitTermination(1, TimeUnit.MINUTES);
+        workers.shutdown();
+        while(!workers.awaitTermination(1, TimeUnit.SECONDS)){
+            if(LOGGER.isLoggable(Level.FINE)){
+                LOGGER.fine("Waiting for the watched import files in progress");}
+        }
+        if(LOGGER.isLoggable(Level.INFO)){
+            LOGGER.log(Level.INFO, "Watching of the import directory is stopped (done, failed): ", doneCount.get() + ", " + failedCount.get());}
+    }
+
+    /**
+     * "Геттер" для получения количества одновременно импортируемых файлов.
+     * @return int
+     */
+    public int getThreads(){
+        return threads;
+    }
+
+    /**
+     * "Геттер" для получения количества импортированных файлов.
+     * @return int
+     */
+    public int getDoneCount(){
+        return doneCount.get();
+    }
+
+    /**
+     * "Геттер" для получения количества файлов с ошибкой импорта.
+     * @return int
+     */
+    public int getFailedCount(){
+        return failedCount.get();
+    }
+
+    /**
+     * Служебный метод - проверка папки: файлы, не изменившиеся с прошлой проверки, отдаются на импорт.
+     */
+    private void poll(){
+        File[] files = directory.listFiles(new FileFilter() {
+            public boolean accept(File file){
+                String name = file.getName().toLowerCase();
+                return file.isFile() && (name.endsWith(".txt") || name.endsWith(".txt" + CompressedStreams.GZIP_EXTENSION)
+                        || name.endsWith(CompressedStreams.ZIP_EXTENSION));
+            }
+        });
+        if(files == null){return;}
+        HashMap<String, long[]> seen = new HashMap<String, long[]>();
+        for(final File file : files){
+            String name = file.getName();
+            if(taken.contains(name)){continue;}
+            long[] state = {file.length(), file.lastModified()};
+            long[] last = lastSeen.get(name);
+            if(last != null && last[0] == state[0] && last[1] == state[1]){
+                taken.add(name);
+                workers.execute(new Runnable() {
+                    public void run(){
+                        ingest(file);
+                    }
+                });
+            }
+            else {seen.put(name, state);}
+        }
+        lastSeen.clear();
+        lastSeen.putAll(seen);
+    }
+
+    /**
+     * Служебный метод - импорт одного файла с отчётом и переносом в папку done или failed.
+     * @param file File - файл импорта.
+     */
+    private void ingest(File file){
+        long startTime = System.currentTimeMillis();
+        File reportFile = new File(directory, file.getName() + REPORT_EXTENSION);
+        ImportCheckpoint checkpoint = ImportCheckpoint.load(file);
+        boolean success = false;
+        long books = 0;
+        long illustrations = 0;
+        long dropped = 0;
+        String error = null;
+        try {
+            Writer report = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(reportFile), "UTF-8"));
+            try {
+                String newLine = System.getProperty("line.separator");
+                report.write("Импорт файла " + file.getName() + newLine);
+                report.write("Начало: " + new SimpleDateFormat("dd.MM.yyyy HH:mm:ss").format(new Date(startTime)) + newLine);
+                if(checkpoint.isResumable()){
+                    report.write("Продолжение с контрольной точки: строка " + checkpoint.getLine() + ", записано " + checkpoint.getRecords() + newLine);
+                }
+                report.write(newLine);
+                try {
+                    ImportRecordSource source = new ImportParser(new InputStreamReader(
+                            FileInOut.getInstance().openFileInputStream(file, checkpoint.getOffset()), "UTF-8"),
+                            checkpoint.getOffset(), checkpoint.getLine());
+                    try {
+                        CatalogBatchWriter writer = new CatalogBatchWriter(Model.getInstance().getImportBatchSize());
+                        ImportPipeline pipeline = new ImportPipeline(source, writer, 1, Model.getInstance().getImportQueueCapacity());
+                        pipeline.setCheckpoint(checkpoint);
+                        pipeline.setReport(report);
+                        try {
+                            pipeline.run();
+                        }
+                        finally {
+                            writer.close();
+                            books = writer.getBooksWritten();
+                            illustrations = writer.getIllustrationsWritten();
+                            dropped = writer.getFailures() + pipeline.getRejectedCount() + pipeline.getDuplicateCount() + pipeline.getOrphanCount();
+                        }
+                        success = pipeline.getCount(ImportPipeline.Stage.PARSE) > 0 || checkpoint.isResumable();
+                        if(!success){error = "в файле нет записей [Книга] или [Иллюстрация]";}
+                    }
+                    finally {source.close();}
+                }
+                catch (Exception e){
+                    error = e.toString();
+                    LOGGER.log(Level.SEVERE, "Watched import file is not imported: " + e.toString() + "", file.getName());
+                }
+                report.write(newLine + "Добавлено книг: " + books + ", иллюстраций: " + illustrations + ", отброшено записей: " + dropped + newLine);
+                report.write("Время импорта: " + (System.currentTimeMillis() - startTime) + " мс" + newLine);
+                report.write(success ? "Результат: импортирован" + newLine : "Результат: ошибка - " + error + newLine);
+            }
+            finally {report.close();}
+        }
+        catch (IOException e){
+            success = false;
+            LOGGER.log(Level.SEVERE, "Report of the watched import file is not written: " + e.toString() + "", file.getName());
+        }
+        if(success){checkpoint.delete();}
+        File target = success ? doneDir : failedDir;
+        boolean moved = move(file, target);
+        if(reportFile.exists()){move(reportFile, target);}
+        if(moved){taken.remove(file.getName());}
+        (success ? doneCount : failedCount).incrementAndGet();
+        View.getInstance().printWatchedFileResult(file.getName(), success, books, illustrations, dropped);
+        if(LOGGER.isLoggable(Level.INFO)){
+            LOGGER.log(Level.INFO, "Watched import file is processed (file, success, books, illustrations, dropped, in ms): ",
+                    file.getName() + ", " + success + ", " + books + ", " + illustrations + ", " + dropped + ", " + (System.currentTimeMillis() - startTime));}
+    }
+
+    /**
+     * Служебный метод - переносит файл в папку; если там уже есть файл с таким именем, к имени добавляется время.
+     * @param file File - файл.
+     * @param dir File - папка.
+     * @return Boolean: true, если файл перенесён.
+     */
+    private static boolean move(File file, File dir){
+        File target = new File(dir, file.getName());
+        if(target.exists()){
+            target = new File(dir, new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date()) + "-" + file.getName());
+        }
+        boolean moved = file.renameTo(target);
+        if(!moved){
+            LOGGER.log(Level.SEVERE, "Watched import file is not moved: ", file.getAbsolutePath() + " -> " + target.getAbsolutePath());}
+        return moved;
+    }
+
+    /**
+     * Служебный метод - фабрика фоновых потоков с именем.
+     * @param prefix String - начало имени потока.
+     * @return ThreadFactory
+     */
+    private static ThreadFactory threadFactory(final String prefix){
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadFactory() {
+            public Thread newThread(Runnable runnable){
+                Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+}
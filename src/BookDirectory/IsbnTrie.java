@@ -0,0 +1,417 @@
+package BookDirectory;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Сжатое префиксное дерево (radix tree) isbn книг каталога - для поиска isbn по началу и подсказок при опечатке.
+ * Цепочки узлов с одним потомком свёрнуты в одно ребро: метка ребра - отрезок (начало, длина) общего массива символов,
+ * поэтому уникальный "хвост" isbn после общего начала (978-5-17-...) занимает один узел, а не узел на каждый символ.
+ * Дерево хранится в массивах, а не в объектах-узлах: у узла есть метка, первый потомок и следующий "брат"
+ * (потомки одного узла - односвязный список, упорядоченный по первому символу метки). Узел занимает 16 байт;
+ * на isbn из 17 символов с общим началом приходится около 32 байт (лист, узел ветвления и символы хвоста).
+ * Удалённые isbn только снимают отметку конца ключа - узлы и символы освобождаются при следующем построении дерева.
+ * @author dyakonov
+ * @see BookDirectory.Model#getIsbnsByPrefix(String, int)
+ * @see BookDirectory.Model#suggestIsbns(String, int)
+ */
+public final class IsbnTrie {
+
+    /**
+     * "Логгер" класса.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Model.class.getName());
+
+    /**
+     * Нет узла (конец списка потомков).
+     */
+    private static final int NONE = -1;
+
+    /**
+     * Символы меток рёбер (метки - отрезки этого массива) и количество занятых символов.
+     */
+    private char[] chars;
+    private int charCount;
+
+    /**
+     * Узлы дерева: начало и длина метки ребра от родителя, первый потомок, следующий "брат".
+     * Узел 0 - корень (пустая метка).
+     */
+    private int[] labelStart;
+    private int[] labelLength;
+    private int[] firstChild;
+    private int[] nextSibling;
+
+    /**
+     * Узлы, на которых заканчивается isbn.
+     */
+    private final BitSet terminal = new BitSet();
+
+    /**
+     * Количество узлов и количество isbn в дереве.
+     */
+    private int nodeCount;
+    private int size;
+
+    /**
+     * Конструктор - пустое дерево.
+     */
+    public IsbnTrie(){
+        clear();
+    }
+
+    /**
+     * Метод для очистки дерева (перед построением заново).
+     */
+    public synchronized void clear(){
+        chars = new char[4096];
+        charCount = 0;
+        labelStart = new int[1024];
+        labelLength = new int[1024];
+        firstChild = new int[1024];
+        nextSibling = new int[1024];
+        terminal.clear();
+        nodeCount = 0;
+        size = 0;
+        newNode(0, 0);
+    }
+
+    /**
+     * Метод для добавления isbn в дерево.
+     * Если isbn расходится с меткой ребра в её середине, ребро делится на два - общую часть и остаток.
+     * @param isbn String - isbn книги.
+     */
+    public synchronized void add(String isbn){
+        int node = 0;
+        int i = 0;
+        while(i < isbn.length()){
+            int previous = NONE;
+            int child = firstChild[node];
+            char c = isbn.charAt(i);
+            while(child != NONE && chars[labelStart[child]] < c){
+                previous = child;
+                child = nextSibling[child];
+            }
+            if(child == NONE || chars[labelStart[child]] != c){
+                int leaf = newNode(appendChars(isbn, i), isbn.length() - i);
+                linkChild(node, previous, leaf, child);
+                node = leaf;
+                break;
+            }
+            int matched = match(child, isbn, i);
+            if(matched < labelLength[child]){
+                child = split(node, previous, child, matched);
+            }
+            node = child;
+            i += matched;
+        }
+        if(!terminal.get(node)){
+            terminal.set(node);
+            size++;
+        }
+    }
+
+    /**
+     * Метод для удаления isbn из дерева.
+     * @param isbn String - isbn книги.
+     */
+    public synchronized void remove(String isbn){
+        int node = find(isbn, null);
+        if(node != NONE && terminal.get(node)){
+            terminal.clear(node);
+            size--;
+        }
+    }
+
+    /**
+     * Метод для проверки, есть ли isbn в дереве.
+     * @param isbn String - isbn книги.
+     * @return Boolean: true, если isbn есть в дереве, иначе - false.
+     */
+    public synchronized boolean contains(String isbn){
+        int node = find(isbn, null);
+        return node != NONE && terminal.get(node);
+    }
+
+    /**
+     * Метод для поиска isbn по началу.
+     * @param prefix String - начало isbn.
+     * @param limit int - максимальное количество isbn в результате.
+     * @return ArrayList<String> - isbn, начинающиеся с prefix, по возрастанию.
+     */
+    public synchronized ArrayList<String> prefix(String prefix, int limit){
+        ArrayList<String> result = new ArrayList<String>();
+        StringBuilder path = new StringBuilder();
+        int node = find(prefix, path);
+        if(node != NONE && limit > 0){
+            collect(node, path, result, limit);
+        }
+        return result;
+    }
+
+    /**
+     * Метод для поиска ближайших isbn (подсказки при опечатке) по расстоянию Левенштейна.
+     * Дерево обходится один раз: строка таблицы расстояний считается для каждого символа метки ребра, а ветви,
+     * где расстояние уже больше maxDistance, отбрасываются.
+     * @param isbn String - введённый isbn.
+     * @param maxDistance int - максимальное количество правок (вставка, удаление, замена символа).
+     * @param limit int - максимальное количество подсказок.
+     * @return ArrayList<String> - ближайшие isbn (по возрастанию расстояния, затем по isbn).
+     */
+    public synchronized ArrayList<String> suggest(String isbn, int maxDistance, int limit){
+        long startTime = System.nanoTime();
+        ArrayList<String> keys = new ArrayList<String>();
+        final ArrayList<Integer> distances = new ArrayList<Integer>();
+        int[] row = new int[isbn.length() + 1];
+        for(int i = 0; i < row.length; i++){
+            row[i] = i;
+        }
+        for(int child = firstChild[0]; child != NONE; child = nextSibling[child]){
+            suggest(child, isbn, row, new StringBuilder(), maxDistance, keys, distances);
+        }
+        ArrayList<Integer> order = new ArrayList<Integer>();
+        for(int i = 0; i < keys.size(); i++){
+            order.add(i);
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            public int compare(Integer i1, Integer i2){
+                return distances.get(i1).compareTo(distances.get(i2));
+            }
+        });
+        ArrayList<String> result = new ArrayList<String>();
+        for(int i = 0; i < order.size() && i < limit; i++){
+            result.add(keys.get(order.get(i)));
+        }
+        if(LOGGER.isLoggable(Level.FINE)){
+            LOGGER.log(Level.FINE, "Time spent on the isbn suggestions (in mcs, isbns): ", (System.nanoTime() - startTime) / 1000 + ", " + result.size());}
+        return result;
+    }
+
+    /**
+     * "Геттер" для получения количества isbn в дереве.
+     * @return int
+     */
+    public synchronized int size(){
+        return size;
+    }
+
+    /**
+     * "Геттер" для получения количества узлов дерева (включая узлы удалённых isbn).
+     * @return int
+     */
+    public synchronized int getNodeCount(){
+        return nodeCount;
+    }
+
+    /**
+     * "Геттер" для получения занятой деревом памяти: узлы (16 байт) и символы меток (2 байта), без запаса массивов.
+     * @return long - байты.
+     */
+    public synchronized long getByteCount(){
+        return nodeCount * 16L + charCount * 2L + terminal.size() / 8;
+    }
+
+    /**
+     * Служебный метод - рекурсивный шаг поиска подсказок для узла.
+     * @param node int - узел.
+     * @param isbn String - введённый isbn.
+     * @param parentRow int[] - строка расстояний родителя.
+     * @param path StringBuilder - isbn от корня до родителя.
+     * @param maxDistance int - максимальное расстояние.
+     * @param keys ArrayList<String> - найденные isbn (в порядке обхода, т.е. по возрастанию).
+     * @param distances ArrayList<Integer> - расстояния найденных isbn.
+     */
+    private void suggest(int node, String isbn, int[] parentRow, StringBuilder path, int maxDistance,
+                         ArrayList<String> keys, ArrayList<Integer> distances){
+        int length = path.length();
+        int[] row = parentRow;
+        for(int k = 0; k < labelLength[node]; k++){
+            char label = chars[labelStart[node] + k];
+            int[] next = new int[row.length];
+            next[0] = row[0] + 1;
+            int min = next[0];
+            for(int i = 1; i < next.length; i++){
+                int replace = row[i - 1] + (isbn.charAt(i - 1) == label ? 0 : 1);
+                next[i] = Math.min(Math.min(next[i - 1] + 1, row[i] + 1), replace);
+                min = Math.min(min, next[i]);
+            }
+            if(min > maxDistance){
+                path.setLength(length);
+                return;
+            }
+            path.append(label);
+            row = next;
+        }
+        if(terminal.get(node) && row[row.length - 1] <= maxDistance){
+            keys.add(path.toString());
+            distances.add(row[row.length - 1]);
+        }
+        for(int child = firstChild[node]; child != NONE; child = nextSibling[child]){
+            suggest(child, isbn, row, path, maxDistance, keys, distances);
+        }
+        path.setLength(length);
+    }
+
+    /**
+     * Служебный метод - собирает isbn поддерева по возрастанию (обход в глубину).
+     * @param node int - корень поддерева.
+     * @param path StringBuilder - isbn от корня дерева до node (включая метку node).
+     * @param result ArrayList<String> - найденные isbn.
+     * @param limit int - максимальное количество isbn.
+     */
+    private void collect(int node, StringBuilder path, ArrayList<String> result, int limit){
+        if(terminal.get(node)){
+            result.add(path.toString());
+        }
+        for(int child = firstChild[node]; child != NONE && result.size() < limit; child = nextSibling[child]){
+            int length = path.length();
+            path.append(chars, labelStart[child], labelLength[child]);
+            collect(child, path, result, limit);
+            path.setLength(length);
+        }
+    }
+
+    /**
+     * Служебный метод - находит узел для строки.
+     * Если строка заканчивается в середине метки ребра, возвращается узел, в который ведёт это ребро.
+     * @param key String - строка (isbn или начало isbn).
+     * @param path StringBuilder - сюда записывается путь от корня до найденного узла (может быть null).
+     * @return int - узел, путь которого начинается с key (для isbn - только узел, путь которого равен key), или NONE.
+     */
+    private int find(String key, StringBuilder path){
+        int node = 0;
+        int i = 0;
+        while(i < key.length()){
+            int child = firstChild[node];
+            char c = key.charAt(i);
+            while(child != NONE && chars[labelStart[child]] < c){
+                child = nextSibling[child];
+            }
+            if(child == NONE || chars[labelStart[child]] != c){
+                return NONE;
+            }
+            int matched = match(child, key, i);
+            if(matched < labelLength[child]){
+                if(i + matched < key.length() || path == null){
+                    return NONE;
+                }
+                path.append(key, 0, i).append(chars, labelStart[child], labelLength[child]);
+                return child;
+            }
+            node = child;
+            i += matched;
+        }
+        if(path != null){
+            path.append(key);
+        }
+        return node;
+    }
+
+    /**
+     * Служебный метод - количество совпадающих символов метки узла и строки с позиции from.
+     * @param node int - узел.
+     * @param key String - строка.
+     * @param from int - позиция в строке.
+     * @return int - от 1 до длины метки.
+     */
+    private int match(int node, String key, int from){
+        int start = labelStart[node];
+        int length = Math.min(labelLength[node], key.length() - from);
+        int matched = 0;
+        while(matched < length && chars[start + matched] == key.charAt(from + matched)){
+            matched++;
+        }
+        return matched;
+    }
+
+    /**
+     * Служебный метод - делит ребро потомка: новый узел получает первые matched символов метки, потомок - остаток.
+     * @param parent int - родитель.
+     * @param previous int - "брат" перед потомком или NONE.
+     * @param child int - потомок.
+     * @param matched int - длина общей части метки.
+     * @return int - новый узел (на месте потомка в списке родителя).
+     */
+    private int split(int parent, int previous, int child, int matched){
+        int middle = newNode(labelStart[child], matched);
+        linkChild(parent, previous, middle, nextSibling[child]);
+        labelStart[child] += matched;
+        labelLength[child] -= matched;
+        nextSibling[child] = NONE;
+        firstChild[middle] = child;
+        return middle;
+    }
+
+    /**
+     * Служебный метод - вставляет узел в список потомков родителя.
+     * @param parent int - родитель.
+     * @param previous int - "брат" перед узлом или NONE (узел станет первым потомком).
+     * @param node int - узел.
+     * @param next int - "брат" после узла или NONE.
+     */
+    private void linkChild(int parent, int previous, int node, int next){
+        nextSibling[node] = next;
+        if(previous == NONE){
+            firstChild[parent] = node;
+        }
+        else {
+            nextSibling[previous] = node;
+        }
+    }
+
+    /**
+     * Служебный метод - дописывает символы строки с позиции from в массив меток (увеличивает его в 1,5 раза).
+     * @param key String - строка.
+     * @param from int - позиция в строке.
+     * @return int - начало дописанных символов в массиве.
+     */
+    private int appendChars(String key, int from){
+        int length = key.length() - from;
+        if(charCount + length > chars.length){
+            char[] newChars = new char[Math.max(charCount + length, chars.length + (chars.length >> 1))];
+            System.arraycopy(chars, 0, newChars, 0, charCount);
+            chars = newChars;
+        }
+        key.getChars(from, key.length(), chars, charCount);
+        int start = charCount;
+        charCount += length;
+        return start;
+    }
+
+    /**
+     * Служебный метод - создаёт узел (при необходимости увеличивает массивы в 1,5 раза).
+     * @param start int - начало метки в массиве символов.
+     * @param length int - длина метки.
+     * @return int - новый узел.
+     */
+    private int newNode(int start, int length){
+        if(nodeCount == labelStart.length){
+            int capacity = labelStart.length + (labelStart.length >> 1);
+            labelStart = grow(labelStart, capacity);
+            labelLength = grow(labelLength, capacity);
+            firstChild = grow(firstChild, capacity);
+            nextSibling = grow(nextSibling, capacity);
+        }
+        labelStart[nodeCount] = start;
+        labelLength[nodeCount] = length;
+        firstChild[nodeCount] = NONE;
+        nextSibling[nodeCount] = NONE;
+        return nodeCount++;
+    }
+
+    /**
+     * Служебный метод - копия массива большего размера.
+     * @param array int[] - массив.
+     * @param capacity int - новый размер.
+     * @return int[]
+     */
+    private int[] grow(int[] array, int capacity){
+        int[] grown = new int[capacity];
+        System.arraycopy(array, 0, grown, 0, nodeCount);
+        return grown;
+    }
+}
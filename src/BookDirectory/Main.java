@@ -35,7 +35,16 @@ public class Main
             /**Main engine **/
             Model.getInstance().setLocaleWindows();
             View.getInstance().initializeView();
+            DerbyDBManager.bootstrap();
+            Model.getInstance().warmCatalogCache();
+            Model.getInstance().loadIllustrationIndex();
+            Model.getInstance().rebuildFullTextIndex();
+            Model.getInstance().loadIsbnTrie();
+            Model.getInstance().loadBloomFilter();
             Controller.getInstance().mainMenuDraw();
+            Model.getInstance().getCatalogCache().logMetrics();
+            Model.getInstance().saveBloomFilter();
+            ConnectionPool.getInstance().shutdown();
 
             Runtime runtime = Runtime.getRuntime();
             runtime.gc();
@@ -0,0 +1,325 @@
+package BookDirectory;
+
+import java.io.CharArrayReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Чтение больших файлов импорта по частям, отображённым в память (FileChannel.map), с разбором частей в нескольких потоках.
+ * Файл делится на части примерно по importChunkSize байтов; граница части - начало строки с тегом записи
+ * ([Книга] или [Иллюстрация]) после перевода строки '\n' или '\r', поэтому запись не разрезается.
+ * Граница ищется не дальше ещё importChunkSize байтов (часть - не больше двух importChunkSize): если тега там нет,
+ * файл не разбирается (IOException), чтобы не отображать в память и не разбирать в одном потоке весь остаток файла. Каждая часть декодируется из UTF-8 и разбирается
+ * ImportParser в своём потоке; записи выдаются в порядке файла, номера строк пересчитываются от начала файла.
+ * Одновременно в работе не больше (количество потоков + 1) частей, поэтому расход памяти не зависит от размера файла.
+ * Метка порядка байтов (BOM) в начале файла пропускается разборщиком первой части.
+ * Ограничение: строка поля, которая начинается с тега (например, название "[Книга] ..."), будет принята за границу записи.
+ * @author dyakonov
+ * @see BookDirectory.ImportParser
+ */
+public final class MappedImportReader implements ImportRecordSource {
+
+    /**
+     * "Логгер" класса.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Model.class.getName());
+
+    /**
+     * Кодировка файла импорта.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Теги записей в байтах UTF-8 (для поиска границ частей).
+     */
+    private static final byte[][] TAGS = {ImportParser.TAG_BOOK.getBytes(UTF8), ImportParser.TAG_ILLUSTRATION.getBytes(UTF8)};
+
+    /**
+     * Файл, его размер и примерный размер части (в байтах).
+     */
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long size;
+    private final int chunkSize;
+
+    /**
+     * Потоки разбора и части в работе (в порядке файла).
+     */
+    private final ExecutorService executor;
+    private final ArrayDeque<Future<Chunk>> inFlight = new ArrayDeque<Future<Chunk>>();
+
+    /**
+     * Начало следующей части (в байтах).
+     */
+    private long nextStart;
+
+    /**
+     * Записи текущей части, позиция выдачи и количество строк в частях до текущей.
+     */
+    private ArrayList<ImportRecord> records = new ArrayList<ImportRecord>();
+    private int index = 0;
+    private int chunkLines = 0;
+    private int lineBase;
+
+    /**
+     * Количество частей файла.
+     */
+    private int chunkCount = 0;
+
+    /**
+     * Конструктор - открывает файл и запускает разбор первых частей.
+     * @param path File - файл импорта.
+     * @param chunkSize int - примерный размер части в байтах.
+     * @param threads int - количество потоков разбора.
+     * @throws IOException Ошибки ввода-вывода.
+     */
+    public MappedImportReader(File path, int chunkSize, int threads) throws IOException{
+        this(path, 0, 0, chunkSize, threads);
+    }
+
+    /**
+     * Конструктор - открывает файл и запускает разбор первых частей, начиная с середины файла (продолжение импорта).
+     * @param path File - файл импорта.
+     * @param offset long - смещение начала строки, с которой начинается чтение (в байтах).
+     * @param line int - количество строк файла до этого смещения.
+     * @param chunkSize int - примерный размер части в байтах.
+     * @param threads int - количество потоков разбора.
+     * @throws IOException Ошибки ввода-вывода.
+     */
+    public MappedImportReader(File path, long offset, int line, int chunkSize, int threads) throws IOException{
+        this.chunkSize = Math.max(1024, chunkSize);
+        this.nextStart = offset;
+        this.lineBase = line;
+        file = new RandomAccessFile(path, "r");
+        channel = file.getChannel();
+        size = channel.size();
+        final AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+            public Thread newThread(Runnable runnable){
+                Thread thread = new Thread(runnable, "import-chunk-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            for(int i = 0; i <= Math.max(1, threads); i++){
+                submitNext();
+            }
+        }
+        catch (IOException e){
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Метод для открытия источника записей файла импорта: небольшие файлы (остаток до одной части) читаются
+     * одним потоком через ImportParser, большие - по частям через MappedImportReader.
+     * Сжатый файл (".gz", ".zip") отобразить в память нельзя - он всегда читается одним потоком с распаковкой "на лету".
+     * @param path File - файл импорта.
+     * @param offset long - смещение начала строки, с которой начинается чтение (0 - с начала файла).
+     * @param line int - количество строк файла до этого смещения.
+     * @param chunkSize int - примерный размер части в байтах.
+     * @param threads int - количество потоков разбора.
+     * @return ImportRecordSource - источник записей (его нужно закрыть после чтения).
+     * @throws IOException Ошибки ввода-вывода.
+     */
+    public static ImportRecordSource open(File path, long offset, int line, int chunkSize, int threads) throws IOException{
+        if(CompressedStreams.isCompressed(path.getName()) || path.length() - offset <= chunkSize){
+            return new ImportParser(new InputStreamReader(FileInOut.getInstance().openFileInputStream(path, offset), UTF8), offset, line);
+        }
+        return new MappedImportReader(path, offset, line, chunkSize, threads);
+    }
+
+    /**
+     * Метод для получения следующей записи файла (в порядке файла).
+     * @return ImportRecord - следующая запись или null, если записей больше нет.
+     * @throws IOException Ошибки ввода-вывода или декодирования части.
+     */
+    public ImportRecord next() throws IOException{
+        while(index >= records.size()){
+            lineBase += chunkLines;
+            Future<Chunk> future = inFlight.poll();
+            if(future == null){return null;}
+            submitNext();
+            Chunk chunk = await(future);
+            records = chunk.records;
+            chunkLines = chunk.lines;
+            index = 0;
+        }
+        ImportRecord record = records.get(index);
+        records.set(index++, null);
+        return lineBase == 0 ? record : record.withLineOffset(lineBase);
+    }
+
+    /**
+     * Метод для остановки разбора и закрытия файла.
+     * @throws IOException Ошибки ввода-вывода.
+     */
+    public void close() throws IOException{
+        executor.shutdownNow();
+        inFlight.clear();
+        try {
+            channel.close();
+        }
+        finally {file.close();}
+        if(LOGGER.isLoggable(Level.FINE)){
+            LOGGER.log(Level.FINE, "Mapped import file is closed (bytes, chunks, lines): ", size + ", " + chunkCount + ", " + (lineBase + chunkLines));}
+    }
+
+    /**
+     * "Геттер" для получения количества частей, отданных на разбор.
+     * @return int
+     */
+    public int getChunkCount(){
+        return chunkCount;
+    }
+
+    /**
+     * Служебный метод - находит границу следующей части и отдаёт часть на разбор.
+     * @throws IOException Ошибки ввода-вывода.
+     */
+    private void submitNext() throws IOException{
+        if(nextStart >= size){return;}
+        final long start = nextStart;
+        final long end = start + chunkSize >= size ? size : findBoundary(start + chunkSize, Math.min(start + Integer.MAX_VALUE, start + 2L * chunkSize));
+        nextStart = end;
+        chunkCount++;
+        inFlight.add(executor.submit(new Callable<Chunk>() {
+            public Chunk call() throws Exception{
+                return parse(start, end);
+            }
+        }));
+    }
+
+    /**
+     * Служебный метод - разбирает часть файла: отображение в память, декодирование UTF-8, разбор записей.
+     * @param start long - начало части (в байтах).
+     * @param end long - конец части (в байтах).
+     * @return Chunk - записи части и количество строк в ней.
+     * @throws IOException Ошибки ввода-вывода.
+     */
+    private Chunk parse(long start, long end) throws IOException{
+        long startTime = System.nanoTime();
+        MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        CharBuffer chars = UTF8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .decode(bytes);
+        ImportParser parser = new ImportParser(new CharArrayReader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining()), start, 0);
+        ArrayList<ImportRecord> result = new ArrayList<ImportRecord>();
+        ImportRecord record;
+        while((record = parser.next()) != null){
+            result.add(record);
+        }
+        parser.close();
+        if(LOGGER.isLoggable(Level.FINE)){
+            LOGGER.log(Level.FINE, "Chunk of the import file is parsed (offset, bytes, records, in ms): ",
+                    start + ", " + (end - start) + ", " + result.size() + ", " + (System.nanoTime() - startTime) / 1000000);}
+        return new Chunk(result, parser.getLineNumber());
+    }
+
+    /**
+     * Служебный метод - ищет начало строки с тегом записи (после '\n' или '\r'), начиная с позиции.
+     * @param from long - позиция, с которой начинается поиск (в байтах).
+     * @param limit long - позиция, дальше которой граница не ищется (в байтах).
+     * @return long - позиция начала строки с тегом или размер файла, если файл кончается раньше limit.
+     * @throws IOException Ошибки ввода-вывода; тега нет до limit.
+     */
+    private long findBoundary(long from, long limit) throws IOException{
+        long end = Math.min(limit, size);
+        ByteBuffer block = ByteBuffer.allocate(65536);
+        long position = from;
+        while(position < end){
+            block.clear();
+            if(end - position < block.capacity()){block.limit((int) (end - position));}
+            int read = channel.read(block, position);
+            if(read <= 0){break;}
+            byte[] data = block.array();
+            for(int i = 0; i < read; i++){
+                if((data[i] == '\n' || data[i] == '\r') && startsWithTag(position + i + 1)){
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        if(end == size){return size;}
+        throw new IOException("No record tag at the start of a line between bytes " + from + " and " + end
+                + " of the import file (line breaks or tags are missing)");
+    }
+
+    /**
+     * Служебный метод - проверяет, начинается ли с позиции тег записи.
+     * @param position long - позиция (в байтах).
+     * @return Boolean: true, если с позиции начинается тег [Книга] или [Иллюстрация].
+     * @throws IOException Ошибки ввода-вывода.
+     */
+    private boolean startsWithTag(long position) throws IOException{
+        ByteBuffer head = ByteBuffer.allocate(TAGS[1].length);
+        channel.read(head, position);
+        for(byte[] tag : TAGS){
+            if(head.position() >= tag.length){
+                boolean match = true;
+                for(int i = 0; i < tag.length && match; i++){
+                    match = head.get(i) == tag[i];
+                }
+                if(match){return true;}
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Служебный метод - ждёт результат разбора части.
+     * @param future Future<Chunk> - часть в работе.
+     * @return Chunk - результат разбора.
+     * @throws IOException Ошибка разбора части.
+     */
+    private static Chunk await(Future<Chunk> future) throws IOException{
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IOException("Reading of the import file is interrupted");
+        }
+        catch (ExecutionException e){
+            Throwable cause = e.getCause();
+            if(cause instanceof IOException){throw (IOException) cause;}
+            if(cause instanceof RuntimeException){throw (RuntimeException) cause;}
+            throw new IOException(String.valueOf(cause));
+        }
+    }
+
+    /**
+     * Результат разбора части: записи (номера строк - от начала части) и количество строк.
+     */
+    private static final class Chunk {
+        private final ArrayList<ImportRecord> records;
+        private final int lines;
+
+        private Chunk(ArrayList<ImportRecord> records, int lines){
+            this.records = records;
+            this.lines = lines;
+        }
+    }
+}
@@ -9,9 +9,13 @@ import java.sql.SQLException;
 import java.sql.SQLIntegrityConstraintViolationException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Properties;
+import java.util.Set;
 import java.util.logging.*;
 
 /**
@@ -78,6 +82,132 @@ public final class Model {
      */
     private Level LOG_LEVEL;
 
+    /**
+     * Размер пула соединений с б.д. (максимальное количество одновременно открытых соединений).
+     */
+    private Integer DB_POOL_SIZE = 4;
+
+    /**
+     * Максимальное время ожидания свободного соединения из пула (в мс).
+     */
+    private Integer DB_POOL_TIMEOUT = 10000;
+
+    /**
+     * Количество записей в одном пакете (транзакции) при импорте каталога.
+     */
+    private Integer IMPORT_BATCH_SIZE = 1000;
+
+    /**
+     * Количество потоков проверки записей при импорте каталога (0 - по количеству процессоров).
+     */
+    private Integer IMPORT_VALIDATOR_THREADS = 0;
+
+    /**
+     * Размер очередей между этапами конвейера импорта.
+     */
+    private Integer IMPORT_QUEUE_CAPACITY = 1000;
+
+    /**
+     * Размер части файла импорта (в байтах) при чтении по частям, отображённым в память; файлы меньше части читаются целиком.
+     */
+    private Integer IMPORT_CHUNK_SIZE = 4194304;
+
+    /**
+     * Количество потоков разбора частей файла импорта (0 - по количеству процессоров).
+     */
+    private Integer IMPORT_PARSER_THREADS = 0;
+
+    /**
+     * Количество частей при экспорте каталога по частям (0 - по количеству процессоров).
+     */
+    private Integer EXPORT_SHARDS = 4;
+
+    /**
+     * Количество потоков записи файлов при экспорте списка книг (0 - по количеству процессоров).
+     */
+    private Integer EXPORT_WRITER_THREADS = 4;
+
+    /**
+     * Сжатие файлов экспорта: none - без сжатия, gzip - файл .txt.gz, zip - архив .zip (экспорт по частям не сжимается).
+     */
+    private String EXPORT_COMPRESSION = "none";
+
+    /**
+     * Степень сжатия файлов .gz и .zip: от 0 (без сжатия) до 9 (наибольшее), -1 - по умолчанию.
+     */
+    private Integer COMPRESSION_LEVEL = 6;
+
+    /**
+     * Количество файлов, одновременно импортируемых из папки наблюдения (0 - по количеству процессоров).
+     */
+    private Integer IMPORT_WATCH_THREADS = 2;
+
+    /**
+     * Интервал проверки папки наблюдения (в секундах).
+     */
+    private Integer IMPORT_WATCH_INTERVAL = 5;
+
+    /**
+     * Количество книг на одной странице списка книг (пункт 1 главного меню).
+     */
+    private Integer CATALOG_PAGE_SIZE = 20;
+
+    /**
+     * Максимальное количество книг в кэше каталога.
+     */
+    private Integer CATALOG_CACHE_SIZE = 10000;
+
+    /**
+     * Кэш книг каталога по isbn (создаётся при первом обращении, после загрузки настроек).
+     */
+    private CatalogCache catalogCache;
+
+    /**
+     * Допустимая вероятность ложного срабатывания фильтра Блума ключей каталога.
+     */
+    private Double BLOOM_FALSE_POSITIVE_RATE = 0.01;
+
+    /**
+     * Фильтр Блума ключей каталога: isbn книг и пары isbn + id иллюстрации (null - не загружен).
+     */
+    private volatile BloomFilter bloomFilter;
+
+    /**
+     * Фильтр Блума, который сейчас строится по б.д. (null - не строится): ключи, записанные во время построения,
+     * добавляются и в него, чтобы не потеряться при замене фильтра.
+     */
+    private volatile BloomFilter rebuildingBloomFilter;
+
+    /**
+     * Номер изменения из журнала изменений (change_log), все ключи до которого есть в фильтре Блума.
+     */
+    private long bloomFilterSeq = 0;
+
+    /**
+     * Метка формата файла фильтра Блума: за ней следует номер изменения, на который фильтр актуален.
+     */
+    private static final int BLOOM_FILE_STAMP = 0x53455131;
+
+    /**
+     * Индекс иллюстраций: id иллюстрации -> isbn книг.
+     */
+    private final IllustrationIndex illustrationIndex = new IllustrationIndex();
+
+    /**
+     * Полнотекстовый индекс: слова названий и авторов книг и названий иллюстраций -> книги.
+     */
+    private final FullTextIndex fullTextIndex = new FullTextIndex();
+
+    /**
+     * Префиксное дерево isbn всех книг каталога.
+     */
+    private final IsbnTrie isbnTrie = new IsbnTrie();
+
+    /**
+     * Флаг - дерево isbn загружено из б.д. (только тогда по нему можно отвечать "книги нет" без запроса к б.д.).
+     */
+    private volatile boolean isbnTrieLoaded = false;
+
     /**
      * Статическая переменная класса для хранения единственного экземпляра класса
      */
@@ -101,11 +231,6 @@ public final class Model {
         return instance;
     }
 
-    /**
-     * Символ-обозначение переноса строки в системе.
-     */
-    private final String NR = System.getProperty("line.separator");
-
     /**
      * Кодировка система, в которой запущено приложение.
      */
@@ -188,71 +313,627 @@ public final class Model {
             } else {
                 reader = new BufferedReader(new InputStreamReader(System.in));
             }
-            input = reader.readLine();
-        } catch (IOException e) {
-            View.getInstance().printErrorText(3);
-            LOGGER.log(Level.SEVERE, "IOException: " + e.toString() + "", input);
+            input = reader.readLine();
+        } catch (IOException e) {
+            View.getInstance().printErrorText(3);
+            LOGGER.log(Level.SEVERE, "IOException: " + e.toString() + "", input);
+        }
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, "Input is: ", input);
+        }
+        return input;
+    }
+
+    /**
+     * Метод для получения всех книг (и иллюстраций) в каталоге.
+     * Каталог загружается одним запросом (LEFT JOIN книг и иллюстраций) и собирается за один проход.
+     *
+     * @return ArrayList<Book> - коллекция объектов Book (книга).
+     * @see BookDirectory.Book
+     * @see BookDirectory.DerbyDBManager#selectCatalogQuery()
+     * @see BookDirectory.CatalogHydrator
+     */
+    protected LinkedList<Book> getBooks() {
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("The call of Model.getBooks()");
+        }
+        long startTime = System.currentTimeMillis();
+        LinkedList<Book> books = new LinkedList<Book>();
+        try {
+            DerbyDBManager db = new DerbyDBManager();
+            try {
+                books = CatalogHydrator.hydrate(db.selectCatalogQuery());
+            } finally {
+                db.close();
+            }
+            long endTime = System.currentTimeMillis();
+            if (LOGGER.isLoggable(Level.INFO)) {
+                LOGGER.log(Level.INFO, "Time spent on the output the catalog (in ms, books): ", (endTime - startTime) + ", " + books.size());
+            }
+            return books;
+        } catch (SQLException e) {
+            View.getInstance().printErrorText(2);
+            LOGGER.log(Level.SEVERE, "SQLException: " + e.toString() + "");
+        }
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.log(Level.INFO, "Books in catalog: " + books.size() + "");
+        }
+        return books;
+    }
+
+    /**
+     * Метод для начального заполнения кэша каталога (вызывается один раз при запуске).
+     * Книги читаются курсором по возрастанию isbn, пока кэш не заполнится (catalogCacheSize).
+     * Остальные книги попадают в кэш при первом обращении.
+     *
+     * @see BookDirectory.CatalogCache
+     */
+    protected void warmCatalogCache() {
+        long startTime = System.currentTimeMillis();
+        CatalogCache cache = getCatalogCache();
+        CatalogCursor cursor = streamBooks();
+        try {
+            for (Book book : cursor) {
+                if (cache.size() >= CATALOG_CACHE_SIZE) {
+                    break;
+                }
+                cache.put(book);
+            }
+        } finally {
+            cursor.close();
+        }
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.log(Level.INFO, "Catalog cache is filled (in ms, books): ", (System.currentTimeMillis() - startTime) + ", " + cache.size());
+        }
+    }
+
+    /**
+     * Метод для загрузки индекса иллюстраций из б.д. (при запуске и после импорта каталога).
+     *
+     * @see BookDirectory.IllustrationIndex
+     */
+    protected void loadIllustrationIndex() {
+        try {
+            DerbyDBManager db = new DerbyDBManager();
+            try {
+                illustrationIndex.load(db.selectIllustrationIndexQuery());
+            } finally {
+                db.close();
+            }
+        } catch (SQLException e) {
+            View.getInstance().printErrorText(2);
+            LOGGER.log(Level.SEVERE, "SQLException: " + e.toString() + "");
+        }
+    }
+
+    /**
+     * Метод для построения полнотекстового индекса из б.д. (при запуске и после импорта каталога).
+     * Каталог читается курсором, книги индексируются по одной.
+     *
+     * @see BookDirectory.FullTextIndex
+     */
+    protected void rebuildFullTextIndex() {
+        long startTime = System.currentTimeMillis();
+        fullTextIndex.clear();
+        CatalogCursor cursor = streamBooks();
+        try {
+            for (Book book : cursor) {
+                fullTextIndex.indexBook(book);
+            }
+        } finally {
+            cursor.close();
+        }
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.log(Level.INFO, "Full-text index is built (in ms, books, words): ",
+                    (System.currentTimeMillis() - startTime) + ", " + fullTextIndex.getBookCount() + ", " + fullTextIndex.getTermCount());
+        }
+    }
+
+    /**
+     * Метод для построения дерева isbn из б.д. (при запуске и после импорта каталога).
+     *
+     * @see BookDirectory.IsbnTrie
+     */
+    protected void loadIsbnTrie() {
+        long startTime = System.currentTimeMillis();
+        isbnTrieLoaded = false;
+        isbnTrie.clear();
+        try {
+            DerbyDBManager db = new DerbyDBManager();
+            try {
+                ResultSet isbns = db.selectIsbnsQuery();
+                while (isbns.next()) {
+                    isbnTrie.add(isbns.getString(1));
+                }
+                isbnTrieLoaded = true;
+            } finally {
+                db.close();
+            }
+        } catch (SQLException e) {
+            View.getInstance().printErrorText(2);
+            LOGGER.log(Level.SEVERE, "SQLException: " + e.toString() + "");
+        }
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.log(Level.INFO, "Isbn trie is built (in ms, isbns, nodes, bytes): ",
+                    (System.currentTimeMillis() - startTime) + ", " + isbnTrie.size() + ", " + isbnTrie.getNodeCount() + ", " + isbnTrie.getByteCount());
+        }
+    }
+
+    /**
+     * Метод для поиска isbn книг по началу isbn.
+     *
+     * @param prefix String - начало isbn (например, "978-5-17").
+     * @param limit int - максимальное количество isbn в результате.
+     * @return ArrayList<String> - isbn по возрастанию.
+     * @see BookDirectory.IsbnTrie#prefix(String, int)
+     */
+    protected ArrayList<String> getIsbnsByPrefix(String prefix, int limit) {
+        return isbnTrie.prefix(prefix, limit);
+    }
+
+    /**
+     * Метод для подсказки isbn, похожих на введённый (не больше двух опечаток).
+     *
+     * @param isbn String - введённый isbn, которого нет в каталоге.
+     * @param limit int - максимальное количество подсказок.
+     * @return ArrayList<String> - ближайшие isbn.
+     * @see BookDirectory.IsbnTrie#suggest(String, int, int)
+     */
+    protected ArrayList<String> suggestIsbns(String isbn, int limit) {
+        return isbnTrie.suggest(isbn, 2, limit);
+    }
+
+    /**
+     * "Геттер" для получения фильтра Блума ключей каталога.
+     * Если фильтр не загружен или устарел (переполнен, много удалений) - строит его заново по б.д.
+     *
+     * @return BloomFilter
+     * @see BookDirectory.BloomFilter
+     */
+    protected synchronized BloomFilter getBloomFilter() {
+        if (bloomFilter == null || bloomFilter.isStale()) {
+            rebuildBloomFilter();
+        }
+        return bloomFilter;
+    }
+
+    /**
+     * Метод для загрузки фильтра Блума из файла рядом с б.д. (dbName.bloom).
+     * В файле сохранён номер изменения журнала (change_log), на который фильтр актуален: все изменения после него
+     * (в том числе сделанные в сеансе, который завершился аварийно) дописываются в фильтр из журнала.
+     * Фильтр строится заново по б.д., если файла нет, он старого формата, номер больше последнего изменения в б.д.
+     * (б.д. заменена) или изменилась заданная вероятность ложного срабатывания.
+     *
+     * @see #saveBloomFilter()
+     */
+    protected synchronized void loadBloomFilter() {
+        File file = new File(DB_NAME + ".bloom");
+        if (file.exists()) {
+            try {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                try {
+                    if (in.readInt() == BLOOM_FILE_STAMP) {
+                        long seq = in.readLong();
+                        BloomFilter filter = BloomFilter.readFrom(in);
+                        if (filter.getFalsePositiveRate() == BLOOM_FALSE_POSITIVE_RATE) {
+                            long lastSeq = replayCatalogChanges(filter, seq);
+                            if (lastSeq >= 0) {
+                                bloomFilterSeq = lastSeq;
+                                bloomFilter = filter;
+                            }
+                        }
+                    }
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "The bloom filter file is not read: " + e.toString() + "", file);
+            } catch (SQLException e) {
+                View.getInstance().printErrorText(2);
+                LOGGER.log(Level.SEVERE, "SQLException: " + e.toString() + "");
+            }
+        }
+        if (bloomFilter == null) {
+            rebuildBloomFilter();
+        } else if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.log(Level.INFO, "Bloom filter is loaded (keys, bits, expected false positive rate): ",
+                    bloomFilter.getInsertionCount() + ", " + bloomFilter.getBitCount() + ", " + bloomFilter.getExpectedFalsePositiveRate());
+        }
+    }
+
+    /**
+     * Метод для сохранения фильтра Блума в файл рядом с б.д. (при завершении работы).
+     * Перед записью в фильтр дописываются изменения из журнала (change_log) - и записанные в обход Модели;
+     * в файл сохраняется номер последнего из них.
+     *
+     * @see #loadBloomFilter()
+     */
+    protected synchronized void saveBloomFilter() {
+        BloomFilter filter = bloomFilter;
+        if (filter == null) {
+            return;
+        }
+        File file = new File(DB_NAME + ".bloom");
+        try {
+            long seq = replayCatalogChanges(filter, bloomFilterSeq);
+            if (seq < 0) {
+                return;
+            }
+            bloomFilterSeq = seq;
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            try {
+                out.writeInt(BLOOM_FILE_STAMP);
+                out.writeLong(seq);
+                filter.writeTo(out);
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "The bloom filter file is not written: " + e.toString() + "", file);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "SQLException: " + e.toString() + "");
+        }
+    }
+
+    /**
+     * Метод для построения фильтра Блума по б.д.: isbn всех книг и пары isbn + id всех иллюстраций.
+     * Фильтр рассчитывается на двойное текущее количество ключей (но не меньше 10000) - с запасом на новые книги.
+     * Пока фильтр строится, ключи из addCatalogKey добавляются и в него: строки, записанные во время выборки,
+     * не теряются при замене фильтра (например, если фильтр устарел в середине импорта).
+     */
+    protected synchronized void rebuildBloomFilter() {
+        long startTime = System.currentTimeMillis();
+        try {
+            DerbyDBManager db = new DerbyDBManager();
+            try {
+                long keys = (long) db.countBooks() + db.countIllustrations();
+                BloomFilter filter = new BloomFilter(Math.max(10000, keys * 2), BLOOM_FALSE_POSITIVE_RATE);
+                rebuildingBloomFilter = filter;
+                long seq = db.selectLastChange();
+                ResultSet isbns = db.selectIsbnsQuery();
+                while (isbns.next()) {
+                    filter.add(isbns.getString(1));
+                }
+                ResultSet illustrations = db.selectIllustrationIndexQuery();
+                while (illustrations.next()) {
+                    filter.add(illustrationKey(illustrations.getString(2), illustrations.getString(1)));
+                }
+                bloomFilter = filter;
+                bloomFilterSeq = seq;
+            } finally {
+                rebuildingBloomFilter = null;
+                db.close();
+            }
+        } catch (SQLException e) {
+            View.getInstance().printErrorText(2);
+            LOGGER.log(Level.SEVERE, "SQLException: " + e.toString() + "");
+        }
+        if (bloomFilter != null && LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.log(Level.INFO, "Bloom filter is built (in ms, keys, bits, expected false positive rate): ",
+                    (System.currentTimeMillis() - startTime) + ", " + bloomFilter.getInsertionCount() + ", " + bloomFilter.getBitCount() + ", "
+                            + bloomFilter.getExpectedFalsePositiveRate());
+        }
+    }
+
+    /**
+     * Метод для проверки, есть ли книга в каталоге (при импорте).
+     * Если фильтр Блума отвечает "нет" - книги точно нет, б.д. не запрашивается; иначе книга ищется в б.д.
+     *
+     * @param isbn String - isbn книги.
+     * @return Boolean: true, если книга есть в каталоге, иначе - false.
+     * @throws SQLException Ошибки SQL
+     */
+    protected boolean isBookInCatalog(String isbn) throws SQLException {
+        BloomFilter filter = getBloomFilter();
+        if (filter == null || !filter.mightContain(isbn)) {
+            return filter == null && dbBookExists(isbn);
+        }
+        boolean exists = dbBookExists(isbn);
+        if (!exists) {
+            filter.recordFalsePositive();
+        }
+        return exists;
+    }
+
+    /**
+     * Метод для проверки, есть ли у книги иллюстрация с указанным id (при импорте).
+     * Если фильтр Блума отвечает "нет" - иллюстрации точно нет, б.д. не запрашивается; иначе иллюстрация ищется в б.д.
+     *
+     * @param isbn    String - isbn книги.
+     * @param imageId String - id иллюстрации.
+     * @return Boolean: true, если иллюстрация есть у книги, иначе - false.
+     * @throws SQLException Ошибки SQL
+     */
+    protected boolean isIllustrationInCatalog(String isbn, String imageId) throws SQLException {
+        BloomFilter filter = getBloomFilter();
+        if (filter != null && !filter.mightContain(illustrationKey(isbn, imageId))) {
+            return false;
+        }
+        DerbyDBManager db = new DerbyDBManager();
+        try {
+            boolean exists = db.illustrationExists(isbn, imageId);
+            if (!exists && filter != null) {
+                filter.recordFalsePositive();
+            }
+            return exists;
+        } finally {
+            db.close();
+        }
+    }
+
+    /**
+     * Метод для добавления ключей в фильтр Блума (книги и иллюстрации, записанные в б.д. в обход Модели).
+     *
+     * @param isbn    String - isbn книги.
+     * @param imageId String - id иллюстрации (null - ключ книги).
+     */
+    protected void addCatalogKey(String isbn, String imageId) {
+        String key = imageId == null ? isbn : illustrationKey(isbn, imageId);
+        BloomFilter building = rebuildingBloomFilter;
+        if (building != null) {
+            building.add(key);
+        }
+        BloomFilter filter = bloomFilter;
+        if (filter != null && filter != building) {
+            filter.add(key);
+        }
+    }
+
+    /**
+     * Служебный метод - дописывает в фильтр Блума изменения из журнала изменений после указанного номера:
+     * записанные книги и иллюстрации добавляются в фильтр, удалённые - учитываются как удаления.
+     *
+     * @param filter  BloomFilter - фильтр.
+     * @param fromSeq long - номер изменения, на который фильтр актуален.
+     * @return long - номер последнего изменения в журнале или -1, если fromSeq больше него (б.д. заменена).
+     * @throws SQLException Ошибки SQL
+     */
+    private long replayCatalogChanges(BloomFilter filter, long fromSeq) throws SQLException {
+        DerbyDBManager db = new DerbyDBManager();
+        try {
+            long lastSeq = db.selectLastChange();
+            if (fromSeq > lastSeq) {
+                return -1;
+            }
+            int replayed = 0;
+            ResultSet changes = db.selectChangesQuery(fromSeq);
+            while (changes.next()) {
+                lastSeq = Math.max(lastSeq, changes.getLong(1));
+                if ("D".equals(changes.getString(3))) {
+                    filter.recordDeletion();
+                } else {
+                    filter.add("I".equals(changes.getString(2)) ? illustrationKey(changes.getString(4), changes.getString(5)) : changes.getString(4));
+                }
+                replayed++;
+            }
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, "Catalog changes are replayed into the bloom filter (from, to, changes): ",
+                        fromSeq + ", " + lastSeq + ", " + replayed);
+            }
+            return lastSeq;
+        } finally {
+            db.close();
+        }
+    }
+
+    /**
+     * Служебный метод - ключ иллюстрации книги для фильтра Блума.
+     *
+     * @param isbn    String - isbn книги.
+     * @param imageId String - id иллюстрации.
+     * @return String - ключ.
+     */
+    private static String illustrationKey(String isbn, String imageId) {
+        return isbn + '\0' + imageId;
+    }
+
+    /**
+     * Служебный метод - проверяет книгу в б.д.
+     */
+    private boolean dbBookExists(String isbn) throws SQLException {
+        DerbyDBManager db = new DerbyDBManager();
+        try {
+            return db.bookExists(isbn);
+        } finally {
+            db.close();
+        }
+    }
+
+    /**
+     * Метод для обновления кэша и индексов каталога после изменения б.д. в обход Модели (импорт каталога).
+     *
+     * @see #loadIllustrationIndex()
+     * @see #rebuildFullTextIndex()
+     * @see #loadIsbnTrie()
+     */
+    protected void refreshCatalogIndexes() {
+        getCatalogCache().clear();
+        loadIllustrationIndex();
+        rebuildFullTextIndex();
+        loadIsbnTrie();
+    }
+
+    /**
+     * Метод для поиска книг по словам в названии, авторе книги и названиях её иллюстраций.
+     *
+     * @param query String - слова для поиска.
+     * @param limit int - максимальное количество книг в результате.
+     * @return ArrayList<Book> - найденные книги по убыванию релевантности.
+     * @see BookDirectory.FullTextIndex#search(String, int)
+     */
+    protected ArrayList<Book> searchBooks(String query, int limit) {
+        ArrayList<Book> books = new ArrayList<Book>();
+        for (String isbn : fullTextIndex.search(query, limit)) {
+            Book book = getBookByISbn(isbn);
+            if (book != null) {
+                books.add(book);
+            }
+        }
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, "Books found by words: ", books.size());
+        }
+        return books;
+    }
+
+    /**
+     * Метод для поиска книг, в которых используется иллюстрация.
+     * Isbn книг берутся из индекса иллюстраций в памяти (если он не загружен - из индекса б.д.),
+     * сами книги - из кэша каталога.
+     *
+     * @param imageId String - id иллюстрации.
+     * @return ArrayList<Book> - книги по возрастанию isbn (пустая коллекция, если иллюстрации нет в каталоге).
+     * @see BookDirectory.IllustrationIndex
+     * @see #getBookByISbn(String)
+     */
+    protected ArrayList<Book> getBooksByIllustration(String imageId) {
+        long startTime = System.nanoTime();
+        Collection<String> isbns = new ArrayList<String>();
+        if (illustrationIndex.isLoaded()) {
+            isbns = illustrationIndex.getIsbns(imageId);
+        } else {
+            try {
+                DerbyDBManager db = new DerbyDBManager();
+                try {
+                    ResultSet result = db.selectIsbnsByIllustrationQuery(imageId);
+                    while (result.next()) {
+                        isbns.add(result.getString(1));
+                    }
+                } finally {
+                    db.close();
+                }
+            } catch (SQLException e) {
+                View.getInstance().printErrorText(2);
+                LOGGER.log(Level.SEVERE, "SQLException: " + e.toString() + "", imageId);
+            }
+        }
+        ArrayList<Book> books = new ArrayList<Book>();
+        for (String isbn : isbns) {
+            Book book = getBookByISbn(isbn);
+            if (book != null) {
+                books.add(book);
+            }
         }
         if (LOGGER.isLoggable(Level.FINE)) {
-            LOGGER.log(Level.FINE, "Input is: ", input);
+            LOGGER.log(Level.FINE, "Time spent on the search books by illustration (in mcs, books): ", (System.nanoTime() - startTime) / 1000 + ", " + books.size());
         }
-        return input;
+        return books;
     }
 
     /**
-     * Метод для получения всех книг (и иллюстраций) в каталоге.
+     * Метод для потокового обхода каталога: книги (со всеми иллюстрациями) выдаются по одной, по возрастанию isbn,
+     * и весь каталог в памяти не собирается. Курсор держит соединение из пула - если обход прерывается
+     * до конца каталога, курсор нужно закрыть методом close().
      *
-     * @return ArrayList<Book> - коллекция объектов Book (книга).
-     * @see BookDirectory.Book
-     * @see BookDirectory.DerbyDBManager
+     * @return CatalogCursor - курсор каталога (пустой, если выборку открыть не удалось).
+     * @see BookDirectory.CatalogCursor
      */
-    protected LinkedList<Book> getBooks() {
+    protected CatalogCursor streamBooks() {
         if (LOGGER.isLoggable(Level.FINE)) {
-            LOGGER.fine("The call of Model.getBooks()");
+            LOGGER.fine("The call of Model.streamBooks()");
+        }
+        try {
+            return new CatalogCursor();
+        } catch (SQLException e) {
+            View.getInstance().printErrorText(2);
+            LOGGER.log(Level.SEVERE, "SQLException: " + e.toString() + "");
         }
+        return CatalogCursor.empty();
+    }
+
+    /**
+     * Метод для получения страницы каталога - книг, следующих за книгой с указанным isbn (по возрастанию isbn).
+     * Из б.д. читаются только книги страницы и их иллюстрации.
+     *
+     * @param afterIsbn String - isbn последней книги предыдущей страницы ("" - первая страница).
+     * @param size int - размер страницы.
+     * @return ArrayList<Book> - книги страницы (пустая коллекция, если дальше книг нет).
+     * @see BookDirectory.DerbyDBManager#selectBooksAfterQuery(String, int)
+     */
+    protected ArrayList<Book> getBooksPageAfter(String afterIsbn, int size) {
+        return getBooksPage(afterIsbn, size, 0);
+    }
+
+    /**
+     * Метод для получения страницы каталога, которая начинается с книги с указанным isbn (или следующей за ним).
+     *
+     * @param isbn String - isbn, к которому нужно перейти.
+     * @param size int - размер страницы.
+     * @return ArrayList<Book> - книги страницы по возрастанию isbn.
+     * @see #getBooksPageAfter(String, int)
+     */
+    protected ArrayList<Book> getBooksPageFrom(String isbn, int size) {
+        return getBooksPage(isbn, size, 1);
+    }
+
+    /**
+     * Метод для получения предыдущей страницы каталога - книг перед книгой с указанным isbn.
+     *
+     * @param beforeIsbn String - isbn первой книги текущей страницы.
+     * @param size int - размер страницы.
+     * @return ArrayList<Book> - книги страницы по возрастанию isbn (пустая коллекция, если это начало каталога).
+     * @see #getBooksPageAfter(String, int)
+     */
+    protected ArrayList<Book> getBooksPageBefore(String beforeIsbn, int size) {
+        return getBooksPage(beforeIsbn, size, 2);
+    }
+
+    /**
+     * Служебный метод для выборки страницы каталога: книги страницы, затем иллюстрации в диапазоне их isbn.
+     *
+     * @param isbn String - ключ страницы.
+     * @param size int - размер страницы.
+     * @param direction int - 0 - после isbn; 1 - начиная с isbn; 2 - перед isbn.
+     * @return ArrayList<Book> - книги страницы по возрастанию isbn.
+     */
+    private ArrayList<Book> getBooksPage(String isbn, int size, int direction) {
         long startTime = System.currentTimeMillis();
-        LinkedList<Book> books = new LinkedList<Book>();
-        String SQL = "SELECT * FROM books";
+        ArrayList<Book> page = new ArrayList<Book>();
         try {
             DerbyDBManager db = new DerbyDBManager();
-            ResultSet booksArray = db.executeQuery(SQL);
-            while (booksArray.next()) {
-                String isbn = booksArray.getString(1);
-                ArrayList<String[]> illustrationsValues = getIllustrationsValues(isbn);
-                try {
-                    if (illustrationsValues.size() > 0) {
-                        Book book = Book.getBook(isbn, booksArray.getString(2), booksArray.getString(3));
-                        for (String[] illustrationValues : illustrationsValues) {
-                            book.addIllustration(illustrationValues[0], illustrationValues[1], illustrationValues[2]);
-                            //if(LOGGER.isLoggable(Level.FINE)){LOGGER.log(Level.FINE, "Illustration is added to catalog (id, isbn): ("+illustrationValues[0]+","+isbn+")");}
+            try {
+                ResultSet books;
+                if (direction == 0) {
+                    books = db.selectBooksAfterQuery(isbn, size);
+                } else if (direction == 1) {
+                    books = db.selectBooksFromQuery(isbn, size);
+                } else {
+                    books = db.selectBooksBeforeQuery(isbn, size);
+                }
+                while (books.next()) {
+                    page.add(Book.getBook(books.getString(1), books.getString(2), books.getString(3)));
+                }
+                if (direction == 2) {
+                    Collections.reverse(page);
+                }
+                if (!page.isEmpty()) {
+                    HashMap<String, Book> pageBooks = new HashMap<String, Book>();
+                    for (Book book : page) {
+                        pageBooks.put(book.getIsbn(), book);
+                    }
+                    ResultSet illustrations = db.selectIllustrationsBetweenQuery(page.get(0).getIsbn(), page.get(page.size() - 1).getIsbn());
+                    while (illustrations.next()) {
+                        Book book = pageBooks.get(illustrations.getString(1));
+                        if (book != null) {
+                            book.addIllustration(illustrations.getString(2), illustrations.getString(3), illustrations.getString(4));
                         }
-                        books.add(book);
-                    } else {
-                        books.add(Book.getBook(isbn, booksArray.getString(2), booksArray.getString(3)));
-                        //if(LOGGER.isLoggable(Level.INFO)){LOGGER.log(Level.INFO, "Book is added to catalog(isbn): "+isbn+"");}
                     }
-                } catch (Exception e) {
-                    View.getInstance().printErrorText(0);
-                    LOGGER.log(Level.SEVERE, "Application Exception:" + e.toString() + "");
                 }
+            } finally {
+                db.close();
             }
-            long endTime = System.currentTimeMillis();
-            if (LOGGER.isLoggable(Level.FINE)) {
-                LOGGER.log(Level.FINE, "Time spent on the output the catalog (in ms):", endTime - startTime);
-            }
-            return books;
         } catch (SQLException e) {
             View.getInstance().printErrorText(2);
-            LOGGER.log(Level.SEVERE, "SQLException: " + e.toString() + "", SQL);
+            LOGGER.log(Level.SEVERE, "SQLException: " + e.toString() + "", isbn);
         }
-        if (LOGGER.isLoggable(Level.INFO)) {
-            LOGGER.log(Level.INFO, "Books in catalog: " + books.size() + "");
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, "Time spent on the page of the catalog (in ms, books): ", (System.currentTimeMillis() - startTime) + ", " + page.size());
         }
-        return books;
+        return page;
     }
 
     /**
-     * Находит иллюстрации для определённой книги
+     * Находит иллюстрации для определённой книги.
+     * Для загрузки всего каталога не используется - см. getBooks() и streamBooks().
      *
      * @param isbn String - isbn книги, иллюстрации которой нужно найти
      * @return ArrayList<String> - коллекцию массивов String[3]. Каждый массив это 3 параметра иллюстрации (id, название, автор).
@@ -262,7 +943,11 @@ public final class Model {
         ArrayList<String[]> arrayList = new ArrayList<String[]>();
         try {
             DerbyDBManager db = new DerbyDBManager();
-            arrayList = db.searchIllustrationsQuery(isbn);
+            try {
+                arrayList = db.searchIllustrationsQuery(isbn);
+            } finally {
+                db.close();
+            }
         } catch (SQLException e) {
             View.getInstance().printErrorText(2);
             LOGGER.log(Level.SEVERE, "SQLException: " + e.toString() + "");
@@ -271,19 +956,41 @@ public final class Model {
     }
 
     /**
-     * Находит объект Book (книга)
+     * Находит объект Book (книга).
+     * Книга ищется сначала в кэше каталога, при промахе - в б.д. (и добавляется в кэш).
+     * Если isbn нет в дереве isbn каталога - книги нет, и б.д. не запрашивается.
      *
      * @param isbn String - ISBN книги, которую нужно найти.
      * @return Book - объект Book (если книга есть в каталоге), иначе - null.
      * @see BookDirectory.Book
+     * @see BookDirectory.CatalogCache
+     * @see BookDirectory.DerbyDBManager#selectBookQuery(String)
      */
     @Nullable
     protected Book getBookByISbn(String isbn) {
-        Book book = null;
-        for (Book bookInCatalog : getBooks()) {
-            if (bookInCatalog.getIsbn().equals(isbn)) {
-                book = bookInCatalog;
+        Book book = getCatalogCache().get(isbn);
+        if (book != null) {
+            return book;
+        }
+        if (isbnTrieLoaded && !isbnTrie.contains(isbn)) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, "Book is not in the isbn trie: ", isbn);
+            }
+            return null;
+        }
+        try {
+            DerbyDBManager db = new DerbyDBManager();
+            try {
+                book = new CatalogHydrator(db.selectBookQuery(isbn)).nextBook();
+            } finally {
+                db.close();
+            }
+            if (book != null) {
+                getCatalogCache().put(book);
             }
+        } catch (SQLException e) {
+            View.getInstance().printErrorText(2);
+            LOGGER.log(Level.SEVERE, "SQLException: " + e.toString() + "", isbn);
         }
         if (book == null) {
             if (LOGGER.isLoggable(Level.INFO)) {
@@ -302,10 +1009,18 @@ public final class Model {
      * @see BookDirectory.DerbyDBManager
      */
     protected void addBook(String isbn, String title, String author) {
-        String SQL = "INSERT INTO books (isbn, title, author) VALUES('" + isbn + "' , '" + title + "' , '" + author + "')";
         try {
             DerbyDBManager db = new DerbyDBManager();
-            db.executeUpdate(SQL);
+            try {
+                db.insertBook(isbn, title, author);
+            } finally {
+                db.close();
+            }
+            Book book = Book.getBook(isbn, title, author);
+            getCatalogCache().put(book);
+            fullTextIndex.indexBook(book);
+            isbnTrie.add(isbn);
+            addCatalogKey(isbn, null);
             View.getInstance().printMessage(0);
             if (LOGGER.isLoggable(Level.INFO)) {
                 LOGGER.info("Book added in db!");
@@ -317,7 +1032,7 @@ public final class Model {
             View.getInstance().printErrorText(4);
             LOGGER.log(Level.SEVERE, "Exception: duplicate isbn in database", isbn);
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Exception_SQL:" + e.toString() + "", SQL);
+            LOGGER.log(Level.SEVERE, "Exception_SQL:" + e.toString() + "", isbn);
             View.getInstance().printErrorText(2);
         }
     }
@@ -333,66 +1048,118 @@ public final class Model {
      * @see BookDirectory.DerbyDBManager
      */
     protected void addIllustration(String isbn, String imageId, String name, String author) {
-        String SQL = "INSERT INTO illustrations (isbn, imageId, name, author) VALUES('" + isbn + "' , '" + imageId + "' ,  '" + name + "' , '" + author + "')";
         try {
             Book book = getBookByISbn(isbn);
             if (book != null) {
-                if (book.getIllustrations().size() > 0) {
-                    for (Book.Illustration illustration : book.getIllustrations()) {
-                        if (!illustration.getId().equals(imageId)) {
-                            DerbyDBManager db = new DerbyDBManager();
-                            db.executeUpdate(SQL);
-                            View.getInstance().printMessage(2);
-                            break;
-                        } else {
-                            View.getInstance().printErrorText(6);
-                        }
+                boolean duplicate = false;
+                for (Book.Illustration illustration : book.getIllustrations()) {
+                    if (illustration.getId().equals(imageId)) {
+                        duplicate = true;
+                        break;
                     }
+                }
+                if (duplicate) {
+                    View.getInstance().printErrorText(6);
                 } else {
                     DerbyDBManager db = new DerbyDBManager();
-                    db.executeUpdate(SQL);
+                    try {
+                        db.insertIllustration(isbn, imageId, name, author);
+                    } finally {
+                        db.close();
+                    }
+                    getCatalogCache().addIllustration(isbn, imageId, name, author);
+                    illustrationIndex.add(imageId, isbn);
+                    fullTextIndex.indexBook(book);
+                    addCatalogKey(isbn, imageId);
                     View.getInstance().printMessage(2);
-                }
-                if (LOGGER.isLoggable(Level.FINE)) {
-                    LOGGER.log(Level.FINE, "Illustration is added!");
+                    if (LOGGER.isLoggable(Level.FINE)) {
+                        LOGGER.log(Level.FINE, "Illustration is added!");
+                    }
                 }
             }
         } catch (SQLException e) {
             View.getInstance().printErrorText(2);
-            LOGGER.log(Level.SEVERE, "SQLException: " + e.toString() + "", SQL);
+            LOGGER.log(Level.SEVERE, "SQLException: " + e.toString() + "", isbn);
         }
     }
 
     /**
      * Метод для удаления книги из б.д.
-     * Если у книги есть иллюстрации - удаляет и их.
+     * Книга и её иллюстрации удаляются одной транзакцией (запросы по ключу isbn).
      *
      * @param isbn Isbn книги, которая подлежит удалению.
      * @return Boolean, показывающий была ли удалена книга из б.д.
-     * @see BookDirectory.DerbyDBManager
+     * @see #deleteBooks(java.util.Collection)
      */
     protected boolean deleteBook(String isbn) {
         boolean success = false;
+        int[] counts = deleteBooks(Collections.singletonList(isbn));
+        if (counts[0] > 0) {
+            if (counts[1] > 0) {
+                View.getInstance().printMessage(3);
+            } else {
+                View.getInstance().printMessage(4);
+            }
+            success = true;
+        }
+        return success;
+    }
+
+    /**
+     * Метод для удаления нескольких книг (и их иллюстраций) из б.д. одной транзакцией.
+     *
+     * @param isbns Collection<String> - isbn книг, которые подлежат удалению.
+     * @return int[2]: [0] - количество удалённых книг, [1] - количество удалённых иллюстраций.
+     * @see BookDirectory.DerbyDBManager#deleteBooks(java.util.Collection)
+     */
+    protected int[] deleteBooks(Collection<String> isbns) {
+        int[] counts = new int[2];
         try {
-            Book book = getBookByISbn(isbn);
-            if (book != null) {
-                if (book.getIllustrations().size() > 0) {
-                    for (Book.Illustration illustration : book.getIllustrations()) {
-                        deleteIllustrationById(illustration.getId());
-                    }
-                    View.getInstance().printMessage(3);
-                } else {
-                    View.getInstance().printMessage(4);
-                }
-                DerbyDBManager db = new DerbyDBManager();
-                db.deleteQuery(isbn);
-                success = true;
+            DerbyDBManager db = new DerbyDBManager();
+            try {
+                counts = db.deleteBooks(isbns);
+            } finally {
+                db.close();
             }
+            for (String isbn : isbns) {
+                getCatalogCache().remove(isbn);
+                illustrationIndex.removeBook(isbn);
+                fullTextIndex.removeBook(isbn);
+                isbnTrie.remove(isbn);
+            }
+            recordCatalogKeyDeletions(counts[0] + counts[1]);
         } catch (SQLException eSQL) {
             View.getInstance().printErrorText(2);
             LOGGER.log(Level.SEVERE, "SQLException: " + eSQL.toString() + "");
         }
-        return success;
+        return counts;
+    }
+
+    /**
+     * Метод для удаления нескольких иллюстраций (из всех книг) из б.д. одной транзакцией.
+     *
+     * @param ids Collection<String> - id иллюстраций, которые подлежат удалению.
+     * @return int - количество удалённых записей.
+     * @see BookDirectory.DerbyDBManager#deleteIllustrations(java.util.Collection)
+     */
+    protected int deleteIllustrationsByIds(Collection<String> ids) {
+        int count = 0;
+        try {
+            DerbyDBManager db = new DerbyDBManager();
+            try {
+                count = db.deleteIllustrations(ids);
+            } finally {
+                db.close();
+            }
+            for (String id : ids) {
+                illustrationDeleted(id);
+            }
+            recordCatalogKeyDeletions(count);
+        } catch (SQLException eSQL) {
+            View.getInstance().printErrorText(2);
+            LOGGER.log(Level.SEVERE, "SQLException: " + eSQL.toString() + "");
+        }
+        return count;
     }
 
     /**
@@ -403,25 +1170,74 @@ public final class Model {
      * @see BookDirectory.DerbyDBManager
      */
     public void deleteIllustrationById(String id) {
+        int count = 0;
         try {
             DerbyDBManager db = new DerbyDBManager();
-            db.deleteIllustration(id);
+            try {
+                count = db.deleteIllustration(id);
+            } finally {
+                db.close();
+            }
+            illustrationDeleted(id);
+            recordCatalogKeyDeletions(count);
         } catch (SQLException eSQL) {
             View.getInstance().printErrorText(2);
             LOGGER.log(Level.SEVERE, "SQLException: " + eSQL.toString() + "");
         }
     }
 
+    /**
+     * Служебный метод - учитывает удалённые из б.д. ключи в фильтре Блума (после многих удалений он строится заново).
+     *
+     * @param count int - количество удалённых строк (книг и иллюстраций).
+     */
+    private void recordCatalogKeyDeletions(int count) {
+        BloomFilter filter = bloomFilter;
+        if (filter != null) {
+            for (int i = 0; i < count; i++) {
+                filter.recordDeletion();
+            }
+        }
+    }
+
+    /**
+     * Служебный метод - обновляет кэш и индексы после удаления иллюстрации из б.д.
+     * Книги с этой иллюстрацией переиндексируются в полнотекстовом индексе (название иллюстрации больше не ищется).
+     *
+     * @param id String - id удалённой иллюстрации.
+     */
+    private void illustrationDeleted(String id) {
+        Set<String> isbns = illustrationIndex.getIsbns(id);
+        getCatalogCache().removeIllustration(id);
+        illustrationIndex.removeIllustration(id);
+        for (String isbn : isbns) {
+            Book book = getBookByISbn(isbn);
+            if (book != null) {
+                fullTextIndex.indexBook(book);
+            }
+        }
+    }
+
     /**
      * Метод проверяет, есть ли книги в каталоге.
      *
      * @return Boolean - true, если книги есть, иначе - false.
-     * @see #getBooks()
+     * @see BookDirectory.DerbyDBManager#hasBooks()
      */
     public boolean checkAvailabilityBooks() {
-        boolean result;
-        LinkedList<Book> linkedList = getBooks();
-        if (linkedList.isEmpty()) {
+        boolean result = false;
+        try {
+            DerbyDBManager db = new DerbyDBManager();
+            try {
+                result = db.hasBooks();
+            } finally {
+                db.close();
+            }
+        } catch (SQLException e) {
+            View.getInstance().printErrorText(2);
+            LOGGER.log(Level.SEVERE, "SQLException: " + e.toString() + "");
+        }
+        if (!result) {
             View.getInstance().printMessage(5);
             result = false;
         } else {
@@ -439,23 +1255,22 @@ public final class Model {
      * @param book Book - объект Book
      * @return Boolean - результат экспорта. Если успешно - true, иначе - false;
      * @see BookDirectory.Book
-     * @see BookDirectory.FileInOut#writeFile(String, String, String)
+     * @see BookDirectory.CatalogExportWriter
      */
     public boolean writeBookExport(Book book) {
         boolean result = false;
-        String textExport = "[Книга]" + NR + book.getIsbn() + NR;
-        textExport += book.getName() + NR;
-        textExport += book.getAuthor() + NR + NR;
-        if (book.getIllustrations().size() > 0) {
-            for (Book.Illustration illustration : book.getIllustrations()) {
-                textExport += "[Иллюстрация]" + NR + illustration.getId() + NR;
-                textExport += illustration.getIsbn() + NR;
-                textExport += illustration.getName() + NR;
-                textExport += illustration.getAuthor() + NR + NR;
-            }
-        }
-        if (FileInOut.getInstance().writeFile("export_" + book.getIsbn() + ".txt", "export", textExport)) {
+        String fileName = exportFileName("export_" + book.getIsbn() + ".txt");
+        try {
+            CatalogExportWriter writer = new CatalogExportWriter(FileInOut.getInstance().openFileOutputStream(fileName, "export"));
+            try {
+                writer.writeBook(book);
+            } finally {
+                writer.close();
+            }
             result = true;
+        } catch (IOException e) {
+            View.getInstance().printErrorText(22);
+            LOGGER.log(Level.SEVERE, "IOException: " + e.toString() + "", fileName);
         }
         if (LOGGER.isLoggable(Level.FINE)) {
             LOGGER.log(Level.FINE, "Export of the book was complete successfully?", result);
@@ -465,30 +1280,48 @@ public final class Model {
 
     /**
      * Метод для экспорта всего каталога (всех книг и всех иллюстраций) в текстовый файл.
+     * Книги читаются курсором и записываются в файл по одной, весь каталог в памяти не собирается.
+     * После записи выводятся количество записей, размер файла и скорость экспорта.
+     * Выгрузка всего каталога переносит отметку экспорта: следующий экспорт изменений начнётся после неё.
+     * Файл сжимается, если это задано в настройках (exportCompression).
      *
      * @param fileName String - имя текстового файла, куда будет сохранён каталог.
-     * @see BookDirectory.FileInOut#writeFile(String, String, String)
+     * @see #streamBooks()
+     * @see BookDirectory.CatalogExportWriter
+     * @see BookDirectory.CatalogDeltaExporter
      */
     public void writeCatalogExport(String fileName) {
-        String textExport = "";
-        for (Book book : getBooks()) {
-            textExport += "[Книга]" + NR + book.getIsbn() + NR;
-            textExport += book.getName() + NR;
-            textExport += book.getAuthor() + NR + NR;
-            if (book.getIllustrations().size() > 0) {
-                for (Book.Illustration illustration : book.getIllustrations()) {
-                    textExport += "[Иллюстрация]" + NR + illustration.getId() + NR;
-                    textExport += illustration.getIsbn() + NR;
-                    textExport += illustration.getName() + NR;
-                    textExport += illustration.getAuthor() + NR + NR;
+        fileName = exportFileName(fileName);
+        CatalogCursor cursor = null;
+        try {
+            //номер последнего изменения читается до открытия курсора: изменение между ними попадёт в следующий экспорт изменений
+            long lastChange = CatalogDeltaExporter.lastChange();
+            cursor = streamBooks();
+            CatalogExportWriter writer = new CatalogExportWriter(FileInOut.getInstance().openFileOutputStream(fileName, "export"));
+            try {
+                for (Book book : cursor) {
+                    writer.writeBook(book);
                 }
+            } finally {
+                writer.close();
             }
-        }
-        if (FileInOut.getInstance().writeFile(fileName, "export", textExport)) {
+            CatalogDeltaExporter.markExported(lastChange);
             View.getInstance().printMessage(6);
+            View.getInstance().printExportStatistics(writer.getBookCount(), writer.getIllustrationCount(), writer.getByteCount(),
+                    writer.getElapsedNanos(), writer.getBytesPerSecond(), writer.getRecordsPerSecond());
             if (LOGGER.isLoggable(Level.FINE)) {
                 LOGGER.log(Level.FINE, "Export of the catalog was successful!");
             }
+        } catch (IOException e) {
+            View.getInstance().printErrorText(22);
+            LOGGER.log(Level.SEVERE, "IOException: " + e.toString() + "", fileName);
+        } catch (SQLException e) {
+            View.getInstance().printErrorText(2);
+            LOGGER.log(Level.SEVERE, "SQLException: " + e.toString() + "");
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
         }
     }
 
@@ -573,6 +1406,22 @@ public final class Model {
             ILLUSTRATION_NAME_SIZE = Integer.parseInt(properties.getProperty("illustrationNameSize"));
             ILLUSTRATION_AUTHOR_SIZE = Integer.parseInt(properties.getProperty("illustrationAuthorSize"));
             LOG_LEVEL = Level.parse(properties.getProperty("logLevel", "ALL"));
+            DB_POOL_SIZE = Integer.parseInt(properties.getProperty("dbPoolSize", "4"));
+            DB_POOL_TIMEOUT = Integer.parseInt(properties.getProperty("dbPoolTimeout", "10000"));
+            IMPORT_BATCH_SIZE = Integer.parseInt(properties.getProperty("importBatchSize", "1000"));
+            IMPORT_VALIDATOR_THREADS = Integer.parseInt(properties.getProperty("importValidatorThreads", "0"));
+            IMPORT_QUEUE_CAPACITY = Integer.parseInt(properties.getProperty("importQueueCapacity", "1000"));
+            IMPORT_CHUNK_SIZE = Integer.parseInt(properties.getProperty("importChunkSize", "4194304"));
+            IMPORT_PARSER_THREADS = Integer.parseInt(properties.getProperty("importParserThreads", "0"));
+            EXPORT_SHARDS = Integer.parseInt(properties.getProperty("exportShards", "4"));
+            EXPORT_WRITER_THREADS = Integer.parseInt(properties.getProperty("exportWriterThreads", "4"));
+            EXPORT_COMPRESSION = properties.getProperty("exportCompression", "none").trim();
+            COMPRESSION_LEVEL = Integer.parseInt(properties.getProperty("compressionLevel", "6"));
+            IMPORT_WATCH_THREADS = Integer.parseInt(properties.getProperty("importWatchThreads", "2"));
+            IMPORT_WATCH_INTERVAL = Integer.parseInt(properties.getProperty("importWatchInterval", "5"));
+            CATALOG_PAGE_SIZE = Integer.parseInt(properties.getProperty("catalogPageSize", "20"));
+            CATALOG_CACHE_SIZE = Integer.parseInt(properties.getProperty("catalogCacheSize", "10000"));
+            BLOOM_FALSE_POSITIVE_RATE = Double.parseDouble(properties.getProperty("bloomFalsePositiveRate", "0.01"));
             if (LOGGER.isLoggable(Level.FINE)) {
                 LOGGER.log(Level.FINE, "Properties have been loaded successfully");
             }
@@ -678,6 +1527,174 @@ public final class Model {
         return DB_NAME;
     }
 
+    /**
+     * "Геттер" для получения размера пула соединений с б.д.
+     *
+     * @return Integer
+     */
+    public Integer getDbPoolSize() {
+        return DB_POOL_SIZE;
+    }
+
+    /**
+     * "Геттер" для получения максимального времени ожидания соединения из пула (в мс).
+     *
+     * @return Integer
+     */
+    public Integer getDbPoolTimeout() {
+        return DB_POOL_TIMEOUT;
+    }
+
+    /**
+     * "Геттер" для получения количества записей в одном пакете при импорте каталога.
+     *
+     * @return Integer
+     */
+    public Integer getImportBatchSize() {
+        return IMPORT_BATCH_SIZE;
+    }
+
+    /**
+     * "Геттер" для получения количества потоков проверки записей при импорте каталога.
+     *
+     * @return Integer - заданное количество или количество процессоров, если в настройках 0.
+     */
+    public Integer getImportValidatorThreads() {
+        return IMPORT_VALIDATOR_THREADS > 0 ? IMPORT_VALIDATOR_THREADS : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * "Геттер" для получения размера очередей между этапами конвейера импорта.
+     *
+     * @return Integer
+     */
+    public Integer getImportQueueCapacity() {
+        return IMPORT_QUEUE_CAPACITY;
+    }
+
+    /**
+     * "Геттер" для получения размера части файла импорта (в байтах).
+     *
+     * @return Integer
+     */
+    public Integer getImportChunkSize() {
+        return IMPORT_CHUNK_SIZE;
+    }
+
+    /**
+     * "Геттер" для получения количества потоков разбора частей файла импорта.
+     *
+     * @return Integer - заданное количество или количество процессоров, если в настройках 0.
+     */
+    public Integer getImportParserThreads() {
+        return IMPORT_PARSER_THREADS > 0 ? IMPORT_PARSER_THREADS : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * "Геттер" для получения количества частей при экспорте каталога по частям.
+     *
+     * @return Integer - заданное количество или количество процессоров, если в настройках 0.
+     */
+    public Integer getExportShards() {
+        return EXPORT_SHARDS > 0 ? EXPORT_SHARDS : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * "Геттер" для получения количества потоков записи файлов при экспорте списка книг.
+     *
+     * @return Integer - заданное количество или количество процессоров, если в настройках 0.
+     */
+    public Integer getExportWriterThreads() {
+        return EXPORT_WRITER_THREADS > 0 ? EXPORT_WRITER_THREADS : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * "Геттер" для получения степени сжатия файлов .gz и .zip.
+     *
+     * @return Integer - от 0 до 9; значение вне диапазона - степень по умолчанию (-1).
+     */
+    public Integer getCompressionLevel() {
+        return COMPRESSION_LEVEL >= 0 && COMPRESSION_LEVEL <= 9 ? COMPRESSION_LEVEL : -1;
+    }
+
+    /**
+     * Метод для получения имени файла экспорта с учётом сжатия из настроек (exportCompression).
+     *
+     * @param fileName String - имя текстового файла (например, catalog_export.txt).
+     * @return String - имя файла для записи (catalog_export.txt, catalog_export.txt.gz или catalog_export.zip).
+     * @see BookDirectory.CompressedStreams#compressedName(String, String)
+     */
+    public String exportFileName(String fileName) {
+        return CompressedStreams.compressedName(fileName, EXPORT_COMPRESSION);
+    }
+
+    /**
+     * "Геттер" для получения количества потоков, работающих с б.д. параллельно (экспорт и импорт по частям, наблюдение за папкой импорта):
+     * каждый поток держит соединение пула, одно соединение остаётся свободным.
+     *
+     * @return Integer
+     */
+    public Integer getParallelDbThreads() {
+        return Math.max(1, DB_POOL_SIZE - 1);
+    }
+
+    /**
+     * "Геттер" для получения количества файлов, одновременно импортируемых из папки наблюдения.
+     *
+     * @return Integer - заданное количество или количество процессоров, если в настройках 0.
+     */
+    public Integer getImportWatchThreads() {
+        return IMPORT_WATCH_THREADS > 0 ? IMPORT_WATCH_THREADS : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * "Геттер" для получения интервала проверки папки наблюдения (в секундах).
+     *
+     * @return Integer
+     */
+    public Integer getImportWatchInterval() {
+        return IMPORT_WATCH_INTERVAL;
+    }
+
+    /**
+     * "Геттер" для получения количества книг на одной странице списка книг.
+     *
+     * @return Integer
+     */
+    public Integer getCatalogPageSize() {
+        return CATALOG_PAGE_SIZE;
+    }
+
+    /**
+     * "Геттер" для получения максимального количества книг в кэше каталога.
+     *
+     * @return Integer
+     */
+    public Integer getCatalogCacheSize() {
+        return CATALOG_CACHE_SIZE;
+    }
+
+    /**
+     * "Геттер" для получения допустимой вероятности ложного срабатывания фильтра Блума.
+     *
+     * @return Double
+     */
+    public Double getBloomFalsePositiveRate() {
+        return BLOOM_FALSE_POSITIVE_RATE;
+    }
+
+    /**
+     * "Геттер" для получения кэша каталога.
+     *
+     * @return CatalogCache
+     */
+    public synchronized CatalogCache getCatalogCache() {
+        if (catalogCache == null) {
+            catalogCache = new CatalogCache(CATALOG_CACHE_SIZE);
+        }
+        return catalogCache;
+    }
+
     /**
      * "Геттер" для получения уровня логирования в приложении.
      *
@@ -0,0 +1,233 @@
+package BookDirectory;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Класс для версионирования схемы б.д.
+ * Текущая версия схемы хранится в таблице schema_version; при запуске выполняются по порядку
+ * все миграции с номером больше текущей версии. Каждая миграция выполняется в отдельной транзакции,
+ * поэтому существующая б.д. обновляется "на месте" и не остаётся в промежуточном состоянии.
+ * @author dyakonov
+ * @see BookDirectory.DerbyDBManager#bootstrap()
+ */
+public final class SchemaMigrator {
+
+    /**
+     * "Логгер" класса.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Model.class.getName());
+
+    /**
+     * Таблица версий схемы.
+     */
+    private static final String SQL_CREATE_VERSION_TABLE = "CREATE TABLE schema_version(version INT NOT NULL PRIMARY KEY, " +
+            "description VARCHAR(128), applied TIMESTAMP)";
+    private static final String SQL_SELECT_VERSION = "SELECT MAX(version) FROM schema_version";
+    private static final String SQL_INSERT_VERSION = "INSERT INTO schema_version (version, description, applied) VALUES (?, ?, CURRENT_TIMESTAMP)";
+
+    /**
+     * Соединение, через которое выполняются миграции.
+     */
+    private final Connection con;
+
+    /**
+     * Миграции схемы в порядке возрастания версий.
+     */
+    private final ArrayList<Migration> migrations = new ArrayList<Migration>();
+
+    /**
+     * Конструктор.
+     * @param con Connection - соединение с б.д.
+     * @param isbnSize Integer - максимальная длина isbn книги.
+     * @param titleSize Integer - максимальная длина названия книги.
+     * @param authorSize Integer - максимальная длина поля автор книги.
+     * @param imageIdSize Integer - максимальная длина id иллюстрации.
+     * @param imageNameSize Integer - максимальная длина названия иллюстрации.
+     * @param imageAuthorSize Integer - максимальная длина поля автор иллюстрации.
+     */
+    public SchemaMigrator(Connection con, Integer isbnSize, Integer titleSize, Integer authorSize,
+                          Integer imageIdSize, Integer imageNameSize, Integer imageAuthorSize){
+        this.con = con;
+        String books = "isbn VARCHAR(" + isbnSize + ") NOT NULL, title VARCHAR(" + titleSize + "), author VARCHAR(" + authorSize + ")";
+        String illustrations = "isbn VARCHAR(" + isbnSize + ") NOT NULL, imageId VARCHAR(" + imageIdSize + ") NOT NULL, " +
+                "name VARCHAR(" + imageNameSize + "), author VARCHAR(" + imageAuthorSize + ")";
+
+        /** 1 - исходная схема (таблицы без ключей) **/
+        migrations.add(new Migration(1, "Initial tables",
+                "CREATE TABLE books(isbn VARCHAR(" + isbnSize + ") UNIQUE, title VARCHAR(" + titleSize + "), author VARCHAR(" + authorSize + "))",
+                "CREATE TABLE illustrations(isbn VARCHAR(" + isbnSize + "), imageId VARCHAR(" + imageIdSize + "), " +
+                        "name VARCHAR(" + imageNameSize + "), author VARCHAR(" + imageAuthorSize + "))"));
+
+        /** 2 - первичные ключи: таблицы пересоздаются, пустые ключи, дубли и иллюстрации без книги отбрасываются **/
+        migrations.add(new Migration(2, "Primary keys on books(isbn) and illustrations(isbn, imageId)",
+                "CREATE TABLE books_v2(" + books + ", CONSTRAINT pk_books PRIMARY KEY (isbn))",
+                "INSERT INTO books_v2 (isbn, title, author) SELECT isbn, MAX(title), MAX(author) FROM books " +
+                        "WHERE isbn IS NOT NULL GROUP BY isbn",
+                "DROP TABLE books",
+                "RENAME TABLE books_v2 TO books",
+                "CREATE TABLE illustrations_v2(" + illustrations + ", CONSTRAINT pk_illustrations PRIMARY KEY (isbn, imageId))",
+                "INSERT INTO illustrations_v2 (isbn, imageId, name, author) SELECT isbn, imageId, MAX(name), MAX(author) " +
+                        "FROM illustrations WHERE imageId IS NOT NULL AND isbn IN (SELECT isbn FROM books) GROUP BY isbn, imageId",
+                "DROP TABLE illustrations",
+                "RENAME TABLE illustrations_v2 TO illustrations"));
+
+        /** 3 - индекс по id иллюстрации и внешний ключ на книгу с каскадным удалением **/
+        migrations.add(new Migration(3, "Index on illustrations(imageId), foreign key illustrations -> books",
+                "CREATE INDEX idx_illustrations_imageId ON illustrations (imageId)",
+                "ALTER TABLE illustrations ADD CONSTRAINT fk_illustrations_books FOREIGN KEY (isbn) " +
+                        "REFERENCES books (isbn) ON DELETE CASCADE"));
+
+        /** 4 - журнал изменений (ведут триггеры на любой записи в таблицы, удаление - запись "D") и отметки экспорта.
+         *  Книги, которые уже есть в б.д., записываются в журнал сразу - первая выгрузка изменений содержит весь каталог. **/
+        String changeLog = "INSERT INTO change_log (entity, op, isbn, imageId, changed) VALUES ";
+        migrations.add(new Migration(4, "Change log of books and illustrations, export watermarks",
+                "CREATE TABLE change_log(seq BIGINT NOT NULL GENERATED ALWAYS AS IDENTITY, entity CHAR(1) NOT NULL, " +
+                        "op CHAR(1) NOT NULL, isbn VARCHAR(" + isbnSize + ") NOT NULL, imageId VARCHAR(" + imageIdSize + "), " +
+                        "changed TIMESTAMP, CONSTRAINT pk_change_log PRIMARY KEY (seq))",
+                "CREATE TABLE export_watermark(name VARCHAR(32) NOT NULL, seq BIGINT NOT NULL, exported TIMESTAMP, " +
+                        "CONSTRAINT pk_export_watermark PRIMARY KEY (name))",
+                "INSERT INTO change_log (entity, op, isbn, changed) SELECT 'B', 'U', isbn, CURRENT_TIMESTAMP FROM books",
+                "CREATE TRIGGER trg_books_insert AFTER INSERT ON books REFERENCING NEW AS n FOR EACH ROW " +
+                        changeLog + "('B', 'U', n.isbn, NULL, CURRENT_TIMESTAMP)",
+                "CREATE TRIGGER trg_books_update AFTER UPDATE ON books REFERENCING NEW AS n FOR EACH ROW " +
+                        changeLog + "('B', 'U', n.isbn, NULL, CURRENT_TIMESTAMP)",
+                "CREATE TRIGGER trg_books_delete AFTER DELETE ON books REFERENCING OLD AS o FOR EACH ROW " +
+                        changeLog + "('B', 'D', o.isbn, NULL, CURRENT_TIMESTAMP)",
+                "CREATE TRIGGER trg_illustrations_insert AFTER INSERT ON illustrations REFERENCING NEW AS n FOR EACH ROW " +
+                        changeLog + "('I', 'U', n.isbn, n.imageId, CURRENT_TIMESTAMP)",
+                "CREATE TRIGGER trg_illustrations_update AFTER UPDATE ON illustrations REFERENCING NEW AS n FOR EACH ROW " +
+                        changeLog + "('I', 'U', n.isbn, n.imageId, CURRENT_TIMESTAMP)",
+                "CREATE TRIGGER trg_illustrations_delete AFTER DELETE ON illustrations REFERENCING OLD AS o FOR EACH ROW " +
+                        changeLog + "('I', 'D', o.isbn, o.imageId, CURRENT_TIMESTAMP)"));
+    }
+
+    /**
+     * Метод для обновления схемы до последней версии.
+     * Если таблицы версий нет, а таблица books есть - б.д. создана до появления миграций и считается версией 1.
+     * @return int - версия схемы после обновления.
+     * @throws SQLException Ошибки SQL (транзакция неудачной миграции откатывается).
+     */
+    public int migrate() throws SQLException{
+        boolean autoCommit = con.getAutoCommit();
+        con.setAutoCommit(false);
+        try {
+            int version = currentVersion();
+            for(Migration migration : migrations){
+                if(migration.version > version){
+                    apply(migration);
+                    version = migration.version;
+                }
+            }
+            return version;
+        }
+        finally {
+            con.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Служебный метод для получения текущей версии схемы (при необходимости создаёт таблицу версий).
+     * @return int - текущая версия схемы (0 - пустая б.д.).
+     * @throws SQLException Ошибки SQL
+     */
+    private int currentVersion() throws SQLException{
+        if(!tableExists("SCHEMA_VERSION")){
+            Statement stmt = con.createStatement();
+            try {
+                stmt.executeUpdate(SQL_CREATE_VERSION_TABLE);
+            }
+            finally {stmt.close();}
+            if(tableExists("BOOKS")){
+                recordVersion(migrations.get(0));
+                if(LOGGER.isLoggable(Level.INFO)){
+                    LOGGER.info("Existing database is marked as schema version 1");}
+            }
+            con.commit();
+        }
+        int version = 0;
+        Statement stmt = con.createStatement();
+        try {
+            ResultSet result = stmt.executeQuery(SQL_SELECT_VERSION);
+            if(result.next()){
+                version = result.getInt(1);
+            }
+            result.close();
+        }
+        finally {stmt.close();}
+        if(LOGGER.isLoggable(Level.FINE)){
+            LOGGER.log(Level.FINE, "Schema version: ", version);}
+        return version;
+    }
+
+    /**
+     * Служебный метод для выполнения одной миграции в отдельной транзакции.
+     * @param migration Migration - миграция.
+     * @throws SQLException Ошибки SQL
+     */
+    private void apply(Migration migration) throws SQLException{
+        long startTime = System.currentTimeMillis();
+        Statement stmt = con.createStatement();
+        try {
+            for(String sql : migration.statements){
+                stmt.executeUpdate(sql);
+            }
+            recordVersion(migration);
+            con.commit();
+        }
+        catch (SQLException e){
+            con.rollback();
+            LOGGER.log(Level.SEVERE, "Migration " + migration.version + " failed: " + e.toString() + "", migration.description);
+            throw e;
+        }
+        finally {stmt.close();}
+        if(LOGGER.isLoggable(Level.INFO)){
+            LOGGER.log(Level.INFO, "Schema migrated to version " + migration.version + " (in ms): ", System.currentTimeMillis() - startTime);}
+    }
+
+    /**
+     * Служебный метод для записи версии в таблицу версий.
+     * @param migration Migration - выполненная миграция.
+     * @throws SQLException Ошибки SQL
+     */
+    private void recordVersion(Migration migration) throws SQLException{
+        PreparedStatement stmt = con.prepareStatement(SQL_INSERT_VERSION);
+        try {
+            stmt.setInt(1, migration.version);
+            stmt.setString(2, migration.description);
+            stmt.executeUpdate();
+        }
+        finally {stmt.close();}
+    }
+
+    /**
+     * Служебный метод для проверки существования таблицы в схеме по умолчанию.
+     * @param table String - имя таблицы (в верхнем регистре).
+     * @return Boolean: true, если таблица существует, иначе - false.
+     * @throws SQLException Ошибки SQL
+     */
+    private boolean tableExists(String table) throws SQLException{
+        ResultSet result = con.getMetaData().getTables(null, null, table, new String[]{"TABLE"});
+        try {
+            return result.next();
+        }
+        finally {result.close();}
+    }
+
+    /**
+     * Внутренний класс - одна миграция: номер версии, описание и SQL-запросы.
+     */
+    private static final class Migration {
+        private final int version;
+        private final String description;
+        private final String[] statements;
+
+        private Migration(int version, String description, String... statements){
+            this.version = version;
+            this.description = description;
+            this.statements = statements;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package BookDirectory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * Манифест экспорта каталога по частям: список частей (файлов) с диапазонами isbn, количеством книг и иллюстраций,
+ * размером и контрольной суммой CRC32 каждой части. Хранится рядом с частями в файле (имя выгрузки + ".manifest").
+ * Перед импортом по манифесту каждая часть проверяется по размеру и контрольной сумме.
+ * @author dyakonov
+ * @see BookDirectory.CatalogShardExporter
+ * @see BookDirectory.CatalogShardImporter
+ */
+public final class ShardManifest {
+
+    /**
+     * Расширение файла манифеста.
+     */
+    public static final String EXTENSION = ".manifest";
+
+    /**
+     * Имя выгрузки (начало имён файлов частей и манифеста).
+     */
+    private final String name;
+
+    /**
+     * Части выгрузки (по возрастанию isbn).
+     */
+    private final ArrayList<Shard> shards = new ArrayList<Shard>();
+
+    /**
+     * Конструктор.
+     * @param name String - имя выгрузки.
+     */
+    public ShardManifest(String name){
+        this.name = name;
+    }
+
+    /**
+     * Метод для добавления части.
+     * @param shard Shard - часть.
+     */
+    public void add(Shard shard){
+        shards.add(shard);
+    }
+
+    /**
+     * Метод для записи манифеста в папку частей.
+     * @param directory File - папка частей.
+     * @return File - файл манифеста.
+     * @throws IOException Ошибки ввода-вывода.
+     */
+    public File save(File directory) throws IOException{
+        Properties properties = new Properties();
+        properties.setProperty("name", name);
+        properties.setProperty("shards", String.valueOf(shards.size()));
+        for(int i = 0; i < shards.size(); i++){
+            Shard shard = shards.get(i);
+            String prefix = "shard." + (i + 1) + ".";
+            properties.setProperty(prefix + "file", shard.fileName);
+            properties.setProperty(prefix + "from", shard.fromIsbn);
+            if(shard.toIsbn != null){properties.setProperty(prefix + "to", shard.toIsbn);}
+            properties.setProperty(prefix + "books", String.valueOf(shard.books));
+            properties.setProperty(prefix + "illustrations", String.valueOf(shard.illustrations));
+            properties.setProperty(prefix + "bytes", String.valueOf(shard.bytes));
+            properties.setProperty(prefix + "crc32", Long.toHexString(shard.crc32));
+        }
+        File file = new File(directory, name + EXTENSION);
+        OutputStream out = new FileOutputStream(file);
+        try {
+            properties.store(out, "Book Directory sharded catalog export");
+        }
+        finally {out.close();}
+        return file;
+    }
+
+    /**
+     * Метод для чтения манифеста.
+     * @param file File - файл манифеста.
+     * @return ShardManifest
+     * @throws IOException Ошибки ввода-вывода или формата манифеста.
+     */
+    public static ShardManifest load(File file) throws IOException{
+        Properties properties = new Properties();
+        InputStream in = new FileInputStream(file);
+        try {
+            properties.load(in);
+        }
+        finally {in.close();}
+        try {
+            ShardManifest manifest = new ShardManifest(properties.getProperty("name"));
+            int count = Integer.parseInt(properties.getProperty("shards"));
+            for(int i = 1; i <= count; i++){
+                String prefix = "shard." + i + ".";
+                String fileName = properties.getProperty(prefix + "file");
+                if(fileName == null){throw new IOException("No file of the shard " + i + " in the manifest " + file.getName());}
+                manifest.add(new Shard(fileName, properties.getProperty(prefix + "from", ""), properties.getProperty(prefix + "to"),
+                        Long.parseLong(properties.getProperty(prefix + "books")),
+                        Long.parseLong(properties.getProperty(prefix + "illustrations")),
+                        Long.parseLong(properties.getProperty(prefix + "bytes")),
+                        Long.parseLong(properties.getProperty(prefix + "crc32"), 16)));
+            }
+            return manifest;
+        }
+        catch (NumberFormatException e){
+            throw new IOException("Wrong format of the manifest " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Метод для проверки части: файл есть, размер и контрольная сумма совпадают с манифестом.
+     * @param directory File - папка частей.
+     * @param shard Shard - часть.
+     * @throws IOException Файла нет, он не читается или не совпадает с манифестом.
+     */
+    public static void verify(File directory, Shard shard) throws IOException{
+        File file = new File(directory, shard.fileName);
+        if(!file.isFile()){throw new IOException("The shard file is not found: " + file.getAbsolutePath());}
+        if(file.length() != shard.bytes){
+            throw new IOException("The shard file size " + file.length() + " does not match the manifest (" + shard.bytes + "): " + shard.fileName);
+        }
+        long crc32 = checksum(file);
+        if(crc32 != shard.crc32){
+            throw new IOException("The shard file checksum " + Long.toHexString(crc32) + " does not match the manifest ("
+                    + Long.toHexString(shard.crc32) + "): " + shard.fileName);
+        }
+    }
+
+    /**
+     * Метод для расчёта контрольной суммы CRC32 файла.
+     * @param file File - файл.
+     * @return long - контрольная сумма.
+     * @throws IOException Ошибки ввода-вывода.
+     */
+    public static long checksum(File file) throws IOException{
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[65536];
+        InputStream in = new FileInputStream(file);
+        try {
+            int read;
+            while((read = in.read(buffer)) != -1){
+                crc.update(buffer, 0, read);
+            }
+        }
+        finally {in.close();}
+        return crc.getValue();
+    }
+
+    /**
+     * "Геттер" для получения имени выгрузки.
+     * @return String
+     */
+    public String getName(){
+        return name;
+    }
+
+    /**
+     * "Геттер" для получения частей выгрузки.
+     * @return List<Shard> - части (только чтение).
+     */
+    public List<Shard> getShards(){
+        return Collections.unmodifiableList(shards);
+    }
+
+    /**
+     * Часть выгрузки: файл, диапазон isbn [from, to), количество книг и иллюстраций, размер и контрольная сумма.
+     */
+    public static final class Shard {
+        private final String fileName;
+        private final String fromIsbn;
+        private final String toIsbn;
+        private final long books;
+        private final long illustrations;
+        private final long bytes;
+        private final long crc32;
+
+        /**
+         * Конструктор.
+         * @param fileName String - имя файла части.
+         * @param fromIsbn String - isbn начала диапазона (включительно).
+         * @param toIsbn String - isbn конца диапазона (не включительно); null - до конца каталога.
+         * @param books long - количество книг.
+         * @param illustrations long - количество иллюстраций.
+         * @param bytes long - размер файла в байтах.
+         * @param crc32 long - контрольная сумма CRC32 файла.
+         */
+        public Shard(String fileName, String fromIsbn, String toIsbn, long books, long illustrations, long bytes, long crc32){
+            this.fileName = fileName;
+            this.fromIsbn = fromIsbn;
+            this.toIsbn = toIsbn;
+            this.books = books;
+            this.illustrations = illustrations;
+            this.bytes = bytes;
+            this.crc32 = crc32;
+        }
+
+        public String getFileName(){
+            return fileName;
+        }
+
+        public String getFromIsbn(){
+            return fromIsbn;
+        }
+
+        public String getToIsbn(){
+            return toIsbn;
+        }
+
+        public long getBooks(){
+            return books;
+        }
+
+        public long getIllustrations(){
+            return illustrations;
+        }
+
+        public long getBytes(){
+            return bytes;
+        }
+
+        public long getCrc32(){
+            return crc32;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package BookDirectory;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -34,11 +35,13 @@ public final class View
     }
 
     private final String TEXT_HELLO = "Добро пожаловать в приложение \"Книжный каталог\".\n";
-    private final String TEXT_INSTRUCTION = "Для начала работы, пожалуйста, введите с клавиатуры номер пункта меню (цифры от 1 до 6).\n" +
+    private final String TEXT_INSTRUCTION = "Для начала работы, пожалуйста, введите с клавиатуры номер пункта меню (цифры от 1 до 7).\n" +
             "(или нажмите клавишу Enter для выхода из приложения)\n\n";
     private final String TEXT_INVITE_ENTER_NUMBER = "\nВведите номер пункта меню: ";
     private final String MENU_TEXT_1 = "Главное меню:\n\n1 - Вывести список книг\n";
     private final String MENU_TEXT_11 = "Список книг в каталоге:\n";
+    private final String MENU_TEXT_1_PAGE = "\n1 - Следующая страница\n2 - Предыдущая страница\n3 - Перейти к ISBN\n" +
+            "\nEnter - Назад в главное меню\n";
     private final String MENU_TEXT_2 = "2 - Добавить книгу\n";
     private final String MENU_TEXT_21 = "Добавить книгу в каталог.\nПожалуйста, укажите данные о книге.\n1)Введите ISBN: ";
     private final String MENU_TEXT_211 = "2)Введите название книги: ";
@@ -63,11 +66,26 @@ public final class View
     private final String MENU_TEXT_5_TITLE = "\nРаздел: ЭКСПОРТ\n\n";
     private final String MENU_TEXT_51 = "1 - Экспорт одной книги\n";
     private final String MENU_TEXT_52 = "2 - Экспорт каталога\n";
+    private final String MENU_TEXT_53 = "3 - Экспорт каталога по частям (параллельно, с манифестом)\n";
+    private final String MENU_TEXT_54 = "4 - Экспорт изменений каталога с прошлой выгрузки\n";
+    private final String MENU_TEXT_55 = "5 - Экспорт списка книг (каждая книга в свой файл)\n";
+    private final String MENU_TEXT_551 = "Введите ISBN через пробел или имя файла списка ISBN в каталоге import (с расширением .txt): ";
     private final  String MENU_TEXT_6 = "6 - Импорт\n";
     private final String MENU_TEXT_6_TITLE = "\nРаздел: ИМПОРТ\n\n";
     private final String MENU_TEXT_61 = "1 - Импорт одной книги\n";
     private final String MENU_TEXT_62 = "2 - Импорт каталога\n";
+    private final String MENU_TEXT_63 = "3 - Проверка файла импорта (без записи в каталог)\n";
+    private final String MENU_TEXT_64 = "4 - Наблюдение за папкой импорта (автоматический импорт новых файлов)\n";
+    private final String MENU_TEXT_65 = "5 - Импорт каталога по частям (по манифесту, параллельно)\n";
+    private final String MENU_TEXT_66 = "6 - Применение файла изменений каталога\n";
+    private final String MENU_TEXT_7 = "7 - Поиск\n";
+    private final String MENU_TEXT_7_TITLE = "\nРаздел: ПОИСК\n\n";
+    private final String MENU_TEXT_71 = "1 - Поиск книг по словам (название, автор, иллюстрации)\n";
+    private final String MENU_TEXT_711 = "Введите слова для поиска: ";
+    private final String MENU_TEXT_72 = "2 - Поиск ISBN по началу\n";
+    private final String MENU_TEXT_721 = "Введите начало ISBN: ";
     private final String MENU_TEXT_FILENAME = "Введите имя файла(без расширения .txt): ";
+    private final String MENU_TEXT_MANIFEST = "Введите имя выгрузки (имя файла манифеста без расширения .manifest): ";
     private final String MENU_TEXT_EXIT = "\nEnter - Закрыть приложение\n";
     private final String MENU_TEXT_BACK = "\nEnter - Назад в главное меню\n";
     private final String MENU_TEXT_BACK_ANY = "\nЛюбая клавиша - назад в главное меню\n";
@@ -97,6 +115,7 @@ public final class View
     private final String TEXT_ERROR_FILE_NOT_FOUND = "\nОшибка, файл не найден.\n";
     private final String TEXT_ERROR_IMPORT_FORMAT = "\nОшибка форматирования файла импорта.\n См. справочный файл README.txt в директории import\n";
     private final String TEXT_ERROR_JAVA_NO_METHOD = "\nКритическая ошибка Java. Нет такого метода.\n";
+    private final String TEXT_ERROR_SHARDS = "\nОшибка: манифест или файл части выгрузки повреждён (не найден, другой размер или контрольная сумма).\n Подробности в логе.\n";
     private final String TEXT_ERROR_UNSUPPORTED_ENCODING = "Error: the system is used a coding format unsupported by application.\n";
     private final String TEXT_BOOK_ADD_ILLUSTRATION = "\nИллюстрация будет добавлена к следующим книгам:\n";
     private final String TEXT_SUCCESS_ADD_BOOK = "\nУспешно. Книга добавлена в каталог.";
@@ -111,6 +130,39 @@ public final class View
     private final String TEXT_WARN_NO_BOOK = "\nВ каталоге ещё нет книг.";
     private final String TEXT_WARN_DUPLICATE_BOOK_CATALOG_IMPORT = "\nВнимание! Найденная книга уже присутствует в каталоге. ISBN: ";
     private final String TEXT_WARN_NEW_DATABASE = "\nВнимание! БД не сушествует!\nСоздание новой БД...";
+    private final String TEXT_PAGE_INFO = "\nПоказаны книги с ISBN от %s до %s.\n";
+    private final String TEXT_PAGE_LAST = "\nДальше книг в каталоге нет.\n";
+    private final String TEXT_PAGE_FIRST = "\nЭто начало каталога.\n";
+    private final String TEXT_ISBN_SUGGESTIONS = "Возможно, Вы имели в виду: ";
+    private final String TEXT_SEARCH_RESULT = "\nНайдено книг: %d.\n";
+    private final String TEXT_BLOOM_FILTER_REPORT = "Фильтр Блума: проверено ключей %d, проверено в б.д. %d, ложных срабатываний %d " +
+            "(заданная вероятность %.4f%%, расчётная %.4f%%).\n";
+    private final String TEXT_EXPORT_STATISTICS = "Записано книг: %d, иллюстраций: %d, %d байт за %d мс (%.0f байт/с, %.0f записей/с).\n";
+    private final String TEXT_SHARD_EXPORT = "\nУспешно. Каталог записан по частям: %d файлов (%s.part-NNN.txt) и манифест %s в каталоге export.\n";
+    private final String TEXT_SHARD_RESULT = "Часть %s: добавлено книг %d, иллюстраций %d, отброшено записей %d.\n";
+    private final String TEXT_DELTA_EXPORT = "\nУспешно. Изменения каталога %d-%d записаны в файл %s в каталоге export.\n" +
+            "Изменено книг: %d, удалено книг: %d.\n";
+    private final String TEXT_BATCH_EXPORT = "\nЭкспорт списка книг: в списке %d ISBN, записано файлов export_isbn.txt: %d " +
+            "(%d байт за %d мс), ошибок записи: %d.\n";
+    private final String TEXT_BATCH_EXPORT_MISSING = "Нет в каталоге (%d): %s\n";
+    private final String TEXT_DELTA_NO_CHANGES = "\nС прошлой выгрузки каталог не изменялся.\n";
+    private final String TEXT_DELTA_IMPORT_RESULT = "\nИзменения применены. Добавлено книг: %d, обновлено: %d, удалено: %d, " +
+            "записано иллюстраций: %d. Отброшено записей: %d.\n";
+    private final String TEXT_IMPORT_RESULT = "\nИмпорт завершён. Добавлено книг: %d, иллюстраций: %d. Отброшено записей (дубли, нет книги): %d.\n";
+    private final String TEXT_IMPORT_STAGE = "Этап \"%s\": записей %d, время работы %d мс, %.0f записей/с.\n";
+    private final String[] IMPORT_STAGE_NAMES = {"разбор файла", "проверка значений", "поиск дублей", "запись в б.д."};
+    private final String TEXT_IMPORT_PROGRESS = "Импорт: %.1f%% файла, записано %d (%.0f записей/с), осталось %s, ошибок %d.\n";
+    private final String TEXT_IMPORT_RESUME = "\nИмпорт этого файла был прерван: записано %d записей, остановлен на строке %d.\n" +
+            "1 - Продолжить с места остановки\nEnter - Начать сначала\nВведите номер пункта меню: ";
+    private final String TEXT_DRY_RUN_RESULT = "\nПроверка завершена. Записей: %d. Будет добавлено книг: %d, иллюстраций: %d.\n" +
+            "Дублей: %d, ошибок значений: %d, иллюстраций без книги: %d.\nОтчёт: %s\n";
+    private final String TEXT_WATCH_START = "\nНаблюдение за папкой %s: новые файлы .txt импортируются автоматически (одновременно до %d).\n" +
+            "Импортированные файлы переносятся в папку %s, файлы с ошибкой - в папку %s, рядом - отчёт (.report).\n" +
+            "Для остановки нажмите Enter.\n";
+    private final String TEXT_WATCH_FILE = "Файл %s: %s. Добавлено книг: %d, иллюстраций: %d. Отброшено записей: %d.\n";
+    private final String TEXT_WATCH_RESULT = "\nНаблюдение остановлено. Импортировано файлов: %d, с ошибкой: %d.\n";
+    private final String TEXT_IMPORT_RECORD_LINE = "(запись в строке %d файла импорта)\n";
+    private final String TEXT_DELTA_ILLUSTRATION_REJECTED = "Ошибка! Не получилось добавить в каталог иллюстрацию с id=%s к книге с ISBN=%s\n";
     private final HashMap<Integer, String> menuItems = new HashMap<Integer, String>();
 
     /**
@@ -122,13 +174,14 @@ public final class View
      * Служебный метод для начальной инициализации ассоциативного массива menuItems, где хранятся пункты меню в формате String.
      */
     private void setMenuItems(){
-        menuItems.put(0, MENU_TEXT_1 + MENU_TEXT_2 + MENU_TEXT_3 + MENU_TEXT_4 + MENU_TEXT_5 + MENU_TEXT_6 + MENU_TEXT_EXIT);
+        menuItems.put(0, MENU_TEXT_1 + MENU_TEXT_2 + MENU_TEXT_3 + MENU_TEXT_4 + MENU_TEXT_5 + MENU_TEXT_6 + MENU_TEXT_7 + MENU_TEXT_EXIT);
         menuItems.put(1, MENU_TEXT_11);
         menuItems.put(2, MENU_TEXT_21);
         menuItems.put(3, MENU_TEXT_31);
         menuItems.put(4, MENU_TEXT_4_TITLE + MENU_TEXT_41 + MENU_TEXT_42 + MENU_TEXT_43 + MENU_TEXT_44 + MENU_TEXT_BACK);
-        menuItems.put(5, MENU_TEXT_5_TITLE + MENU_TEXT_51 + MENU_TEXT_52 + MENU_TEXT_BACK);
-        menuItems.put(6, MENU_TEXT_6_TITLE + MENU_TEXT_61 + MENU_TEXT_62 + MENU_TEXT_BACK);
+        menuItems.put(5, MENU_TEXT_5_TITLE + MENU_TEXT_51 + MENU_TEXT_52 + MENU_TEXT_53 + MENU_TEXT_54 + MENU_TEXT_55 + MENU_TEXT_BACK);
+        menuItems.put(6, MENU_TEXT_6_TITLE + MENU_TEXT_61 + MENU_TEXT_62 + MENU_TEXT_63 + MENU_TEXT_64 + MENU_TEXT_65 + MENU_TEXT_66 + MENU_TEXT_BACK);
+        menuItems.put(7, MENU_TEXT_7_TITLE + MENU_TEXT_71 + MENU_TEXT_72 + MENU_TEXT_BACK);
     }
 
     /**
@@ -144,10 +197,10 @@ public final class View
 
     /**
      * Метод для вывода пунктов меню.
-     * @param currentSection int - какой пункт главного меню нужно вывести (от 1 до 6)
+     * @param currentSection int - какой пункт главного меню нужно вывести (от 1 до 7)
      */
     protected void printMenu(int currentSection){
-        if (currentSection >=0 && currentSection <= 6){
+        if (currentSection >=0 && currentSection <= 7){
           System.out.print(menuItems.get(currentSection));
             if (LOGGER.isLoggable(Level.FINE)){
                 LOGGER.fine("Print menu");}
@@ -213,6 +266,7 @@ public final class View
             case 21: {System.out.print(TEXT_ERROR_UNSUPPORTED_ENCODING);break;}
             case 22: {System.out.print(TEXT_ERROR_IN_OUT);break;}
             case 23: {System.out.print(TEXT_ERROR_LOGGER_SECURITY);break;}
+            case 24: {System.out.print(TEXT_ERROR_SHARDS);break;}
         }
         if(LOGGER.isLoggable(Level.WARNING)){
             LOGGER.log(Level.WARNING, "Print Error!", number);}
@@ -231,9 +285,244 @@ public final class View
             case 4: {System.out.print(MENU_TEXT_421);break;}
             case 5: {System.out.print(MENU_TEXT_431);break;}
             case 6: {System.out.print(MENU_TEXT_FILENAME);break;}
+            case 7: {System.out.print(MENU_TEXT_1_PAGE);break;}
+            case 8: {System.out.print(MENU_TEXT_711);break;}
+            case 9: {System.out.print(MENU_TEXT_721);break;}
+            case 10: {System.out.print(MENU_TEXT_MANIFEST);break;}
+            case 11: {System.out.print(MENU_TEXT_551);break;}
         }
     }
 
+    /**
+     * Метод для вывода границ показанной страницы списка книг.
+     * @param firstIsbn String - isbn первой книги страницы.
+     * @param lastIsbn String - isbn последней книги страницы.
+     */
+    protected void printPageInfo(String firstIsbn, String lastIsbn){
+        System.out.printf(TEXT_PAGE_INFO, firstIsbn, lastIsbn);
+    }
+
+    /**
+     * Метод для вывода подсказок isbn (похожих isbn из каталога), если они есть.
+     * @param isbns List<String> - isbn-подсказки.
+     */
+    protected void printIsbnSuggestions(List<String> isbns){
+        if(isbns.isEmpty()){return;}
+        StringBuilder text = new StringBuilder(TEXT_ISBN_SUGGESTIONS);
+        for(int i = 0; i < isbns.size(); i++){
+            if(i > 0){text.append(", ");}
+            text.append(isbns.get(i));
+        }
+        System.out.println(text);
+    }
+
+    /**
+     * Метод для вывода количества книг, найденных поиском.
+     * @param count int - количество найденных книг.
+     */
+    protected void printSearchResult(int count){
+        System.out.printf(TEXT_SEARCH_RESULT, count);
+    }
+
+    /**
+     * Метод для вывода статистики фильтра Блума после импорта каталога.
+     * @param queries long - количество проверенных ключей.
+     * @param positives long - количество ключей, проверенных в б.д. (ответ фильтра "возможно, есть").
+     * @param falsePositives long - количество ложных срабатываний.
+     * @param configuredRate double - заданная вероятность ложного срабатывания (от 0 до 1).
+     * @param expectedRate double - расчётная вероятность ложного срабатывания при текущем заполнении фильтра (от 0 до 1).
+     */
+    protected void printBloomFilterReport(long queries, long positives, long falsePositives, double configuredRate, double expectedRate){
+        System.out.printf(TEXT_BLOOM_FILTER_REPORT, queries, positives, falsePositives, configuredRate * 100, expectedRate * 100);
+    }
+
+    /**
+     * Метод для вывода хода импорта каталога.
+     * @param percent double - доля разобранного файла (в процентах).
+     * @param written long - количество записанных записей.
+     * @param rate double - скорость записи (записей в секунду).
+     * @param etaSeconds long - оставшееся время (в секундах; меньше 0 - неизвестно).
+     * @param errors long - количество отброшенных записей.
+     */
+    protected void printImportProgress(double percent, long written, double rate, long etaSeconds, long errors){
+        String eta = etaSeconds < 0 ? "?" : String.format("%d:%02d", etaSeconds / 60, etaSeconds % 60);
+        System.out.printf(TEXT_IMPORT_PROGRESS, percent, written, rate, eta, errors);
+    }
+
+    /**
+     * Метод для вывода вопроса о продолжении прерванного импорта.
+     * @param records long - количество записей, записанных до остановки.
+     * @param line int - номер строки, на которой импорт остановился.
+     */
+    protected void printImportResume(long records, int line){
+        System.out.printf(TEXT_IMPORT_RESUME, records, line);
+    }
+
+    /**
+     * Метод для вывода сообщения о начале наблюдения за папкой импорта (пункт 6-4).
+     * @param directory String - папка наблюдения.
+     * @param threads int - количество одновременно импортируемых файлов.
+     * @param doneDir String - папка импортированных файлов.
+     * @param failedDir String - папка файлов с ошибкой.
+     */
+    protected void printWatchStart(String directory, int threads, String doneDir, String failedDir){
+        System.out.printf(TEXT_WATCH_START, directory, threads, doneDir, failedDir);
+    }
+
+    /**
+     * Метод для вывода результата импорта файла из папки наблюдения.
+     * @param fileName String - имя файла.
+     * @param success boolean - файл импортирован (иначе - ошибка).
+     * @param books long - количество добавленных книг.
+     * @param illustrations long - количество добавленных иллюстраций.
+     * @param dropped long - количество отброшенных записей.
+     */
+    protected void printWatchedFileResult(String fileName, boolean success, long books, long illustrations, long dropped){
+        System.out.printf(TEXT_WATCH_FILE, fileName, success ? "импортирован" : "ошибка импорта", books, illustrations, dropped);
+    }
+
+    /**
+     * Метод для вывода итогов наблюдения за папкой импорта.
+     * @param done int - количество импортированных файлов.
+     * @param failed int - количество файлов с ошибкой.
+     */
+    protected void printWatchResult(int done, int failed){
+        System.out.printf(TEXT_WATCH_RESULT, done, failed);
+    }
+
+    /**
+     * Метод для вывода итогов проверки файла импорта (пункт 6-3).
+     * @param records long - количество записей файла.
+     * @param newBooks long - количество книг, которые будут добавлены.
+     * @param newIllustrations long - количество иллюстраций, которые будут добавлены.
+     * @param duplicates long - количество дублей.
+     * @param invalid long - количество записей с ошибками значений.
+     * @param orphans long - количество иллюстраций без книги.
+     * @param reportPath String - путь к файлу отчёта.
+     */
+    protected void printDryRunResult(long records, long newBooks, long newIllustrations, long duplicates, long invalid, long orphans, String reportPath){
+        System.out.printf(TEXT_DRY_RUN_RESULT, records, newBooks, newIllustrations, duplicates, invalid, orphans, reportPath);
+    }
+
+    /**
+     * Метод для вывода сообщения об иллюстрации файла изменений, которую не удалось добавить (книги нет в каталоге).
+     * @param imageId String - id иллюстрации.
+     * @param isbn String - isbn книги иллюстрации.
+     * @param line int - номер строки тега записи.
+     */
+    protected void printDeltaIllustrationRejected(String imageId, String isbn, int line){
+        System.out.printf(TEXT_DELTA_ILLUSTRATION_REJECTED, imageId, isbn);
+        printImportRecordLine(line);
+    }
+
+    /**
+     * Метод для вывода номера строки записи файла импорта (после сообщения об ошибке записи).
+     * @param line int - номер строки тега записи.
+     */
+    protected void printImportRecordLine(int line){
+        System.out.printf(TEXT_IMPORT_RECORD_LINE, line);
+    }
+
+    /**
+     * Метод для вывода счётчиков этапа конвейера импорта.
+     * @param stage int - номер этапа (0 - разбор, 1 - проверка, 2 - поиск дублей, 3 - запись).
+     * @param records long - количество обработанных записей.
+     * @param busyNanos long - время работы этапа (в нс).
+     */
+    protected void printImportStage(int stage, long records, long busyNanos){
+        double rate = busyNanos > 0 ? records * 1e9 / busyNanos : 0;
+        System.out.printf(TEXT_IMPORT_STAGE, IMPORT_STAGE_NAMES[stage], records, busyNanos / 1000000, rate);
+    }
+
+    /**
+     * Метод для вывода итогов импорта каталога.
+     * @param books long - количество добавленных книг.
+     * @param illustrations long - количество добавленных иллюстраций.
+     * @param failures long - количество отброшенных записей.
+     */
+    protected void printImportResult(long books, long illustrations, long failures){
+        System.out.printf(TEXT_IMPORT_RESULT, books, illustrations, failures);
+    }
+
+    /**
+     * Метод для вывода итогов экспорта каталога по частям.
+     * @param shards int - количество частей.
+     * @param name String - имя выгрузки.
+     * @param manifest String - имя файла манифеста.
+     */
+    protected void printShardExport(int shards, String name, String manifest){
+        System.out.printf(TEXT_SHARD_EXPORT, shards, name, manifest);
+    }
+
+    /**
+     * Метод для вывода итогов экспорта списка книг.
+     * @param requested int - количество isbn в списке.
+     * @param written int - количество записанных файлов.
+     * @param bytes long - размер записанных файлов в байтах.
+     * @param elapsedNanos long - время экспорта в нс.
+     * @param failed int - количество ошибок записи.
+     * @param missing List<String> - isbn, которых нет в каталоге (выводятся первые 20).
+     */
+    protected void printBatchExport(int requested, int written, long bytes, long elapsedNanos, int failed, List<String> missing){
+        System.out.printf(TEXT_BATCH_EXPORT, requested, written, bytes, elapsedNanos / 1000000, failed);
+        if(!missing.isEmpty()){
+            StringBuilder list = new StringBuilder();
+            for(int i = 0; i < missing.size() && i < 20; i++){
+                list.append(i == 0 ? "" : ", ").append(missing.get(i));
+            }
+            if(missing.size() > 20){list.append(", ...");}
+            System.out.printf(TEXT_BATCH_EXPORT_MISSING, missing.size(), list);
+        }
+    }
+
+    /**
+     * Метод для вывода итогов экспорта изменений каталога.
+     * @param fromSeq long - номер первого изменения выгрузки.
+     * @param toSeq long - номер последнего изменения выгрузки.
+     * @param fileName String - имя файла изменений.
+     * @param books long - количество изменённых книг.
+     * @param deletions long - количество удалённых книг.
+     */
+    protected void printDeltaExport(long fromSeq, long toSeq, String fileName, long books, long deletions){
+        System.out.printf(TEXT_DELTA_EXPORT, fromSeq, toSeq, fileName, books, deletions);
+    }
+
+    /**
+     * Метод для вывода итогов применения файла изменений каталога.
+     * @param added long - количество добавленных книг.
+     * @param updated long - количество обновлённых книг.
+     * @param deleted long - количество удалённых книг.
+     * @param illustrations long - количество записанных иллюстраций.
+     * @param rejected long - количество отброшенных записей.
+     */
+    protected void printDeltaImportResult(long added, long updated, long deleted, long illustrations, long rejected){
+        System.out.printf(TEXT_DELTA_IMPORT_RESULT, added, updated, deleted, illustrations, rejected);
+    }
+
+    /**
+     * Метод для вывода результата импорта одной части выгрузки.
+     * @param fileName String - имя файла части.
+     * @param books long - количество добавленных книг.
+     * @param illustrations long - количество добавленных иллюстраций.
+     * @param dropped long - количество отброшенных записей.
+     */
+    protected void printShardResult(String fileName, long books, long illustrations, long dropped){
+        System.out.printf(TEXT_SHARD_RESULT, fileName, books, illustrations, dropped);
+    }
+
+    /**
+     * Метод для вывода итогов экспорта каталога.
+     * @param books long - количество записанных книг.
+     * @param illustrations long - количество записанных иллюстраций.
+     * @param bytes long - размер файла экспорта в байтах.
+     * @param elapsedNanos long - время экспорта в нс.
+     * @param bytesPerSecond double - скорость записи в байтах в секунду.
+     * @param recordsPerSecond double - скорость записи в записях в секунду.
+     */
+    protected void printExportStatistics(long books, long illustrations, long bytes, long elapsedNanos, double bytesPerSecond, double recordsPerSecond){
+        System.out.printf(TEXT_EXPORT_STATISTICS, books, illustrations, bytes, elapsedNanos / 1000000, bytesPerSecond, recordsPerSecond);
+    }
+
     /**
      * Метод для вывода сообщений, предупреждений и т.п.
      * @param number int - номер сообщения для вывода.
@@ -256,6 +545,9 @@ public final class View
             case 13: {System.out.print(MENU_TEXT_SEARCH_ILLUSTRATION);break;}
             case 14: {System.out.print(TEXT_WARN_NEW_DATABASE);break;}
             case 15: {System.out.print(TEXT_INVITE_ENTER_NUMBER);break;}
+            case 16: {System.out.print(TEXT_PAGE_LAST);break;}
+            case 17: {System.out.print(TEXT_PAGE_FIRST);break;}
+            case 18: {System.out.print(TEXT_DELTA_NO_CHANGES);break;}
         }
     }
 }
\ No newline at end of file
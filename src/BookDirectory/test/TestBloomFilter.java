@@ -0,0 +1,71 @@
+package BookDirectory.test;
+
+import BookDirectory.BloomFilter;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Тестовый класс для проверки фильтра Блума (нет ложных отрицаний, вероятность ложных срабатываний, запись в файл).
+ * @see BookDirectory.BloomFilter
+ */
+public class TestBloomFilter {
+
+    @Test
+    public void testMightContain_10000Keys_noFalseNegativesAndRateInBounds() {
+        //arrange
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.add("isbn-" + i);
+        }
+
+        //act
+        int falsePositives = 0;
+        for (int i = 10000; i < 20000; i++) {
+            if (filter.mightContain("isbn-" + i)) {
+                falsePositives++;
+            }
+        }
+
+        //assert
+        for (int i = 0; i < 10000; i++) {
+            assertTrue("False negative: isbn-" + i, filter.mightContain("isbn-" + i));
+        }
+        assertTrue("Too many false positives: " + falsePositives, falsePositives < 200);
+    }
+
+    @Test
+    public void testReadFrom_writtenFilter_sameKeys() throws Exception {
+        //arrange
+        BloomFilter filter = new BloomFilter(100, 0.01);
+        filter.add("isbn-1");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        filter.writeTo(new DataOutputStream(bytes));
+
+        //act
+        BloomFilter read = BloomFilter.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        //assert
+        assertTrue("Key is lost", read.mightContain("isbn-1"));
+        assertEquals("Wrong count of keys", 1, read.getInsertionCount());
+    }
+
+    @Test
+    public void testAdd_sameKeyTwice_countedOnce() {
+        //arrange
+        BloomFilter filter = new BloomFilter(100, 0.01);
+        filter.add("isbn-1");
+
+        //act
+        filter.add("isbn-1");
+
+        //assert
+        assertEquals("Repeated key is counted", 1, filter.getInsertionCount());
+        assertFalse("Filter is stale", filter.isStale());
+    }
+}
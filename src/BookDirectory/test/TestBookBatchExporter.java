@@ -0,0 +1,41 @@
+package BookDirectory.test;
+
+import BookDirectory.BookBatchExporter;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Тестовый класс для проверки чтения списка isbn при экспорте списка книг.
+ * @see BookDirectory.BookBatchExporter
+ */
+public class TestBookBatchExporter {
+
+    @Test
+    public void testReadIsbns_mixedSeparators_isbnsInOrder() throws Exception {
+        //arrange
+        String text = "\uFEFFIsbn_1\r\nIsbn_2, Isbn_3;Isbn_1\n\n  978-5-17-071285-4\t";
+
+        //act
+        List<String> isbns = BookBatchExporter.readIsbns(new StringReader(text));
+
+        //assert
+        assertEquals(Arrays.asList("Isbn_1", "Isbn_2", "Isbn_3", "Isbn_1", "978-5-17-071285-4"), isbns);
+    }
+
+    @Test
+    public void testReadIsbns_onlySeparators_emptyList() throws Exception {
+        //arrange
+        String text = " ,; \n";
+
+        //act
+        List<String> isbns = BookBatchExporter.readIsbns(new StringReader(text));
+
+        //assert
+        assertTrue("No isbn expected", isbns.isEmpty());
+    }
+}
@@ -0,0 +1,51 @@
+package BookDirectory.test;
+
+import BookDirectory.Book;
+import BookDirectory.CatalogCache;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Тестовый класс для проверки кэша каталога (LRU-вытеснение, счётчики, изменение иллюстраций).
+ * @see BookDirectory.CatalogCache
+ */
+public class TestCatalogCache {
+
+    @Test
+    public void testGet_capacity2_leastRecentlyUsedEvicted() {
+        //arrange
+        CatalogCache cache = new CatalogCache(2);
+        cache.put(Book.getBook("isbn-1", "title-1", "author-1"));
+        cache.put(Book.getBook("isbn-2", "title-2", "author-2"));
+        cache.get("isbn-1");
+
+        //act
+        cache.put(Book.getBook("isbn-3", "title-3", "author-3"));
+
+        //assert
+        assertNotNull("Recently used book is evicted", cache.get("isbn-1"));
+        assertNull("Least recently used book is not evicted", cache.get("isbn-2"));
+        assertEquals("Wrong count of hits", 2, cache.getHitCount());
+        assertEquals("Wrong count of misses", 1, cache.getMissCount());
+        assertEquals("Wrong count of evictions", 1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testRemoveIllustration_sharedId_removedFromAllBooks() {
+        //arrange
+        CatalogCache cache = new CatalogCache(10);
+        cache.put(Book.getBook("isbn-1", "title-1", "author-1"));
+        cache.put(Book.getBook("isbn-2", "title-2", "author-2"));
+        cache.addIllustration("isbn-1", "id-1", "name-1", "painter-1");
+        cache.addIllustration("isbn-2", "id-1", "name-1", "painter-1");
+        cache.addIllustration("isbn-2", "id-2", "name-2", "painter-2");
+
+        //act
+        cache.removeIllustration("id-1");
+
+        //assert
+        assertEquals("Wrong count of illustrations", 0, cache.get("isbn-1").getIllustrations().size());
+        assertEquals("Wrong count of illustrations", 1, cache.get("isbn-2").getIllustrations().size());
+    }
+}
@@ -0,0 +1,91 @@
+package BookDirectory.test;
+
+import BookDirectory.Book;
+import BookDirectory.CatalogExportWriter;
+import BookDirectory.ImportParser;
+import BookDirectory.ImportRecord;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ * Тестовый класс для проверки потоковой записи экспорта каталога (формат файла импорта, счётчики).
+ * @see BookDirectory.CatalogExportWriter
+ */
+public class TestCatalogExportWriter {
+
+    @Test
+    public void testWriteBook_bookWithIllustration_readableByImportParser() throws Exception {
+        //arrange
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CatalogExportWriter writer = new CatalogExportWriter(bytes);
+        Book book = Book.getBook("978-5-17-071285-4", "Сказки", "Народное");
+        book.addIllustration("id1", "Иллюстрация", "Художник");
+
+        //act
+        writer.writeBook(book);
+        writer.writeBook(Book.getBook("Isbn_2", "Title_2", "Author_2"));
+        writer.close();
+        ImportParser parser = new ImportParser(new StringReader(bytes.toString("UTF-8")));
+        ImportRecord first = parser.next();
+        ImportRecord illustration = parser.next();
+        ImportRecord second = parser.next();
+
+        //assert
+        assertEquals("978-5-17-071285-4", first.getIsbn());
+        assertEquals("Сказки", first.getName());
+        assertFalse(illustration.isBook());
+        assertEquals("id1", illustration.getImageId());
+        assertEquals("978-5-17-071285-4", illustration.getIsbn());
+        assertEquals("Isbn_2", second.getIsbn());
+        assertNull(parser.next());
+    }
+
+    @Test
+    public void testClose_counters_matchWrittenData() throws Exception {
+        //arrange
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CatalogExportWriter writer = new CatalogExportWriter(bytes);
+        Book book = Book.getBook("Isbn_1", "Книга", "Автор");
+        book.addIllustration("id1", "Иллюстрация", "Художник");
+
+        //act
+        for (int i = 0; i < 3; i++) {
+            writer.writeBook(book);
+        }
+        writer.close();
+
+        //assert
+        assertEquals(3, writer.getBookCount());
+        assertEquals(3, writer.getIllustrationCount());
+        assertEquals(bytes.size(), writer.getByteCount());
+        assertTrue(writer.getRecordsPerSecond() > 0);
+    }
+
+    @Test
+    public void testWriteDeletion_deltaFile_readableWithDeletions() throws Exception {
+        //arrange
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CatalogExportWriter writer = new CatalogExportWriter(bytes);
+
+        //act
+        writer.writeBook(Book.getBook("Isbn_1", "Книга", "Автор"));
+        writer.writeDeletion("Isbn_2");
+        writer.close();
+        ImportParser parser = new ImportParser(new StringReader(bytes.toString("UTF-8")));
+        parser.setDeletions(true);
+        ImportRecord book = parser.next();
+        ImportRecord deletion = parser.next();
+
+        //assert
+        assertEquals(1, writer.getBookCount());
+        assertEquals(1, writer.getDeletionCount());
+        assertEquals("Isbn_1", book.getIsbn());
+        assertTrue(deletion.isDeletion());
+        assertEquals("Isbn_2", deletion.getIsbn());
+        assertNull(parser.next());
+    }
+}
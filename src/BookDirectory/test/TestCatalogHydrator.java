@@ -0,0 +1,98 @@
+package BookDirectory.test;
+
+import BookDirectory.Book;
+import BookDirectory.CatalogHydrator;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Тестовый класс для проверки сборки каталога классом CatalogHydrator.
+ * Вместо б.д. используется ResultSet-заглушка со строками LEFT JOIN.
+ * @see BookDirectory.CatalogHydrator
+ */
+public class TestCatalogHydrator {
+
+    @Test
+    public void testHydrate_3Books2Illustrations_booksWithIllustrationsReturned() throws Exception{
+        //arrange
+        List<String[]> rows = new ArrayList<String[]>();
+        rows.add(new String[]{"isbn-1", "title-1", "author-1", null, null, null});
+        rows.add(new String[]{"isbn-2", "title-2", "author-2", "id-1", "name-1", "painter-1"});
+        rows.add(new String[]{"isbn-2", "title-2", "author-2", "id-2", "name-2", "painter-2"});
+        rows.add(new String[]{"isbn-3", "title-3", "author-3", "id-1", "name-1", "painter-1"});
+
+        //act
+        LinkedList<Book> books = CatalogHydrator.hydrate(resultSet(rows));
+
+        //assert
+        assertEquals("Wrong count of books", 3, books.size());
+        assertEquals("Wrong count of illustrations", 0, books.get(0).getIllustrations().size());
+        assertEquals("Wrong count of illustrations", 2, books.get(1).getIllustrations().size());
+        assertEquals("Wrong count of illustrations", 1, books.get(2).getIllustrations().size());
+    }
+
+    /**
+     * Сборка каталога из 100 000 книг (по 2 иллюстрации) - один проход по выборке LEFT JOIN:
+     * каждая строка читается один раз, других обращений к б.д. (запросов на каждую книгу) нет.
+     */
+    @Test
+    public void testHydrate_100000Books_singlePassOverJoin() throws Exception{
+        //arrange
+        int bookCount = 100000;
+        List<String[]> rows = new ArrayList<String[]>();
+        for (int i = 0; i < bookCount; i++) {
+            String isbn = String.format("isbn-%07d", i);
+            rows.add(new String[]{isbn, "title", "author", "id-1", "name", "painter"});
+            rows.add(new String[]{isbn, "title", "author", "id-2", "name", "painter"});
+        }
+        int[] calls = new int[2];
+
+        //act
+        LinkedList<Book> books = CatalogHydrator.hydrate(resultSet(rows, calls));
+
+        //assert
+        assertEquals("Wrong count of books", bookCount, books.size());
+        assertEquals("Each row expected to be read once", rows.size() + 1, calls[0]);
+        assertTrue("Linear count of column reads expected", calls[1] <= rows.size() * 6);
+    }
+
+    /**
+     * Служебный метод - ResultSet-заглушка, поддерживающая только next() и getString(int).
+     */
+    private static ResultSet resultSet(List<String[]> rows){
+        return resultSet(rows, new int[2]);
+    }
+
+    /**
+     * Служебный метод - ResultSet-заглушка, считающая вызовы: calls[0] - next(), calls[1] - getString(int).
+     * Любой другой вызов (в том числе getStatement() для нового запроса) - ошибка.
+     */
+    private static ResultSet resultSet(final List<String[]> rows, final int[] calls){
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                new InvocationHandler() {
+                    private int row = -1;
+
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("next")) {
+                            calls[0]++;
+                            row++;
+                            return row < rows.size();
+                        }
+                        if (method.getName().equals("getString")) {
+                            calls[1]++;
+                            return rows.get(row)[(Integer) args[0] - 1];
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
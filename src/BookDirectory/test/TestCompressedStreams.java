@@ -0,0 +1,78 @@
+package BookDirectory.test;
+
+import BookDirectory.CompressedStreams;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Тестовый класс для проверки потокового сжатия файлов импорта и экспорта.
+ * @see BookDirectory.CompressedStreams
+ */
+public class TestCompressedStreams {
+
+    @Test
+    public void testCompressedName_gzipAndZip_extensionsByCompression() throws Exception {
+        //arrange
+        String fileName = "catalog_export.txt";
+
+        //act
+        String gzip = CompressedStreams.compressedName(fileName, "gzip");
+        String zip = CompressedStreams.compressedName(fileName, "zip");
+        String none = CompressedStreams.compressedName(fileName, "none");
+
+        //assert
+        assertEquals("catalog_export.txt.gz", gzip);
+        assertEquals("catalog_export.zip", zip);
+        assertEquals("catalog_export.txt", none);
+        assertTrue(CompressedStreams.isCompressed(gzip));
+        assertTrue(CompressedStreams.isCompressed(zip));
+        assertFalse(CompressedStreams.isCompressed(none));
+    }
+
+    @Test
+    public void testCompressDecompress_gzip_sameBytes() throws Exception {
+        assertRoundTrip("catalog_export.txt.gz");
+    }
+
+    @Test
+    public void testCompressDecompress_zip_sameBytes() throws Exception {
+        assertRoundTrip("catalog_export.zip");
+    }
+
+    /**
+     * Служебный метод - сжатие и распаковка текста через потоки в памяти.
+     * @param fileName String - имя файла (определяет тип сжатия).
+     */
+    private static void assertRoundTrip(String fileName) throws Exception {
+        //arrange
+        StringBuilder text = new StringBuilder();
+        for(int i = 0; i < 1000; i++){
+            text.append("[Книга]\r\nisbn=Isbn_").append(i).append("\r\nname=Книга ").append(i).append("\r\n\r\n");
+        }
+        byte[] data = text.toString().getBytes("UTF-8");
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+
+        //act
+        OutputStream out = CompressedStreams.compress(file, fileName, 9);
+        out.write(data);
+        out.close();
+        InputStream in = CompressedStreams.decompress(new ByteArrayInputStream(file.toByteArray()), fileName);
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while((n = in.read(buffer)) != -1){
+            read.write(buffer, 0, n);
+        }
+        in.close();
+
+        //assert
+        assertTrue("Compressed data expected to be smaller", file.size() < data.length);
+        assertArrayEquals(data, read.toByteArray());
+    }
+}
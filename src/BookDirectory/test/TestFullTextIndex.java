@@ -0,0 +1,59 @@
+package BookDirectory.test;
+
+import BookDirectory.Book;
+import BookDirectory.FullTextIndex;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Тестовый класс для проверки полнотекстового индекса (регистр, "ё", ранжирование, удаление).
+ * @see BookDirectory.FullTextIndex
+ */
+public class TestFullTextIndex {
+
+    @Test
+    public void testSearch_wordInTitleAndAuthor_titleRankedFirst() {
+        //arrange
+        FullTextIndex index = new FullTextIndex();
+        index.indexBook(Book.getBook("isbn-1", "Сказки", "Ёжиков Пётр"));
+        index.indexBook(Book.getBook("isbn-2", "Ёжик в тумане", "Козлов"));
+
+        //act
+        ArrayList<String> isbns = index.search("ЕЖИК", 10);
+
+        //assert
+        assertEquals("Wrong ranked books", "[isbn-2, isbn-1]", isbns.toString());
+    }
+
+    @Test
+    public void testSearch_twoWords_onlyBooksWithBothWords() {
+        //arrange
+        FullTextIndex index = new FullTextIndex();
+        index.indexBook(Book.getBook("isbn-1", "Война и мир", "Толстой"));
+        index.indexBook(Book.getBook("isbn-2", "Детство", "Толстой"));
+        index.indexBook(Book.getBook("isbn-3", "Мир приключений", "Разные"));
+
+        //act
+        ArrayList<String> isbns = index.search("мир, толстой", 10);
+
+        //assert
+        assertEquals("Wrong books found", "[isbn-1]", isbns.toString());
+    }
+
+    @Test
+    public void testRemoveBook_indexedBook_notFound() {
+        //arrange
+        FullTextIndex index = new FullTextIndex();
+        index.indexBook(Book.getBook("isbn-1", "Война и мир", "Толстой"));
+
+        //act
+        index.removeBook("isbn-1");
+
+        //assert
+        assertTrue("Removed book is found", index.search("война", 10).isEmpty());
+        assertEquals("Words of removed book are left", 0, index.getTermCount());
+    }
+}
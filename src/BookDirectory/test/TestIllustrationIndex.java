@@ -0,0 +1,43 @@
+package BookDirectory.test;
+
+import BookDirectory.IllustrationIndex;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Тестовый класс для проверки индекса иллюстраций (id иллюстрации -> isbn книг).
+ * @see BookDirectory.IllustrationIndex
+ */
+public class TestIllustrationIndex {
+
+    @Test
+    public void testRemoveBook_sharedIllustration_otherBooksFound() {
+        //arrange
+        IllustrationIndex index = new IllustrationIndex();
+        index.add("id-1", "isbn-2");
+        index.add("id-1", "isbn-1");
+        index.add("id-2", "isbn-1");
+
+        //act
+        index.removeBook("isbn-1");
+
+        //assert
+        assertEquals("Wrong books of illustration", "[isbn-2]", index.getIsbns("id-1").toString());
+        assertTrue("Illustration of removed book is found", index.getIsbns("id-2").isEmpty());
+    }
+
+    @Test
+    public void testRemoveIllustration_sharedIllustration_noBooksFound() {
+        //arrange
+        IllustrationIndex index = new IllustrationIndex();
+        index.add("id-1", "isbn-1");
+        index.add("id-1", "isbn-2");
+
+        //act
+        index.removeIllustration("id-1");
+
+        //assert
+        assertTrue("Removed illustration is found", index.getIsbns("id-1").isEmpty());
+    }
+}
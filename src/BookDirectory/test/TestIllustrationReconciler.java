@@ -0,0 +1,59 @@
+package BookDirectory.test;
+
+import BookDirectory.IllustrationReconciler;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Тестовый класс для проверки сверки импортируемых иллюстраций с каталогом (новая, дубль, без книги).
+ * @see BookDirectory.IllustrationReconciler
+ */
+public class TestIllustrationReconciler {
+
+    @Test
+    public void testReconcile_bookWithoutIllustrations_new() {
+        //arrange
+        IllustrationReconciler reconciler = new IllustrationReconciler();
+        reconciler.addBook("1234567890");
+
+        //act
+        IllustrationReconciler.Result result = reconciler.reconcile("1234567890", "img-1");
+
+        //assert
+        assertEquals(IllustrationReconciler.Result.NEW, result);
+        assertEquals(1, reconciler.getIllustrationCount());
+    }
+
+    @Test
+    public void testReconcile_sameIdTwice_duplicate() {
+        //arrange
+        IllustrationReconciler reconciler = new IllustrationReconciler();
+        reconciler.addIllustration("1234567890", "img-1");
+
+        //act
+        IllustrationReconciler.Result existing = reconciler.reconcile("1234567890", "img-1");
+        IllustrationReconciler.Result other = reconciler.reconcile("1234567890", "img-2");
+        IllustrationReconciler.Result repeated = reconciler.reconcile("1234567890", "img-2");
+
+        //assert
+        assertEquals(IllustrationReconciler.Result.DUPLICATE, existing);
+        assertEquals(IllustrationReconciler.Result.NEW, other);
+        assertEquals(IllustrationReconciler.Result.DUPLICATE, repeated);
+        assertEquals(2, reconciler.getIllustrationCount());
+    }
+
+    @Test
+    public void testReconcile_unknownIsbn_orphan() {
+        //arrange
+        IllustrationReconciler reconciler = new IllustrationReconciler();
+        reconciler.addIllustration("1234567890", "img-1");
+
+        //act
+        IllustrationReconciler.Result result = reconciler.reconcile("0987654321", "img-1");
+
+        //assert
+        assertEquals(IllustrationReconciler.Result.ORPHAN, result);
+        assertEquals(1, reconciler.getBookCount());
+    }
+}
@@ -0,0 +1,54 @@
+package BookDirectory.test;
+
+import BookDirectory.ImportCheckpoint;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Тестовый класс для проверки контрольной точки импорта (сохранение, загрузка, изменение файла импорта).
+ * @see BookDirectory.ImportCheckpoint
+ */
+public class TestImportCheckpoint {
+
+    @Test
+    public void testLoad_savedCheckpoint_sameOffsetReturned() throws Exception {
+        //arrange
+        File file = File.createTempFile("import", ".txt");
+        file.deleteOnExit();
+        new File(file.getPath() + ".checkpoint").deleteOnExit();
+        ImportCheckpoint.load(file).save(1024, 50, 10);
+
+        //act
+        ImportCheckpoint checkpoint = ImportCheckpoint.load(file);
+
+        //assert
+        assertTrue("Checkpoint is not resumable", checkpoint.isResumable());
+        assertEquals("Wrong offset", 1024, checkpoint.getOffset());
+        assertEquals("Wrong line", 50, checkpoint.getLine());
+        assertEquals("Wrong count of records", 10, checkpoint.getRecords());
+        checkpoint.delete();
+    }
+
+    @Test
+    public void testLoad_importFileChanged_checkpointIgnored() throws Exception {
+        //arrange
+        File file = File.createTempFile("import", ".txt");
+        file.deleteOnExit();
+        new File(file.getPath() + ".checkpoint").deleteOnExit();
+        ImportCheckpoint.load(file).save(1024, 50, 10);
+        FileOutputStream out = new FileOutputStream(file, true);
+        out.write(new byte[]{'\n'});
+        out.close();
+
+        //act
+        ImportCheckpoint checkpoint = ImportCheckpoint.load(file);
+
+        //assert
+        assertFalse("Checkpoint of changed file is used", checkpoint.isResumable());
+        checkpoint.delete();
+    }
+}
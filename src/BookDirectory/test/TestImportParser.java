@@ -0,0 +1,107 @@
+package BookDirectory.test;
+
+import BookDirectory.ImportParser;
+import BookDirectory.ImportRecord;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ * Тестовый класс для проверки потокового разборщика файла импорта (записи, номера строк, смещения в байтах).
+ * @see BookDirectory.ImportParser
+ */
+public class TestImportParser {
+
+    @Test
+    public void testNext_bookAndIllustration_typedRecordsWithLines() throws Exception {
+        //arrange
+        String text = "\uFEFF[Книга]\r\nIsbn_1\r\nВойна и мир\r\nТолстой\r\n\r\n[Иллюстрация]\nid1\nIsbn_1\nБал\nНародное\n";
+        ImportParser parser = new ImportParser(new StringReader(text));
+
+        //act
+        ImportRecord book = parser.next();
+        ImportRecord illustration = parser.next();
+        ImportRecord end = parser.next();
+
+        //assert
+        assertTrue("Book expected", book.isBook());
+        assertEquals("Wrong isbn", "Isbn_1", book.getIsbn());
+        assertEquals("Wrong title", "Война и мир", book.getName());
+        assertEquals("Wrong line of book", 1, book.getLine());
+        assertEquals("Wrong offset of book", 0, book.getOffset());
+        assertEquals("Wrong end of book", 3 + 14 + 8 + 22 + 16, book.getEndOffset());
+        assertFalse("Illustration expected", illustration.isBook());
+        assertEquals("Wrong id", "id1", illustration.getImageId());
+        assertEquals("Wrong isbn of illustration", "Isbn_1", illustration.getIsbn());
+        assertEquals("Wrong line of illustration", 6, illustration.getLine());
+        assertEquals("Wrong offset of illustration", book.getEndOffset() + 2, illustration.getOffset());
+        assertNull("No more records expected", end);
+        assertEquals("Wrong count of records", 2, parser.getRecordCount());
+    }
+
+    @Test
+    public void testNext_malformedUtf8_offsetsUnknownAfterIt() throws Exception {
+        //arrange
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write("[Книга]\nIsbn_1\nT\nA\n".getBytes("UTF-8"));
+        bytes.write("[Книга]\nIsbn_2\nT".getBytes("UTF-8"));
+        bytes.write(new byte[]{(byte) 0xE2, (byte) 0x82, '\n'});
+        bytes.write("A\n[Книга]\nIsbn_3\nT\nA\n".getBytes("UTF-8"));
+        ImportParser parser = new ImportParser(new InputStreamReader(new ByteArrayInputStream(bytes.toByteArray()), "UTF-8"));
+
+        //act
+        ImportRecord first = parser.next();
+        ImportRecord second = parser.next();
+        ImportRecord third = parser.next();
+
+        //assert
+        assertEquals("Wrong end of the record before malformed bytes", 13 + 7 + 2 + 2, first.getEndOffset());
+        assertEquals("Offset after malformed bytes expected to be unknown", -1, second.getEndOffset());
+        assertEquals("Offset after malformed bytes expected to be unknown", -1, third.getOffset());
+        assertEquals("Wrong line of record", 9, third.getLine());
+    }
+
+    @Test
+    public void testNext_truncatedRecord_emptyFields() throws Exception {
+        //arrange
+        ImportParser parser = new ImportParser(new StringReader("[Книга]\nIsbn_1"));
+
+        //act
+        ImportRecord book = parser.next();
+
+        //assert
+        assertEquals("Wrong isbn", "Isbn_1", book.getIsbn());
+        assertEquals("Missing field must be empty", "", book.getAuthor());
+        assertNull("No more records expected", parser.next());
+    }
+
+    @Test
+    public void testNext_deletionTag_onlyWhenDeletionsEnabled() throws Exception {
+        //arrange
+        String text = "[Удалено]\nIsbn_1\n\n[Книга]\nIsbn_2\nTitle_2\nAuthor_2\n";
+        ImportParser plain = new ImportParser(new StringReader(text));
+        ImportParser delta = new ImportParser(new StringReader(text));
+        delta.setDeletions(true);
+
+        //act
+        ImportRecord skipped = plain.next();
+        ImportRecord deletion = delta.next();
+        ImportRecord book = delta.next();
+
+        //assert
+        assertTrue("Book expected in a plain import file", skipped.isBook());
+        assertEquals("Wrong isbn", "Isbn_2", skipped.getIsbn());
+        assertTrue("Deletion expected in a delta file", deletion.isDeletion());
+        assertFalse("Deletion is not a book", deletion.isBook());
+        assertEquals("Wrong isbn of deletion", "Isbn_1", deletion.getIsbn());
+        assertNull("Deletion has no image id", deletion.getImageId());
+        assertEquals("Wrong line of deletion", 1, deletion.getLine());
+        assertEquals("Wrong book after deletion", "Isbn_2", book.getIsbn());
+        assertEquals("Wrong line of book", 4, book.getLine());
+    }
+}
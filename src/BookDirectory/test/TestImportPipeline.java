@@ -0,0 +1,175 @@
+package BookDirectory.test;
+
+import BookDirectory.CatalogBatchWriter;
+import BookDirectory.DerbyDBManager;
+import BookDirectory.ImportPipeline;
+import BookDirectory.ImportRecord;
+import BookDirectory.ImportRecordSource;
+import BookDirectory.Model;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Тестовый класс для проверки конвейера импорта: несколько потоков проверки, восстановление порядка записей,
+ * дубли книг внутри файла, иллюстрации книг из этого же файла, остановка при ошибке этапа.
+ * Записи пишутся в б.д. из настроек (isbn с уникальным началом), после теста книги удаляются.
+ * @see BookDirectory.ImportPipeline
+ */
+public class TestImportPipeline {
+
+    private final String prefix = "P" + System.currentTimeMillis() % 1000000000L + "-";
+    private final List<String> isbns = new ArrayList<String>();
+
+    @BeforeClass
+    public static void setUp() {
+        Model.getInstance().getProperties("BookDirectory.properties");
+        DerbyDBManager.bootstrap();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        DerbyDBManager db = new DerbyDBManager();
+        try {
+            db.deleteBooks(isbns);
+        } finally {
+            db.close();
+        }
+    }
+
+    @Test
+    public void testRun_duplicateBookInFile_droppedAndEarlierBookIllustrationAccepted() throws Exception {
+        //arrange
+        List<ImportRecord> records = new ArrayList<ImportRecord>();
+        for (int i = 0; i < 200; i++) {
+            records.add(book(isbn(i), records.size()));
+        }
+        records.add(book(isbn(7), records.size()));
+        records.add(illustration("img-1", isbn(3), records.size()));
+        records.add(illustration("img-1", isbn(199), records.size()));
+        records.add(illustration("img-1", prefix + "none", records.size()));
+        StringWriter report = new StringWriter();
+        CatalogBatchWriter writer = new CatalogBatchWriter(16);
+        ImportPipeline pipeline = new ImportPipeline(source(records, -1), writer, 4, 2);
+        pipeline.setReport(report);
+
+        //act
+        try {
+            pipeline.run();
+        } finally {
+            writer.close();
+        }
+
+        //assert
+        assertEquals("Wrong count of books", 200, writer.getBooksWritten());
+        assertEquals("Wrong count of illustrations", 2, writer.getIllustrationsWritten());
+        assertEquals("Wrong count of duplicates", 1, pipeline.getDuplicateCount());
+        assertEquals("Wrong count of orphans", 1, pipeline.getOrphanCount());
+        assertEquals("Wrong count of parsed records", records.size(), pipeline.getCount(ImportPipeline.Stage.PARSE));
+        assertTrue("Duplicate is not reported: " + report, report.toString().contains("Строка 201:"));
+        assertTrue("Orphan is not reported: " + report, report.toString().contains("Строка 204:"));
+    }
+
+    @Test
+    public void testRun_illustrationBeforeItsBook_illustrationImported() throws Exception {
+        //arrange
+        List<ImportRecord> records = new ArrayList<ImportRecord>();
+        records.add(illustration("img-1", isbn(40), records.size()));
+        for (int i = 0; i < 50; i++) {
+            records.add(book(isbn(i), records.size()));
+        }
+        records.add(illustration("img-1", isbn(40), records.size()));
+        records.add(illustration("img-2", prefix + "none", records.size()));
+        StringWriter report = new StringWriter();
+        CatalogBatchWriter writer = new CatalogBatchWriter(16);
+        ImportPipeline pipeline = new ImportPipeline(source(records, -1), writer, 4, 2);
+        pipeline.setReport(report);
+
+        //act
+        try {
+            pipeline.run();
+        } finally {
+            writer.close();
+        }
+
+        //assert
+        assertEquals("Wrong count of books", 50, writer.getBooksWritten());
+        assertEquals("Illustration before its book is not imported", 1, writer.getIllustrationsWritten());
+        assertEquals("Wrong count of duplicates", 1, pipeline.getDuplicateCount());
+        assertEquals("Wrong count of orphans", 1, pipeline.getOrphanCount());
+        assertTrue("Orphan is not reported: " + report, report.toString().contains("Строка 53:"));
+    }
+
+    @Test
+    public void testRun_sourceFails_firstErrorRethrown() throws Exception {
+        //arrange
+        List<ImportRecord> records = new ArrayList<ImportRecord>();
+        for (int i = 0; i < 50; i++) {
+            records.add(book(isbn(i), records.size()));
+        }
+        CatalogBatchWriter writer = new CatalogBatchWriter(1000);
+        ImportPipeline pipeline = new ImportPipeline(source(records, 30), writer, 4, 2);
+        pipeline.setReport(new StringWriter());
+
+        //act
+        IOException error = null;
+        try {
+            pipeline.run();
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            writer.close();
+        }
+
+        //assert
+        assertNotNull("Stage error is not rethrown", error);
+        assertEquals("Wrong error", "broken file", error.getMessage());
+        assertTrue("Records after the error are parsed", pipeline.getCount(ImportPipeline.Stage.PARSE) <= 30);
+    }
+
+    /**
+     * Служебный метод - isbn книги теста (запоминается для удаления).
+     */
+    private String isbn(int i) {
+        String isbn = prefix + i;
+        if (!isbns.contains(isbn)) {
+            isbns.add(isbn);
+        }
+        return isbn;
+    }
+
+    private static ImportRecord book(String isbn, int index) {
+        return ImportRecord.book(isbn, "Title", "Author", index + 1, index + 1, index, index + 1);
+    }
+
+    private static ImportRecord illustration(String imageId, String isbn, int index) {
+        return ImportRecord.illustration(imageId, isbn, "Name", "Painter", index + 1, index + 1, index, index + 1);
+    }
+
+    /**
+     * Служебный метод - источник записей из списка.
+     * @param failAt int - номер записи, на которой источник бросает IOException (-1 - без ошибки).
+     */
+    private static ImportRecordSource source(final List<ImportRecord> records, final int failAt) {
+        return new ImportRecordSource() {
+            private int next = 0;
+
+            public ImportRecord next() throws IOException {
+                if (next == failAt) {
+                    throw new IOException("broken file");
+                }
+                return next < records.size() ? records.get(next++) : null;
+            }
+
+            public void close() {
+            }
+        };
+    }
+}
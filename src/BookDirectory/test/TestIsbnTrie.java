@@ -0,0 +1,79 @@
+package BookDirectory.test;
+
+import BookDirectory.IsbnTrie;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Тестовый класс для проверки дерева isbn (поиск по началу, подсказки, удаление).
+ * @see BookDirectory.IsbnTrie
+ */
+public class TestIsbnTrie {
+
+    @Test
+    public void testPrefix_3IsbnsWithPrefix_first2Sorted() {
+        //arrange
+        IsbnTrie trie = new IsbnTrie();
+        trie.add("978-5-17-3");
+        trie.add("978-5-17-1");
+        trie.add("978-5-04-1");
+        trie.add("978-5-17-2");
+
+        //act
+        String isbns = trie.prefix("978-5-17", 2).toString();
+
+        //assert
+        assertEquals("Wrong isbns by prefix", "[978-5-17-1, 978-5-17-2]", isbns);
+    }
+
+    @Test
+    public void testSuggest_typoInIsbn_closestIsbnFirst() {
+        //arrange
+        IsbnTrie trie = new IsbnTrie();
+        trie.add("978-5-17-071285-4");
+        trie.add("978-5-17-071285-9");
+        trie.add("978-5-04-000000-0");
+
+        //act
+        String isbns = trie.suggest("978-5-17-071258-4", 2, 5).toString();
+
+        //assert
+        assertEquals("Wrong suggestions", "[978-5-17-071285-4]", isbns);
+    }
+
+    @Test
+    public void testRemove_addedIsbn_notContained() {
+        //arrange
+        IsbnTrie trie = new IsbnTrie();
+        trie.add("isbn-1");
+        trie.add("isbn-12");
+
+        //act
+        trie.remove("isbn-1");
+
+        //assert
+        assertFalse("Removed isbn is found", trie.contains("isbn-1"));
+        assertTrue("Longer isbn is removed", trie.contains("isbn-12"));
+        assertEquals("Wrong count of isbns", 1, trie.size());
+    }
+
+    @Test
+    public void testPrefix_prefixEndsInsideSharedPart_allIsbnsFound() {
+        //arrange
+        IsbnTrie trie = new IsbnTrie();
+        trie.add("978-5-17-071285-4");
+        trie.add("978-5-17-071285");
+        trie.add("978-5-17-099999-1");
+        trie.add("978-5-04-000000-0");
+
+        //act
+        String isbns = trie.prefix("978-5-1", 10).toString();
+
+        //assert
+        assertEquals("Wrong isbns by prefix", "[978-5-17-071285, 978-5-17-071285-4, 978-5-17-099999-1]", isbns);
+        assertTrue("Isbn ending at a split is not found", trie.contains("978-5-17-071285"));
+        assertFalse("Part of an isbn is found", trie.contains("978-5-17-0712"));
+        assertEquals("Chains of single children expected to be collapsed", 7, trie.getNodeCount());
+    }
+}
@@ -0,0 +1,121 @@
+package BookDirectory.test;
+
+import BookDirectory.ImportParser;
+import BookDirectory.ImportRecord;
+import BookDirectory.MappedImportReader;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Тестовый класс для проверки чтения файла импорта по частям (порядок записей, номера строк, смещения).
+ * @see BookDirectory.MappedImportReader
+ */
+public class TestMappedImportReader {
+
+    @Test
+    public void testNext_smallChunks_sameRecordsAsSequentialParser() throws Exception {
+        assertSameRecords(importFile("\n"));
+    }
+
+    @Test
+    public void testNext_carriageReturnLineEndings_fileSplitIntoChunks() throws Exception {
+        int chunks = assertSameRecords(importFile("\r"));
+
+        assertTrue("File with \\r line endings is read as one chunk: " + chunks, chunks > 10);
+    }
+
+    @Test
+    public void testNext_noTagWithinTwoChunks_ioExceptionThrown() throws Exception {
+        //arrange
+        File file = File.createTempFile("import", ".txt");
+        file.deleteOnExit();
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            out.write("[Книга]\nIsbn_0\nНазвание\nАвтор\n");
+            for (int i = 0; i < 5000; i++) {
+                out.write("x");
+            }
+        } finally {
+            out.close();
+        }
+
+        //act
+        IOException error = null;
+        try {
+            MappedImportReader reader = new MappedImportReader(file, 1024, 2);
+            try {
+                while (reader.next() != null) {
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            error = e;
+        }
+
+        //assert
+        assertNotNull("Chunk without a boundary is not reported", error);
+    }
+
+    /**
+     * Служебный метод - файл импорта из 500 книг с иллюстрациями.
+     * @param newLine String - перевод строки.
+     */
+    private static File importFile(String newLine) throws Exception {
+        File file = File.createTempFile("import", ".txt");
+        file.deleteOnExit();
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            out.write("\uFEFF");
+            for (int i = 0; i < 500; i++) {
+                out.write(("[Книга]\nIsbn_" + i + "\nНазвание " + i + "\nАвтор\n\n").replace("\n", newLine));
+                out.write(("[Иллюстрация]\nid" + i + "\nIsbn_" + i + "\nРисунок\nХудожник\n\n").replace("\n", newLine));
+            }
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    /**
+     * Служебный метод - сравнивает записи файла, прочитанные по частям, с последовательным разбором.
+     * @return int - количество частей.
+     */
+    private static int assertSameRecords(File file) throws Exception {
+        //arrange
+        ImportParser expected = new ImportParser(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        MappedImportReader reader = new MappedImportReader(file, 1024, 3);
+
+        //act
+        int count = 0;
+        try {
+            ImportRecord record;
+            while ((record = expected.next()) != null) {
+                ImportRecord actual = reader.next();
+
+                //assert
+                assertNotNull("Record is lost: " + record, actual);
+                assertEquals("Wrong order", record.getIsbn(), actual.getIsbn());
+                assertEquals("Wrong type", record.isBook(), actual.isBook());
+                assertEquals("Wrong line", record.getLine(), actual.getLine());
+                assertEquals("Wrong offset", record.getOffset(), actual.getOffset());
+                count++;
+            }
+            assertNull("Extra record", reader.next());
+        } finally {
+            expected.close();
+            reader.close();
+        }
+        assertEquals("Wrong count of records", 1000, count);
+        return reader.getChunkCount();
+    }
+}
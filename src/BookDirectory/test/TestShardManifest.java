@@ -0,0 +1,82 @@
+package BookDirectory.test;
+
+import BookDirectory.ShardManifest;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Тестовый класс для проверки манифеста экспорта по частям (запись, чтение, проверка контрольной суммы).
+ * @see BookDirectory.ShardManifest
+ */
+public class TestShardManifest {
+
+    @Test
+    public void testLoad_savedManifest_sameShardsReturned() throws Exception {
+        //arrange
+        File directory = createTempDirectory();
+        ShardManifest manifest = new ShardManifest("catalog");
+        manifest.add(new ShardManifest.Shard("catalog.part-001.txt", "", "Isbn_5", 5, 1, 200, 0xCAFEBABEL));
+        manifest.add(new ShardManifest.Shard("catalog.part-002.txt", "Isbn_5", null, 4, 0, 150, 0x1234L));
+
+        //act
+        File file = manifest.save(directory);
+        ShardManifest loaded = ShardManifest.load(file);
+        file.delete();
+        directory.delete();
+
+        //assert
+        assertEquals("catalog", loaded.getName());
+        assertEquals(2, loaded.getShards().size());
+        assertEquals("Isbn_5", loaded.getShards().get(0).getToIsbn());
+        assertNull(loaded.getShards().get(1).getToIsbn());
+        assertEquals(0xCAFEBABEL, loaded.getShards().get(0).getCrc32());
+        assertEquals(4, loaded.getShards().get(1).getBooks());
+    }
+
+    @Test
+    public void testVerify_changedShard_throwsIOException() throws Exception {
+        //arrange
+        File directory = createTempDirectory();
+        File part = new File(directory, "catalog.part-001.txt");
+        write(part, "[Книга]\nIsbn_1\nTitle_1\nAuthor_1\n");
+        ShardManifest.Shard shard = new ShardManifest.Shard(part.getName(), "", null, 1, 0, part.length(), ShardManifest.checksum(part));
+        ShardManifest.verify(directory, shard);
+        write(part, "[Книга]\nIsbn_2\nTitle_1\nAuthor_1\n");
+
+        //act
+        boolean failed = false;
+        try {
+            ShardManifest.verify(directory, shard);
+        }
+        catch (IOException e) {
+            failed = true;
+        }
+        part.delete();
+        directory.delete();
+
+        //assert
+        assertTrue("Changed shard passed the checksum", failed);
+    }
+
+    private static File createTempDirectory() throws IOException {
+        File directory = File.createTempFile("shards", "");
+        directory.delete();
+        directory.mkdir();
+        return directory;
+    }
+
+    private static void write(File file, String text) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(text.getBytes("UTF-8"));
+        }
+        finally {
+            out.close();
+        }
+    }
+}